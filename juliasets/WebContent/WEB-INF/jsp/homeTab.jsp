@@ -7,6 +7,14 @@
 	<img alt="Generated Julia Set" class="img-fluid" src="${pageContext.request.contextPath}/images/test.png">
 </div>
 
+<%-- filled with tiles by JuliaTileMap in juliaSets.js --%>
+<div id="juliaSetTileMap" hidden></div>
+
+<div class="form-check form-switch">
+	<input id="exploreTiles" class="form-check-input" type="checkbox">
+	<label class="form-check-label" for="exploreTiles">Explore by dragging and scrolling</label>
+</div>
+
 
 <form class="needs-validation" id="juliaParamsForm" novalidate>
 	<div class="row g-3">
@@ -1,2 +1,13 @@
-<img src="${pageContext.request.contextPath}/images/${fileName}"
-	  alt="Generated Julia Set" class="img-fluid">
\ No newline at end of file
+<%@ include file="includeTags.jsp" %>
+<c:choose>
+	<c:when test="${not empty pictureId}">
+		<%-- a low resolution preview, swapped out by followRenderProgress in juliaSets.js --%>
+		<img id="juliaSetImage" src="${pageContext.request.contextPath}/images/${fileName}"
+			  alt="Generated Julia Set" class="img-fluid" data-picture-id="${pictureId}"
+			  width="${pictureWidth}" height="${pictureHeight}">
+	</c:when>
+	<c:otherwise>
+		<img id="juliaSetImage" src="${pageContext.request.contextPath}/images/${fileName}"
+			  alt="Generated Julia Set" class="img-fluid">
+	</c:otherwise>
+</c:choose>
@@ -1,9 +1,23 @@
-'use strict';class JuliaSetParams{constructor(){this.realComponent=$("#realComponent").val();this.imaginaryComponent=$("#imaginaryComponent").val();this.minXValue=$("#minXValue").val();this.maxXValue=$("#maxXValue").val();this.minYValue=$("#minYValue").val();this.maxYValue=$("#maxYValue").val();this.pictureWidth=$("#pictureWidth").val();this.pictureHeight=$("#pictureHeight").val();this.iterations=$("#iterations").val();this.maxModulus=$("#maxModulus").val()}equals(a){return a&&a instanceof JuliaSetParams&&
-this.realComponent==a.realComponent&&this.imaginaryComponent==a.imaginaryComponent&&this.minXValue==a.minXValue&&this.maxXValue==a.maxXValue&&this.minYValue==a.minYValue&&this.maxYValue==a.maxYValue&&this.pictureWidth==a.pictureWidth&&this.pictureHeight==a.pictureHeight&&this.iterations==a.iterations&&this.maxModulus==a.maxModulus}}
-class JuliaSetConstraints{constructor(a){a=JSON.parse(a);this.sqlIntMin=a.sqlIntMin;this.sqlIntMax=a.sqlIntMax;this.sqlDecLength=a.sqlDecLength;this.sqlDecPrecision=a.sqlDecPrecision;this.maxDecIntDigits=this.sqlDecLength-this.sqlDecPrecision+1;this.sqlDecMax=parseFloat("1e"+this.maxDecIntDigits);this.sqlDecMin=-this.sqlDecMax;this.iterationsLimit=a.iterationsLimit;this.modulusLimit=a.modulusLimit;this.resolutionLimit=a.resolutionLimit;$("#iterations").attr("max",this.iterationsLimit);$("#maxModulus").attr("max",
-this.modulusLimit);$("#pictureWidth").attr("max",this.resolutionLimit);$("#pictureHeight").attr("max",this.resolutionLimit)}isValidDecimal(a){var b=$(a);a=b.find(".form-control");b=b.find(".invalid-feedback");if(!this.validDecimal(a.val()))return a.addClass("is-invalid"),b.text("Please enter a number between -10^"+this.maxDecIntDigits+" and 10^"+this.maxDecIntDigits+" (exclusive)."),$("html, body").scrollTop(a.closest(".row").offset().top),!1;a.removeClass("is-invalid");b.text("");return!0}validDecimal(a){let b=
-parseFloat(a);return""!=a&&!isNaN(a)&&b>this.sqlDecMin&&b<this.sqlDecMax}isValidInt(a){var b=$(a);a=b.find(".form-control");let c=a.attr("max");b=b.find(".invalid-feedback");if(!this.validatePositiveInt(a.val(),c))return a.addClass("is-invalid"),b.text("Please enter a posivite integer whose value is at most "+c+"."),$("html, body").scrollTop(a.closest(".row").offset().top),!1;a.removeClass("is-invalid");b.text("");return!0}validatePositiveInt(a,b){let c=parseFloat(a),d=parseInt(a);return""!=a&&!isNaN(a)&&
-0<d&&d<=b&&c==d}}var currentImageValues=new JuliaSetParams,juliaSetConstraints=new JuliaSetConstraints("{}");$(document).ready(function(){getConstraints();$("#generateJuliaSet").on("click",function(){generateImage()});$(".mainNavLink").on("keypress",function(a){13==a.keyCode&&this.click()});$("#skipNav").on("click",function(a){skipNav(this,a)});$(".juliaParam").on("change",function(){validateJuliaParam(this)})});function skipNav(a,b){a=$(a).attr("href");$(a).focus();b.stopPropagation()}
+'use strict';var $jscomp=$jscomp||{};$jscomp.scope={};$jscomp.arrayIteratorImpl=function(a){var b=0;return function(){return b<a.length?{done:!1,value:a[b++]}:{done:!0}}};$jscomp.arrayIterator=function(a){return{next:$jscomp.arrayIteratorImpl(a)}};$jscomp.ASSUME_ES5=!1;$jscomp.ASSUME_NO_NATIVE_MAP=!1;$jscomp.ASSUME_NO_NATIVE_SET=!1;$jscomp.SIMPLE_FROUND_POLYFILL=!1;$jscomp.ISOLATE_POLYFILLS=!1;$jscomp.FORCE_POLYFILL_PROMISE=!1;$jscomp.FORCE_POLYFILL_PROMISE_WHEN_NO_UNHANDLED_REJECTION=!1;
+$jscomp.defineProperty=$jscomp.ASSUME_ES5||"function"==typeof Object.defineProperties?Object.defineProperty:function(a,b,c){if(a==Array.prototype||a==Object.prototype)return a;a[b]=c.value;return a};$jscomp.getGlobal=function(a){a=["object"==typeof globalThis&&globalThis,a,"object"==typeof window&&window,"object"==typeof self&&self,"object"==typeof global&&global];for(var b=0;b<a.length;++b){var c=a[b];if(c&&c.Math==Math)return c}throw Error("Cannot find global object");};$jscomp.global=$jscomp.getGlobal(this);
+$jscomp.IS_SYMBOL_NATIVE="function"===typeof Symbol&&"symbol"===typeof Symbol("x");$jscomp.TRUST_ES6_POLYFILLS=!$jscomp.ISOLATE_POLYFILLS||$jscomp.IS_SYMBOL_NATIVE;$jscomp.polyfills={};$jscomp.propertyToPolyfillSymbol={};$jscomp.POLYFILL_PREFIX="$jscp$";var $jscomp$lookupPolyfilledValue=function(a,b){var c=$jscomp.propertyToPolyfillSymbol[b];if(null==c)return a[b];c=a[c];return void 0!==c?c:a[b]};
+$jscomp.polyfill=function(a,b,c,d){b&&($jscomp.ISOLATE_POLYFILLS?$jscomp.polyfillIsolated(a,b,c,d):$jscomp.polyfillUnisolated(a,b,c,d))};$jscomp.polyfillUnisolated=function(a,b,c,d){c=$jscomp.global;a=a.split(".");for(d=0;d<a.length-1;d++){var e=a[d];if(!(e in c))return;c=c[e]}a=a[a.length-1];d=c[a];b=b(d);b!=d&&null!=b&&$jscomp.defineProperty(c,a,{configurable:!0,writable:!0,value:b})};
+$jscomp.polyfillIsolated=function(a,b,c,d){var e=a.split(".");a=1===e.length;d=e[0];d=!a&&d in $jscomp.polyfills?$jscomp.polyfills:$jscomp.global;for(var f=0;f<e.length-1;f++){var h=e[f];if(!(h in d))return;d=d[h]}e=e[e.length-1];c=$jscomp.IS_SYMBOL_NATIVE&&"es6"===c?d[e]:null;b=b(c);null!=b&&(a?$jscomp.defineProperty($jscomp.polyfills,e,{configurable:!0,writable:!0,value:b}):b!==c&&($jscomp.propertyToPolyfillSymbol[e]=$jscomp.IS_SYMBOL_NATIVE?$jscomp.global.Symbol(e):$jscomp.POLYFILL_PREFIX+e,e=
+$jscomp.propertyToPolyfillSymbol[e],$jscomp.defineProperty(d,e,{configurable:!0,writable:!0,value:b})))};$jscomp.initSymbol=function(){};$jscomp.iteratorPrototype=function(a){a={next:a};a[Symbol.iterator]=function(){return this};return a};$jscomp.iteratorFromArray=function(a,b){a instanceof String&&(a+="");var c=0,d=!1,e={next:function(){if(!d&&c<a.length){var f=c++;return{value:b(f,a[f]),done:!1}}d=!0;return{done:!0,value:void 0}}};e[Symbol.iterator]=function(){return e};return e};
+$jscomp.polyfill("Array.prototype.values",function(a){return a?a:function(){return $jscomp.iteratorFromArray(this,function(b,c){return c})}},"es8","es3");
+class JuliaSetParams{constructor(){this.realComponent=$("#realComponent").val();this.imaginaryComponent=$("#imaginaryComponent").val();this.minXValue=$("#minXValue").val();this.maxXValue=$("#maxXValue").val();this.minYValue=$("#minYValue").val();this.maxYValue=$("#maxYValue").val();this.pictureWidth=$("#pictureWidth").val();this.pictureHeight=$("#pictureHeight").val();this.iterations=$("#iterations").val();this.maxModulus=$("#maxModulus").val()}equals(a){return a&&a instanceof JuliaSetParams&&this.realComponent==
+a.realComponent&&this.imaginaryComponent==a.imaginaryComponent&&this.minXValue==a.minXValue&&this.maxXValue==a.maxXValue&&this.minYValue==a.minYValue&&this.maxYValue==a.maxYValue&&this.pictureWidth==a.pictureWidth&&this.pictureHeight==a.pictureHeight&&this.iterations==a.iterations&&this.maxModulus==a.maxModulus}}
+class JuliaSetConstraints{constructor(a){a=JSON.parse(a);this.sqlIntMin=a.sqlIntMin;this.sqlIntMax=a.sqlIntMax;this.sqlDecLength=a.sqlDecLength;this.sqlDecPrecision=a.sqlDecPrecision;this.maxDecIntDigits=this.sqlDecLength-this.sqlDecPrecision+1;this.sqlDecMax=parseFloat("1e"+this.maxDecIntDigits);this.sqlDecMin=-this.sqlDecMax;this.iterationsLimit=a.iterationsLimit;this.modulusLimit=a.modulusLimit;this.resolutionLimit=a.resolutionLimit;this.tileSize=a.tileSize;this.tileExtent=a.tileExtent;this.maxTileZoom=
+a.maxTileZoom;$("#iterations").attr("max",this.iterationsLimit);$("#maxModulus").attr("max",this.modulusLimit);$("#pictureWidth").attr("max",this.resolutionLimit);$("#pictureHeight").attr("max",this.resolutionLimit)}isValidDecimal(a){var b=$(a);a=b.find(".form-control");b=b.find(".invalid-feedback");if(!this.validDecimal(a.val()))return a.addClass("is-invalid"),b.text("Please enter a number between -10^"+this.maxDecIntDigits+" and 10^"+this.maxDecIntDigits+" (exclusive)."),$("html, body").scrollTop(a.closest(".row").offset().top),
+!1;a.removeClass("is-invalid");b.text("");return!0}validDecimal(a){let b=parseFloat(a);return""!=a&&!isNaN(a)&&b>this.sqlDecMin&&b<this.sqlDecMax}isValidInt(a){var b=$(a);a=b.find(".form-control");let c=a.attr("max");b=b.find(".invalid-feedback");if(!this.validatePositiveInt(a.val(),c))return a.addClass("is-invalid"),b.text("Please enter a posivite integer whose value is at most "+c+"."),$("html, body").scrollTop(a.closest(".row").offset().top),!1;a.removeClass("is-invalid");b.text("");return!0}validatePositiveInt(a,
+b){let c=parseFloat(a),d=parseInt(a);return""!=a&&!isNaN(a)&&0<d&&d<=b&&c==d}}
+class JuliaTileMap{constructor(a,b,c){this.container=$(a);this.params=b;this.tileSize=c.tileSize;this.maxZoom=c.maxTileZoom;this.zoom=0;this.centerX=this.tileSize/2;this.centerY=this.tileSize/2;this.tiles=new Map;this.container.empty();this.addListeners();this.draw()}tileUrl(a,b){return getContextPath()+"/tiles/"+this.params.realComponent+","+this.params.imaginaryComponent+"/"+this.zoom+"/"+a+"/"+b+".png?iterations="+this.params.iterations+"&maxModulus="+this.params.maxModulus}draw(){var a=this.container.width(),
+b=this.container.height();let c=this.centerX-a/2,d=this.centerY-b/2;var e=Math.pow(2,this.zoom)-1,f=Math.max(0,Math.floor(c/this.tileSize));a=Math.min(e,Math.floor((c+a)/this.tileSize));let h=Math.max(0,Math.floor(d/this.tileSize));for(b=Math.min(e,Math.floor((d+b)/this.tileSize));f<=a;f++)for(e=h;e<=b;e++){let g=this.zoom+"/"+f+"/"+e;if(!this.tiles.has(g)){let k=$("<img>",{src:this.tileUrl(f,e),alt:"","class":"juliaSetTile",draggable:!1}).attr("data-x",f).attr("data-y",e);this.container.append(k);
+this.tiles.set(g,k)}}for(let g of this.tiles.values())g.css({left:g.attr("data-x")*this.tileSize-c,top:g.attr("data-y")*this.tileSize-d})}zoomBy(a,b,c){a=Math.min(this.maxZoom,Math.max(0,this.zoom+a));if(a!=this.zoom){var d=Math.pow(2,a-this.zoom),e=this.centerX-this.container.width()/2+b,f=this.centerY-this.container.height()/2+c;this.centerX=e*d-b+this.container.width()/2;this.centerY=f*d-c+this.container.height()/2;this.zoom=a;this.container.empty();this.tiles.clear();this.draw()}}addListeners(){let a=
+this,b=null;this.container.off();this.container.on("pointerdown",function(c){b={x:c.clientX,y:c.clientY};this.setPointerCapture(c.pointerId)});this.container.on("pointermove",function(c){b&&(a.centerX-=c.clientX-b.x,a.centerY-=c.clientY-b.y,b={x:c.clientX,y:c.clientY},a.draw())});this.container.on("pointerup pointercancel",function(){b=null});this.container.on("wheel",function(c){c.preventDefault();let d=a.container.offset();a.zoomBy(0>c.originalEvent.deltaY?1:-1,c.pageX-d.left,c.pageY-d.top)})}}
+var currentImageValues=new JuliaSetParams,juliaSetConstraints=new JuliaSetConstraints("{}");const RENDER_PROGRESS_POLL_MILLIS=250;var tileMap=null;$(document).ready(function(){getConstraints();$("#generateJuliaSet").on("click",function(){generateImage()});$(".mainNavLink").on("keypress",function(a){13==a.keyCode&&this.click()});$("#skipNav").on("click",function(a){skipNav(this,a)});$(".juliaParam").on("change",function(){validateJuliaParam(this)});$("#exploreTiles").on("change",function(){showTileMap()})});
+function showTileMap(){let a=$("#exploreTiles").prop("checked");$("#juliaSetPictureContainer").prop("hidden",a);$("#juliaSetTileMap").prop("hidden",!a);tileMap=a?new JuliaTileMap("#juliaSetTileMap",currentImageValues,juliaSetConstraints):null}function skipNav(a,b){a=$(a).attr("href");$(a).focus();b.stopPropagation()}
 function getConstraints(){$.ajax({url:getContextPath()+"/getConstraints",type:"GET",success:function(a){juliaSetConstraints=new JuliaSetConstraints(a);generateImage()},error:function(a){console.log("error");console.log(a.responseText)}})}
-function generateImage(){let a=new JuliaSetParams;validateImageGeneration(a)&&$.ajax({url:getContextPath()+"/generateJuliaSet.html",type:"GET",contentType:"application/json",data:a,success:function(b){$("#juliaSetPictureContainer").html(b);currentImageValues=a},error:function(b){console.log("error");console.log(b.responseText)}})}function validateImageGeneration(a){return!a.equals(currentImageValues)&&allParamsValid()}
-function allParamsValid(){let a=!0;$(".juliaParam").each(function(){a=a&&validateJuliaParam(this)});return a}function validateJuliaParam(a){let b=$(a).attr("data-js-type");return"dec"==b?juliaSetConstraints.isValidDecimal(a):"int"==b?juliaSetConstraints.isValidInt(a):!0}function getContextPath(){return contextPath};
+function generateImage(){let a=new JuliaSetParams;validateImageGeneration(a)&&$.ajax({url:getContextPath()+"/generateJuliaSet.html",type:"GET",contentType:"application/json",data:a,success:function(b){$("#juliaSetPictureContainer").html(b);currentImageValues=a;tileMap&&showTileMap();followRenderProgress()},error:function(b){console.log("error");console.log(b.responseText)}})}
+function followRenderProgress(){let a=$("#juliaSetImage"),b=a.attr("data-picture-id");b&&$.ajax({url:getContextPath()+"/renderProgress",type:"GET",data:{pictureId:b},success:function(c){c=JSON.parse(c);if($("#juliaSetImage").attr("data-picture-id")==b){if(c.fileName){let d=getContextPath()+"/images/"+c.fileName;a.attr("src")!=d&&a.attr("src",d)}c.done?(a.removeAttr("data-picture-id"),c.errorMessage&&(console.log("error"),console.log(c.errorMessage))):setTimeout(followRenderProgress,RENDER_PROGRESS_POLL_MILLIS)}},
+error:function(c){console.log("error");console.log(c.responseText)}})}function validateImageGeneration(a){return!a.equals(currentImageValues)&&allParamsValid()}function allParamsValid(){let a=!0;$(".juliaParam").each(function(){a=a&&validateJuliaParam(this)});return a}function validateJuliaParam(a){let b=$(a).attr("data-js-type");return"dec"==b?juliaSetConstraints.isValidDecimal(a):"int"==b?juliaSetConstraints.isValidInt(a):!0}function getContextPath(){return contextPath};
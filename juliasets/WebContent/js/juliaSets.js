@@ -53,6 +53,10 @@ class JuliaSetConstraints {
 		this.iterationsLimit = constraints.iterationsLimit;
 		this.modulusLimit = constraints.modulusLimit;
 		this.resolutionLimit = constraints.resolutionLimit;
+		//map tile layout
+		this.tileSize = constraints.tileSize;
+		this.tileExtent = constraints.tileExtent;
+		this.maxTileZoom = constraints.maxTileZoom;
 		//set related max fields where appropriate
 		$("#iterations").attr("max", this.iterationsLimit);
 		$("#maxModulus").attr("max", this.modulusLimit);
@@ -121,11 +125,120 @@ class JuliaSetConstraints {
 	
 }
 
+// shows a Julia set as map tiles that can be dragged and zoomed with the mouse
+// wheel. The tiles of each zoom level are kept once loaded, so only the tiles
+// that come into view for the first time are asked for.
+class JuliaTileMap {
+	constructor(container, params, constraints) {
+		this.container = $(container);
+		this.params = params;
+		this.tileSize = constraints.tileSize;
+		this.maxZoom = constraints.maxTileZoom;
+
+		// the view starts on the whole set, at zoom 0. the center is measured in
+		// pixels from the top left corner of the tiles at the current zoom
+		this.zoom = 0;
+		this.centerX = this.tileSize / 2;
+		this.centerY = this.tileSize / 2;
+		this.tiles = new Map(); // tile image by "zoom/x/y"
+
+		this.container.empty();
+		this.addListeners();
+		this.draw();
+	}
+
+	tileUrl(x, y) {
+		return getContextPath() + "/tiles/" + this.params.realComponent + "," + this.params.imaginaryComponent
+			+ "/" + this.zoom + "/" + x + "/" + y + ".png?iterations=" + this.params.iterations
+			+ "&maxModulus=" + this.params.maxModulus;
+	}
+
+	// places the tiles in view, adding the ones not loaded yet
+	draw() {
+		let width = this.container.width();
+		let height = this.container.height();
+		let left = this.centerX - width / 2;
+		let top = this.centerY - height / 2;
+		let lastTile = Math.pow(2, this.zoom) - 1;
+
+		let firstX = Math.max(0, Math.floor(left / this.tileSize));
+		let lastX = Math.min(lastTile, Math.floor((left + width) / this.tileSize));
+		let firstY = Math.max(0, Math.floor(top / this.tileSize));
+		let lastY = Math.min(lastTile, Math.floor((top + height) / this.tileSize));
+		for (let x = firstX; x <= lastX; x++) {
+			for (let y = firstY; y <= lastY; y++) {
+				let key = this.zoom + "/" + x + "/" + y;
+				if (!this.tiles.has(key)) {
+					let tile = $("<img>", { src: this.tileUrl(x, y), alt: "", "class": "juliaSetTile", draggable: false })
+						.attr("data-x", x).attr("data-y", y);
+					this.container.append(tile);
+					this.tiles.set(key, tile);
+				}
+			}
+		}
+
+		// loaded tiles out of view stay where they are, hidden by the container
+		for (let tile of this.tiles.values()) {
+			tile.css({
+				left: tile.attr("data-x") * this.tileSize - left,
+				top: tile.attr("data-y") * this.tileSize - top
+			});
+		}
+	}
+
+	// zooms in (+1) or out (-1) keeping the point under (offsetX, offsetY) still
+	zoomBy(step, offsetX, offsetY) {
+		let zoom = Math.min(this.maxZoom, Math.max(0, this.zoom + step));
+		if (zoom == this.zoom) {
+			return;
+		}
+		let scale = Math.pow(2, zoom - this.zoom);
+		let pointX = this.centerX - this.container.width() / 2 + offsetX;
+		let pointY = this.centerY - this.container.height() / 2 + offsetY;
+		this.centerX = pointX * scale - offsetX + this.container.width() / 2;
+		this.centerY = pointY * scale - offsetY + this.container.height() / 2;
+		this.zoom = zoom;
+
+		// tiles of the other zoom levels no longer fit
+		this.container.empty();
+		this.tiles.clear();
+		this.draw();
+	}
+
+	addListeners() {
+		let map = this;
+		let dragging = null;
+		this.container.off();
+		this.container.on("pointerdown", function(event) {
+			dragging = { x: event.clientX, y: event.clientY };
+			this.setPointerCapture(event.pointerId);
+		});
+		this.container.on("pointermove", function(event) {
+			if (dragging) {
+				map.centerX -= event.clientX - dragging.x;
+				map.centerY -= event.clientY - dragging.y;
+				dragging = { x: event.clientX, y: event.clientY };
+				map.draw();
+			}
+		});
+		this.container.on("pointerup pointercancel", function() {
+			dragging = null;
+		});
+		this.container.on("wheel", function(event) {
+			event.preventDefault();
+			let offset = map.container.offset();
+			map.zoomBy(event.originalEvent.deltaY < 0 ? 1 : -1, event.pageX - offset.left, event.pageY - offset.top);
+		});
+	}
+}
+
 // initialize objects - the empty constructors are meaningless, but this
 // allows for ctrl+click behavior in a nice javascript editor.  These will 
 // be correctly repopulated after screen loads (see getConstraints and generateImage functions)
 var currentImageValues = new JuliaSetParams(); // holds the params for the image shown on the screen
 var juliaSetConstraints = new JuliaSetConstraints("{}"); // object to hold the server and DB constraints
+const RENDER_PROGRESS_POLL_MILLIS = 250; // how often to ask for a finer image while a picture renders
+var tileMap = null; // the tiles shown instead of the picture while exploring
 
 $(document).ready(function() {
 	getConstraints();
@@ -151,8 +264,26 @@ $(document).ready(function() {
 	$(".juliaParam").on("change", function() {
 		validateJuliaParam(this);
 	});
+
+	// switch between the picture and the tiles
+	$("#exploreTiles").on("change", function() {
+		showTileMap();
+	});
 });
 
+// shows the tiles of the current picture's Julia set instead of the picture,
+// or the picture again, depending on the explore switch
+function showTileMap() {
+	let exploring = $("#exploreTiles").prop("checked");
+	$("#juliaSetPictureContainer").prop("hidden", exploring);
+	$("#juliaSetTileMap").prop("hidden", !exploring);
+	if (exploring) {
+		tileMap = new JuliaTileMap("#juliaSetTileMap", currentImageValues, juliaSetConstraints);
+	} else {
+		tileMap = null;
+	}
+}
+
 // processor for skip nav. "t" value is DOM element for skip nav and the href value
 // contains the item we want to skip to.
 // ideally should be handled by browser but I saw some slight inconsistencies
@@ -201,6 +332,14 @@ function generateImage() {
 
 				//now that it's processed, reset the current image values
 				currentImageValues = newData;
+
+				// start exploring the new Julia set from the top
+				if (tileMap) {
+					showTileMap();
+				}
+
+				// large pictures come back as a preview first
+				followRenderProgress();
 			},
 			error: function(error) {
 				//TODO: externalize error Handling for uniformity
@@ -211,6 +350,52 @@ function generateImage() {
 	}
 }
 
+// polls the server while a large picture is rendered coarse-to-fine, swapping
+// in each finer image until the finished one is shown. Polling stops once the
+// render is done or a newer picture has replaced this one.
+function followRenderProgress() {
+	let image = $("#juliaSetImage");
+	let pictureId = image.attr("data-picture-id");
+	if (!pictureId) {
+		return;
+	}
+
+	$.ajax({
+		url: getContextPath() + "/renderProgress",
+		type: "GET",
+		data: { pictureId: pictureId },
+		success: function(result) {
+			let progress = JSON.parse(result);
+
+			// a newer picture may have been generated while waiting
+			if ($("#juliaSetImage").attr("data-picture-id") != pictureId) {
+				return;
+			}
+			if (progress.fileName) {
+				let src = getContextPath() + "/images/" + progress.fileName;
+				if (image.attr("src") != src) {
+					image.attr("src", src);
+				}
+			}
+			if (progress.done) {
+				image.removeAttr("data-picture-id");
+				if (progress.errorMessage) {
+					//TODO: externalize error Handling for uniformity
+					console.log("error");
+					console.log(progress.errorMessage);
+				}
+			} else {
+				setTimeout(followRenderProgress, RENDER_PROGRESS_POLL_MILLIS);
+			}
+		},
+		error: function(error) {
+			//TODO: externalize error Handling for uniformity
+			console.log("error");
+			console.log(error.responseText);
+		}
+	});
+}
+
 // helper method for image set generation
 // retuires newData be different from current image's data and 
 // revalidates parameters.
@@ -0,0 +1,181 @@
+package com.julia.sets.domain.matrix;
+
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link EscapeTimeKernel} that iterates a full vector register of pixels from
+ * the same row at once using the JDK Vector API. <br>
+ * <br>
+ * Each lane keeps its own escape count. Lanes that escape are masked off and
+ * keep their count, and the loop ends as soon as every lane has escaped or been
+ * caught in a cycle (when periodicity checking is on, see
+ * {@link ScalarEscapeTimeKernel}). Columns
+ * left over at the end of a row are handled by a
+ * {@link ScalarEscapeTimeKernel}. <br>
+ * <br>
+ * This class is only compiled with the vector-kernel Maven profile and only
+ * used when {@link EscapeTimeKernelFactory} finds the jdk.incubator.vector
+ * module and a CPU with wide enough registers.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class VectorEscapeTimeKernel implements EscapeTimeKernel {
+
+   private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+   /**
+    * Fewer lanes than this (e.g., SSE only) is not worth the overhead of the
+    * masks.
+    */
+   private static final int MIN_LANES = 4;
+
+   private final ScalarEscapeTimeKernel scalarKernel;
+
+   private final double juliaReal;
+
+   private final double juliaImaginary;
+
+   private final int iterations;
+
+   private final double bailoutSquared;
+
+   private final boolean periodicityCheck;
+
+   private final double periodicityToleranceSquared;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} holding the Julia Number, iterations and
+    *           maxModulus
+    * @param periodicityCheck
+    *           true to stop iterating points caught in an attracting cycle
+    */
+   public VectorEscapeTimeKernel(JuliaPicture jp, boolean periodicityCheck) {
+      scalarKernel = new ScalarEscapeTimeKernel(jp, periodicityCheck);
+      juliaReal = jp.getJuliaNum().getRealComponent();
+      juliaImaginary = jp.getJuliaNum().getImaginaryComponent();
+      iterations = jp.getIterations();
+      bailoutSquared = ScalarEscapeTimeKernel.bailoutSquared(jp.getMaxModulus());
+      this.periodicityCheck = periodicityCheck;
+      periodicityToleranceSquared = ScalarEscapeTimeKernel.periodicityToleranceSquared(jp);
+   }
+
+   /**
+    * Checks that the preferred vector shape on this CPU holds at least
+    * {@link #MIN_LANES} doubles, i.e., AVX2 or AVX-512 on x86.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if this kernel should be used on this machine
+    */
+   public static boolean isSupported() {
+      return SPECIES.length() >= MIN_LANES;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public int iterationsToDiverge(double realComponent, double imaginaryComponent) {
+      return scalarKernel.iterationsToDiverge(realComponent, imaginaryComponent);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the bounds of the scalar kernel, since the lanes do exactly the
+    *         same arithmetic
+    */
+   @Override
+   public IntervalEscapeTime getIntervalEscapeTime() {
+      return scalarKernel.getIntervalEscapeTime();
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public void fillRow(EscapeCountMatrix matrix, int row, double[] xValues, int fromColumn, int toColumn,
+         double imaginaryComponent) {
+      int lanes = SPECIES.length();
+      var counts = new double[lanes];
+      var column = fromColumn;
+
+      for (; column + lanes <= toColumn; column += lanes) {
+         var zr = DoubleVector.fromArray(SPECIES, xValues, column);
+         var zi = DoubleVector.broadcast(SPECIES, imaginaryComponent);
+         var count = DoubleVector.broadcast(SPECIES, EscapeCountMatrix.INTERIOR);
+         VectorMask<Double> active = SPECIES.maskAll(true);
+
+         // every lane saves z on the same iterations, so one counter does for all
+         var savedR = zr;
+         var savedI = zi;
+         var period = 1;
+         var sinceSaved = 0;
+
+         for (var i = 1; i <= iterations; i++) {
+            var zr2 = zr.mul(zr);
+            var zi2 = zi.mul(zi);
+            var escaped = zr2.add(zi2).compare(VectorOperators.GT, bailoutSquared).and(active);
+            if (escaped.anyTrue()) {
+               count = count.blend(i, escaped);
+               active = active.andNot(escaped);
+               if (!active.anyTrue()) {
+                  break;
+               }
+            }
+            // same operations as the scalar kernel so the results match exactly
+            var zrzi = zr.mul(zi);
+            zi = zrzi.add(zrzi).add(juliaImaginary);
+            zr = zr2.sub(zi2).add(juliaReal);
+
+            if (periodicityCheck) {
+               var dr = zr.sub(savedR);
+               var di = zi.sub(savedI);
+               var periodic = dr.mul(dr).add(di.mul(di)).compare(VectorOperators.LT, periodicityToleranceSquared)
+                     .and(active);
+               if (periodic.anyTrue()) {
+                  // these lanes keep their interior count
+                  active = active.andNot(periodic);
+                  if (!active.anyTrue()) {
+                     break;
+                  }
+               }
+               if (++sinceSaved == period) {
+                  sinceSaved = 0;
+                  period <<= 1;
+                  savedR = zr;
+                  savedI = zi;
+               }
+            }
+         }
+
+         count.intoArray(counts, 0);
+         for (var lane = 0; lane < lanes; lane++) {
+            matrix.set(row, column + lane, (int) counts[lane]);
+         }
+      }
+
+      // finish off the columns that don't fill a whole vector
+      scalarKernel.fillRow(matrix, row, xValues, column, toColumn, imaginaryComponent);
+   }
+}
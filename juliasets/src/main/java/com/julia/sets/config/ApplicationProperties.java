@@ -9,6 +9,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Component;
 
+import com.julia.sets.domain.matrix.EscapeCountEncoding;
+import com.julia.sets.domain.matrix.RenderMode;
+
 /**
  * Contains the mappings from the properties file in src/main/resources as well
  * as some commonly used properties for the controllers.
@@ -27,12 +30,63 @@ public class ApplicationProperties {
    @Value("${texFolderUri}")
    private String texFolderUri;
 
+   @Value("${countFolderUri}")
+   private String countFolderUri;
+
+   @Value("${escapeCountEncoding}")
+   private EscapeCountEncoding escapeCountEncoding;
+
+   @Value("${countFolderBytes}")
+   private Long countFolderBytes;
+
    @Value("${maxWaitTime}")
    private Integer maxWaitTime;
 
    @Value("${maxThreads}")
    private Integer maxThreads;
 
+   @Value("${vectorKernel}")
+   private Boolean vectorKernel;
+
+   @Value("${renderMode}")
+   private RenderMode renderMode;
+
+   @Value("${periodicityCheck}")
+   private Boolean periodicityCheck;
+
+   @Value("${progressivePixels}")
+   private Integer progressivePixels;
+
+   @Value("${renderQueueCapacity}")
+   private Integer renderQueueCapacity;
+
+   @Value("${renderAbandonSeconds}")
+   private Integer renderAbandonSeconds;
+
+   @Value("${maxRenderCost}")
+   private Long maxRenderCost;
+
+   @Value("${renderCostBudget}")
+   private Long renderCostBudget;
+
+   @Value("${imageCacheBytes}")
+   private Long imageCacheBytes;
+
+   @Value("${imageCacheOffHeap}")
+   private Boolean imageCacheOffHeap;
+
+   @Value("${matrixCacheBytes}")
+   private Long matrixCacheBytes;
+
+   @Value("${imageWriteBehindBytes}")
+   private Integer imageWriteBehindBytes;
+
+   @Value("${pngCompressionLevel}")
+   private Integer pngCompressionLevel;
+
+   @Value("${pngFastPixels}")
+   private Integer pngFastPixels;
+
    @Value("${sql.int.min}")
    private BigInteger sqlIntMin;
 
@@ -49,6 +103,8 @@ public class ApplicationProperties {
    
    private File texFolder;
 
+   private File countFolder;
+
    /**
     * Empty constructor for bean initialization
     * 
@@ -78,6 +134,7 @@ public class ApplicationProperties {
 
       imageFolder = new File(new URI(imageFolderUri));
       texFolder = new File(new URI(texFolderUri));
+      countFolder = new File(new URI(countFolderUri));
    }
 
    /**
@@ -107,6 +164,43 @@ public class ApplicationProperties {
       return texFolder;
    }
 
+   /**
+    * Get the folder (as a {@link File} object) that contains the escape counts
+    * behind the Julia Set pictures.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the {@link File} that contains all the escape count files for this
+    *         application
+    */
+   public File getCountFolder() {
+      return countFolder;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the escapeCountEncoding
+    */
+   public EscapeCountEncoding getEscapeCountEncoding() {
+      return escapeCountEncoding;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the countFolderBytes
+    */
+   public Long getCountFolderBytes() {
+      return countFolderBytes;
+   }
+
    /**
     * @author Dan Sievewright
     * @version 1.0.0
@@ -129,6 +223,160 @@ public class ApplicationProperties {
       return maxThreads;
    }
 
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the vectorKernel
+    */
+   public Boolean getVectorKernel() {
+      return vectorKernel;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the renderMode
+    */
+   public RenderMode getRenderMode() {
+      return renderMode;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the periodicityCheck
+    */
+   public Boolean getPeriodicityCheck() {
+      return periodicityCheck;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the progressivePixels
+    */
+   public Integer getProgressivePixels() {
+      return progressivePixels;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the renderQueueCapacity
+    */
+   public Integer getRenderQueueCapacity() {
+      return renderQueueCapacity;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the renderAbandonSeconds
+    */
+   public Integer getRenderAbandonSeconds() {
+      return renderAbandonSeconds;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the maxRenderCost
+    */
+   public Long getMaxRenderCost() {
+      return maxRenderCost;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the renderCostBudget
+    */
+   public Long getRenderCostBudget() {
+      return renderCostBudget;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the imageCacheBytes
+    */
+   public Long getImageCacheBytes() {
+      return imageCacheBytes;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the imageCacheOffHeap
+    */
+   public Boolean getImageCacheOffHeap() {
+      return imageCacheOffHeap;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the matrixCacheBytes
+    */
+   public Long getMatrixCacheBytes() {
+      return matrixCacheBytes;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the imageWriteBehindBytes
+    */
+   public Integer getImageWriteBehindBytes() {
+      return imageWriteBehindBytes;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the pngCompressionLevel
+    */
+   public Integer getPngCompressionLevel() {
+      return pngCompressionLevel;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the pngFastPixels
+    */
+   public Integer getPngFastPixels() {
+      return pngFastPixels;
+   }
+
    /**
     * @author Dan Sievewright
     * @version 1.0.0
@@ -9,6 +9,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 import com.julia.sets.data.entities.converters.BaseColorsConverter;
 
@@ -21,9 +22,17 @@ import com.julia.sets.data.entities.converters.BaseColorsConverter;
  * 
  */
 @Entity
-@Table(name = "julia_picture")
+@Table(name = "julia_picture", uniqueConstraints = @UniqueConstraint(name = "uk_julia_picture_fingerprint",
+      columnNames = "fingerprint"))
 public class JuliaPictureEntity {
 
+   /**
+    * Longest exact corner of a deep zoom: a center with 500 decimal places
+    * less half the picture in pixels, whose exact binary expansion has up to
+    * 1074
+    */
+   private static final int PRECISE_VALUE_LENGTH = 1200;
+
    @Id
    @Column(name = "id")
    @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -66,6 +75,29 @@ public class JuliaPictureEntity {
    @Convert(converter = BaseColorsConverter.class)
    private SortedMap<Integer, Integer> baseColors;
 
+   /**
+    * {@link com.julia.sets.presentation.complex.plane.JuliaPicture#getFingerprint()}
+    * of the picture. It is unique, so the same picture can't be saved twice.
+    */
+   @Column(name = "fingerprint", length = 64)
+   private String fingerprint;
+
+   /**
+    * Exact lower left-hand corner of a deep zoom window, written out in full.
+    * Null for any other picture, whose corner is minXValue and minYValue.
+    */
+   @Column(name = "precise_min_x_value", length = PRECISE_VALUE_LENGTH)
+   private String preciseMinXValue;
+
+   @Column(name = "precise_min_y_value", length = PRECISE_VALUE_LENGTH)
+   private String preciseMinYValue;
+
+   /**
+    * Width and height of a pixel of a deep zoom, or null for any other picture
+    */
+   @Column(name = "pixel_size")
+   private Double pixelSize;
+
    /**
     * @author Dan Sievewright
     * @version 1.0.0
@@ -365,6 +397,98 @@ public class JuliaPictureEntity {
       this.baseColors = baseColors;
    }
 
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the fingerprint
+    */
+   public String getFingerprint() {
+      return fingerprint;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @param fingerprint
+    *           the fingerprint to set
+    */
+   public void setFingerprint(String fingerprint) {
+      this.fingerprint = fingerprint;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the preciseMinXValue
+    */
+   public String getPreciseMinXValue() {
+      return preciseMinXValue;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @param preciseMinXValue
+    *           the preciseMinXValue to set
+    */
+   public void setPreciseMinXValue(String preciseMinXValue) {
+      this.preciseMinXValue = preciseMinXValue;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the preciseMinYValue
+    */
+   public String getPreciseMinYValue() {
+      return preciseMinYValue;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @param preciseMinYValue
+    *           the preciseMinYValue to set
+    */
+   public void setPreciseMinYValue(String preciseMinYValue) {
+      this.preciseMinYValue = preciseMinYValue;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @return the pixelSize
+    */
+   public Double getPixelSize() {
+      return pixelSize;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @param pixelSize
+    *           the pixelSize to set
+    */
+   public void setPixelSize(Double pixelSize) {
+      this.pixelSize = pixelSize;
+   }
+
    /**
     * Empty constructor for entity
     * 
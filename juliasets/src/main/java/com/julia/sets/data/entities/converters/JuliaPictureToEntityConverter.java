@@ -10,6 +10,7 @@ import org.modelmapper.PropertyMap;
 
 import com.julia.sets.data.entities.JuliaPictureEntity;
 import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
 
 /**
  * Converter from {@link JuliaPicture} to {@link JuliaPictureEntity}.
@@ -47,6 +48,27 @@ public class JuliaPictureToEntityConverter extends PropertyMap<JuliaPicture, Jul
          }
       };
 
+      // the exact corner and pixel size of a deep zoom, and null for any other
+      // window, whose double bounds are exact
+      Converter<JuliaWindow, String> toPreciseMinXValue = new AbstractConverter<JuliaWindow, String>() {
+
+         protected String convert(JuliaWindow source) {
+            return source.isDeepZoom() ? source.getPreciseMinXValue().stripTrailingZeros().toPlainString() : null;
+         }
+      };
+      Converter<JuliaWindow, String> toPreciseMinYValue = new AbstractConverter<JuliaWindow, String>() {
+
+         protected String convert(JuliaWindow source) {
+            return source.isDeepZoom() ? source.getPreciseMinYValue().stripTrailingZeros().toPlainString() : null;
+         }
+      };
+      Converter<JuliaWindow, Double> toPixelSize = new AbstractConverter<JuliaWindow, Double>() {
+
+         protected Double convert(JuliaWindow source) {
+            return source.isDeepZoom() ? source.getXStep() : null;
+         }
+      };
+
       // map Julia Number to entity's columns
       map().setRealComponent(source.getJuliaNum().getRealComponent());
       map().setImaginaryComponent(source.getJuliaNum().getImaginaryComponent());
@@ -58,10 +80,14 @@ public class JuliaPictureToEntityConverter extends PropertyMap<JuliaPicture, Jul
       map().setMinYValue(source.getJuliaWindow().getMinYValue());
       map().setMaxYValue(source.getJuliaWindow().getMaxYValue());
       map().setPictureHeight(source.getJuliaWindow().getPictureHeight());
+      using(toPreciseMinXValue).map(source.getJuliaWindow()).setPreciseMinXValue(null);
+      using(toPreciseMinYValue).map(source.getJuliaWindow()).setPreciseMinYValue(null);
+      using(toPixelSize).map(source.getJuliaWindow()).setPixelSize(null);
 
       // map all other fields in JuliaPicture
       // iterations and max modulus are mapped automatically
       map().setInteriorColor(source.getInteriorColor().getRGB());
       using(toBaseColorsMap).map(source.getColors()).setBaseColors(null);
+      map().setFingerprint(source.getFingerprint());
    }
 }
@@ -1,5 +1,7 @@
 package com.julia.sets.data.repositories;
 
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -17,4 +19,15 @@ import com.julia.sets.data.entities.JuliaPictureEntity;
 public interface JuliaPictureJpaRepository
       extends JpaRepository<JuliaPictureEntity, Integer>, JuliaPictureRepository {
 
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fingerprint
+    *           {@link com.julia.sets.presentation.complex.plane.JuliaPicture#getFingerprint()}
+    *           of the picture
+    * @return the record with the fingerprint, if there is one
+    */
+   Optional<JuliaPictureEntity> findByFingerprint(String fingerprint);
 }
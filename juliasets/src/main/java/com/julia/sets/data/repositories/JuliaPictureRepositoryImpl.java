@@ -94,6 +94,16 @@ public class JuliaPictureRepositoryImpl implements JuliaPictureRepository {
       whereClause.add(pc.equality("pictureHeight"));
       whereClause.add(pc.equality("pictureWidth"));
 
+      // a deep zoom is told apart by its exact corner, since different ones can
+      // round to the same double bounds
+      if (jpe.getPreciseMinXValue() != null) {
+         whereClause.add(pc.equality("preciseMinXValue"));
+         whereClause.add(pc.equality("preciseMinYValue"));
+         whereClause.add(pc.equality("pixelSize"));
+      } else {
+         whereClause.add(cbm.isNull(jpeRoot.get("preciseMinXValue")));
+      }
+
       // set up for base_colors field
       var testColors = jpe.getBaseColors();
       var dbValue = jpeRoot.get("baseColors");
@@ -0,0 +1,190 @@
+package com.julia.sets.domain.matrix;
+
+import java.math.BigDecimal;
+
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * {@link EscapeTimeKernel} for mid-depth zooms, where pixels are too close
+ * together for doubles but a whole perturbation reference orbit isn't needed.
+ * <br>
+ * <br>
+ * Every number is kept as an unevaluated sum hi + lo of two doubles
+ * ("double-double"), with |lo| at most half an ulp of hi, which gives about 106
+ * bits of precision. The error-free transformations that make this work are
+ * <ul>
+ * <li>twoSum: s = a + b exactly as s + e, where e = (a - (s - b')) + (b - b')
+ * and b' = s - a</li>
+ * <li>twoProd: p = a * b exactly as p + e, where e = fma(a, b, -p)</li>
+ * </ul>
+ * The pixels are given as double offsets from the reference point of
+ * {@link OffsetEscapeTimeKernel}, which is split into a double-double once.
+ * Escape is tested on the hi parts only, which is as exact as the test in
+ * {@link ScalarEscapeTimeKernel}. Periodicity checking works as it does there,
+ * with the difference of two iterates taken across both parts.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DoubleDoubleEscapeTimeKernel extends OffsetEscapeTimeKernel {
+
+   /**
+    * Measured: an iteration takes about 23ns against 5ns for a double one
+    */
+   private static final double RELATIVE_COST = 4.5;
+
+   private final double referenceRealHi;
+
+   private final double referenceRealLo;
+
+   private final double referenceImaginaryHi;
+
+   private final double referenceImaginaryLo;
+
+   private final double juliaReal;
+
+   private final double juliaImaginary;
+
+   private final int iterations;
+
+   private final double bailoutSquared;
+
+   private final boolean periodicityCheck;
+
+   private final double periodicityToleranceSquared;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} holding the Julia Number, iterations,
+    *           maxModulus and window
+    * @param periodicityCheck
+    *           true to stop iterating points caught in an attracting cycle
+    */
+   public DoubleDoubleEscapeTimeKernel(JuliaPicture jp, boolean periodicityCheck) {
+      super(jp);
+      referenceRealHi = getReferenceReal().doubleValue();
+      referenceRealLo = getReferenceReal().subtract(new BigDecimal(referenceRealHi)).doubleValue();
+      referenceImaginaryHi = getReferenceImaginary().doubleValue();
+      referenceImaginaryLo = getReferenceImaginary().subtract(new BigDecimal(referenceImaginaryHi)).doubleValue();
+      juliaReal = jp.getJuliaNum().getRealComponent();
+      juliaImaginary = jp.getJuliaNum().getImaginaryComponent();
+      iterations = jp.getIterations();
+      bailoutSquared = ScalarEscapeTimeKernel.bailoutSquared(jp.getMaxModulus());
+      this.periodicityCheck = periodicityCheck;
+
+      var jw = jp.getJuliaWindow();
+      var tolerance = Math.min(jw.getXStep(), jw.getYStep()) * ScalarEscapeTimeKernel.PERIODICITY_TOLERANCE;
+      periodicityToleranceSquared = tolerance * tolerance;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param realComponent
+    *           offset along the real axis from the reference point
+    * @param imaginaryComponent
+    *           offset along the imaginary axis from the reference point
+    */
+   @Override
+   public int iterationsToDiverge(double realComponent, double imaginaryComponent) {
+      // z = reference + offset
+      var s = referenceRealHi + realComponent;
+      var b = s - referenceRealHi;
+      var e = (referenceRealHi - (s - b)) + (realComponent - b) + referenceRealLo;
+      var zrHi = s + e;
+      var zrLo = e - (zrHi - s);
+
+      s = referenceImaginaryHi + imaginaryComponent;
+      b = s - referenceImaginaryHi;
+      e = (referenceImaginaryHi - (s - b)) + (imaginaryComponent - b) + referenceImaginaryLo;
+      var ziHi = s + e;
+      var ziLo = e - (ziHi - s);
+
+      // Brent's cycle detection: compare against z saved at powers of two
+      var savedRHi = zrHi;
+      var savedRLo = zrLo;
+      var savedIHi = ziHi;
+      var savedILo = ziLo;
+      var period = 1;
+      var sinceSaved = 0;
+
+      for (var i = 1; i <= iterations; i++) {
+         if (zrHi * zrHi + ziHi * ziHi > bailoutSquared) {
+            return i;
+         }
+
+         // zr^2 and zi^2 with twoProd
+         var zr2Hi = zrHi * zrHi;
+         var zr2Lo = Math.fma(zrHi, zrHi, -zr2Hi) + 2 * zrHi * zrLo;
+         var zi2Hi = ziHi * ziHi;
+         var zi2Lo = Math.fma(ziHi, ziHi, -zi2Hi) + 2 * ziHi * ziLo;
+
+         // 2 zr zi, doubling is exact
+         var zriHi = zrHi * ziHi;
+         var zriLo = Math.fma(zrHi, ziHi, -zriHi) + zrHi * ziLo + zrLo * ziHi;
+         zriHi *= 2;
+         zriLo *= 2;
+
+         // zi = 2 zr zi + ci
+         s = zriHi + juliaImaginary;
+         b = s - zriHi;
+         e = (zriHi - (s - b)) + (juliaImaginary - b) + zriLo;
+         ziHi = s + e;
+         ziLo = e - (ziHi - s);
+
+         // zr = zr^2 - zi^2 + cr, where the subtraction may cancel, so both parts
+         // are summed with twoSum
+         s = zr2Hi - zi2Hi;
+         b = s - zr2Hi;
+         e = (zr2Hi - (s - b)) + (-zi2Hi - b);
+         var t = zr2Lo - zi2Lo;
+         b = t - zr2Lo;
+         var f = (zr2Lo - (t - b)) + (-zi2Lo - b);
+         e += t;
+         var hi = s + e;
+         e = e - (hi - s) + f;
+         s = hi + e;
+         e = e - (s - hi);
+
+         hi = s + juliaReal;
+         b = hi - s;
+         e += (s - (hi - b)) + (juliaReal - b);
+         zrHi = hi + e;
+         zrLo = e - (zrHi - hi);
+
+         if (periodicityCheck) {
+            var dr = (zrHi - savedRHi) + (zrLo - savedRLo);
+            var di = (ziHi - savedIHi) + (ziLo - savedILo);
+            if (dr * dr + di * di < periodicityToleranceSquared) {
+               return EscapeCountMatrix.INTERIOR;
+            }
+            if (++sinceSaved == period) {
+               sinceSaved = 0;
+               period <<= 1;
+               savedRHi = zrHi;
+               savedRLo = zrLo;
+               savedIHi = ziHi;
+               savedILo = ziLo;
+            }
+         }
+      }
+      return EscapeCountMatrix.INTERIOR;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public double getRelativeCost() {
+      return RELATIVE_COST;
+   }
+}
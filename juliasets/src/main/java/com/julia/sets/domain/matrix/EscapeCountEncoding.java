@@ -0,0 +1,25 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * How {@link EscapeCountFormat} stores the escape counts after its header.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public enum EscapeCountEncoding {
+
+   /**
+    * Every element as it is in memory, so the file is read by mapping it and
+    * nothing is copied.
+    */
+   RAW,
+
+   /**
+    * Each element stored as its difference from the element to its left, and
+    * the whole deflated. Neighboring escape counts are mostly equal or close, so
+    * the file is several times smaller than a RAW one, but it has to be inflated
+    * to be read.
+    */
+   DELTA_DEFLATE
+}
@@ -0,0 +1,274 @@
+package com.julia.sets.domain.matrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes an {@link EscapeCountMatrix} as a file, so the escape counts
+ * behind an image can be kept without the loss of folding them into colors.
+ * <br>
+ * <br>
+ * A file starts with a {@value #HEADER_BYTES} byte big-endian header:
+ * <ul>
+ * <li>the magic number {@value #MAGIC} ("JCNT")</li>
+ * <li>the format version as a short, currently {@value #VERSION}</li>
+ * <li>the bytes per element as a byte</li>
+ * <li>the {@link EscapeCountEncoding} ordinal as a byte</li>
+ * <li>the rows, columns and iterations as ints</li>
+ * <li>an int that is always 0, so the counts start 8-byte aligned</li>
+ * </ul>
+ * followed by the counts, row by row, big-endian, in the given encoding. A
+ * {@link EscapeCountEncoding#RAW} file is read by mapping it with
+ * {@link FileChannel#map}, and the matrix reads its counts straight from the
+ * mapping.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class EscapeCountFormat {
+
+   /**
+    * "JCNT", the first four bytes of every file
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int MAGIC = 0x4A434E54;
+
+   /**
+    * The version of the format written
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final short VERSION = 1;
+
+   /**
+    * Size of the header before the counts
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int HEADER_BYTES = 24;
+
+   private EscapeCountFormat() {
+      super();
+   }
+
+   /**
+    * Writes a matrix to a file. The file is written under a temporary name and
+    * then moved into place, so a reader never sees half a file.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param m
+    *           the matrix to write
+    * @param iterations
+    *           the iterations of the picture the matrix was filled for
+    * @param encoding
+    *           how to store the counts
+    * @param file
+    *           the file to write, replaced if it exists
+    * @throws IOException
+    *            if the file can't be written
+    */
+   public static void write(EscapeCountMatrix m, int iterations, EscapeCountEncoding encoding, Path file)
+         throws IOException {
+      var temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+      try {
+         try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).put((byte) m.getBytesPerElement()).put((byte) encoding.ordinal())
+                  .putInt(m.getRows()).putInt(m.getColumns()).putInt(iterations).putInt(0).flip();
+            writeFully(channel, header);
+
+            if (encoding == EscapeCountEncoding.RAW) {
+               writeRaw(m, channel);
+            } else {
+               writeDeltaDeflate(m, channel);
+            }
+         }
+         Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+         Files.deleteIfExists(temp);
+      }
+   }
+
+   /**
+    * Reads a matrix written by
+    * {@link #write(EscapeCountMatrix, int, EscapeCountEncoding, Path)}. A
+    * {@link EscapeCountEncoding#RAW} file is mapped rather than read, so the
+    * matrix returned is backed by the file and can't be changed.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param file
+    *           the file to read
+    * @return the matrix in the file
+    * @throws IOException
+    *            if the file can't be read or isn't a whole matrix
+    */
+   public static EscapeCountMatrix read(Path file) throws IOException {
+      try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         // the mapping stays valid after the channel is closed
+         var mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         if (mapped.remaining() < HEADER_BYTES || mapped.getInt() != MAGIC) {
+            throw new IOException(file + " is not an escape count file");
+         }
+         var version = mapped.getShort();
+         if (version != VERSION) {
+            throw new IOException(file + " has unknown format version " + version);
+         }
+         int bytesPerElement = mapped.get();
+         int encodingOrdinal = mapped.get();
+         var rows = mapped.getInt();
+         var columns = mapped.getInt();
+         var iterations = mapped.getInt();
+         mapped.position(HEADER_BYTES);
+         if (encodingOrdinal < 0 || encodingOrdinal >= EscapeCountEncoding.values().length) {
+            throw new IOException(file + " has unknown encoding " + encodingOrdinal);
+         }
+
+         var counts = mapped.slice();
+         if (EscapeCountEncoding.values()[encodingOrdinal] == EscapeCountEncoding.RAW) {
+            if (counts.remaining() != (long) rows * columns * bytesPerElement) {
+               throw new IOException(file + " does not hold a whole " + rows + " by " + columns + " matrix");
+            }
+            return EscapeCountMatrix.wrap(rows, columns, bytesPerElement, counts);
+         }
+         return readDeltaDeflate(counts, rows, columns, iterations, bytesPerElement, file);
+      }
+   }
+
+   private static void writeRaw(EscapeCountMatrix m, FileChannel channel) throws IOException {
+      var row = ByteBuffer.allocate(m.getColumns() * m.getBytesPerElement());
+      for (var i = 0; i < m.getRows(); i++) {
+         row.clear();
+         for (var j = 0; j < m.getColumns(); j++) {
+            putElement(row, m.getBytesPerElement(), m.get(i, j));
+         }
+         row.flip();
+         writeFully(channel, row);
+      }
+   }
+
+   private static void writeDeltaDeflate(EscapeCountMatrix m, FileChannel channel) throws IOException {
+      var width = m.getBytesPerElement();
+      var row = ByteBuffer.allocate(m.getColumns() * width);
+      var deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+         // not closed with try-with-resources, which would close the channel
+         // before the file is moved
+         var out = new DeflaterOutputStream(Channels.newOutputStream(channel), deflater, 1 << 16);
+         for (var i = 0; i < m.getRows(); i++) {
+            row.clear();
+            var previous = 0;
+            for (var j = 0; j < m.getColumns(); j++) {
+               var count = m.get(i, j);
+               putElement(row, width, narrow(count - previous, width));
+               previous = count;
+            }
+            out.write(row.array(), 0, row.position());
+         }
+         out.finish();
+         out.flush();
+      } finally {
+         deflater.end();
+      }
+   }
+
+   private static EscapeCountMatrix readDeltaDeflate(ByteBuffer deflated, int rows, int columns, int iterations,
+         int width, Path file) throws IOException {
+      var m = EscapeCountMatrix.create(rows, columns, iterations);
+      if (m.getBytesPerElement() != width) {
+         throw new IOException(file + " has " + width + " bytes per element for " + iterations + " iterations");
+      }
+
+      var row = ByteBuffer.allocate(columns * width);
+      var inflater = new Inflater();
+      try {
+         inflater.setInput(deflated);
+         for (var i = 0; i < rows; i++) {
+            row.clear();
+            while (row.hasRemaining()) {
+               if (inflater.inflate(row) == 0 && (inflater.finished() || inflater.needsInput())) {
+                  throw new IOException(file + " does not hold a whole " + rows + " by " + columns + " matrix");
+               }
+            }
+            row.flip();
+            var previous = 0;
+            for (var j = 0; j < columns; j++) {
+               previous = narrow(previous + getElement(row, width), width);
+               m.set(i, j, previous);
+            }
+         }
+      } catch (DataFormatException e) {
+         throw new IOException(file + " is corrupt", e);
+      } finally {
+         inflater.end();
+      }
+      return m;
+   }
+
+   /**
+    * Wraps a value around to the given width, as storing it would
+    */
+   private static int narrow(int value, int width) {
+      switch (width) {
+      case Byte.BYTES:
+         return (byte) value;
+      case Short.BYTES:
+         return (short) value;
+      default:
+         return value;
+      }
+   }
+
+   private static void putElement(ByteBuffer buffer, int width, int value) {
+      switch (width) {
+      case Byte.BYTES:
+         buffer.put((byte) value);
+         break;
+      case Short.BYTES:
+         buffer.putShort((short) value);
+         break;
+      default:
+         buffer.putInt(value);
+      }
+   }
+
+   private static int getElement(ByteBuffer buffer, int width) {
+      switch (width) {
+      case Byte.BYTES:
+         return buffer.get();
+      case Short.BYTES:
+         return buffer.getShort();
+      default:
+         return buffer.getInt();
+      }
+   }
+
+   private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+   }
+}
@@ -0,0 +1,296 @@
+package com.julia.sets.domain.matrix;
+
+import java.nio.ByteBuffer;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * A flat, primitive matrix of the values returned by
+ * {@link JuliaPicture#iterationsToDiverge(Complex)}. Element (row, column) is
+ * stored at index row * columns + column. <br>
+ * <br>
+ * The width of each element is the smallest primitive type that can hold every
+ * value from {@link #INTERIOR} up to the number of iterations, so a picture with
+ * at most 127 iterations uses one byte per pixel and anything up to
+ * {@link JuliaPicture#ITERATIONS_UPPER_BOUND} uses two. <br>
+ * <br>
+ * Matrices are equal only to themselves; comparing millions of counts to look
+ * one up would cost as much as a render.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public abstract class EscapeCountMatrix {
+
+   /**
+    * The value stored for points that never exceed the maxModulus, i.e., points
+    * in the interior of the Julia set.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int INTERIOR = -1;
+
+   private final int rows;
+
+   private final int columns;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param rows
+    *           number of rows in the matrix
+    * @param columns
+    *           number of columns in the matrix
+    */
+   protected EscapeCountMatrix(int rows, int columns) {
+      this.rows = rows;
+      this.columns = columns;
+   }
+
+   /**
+    * Creates a matrix using the narrowest element type that can hold every escape
+    * count for the given number of iterations.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param rows
+    *           number of rows in the matrix
+    * @param columns
+    *           number of columns in the matrix
+    * @param iterations
+    *           the largest escape count that will be stored
+    * @return an empty matrix
+    */
+   public static EscapeCountMatrix create(int rows, int columns, int iterations) {
+      if (iterations <= Byte.MAX_VALUE) {
+         return new ByteMatrix(rows, columns);
+      } else if (iterations <= Short.MAX_VALUE) {
+         return new ShortMatrix(rows, columns);
+      }
+      return new IntMatrix(rows, columns);
+   }
+
+   /**
+    * Wraps a buffer of escape counts as a matrix without copying them, e.g., a
+    * file mapped by {@link EscapeCountFormat}. The matrix can only be read.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param rows
+    *           number of rows in the matrix
+    * @param columns
+    *           number of columns in the matrix
+    * @param bytesPerElement
+    *           1, 2 or 4, the width of each element in the buffer
+    * @param counts
+    *           rows * columns elements from index 0, in the buffer's byte order
+    * @return a read-only matrix backed by counts
+    */
+   public static EscapeCountMatrix wrap(int rows, int columns, int bytesPerElement, ByteBuffer counts) {
+      if (bytesPerElement != Byte.BYTES && bytesPerElement != Short.BYTES && bytesPerElement != Integer.BYTES) {
+         throw new IllegalArgumentException("No matrix has " + bytesPerElement + " bytes per element");
+      }
+      if (counts.capacity() < (long) rows * columns * bytesPerElement) {
+         throw new IllegalArgumentException("The buffer is too small for a " + rows + " by " + columns + " matrix");
+      }
+      return new BufferMatrix(rows, columns, bytesPerElement, counts);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return number of rows in the matrix
+    */
+   public int getRows() {
+      return rows;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return number of columns in the matrix
+    */
+   public int getColumns() {
+      return columns;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the number of bytes used to store each element
+    */
+   public abstract int getBytesPerElement();
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param row
+    *           the row of the element
+    * @param column
+    *           the column of the element
+    * @return the escape count stored at (row, column)
+    */
+   public abstract int get(int row, int column);
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param row
+    *           the row of the element
+    * @param column
+    *           the column of the element
+    * @param count
+    *           the escape count to store at (row, column)
+    */
+   public abstract void set(int row, int column, int count);
+
+   @Override
+   public String toString() {
+      return getClass().getSimpleName() + " [rows=" + rows + ", columns=" + columns + "]";
+   }
+
+   /**
+    * One byte per element for pictures with at most {@link Byte#MAX_VALUE}
+    * iterations.
+    */
+   private static final class ByteMatrix extends EscapeCountMatrix {
+
+      private final byte[] counts;
+
+      private ByteMatrix(int rows, int columns) {
+         super(rows, columns);
+         counts = new byte[rows * columns];
+      }
+
+      @Override
+      public int getBytesPerElement() {
+         return Byte.BYTES;
+      }
+
+      @Override
+      public int get(int row, int column) {
+         return counts[row * getColumns() + column];
+      }
+
+      @Override
+      public void set(int row, int column, int count) {
+         counts[row * getColumns() + column] = (byte) count;
+      }
+   }
+
+   /**
+    * Two bytes per element for pictures with at most {@link Short#MAX_VALUE}
+    * iterations.
+    */
+   private static final class ShortMatrix extends EscapeCountMatrix {
+
+      private final short[] counts;
+
+      private ShortMatrix(int rows, int columns) {
+         super(rows, columns);
+         counts = new short[rows * columns];
+      }
+
+      @Override
+      public int getBytesPerElement() {
+         return Short.BYTES;
+      }
+
+      @Override
+      public int get(int row, int column) {
+         return counts[row * getColumns() + column];
+      }
+
+      @Override
+      public void set(int row, int column, int count) {
+         counts[row * getColumns() + column] = (short) count;
+      }
+   }
+
+   /**
+    * Four bytes per element for anything larger.
+    */
+   private static final class IntMatrix extends EscapeCountMatrix {
+
+      private final int[] counts;
+
+      private IntMatrix(int rows, int columns) {
+         super(rows, columns);
+         counts = new int[rows * columns];
+      }
+
+      @Override
+      public int getBytesPerElement() {
+         return Integer.BYTES;
+      }
+
+      @Override
+      public int get(int row, int column) {
+         return counts[row * getColumns() + column];
+      }
+
+      @Override
+      public void set(int row, int column, int count) {
+         counts[row * getColumns() + column] = count;
+      }
+   }
+
+   /**
+    * Any width of element, read straight from a {@link ByteBuffer}.
+    */
+   private static final class BufferMatrix extends EscapeCountMatrix {
+
+      private final int bytesPerElement;
+
+      private final ByteBuffer counts;
+
+      private BufferMatrix(int rows, int columns, int bytesPerElement, ByteBuffer counts) {
+         super(rows, columns);
+         this.bytesPerElement = bytesPerElement;
+         this.counts = counts;
+      }
+
+      @Override
+      public int getBytesPerElement() {
+         return bytesPerElement;
+      }
+
+      @Override
+      public int get(int row, int column) {
+         var index = row * getColumns() + column;
+         switch (bytesPerElement) {
+         case Byte.BYTES:
+            return counts.get(index);
+         case Short.BYTES:
+            return counts.getShort(index * Short.BYTES);
+         default:
+            return counts.getInt(index * Integer.BYTES);
+         }
+      }
+
+      @Override
+      public void set(int row, int column, int count) {
+         throw new UnsupportedOperationException("A matrix read from a buffer can't be changed");
+      }
+   }
+}
@@ -0,0 +1,125 @@
+package com.julia.sets.domain.matrix;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * The inner loop of the Julia set calculation. Implementations work out the
+ * same value as {@link JuliaPicture#iterationsToDiverge(Complex)} but take the
+ * point as primitive doubles so that no objects are created per pixel.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface EscapeTimeKernel {
+
+   /**
+    * Determines the number of iterations of the Julia Function needed to exceed
+    * the maxModulus starting at z = realComponent + imaginaryComponent<i>i</i>.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param realComponent
+    *           the real component of the starting point
+    * @param imaginaryComponent
+    *           the imaginary component of the starting point
+    * @return the number of iterations needed to exceed the maxModulus, or
+    *         {@link EscapeCountMatrix#INTERIOR} if it is never exceeded
+    */
+   int iterationsToDiverge(double realComponent, double imaginaryComponent);
+
+   /**
+    * Fills part of one row of the matrix. Every point in the row shares the same
+    * imaginary component.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param matrix
+    *           the matrix to write to
+    * @param row
+    *           the row of the matrix to write to
+    * @param xValues
+    *           the real component for each column of the matrix
+    * @param fromColumn
+    *           the first column to fill (inclusive)
+    * @param toColumn
+    *           the last column to fill (exclusive)
+    * @param imaginaryComponent
+    *           the imaginary component shared by the row
+    */
+   default void fillRow(EscapeCountMatrix matrix, int row, double[] xValues, int fromColumn, int toColumn,
+         double imaginaryComponent) {
+      for (var column = fromColumn; column < toColumn; column++) {
+         matrix.set(row, column, iterationsToDiverge(xValues[column], imaginaryComponent));
+      }
+   }
+
+   /**
+    * The real component this kernel is to be given for each column of a window.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jw
+    *           the {@link JuliaWindow} being drawn
+    * @return the {@link PixelGrid} of the window's columns unless the kernel
+    *         works in other coordinates
+    */
+   default double[] getXValues(JuliaWindow jw) {
+      return PixelGrid.values(jw.getMinXValue(), jw.getMaxXValue(), jw.getPictureWidth());
+   }
+
+   /**
+    * The imaginary component this kernel is to be given for each row of a window,
+    * in the same order as {@link JuliaWindow#getYValues()}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jw
+    *           the {@link JuliaWindow} being drawn
+    * @return the {@link PixelGrid} of the window's rows unless the kernel works
+    *         in other coordinates
+    */
+   default double[] getYValues(JuliaWindow jw) {
+      return PixelGrid.values(jw.getMinYValue(), jw.getMaxYValue(), jw.getPictureHeight());
+   }
+
+   /**
+    * How long an iteration of this kernel takes compared to an iteration of
+    * {@link ScalarEscapeTimeKernel}, for estimating what a picture costs to draw.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the cost of an iteration relative to a double precision one
+    */
+   default double getRelativeCost() {
+      return 1;
+   }
+
+   /**
+    * Bounds on the counts this kernel gives a whole rectangle of points, which
+    * {@link MarianiSilverFill} needs before it fills a rectangle without
+    * iterating it.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return an {@link IntervalEscapeTime} doing the same arithmetic as this
+    *         kernel, or null if this kernel's arithmetic isn't bounded that way
+    */
+   default IntervalEscapeTime getIntervalEscapeTime() {
+      return null;
+   }
+}
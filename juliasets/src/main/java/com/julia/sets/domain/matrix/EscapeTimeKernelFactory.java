@@ -0,0 +1,195 @@
+package com.julia.sets.domain.matrix;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Chooses which {@link EscapeTimeKernel} to use for this machine. The choice is
+ * made once at startup: the vectorized kernel is used when it was compiled in
+ * (vector-kernel Maven profile), the jdk.incubator.vector module has been added
+ * to the JVM, and the CPU has wide enough vector registers. Otherwise
+ * {@link ScalarEscapeTimeKernel} is used. <br>
+ * <br>
+ * Pictures zoomed in so far that doubles can't tell neighboring pixels apart
+ * are drawn with {@link DoubleDoubleEscapeTimeKernel} instead, or with
+ * {@link PerturbationEscapeTimeKernel} once even that runs out of digits. The
+ * kernel chosen for each picture is logged and counted in the
+ * {@value #KERNEL_METRIC} metric, tagged by kernel.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class EscapeTimeKernelFactory {
+
+   private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+   private static final String VECTOR_KERNEL = "com.julia.sets.domain.matrix.VectorEscapeTimeKernel";
+
+   /**
+    * Below this pixel size, relative to the largest coordinate in the window, a
+    * double orbit loses too much to rounding and the picture turns into blocks.
+    */
+   static final double DOUBLE_PIXEL_LIMIT = 1e-13;
+
+   /**
+    * The same limit for double-double, which has about 15 more digits
+    */
+   static final double DOUBLE_DOUBLE_PIXEL_LIMIT = 1e-28;
+
+   /**
+    * Name of the counter of kernels chosen by {@link #create(JuliaPicture)}
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String KERNEL_METRIC = "juliasets.kernel.selected";
+
+   Logger logger = LogManager.getLogger(EscapeTimeKernelFactory.class);
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private Constructor<? extends EscapeTimeKernel> vectorKernel;
+
+   /**
+    * Empty constructor to create the bean
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   EscapeTimeKernelFactory() {
+      super();
+   }
+
+   /**
+    * Detects whether the vectorized kernel can be used.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PostConstruct
+   public void detectKernel() {
+      vectorKernel = null;
+
+      if (!Boolean.TRUE.equals(props.getVectorKernel())) {
+         logger.info("Vector kernel disabled by configuration, using scalar escape-time kernel");
+         return;
+      }
+      if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+         logger.info("Module {} not present, using scalar escape-time kernel", VECTOR_MODULE);
+         return;
+      }
+
+      try {
+         var kernelClass = Class.forName(VECTOR_KERNEL).asSubclass(EscapeTimeKernel.class);
+         var supported = (Boolean) kernelClass.getMethod("isSupported").invoke(null);
+         if (Boolean.TRUE.equals(supported)) {
+            vectorKernel = kernelClass.getConstructor(JuliaPicture.class, boolean.class);
+            logger.info("Using vectorized escape-time kernel");
+         } else {
+            logger.info("CPU vector registers too narrow, using scalar escape-time kernel");
+         }
+      } catch (ClassNotFoundException | LinkageError e) {
+         logger.info("Vector kernel not compiled in, using scalar escape-time kernel");
+      } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+         logger.warn("Vector kernel could not be loaded, using scalar escape-time kernel", e);
+      }
+   }
+
+   /**
+    * Creates the kernel for a picture. Deep zooms get a kernel with enough
+    * precision for their pixel size, and everything else gets the kernel chosen
+    * at startup.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} to be drawn
+    * @return an {@link EscapeTimeKernel} for jp
+    */
+   public EscapeTimeKernel create(JuliaPicture jp) {
+      var kernel = chooseKernel(jp);
+      meterRegistry.counter(KERNEL_METRIC, "kernel", kernel.getClass().getSimpleName()).increment();
+      return kernel;
+   }
+
+   /**
+    * Same as {@link #create(JuliaPicture)}, but without counting the kernel in
+    * the {@value #KERNEL_METRIC} metric, e.g., for a cost estimate.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} to be drawn
+    * @return an {@link EscapeTimeKernel} for jp
+    */
+   EscapeTimeKernel chooseKernel(JuliaPicture jp) {
+      var periodicityCheck = Boolean.TRUE.equals(props.getPeriodicityCheck());
+      var relativePixelSize = relativePixelSize(jp.getJuliaWindow());
+      if (relativePixelSize < DOUBLE_DOUBLE_PIXEL_LIMIT) {
+         logger.info("Relative pixel size {} is too small for double-double, using perturbation kernel",
+               relativePixelSize);
+         return new PerturbationEscapeTimeKernel(jp);
+      }
+      if (relativePixelSize < DOUBLE_PIXEL_LIMIT) {
+         logger.info("Relative pixel size {} is too small for doubles, using double-double kernel",
+               relativePixelSize);
+         return new DoubleDoubleEscapeTimeKernel(jp, periodicityCheck);
+      }
+
+      if (vectorKernel != null) {
+         try {
+            return vectorKernel.newInstance(jp, periodicityCheck);
+         } catch (ReflectiveOperationException e) {
+            logger.warn("Vector kernel could not be created, falling back to scalar kernel", e);
+         }
+      }
+      return new ScalarEscapeTimeKernel(jp, periodicityCheck);
+   }
+
+   /**
+    * Works out how small a pixel is compared to the coordinates in the window (or
+    * 1, if they are all smaller than that), i.e., roughly how many of a double's
+    * digits it takes to tell neighboring pixels apart.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jw
+    *           the {@link JuliaWindow} to be drawn
+    * @return the smaller of the pixel width and height over the largest
+    *         coordinate
+    */
+   static double relativePixelSize(JuliaWindow jw) {
+      var scale = Math.max(Math.max(Math.abs(jw.getMinXValue()), Math.abs(jw.getMaxXValue())),
+            Math.max(Math.abs(jw.getMinYValue()), Math.abs(jw.getMaxYValue())));
+      return Math.min(jw.getXStep(), jw.getYStep()) / Math.max(1, scale);
+   }
+}
@@ -6,7 +6,8 @@ import com.julia.sets.presentation.complex.plane.JuliaPicture;
 /**
  * This class is meant to populate a matrix where each element in a matrix
  * represents a point in the complex plane and the value of the matrix is
- * determined by {@link JuliaPicture#iterationsToDiverge(Complex)}.
+ * determined by {@link JuliaPicture#iterationsToDiverge(Complex)}, as computed by
+ * an {@link EscapeTimeKernel}.
  * 
  * @author Dan Sievewright
  * @version 1.0.0
@@ -14,10 +15,14 @@ import com.julia.sets.presentation.complex.plane.JuliaPicture;
  */
 public class FillMatrix implements Runnable {
 
-   private JuliaPicture jp;
+   private EscapeTimeKernel kernel;
 
    private MatrixThreadTracker mtt;
 
+   private RenderCancellation cancellation;
+
+   private RowCompletion completion;
+
    /**
     * constructor for this class with the fields needed to run threads.
     * 
@@ -25,21 +30,39 @@ public class FillMatrix implements Runnable {
     * @version 1.0.0
     * @since 1.0.0
     *
-    * @param jp
-    *           a {@link JuliaPicture} object with the details needed to populate
-    *           the matrix
+    * @param kernel
+    *           the {@link EscapeTimeKernel} for the {@link JuliaPicture} being
+    *           drawn
     * @param mtt
     *           a {@link MatrixThreadTracker} object that allows us to populate the
     *           matrix in a way that's thread-safe.
+    * @param cancellation
+    *           checked before every row, so the thread stops soon after the
+    *           render is cancelled
     */
-   public FillMatrix(JuliaPicture jp, MatrixThreadTracker mtt) {
-      this.jp = jp;
+   public FillMatrix(EscapeTimeKernel kernel, MatrixThreadTracker mtt, RenderCancellation cancellation) {
+      this.kernel = kernel;
       this.mtt = mtt;
+      this.cancellation = cancellation;
+   }
+
+   /**
+    * Same as {@link #FillMatrix(EscapeTimeKernel, MatrixThreadTracker,
+    * RenderCancellation)}, but every computed row segment is counted in the
+    * completion, so rows are reported as soon as they are finished.
+    */
+   FillMatrix(EscapeTimeKernel kernel, MatrixThreadTracker mtt, RenderCancellation cancellation,
+         RowCompletion completion) {
+      this(kernel, mtt, cancellation);
+      this.completion = completion;
    }
 
    /**
     * Fills out the matrix with results from
-    * {@link JuliaPicture#iterationsToDiverge(Complex)}.
+    * {@link JuliaPicture#iterationsToDiverge(Complex)}. Rows of the tracker's
+    * regions are claimed in bands from the {@link MatrixThreadTracker} until every
+    * row has been claimed (or the render is cancelled), so any number of these can
+    * run against the same tracker at once.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
@@ -47,33 +70,49 @@ public class FillMatrix implements Runnable {
     */
    @Override
    public void run() {
-      Boolean keepGoing = true;
+      int start;
 
-      while (Boolean.TRUE.equals(keepGoing)) {
-         Integer threadLoc;
+      while ((start = mtt.getNextRowBand()) < mtt.regionRows) {
+         int end = mtt.getRowBandEnd(start);
 
-         synchronized (mtt) {
-            threadLoc = mtt.getNextThreadLocation();
-         }
+         for (var regionRow = start; regionRow < end; regionRow++) {
+            if (cancellation.isCancelled()) {
+               return;
+            }
+            var region = mtt.getRegion(regionRow);
+            int row = mtt.getRow(regionRow);
 
-         if (threadLoc >= mtt.size) {
-            // finish thread if the matrix is filled
-            keepGoing = false;
-            continue;
+            // row 0 is the top of the picture
+            double imaginaryComponent = mtt.yValues[mtt.rows - row - 1];
+            if (mtt.pass == null) {
+               kernel.fillRow(mtt.matrix, row, mtt.xValues, region.left, region.right, imaginaryComponent);
+            } else {
+               fillPassRow(region, row, imaginaryComponent);
+            }
+            if (completion != null) {
+               completion.segmentComputed(row);
+            }
          }
+      }
+   }
 
-         int column = threadLoc % mtt.columns;
-         int row = threadLoc / mtt.columns;
-
-         var jw = jp.getJuliaWindow();
-         Double realComponent = jw.getXValues().get(column);
-         Double imaginaryComponent = jw.getYValues().get(mtt.rows - row - 1);
-
-         var z = new Complex(realComponent, imaginaryComponent);
-
-         Integer i = jp.iterationsToDiverge(z);
+   /**
+    * Fills only the pixels of the row that belong to the tracker's
+    * {@link ProgressivePass}.
+    */
+   private void fillPassRow(MatrixRegion region, int row, double imaginaryComponent) {
+      var pass = mtt.pass;
+      if (!pass.includesRow(row)) {
+         return;
+      }
 
-         mtt.matrix[row][column] = i;
+      int step = pass.getColumnStep(row);
+      if (step == 1) {
+         kernel.fillRow(mtt.matrix, row, mtt.xValues, region.left, region.right, imaginaryComponent);
+         return;
+      }
+      for (int column = pass.getFirstColumn(row, region.left); column < region.right; column += step) {
+         mtt.matrix.set(row, column, kernel.iterationsToDiverge(mtt.xValues[column], imaginaryComponent));
       }
    }
 }
@@ -0,0 +1,200 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * Works out whether every point of a rectangle gets the same escape count from
+ * {@link ScalarEscapeTimeKernel}, by iterating the whole rectangle at once in
+ * interval arithmetic. <br>
+ * <br>
+ * Each operation of the kernel is repeated on the lower and upper bounds of the
+ * real and imaginary parts of z. Rounding to nearest never decreases when its
+ * argument increases, so the bounds computed in doubles hold every value the
+ * kernel itself can compute for a point of the rectangle, rounding included.
+ * When the bounds of |z|<sup>2</sup> end up wholly above the bailout at some
+ * iteration, after staying wholly below it (and, when periodicity checking is
+ * on, with no iterate close enough to a saved one to be taken for a cycle),
+ * every point escapes at that iteration. When they stay wholly below the
+ * bailout, every point is interior. Anything else is reported as
+ * {@link #MIXED}, even if the rectangle is in fact uniform. <br>
+ * <br>
+ * To prove a rectangle interior without running every iteration, the bounds of
+ * z are saved at iterations 1, 2, 4, 8, ... like Brent's cycle detection. The
+ * bounds of an iteration only depend on the bounds of the one before, and
+ * shrinking those never grows them, so once the bounds fall inside the saved
+ * ones every later bound falls inside one that has already been checked.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class IntervalEscapeTime {
+
+   /**
+    * Returned by {@link #uniformCount(double, double, double, double)} when the
+    * points of the rectangle may not all get the same count
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int MIXED = -2;
+
+   private final double juliaReal;
+
+   private final double juliaImaginary;
+
+   private final int iterations;
+
+   private final double bailoutSquared;
+
+   private final boolean periodicityCheck;
+
+   private final double periodicityToleranceSquared;
+
+   /**
+    * Takes the same values as the {@link ScalarEscapeTimeKernel} it bounds.
+    */
+   IntervalEscapeTime(double juliaReal, double juliaImaginary, int iterations, double bailoutSquared,
+         boolean periodicityCheck, double periodicityToleranceSquared) {
+      this.juliaReal = juliaReal;
+      this.juliaImaginary = juliaImaginary;
+      this.iterations = iterations;
+      this.bailoutSquared = bailoutSquared;
+      this.periodicityCheck = periodicityCheck;
+      this.periodicityToleranceSquared = periodicityToleranceSquared;
+   }
+
+   /**
+    * Same as {@link #uniformCount(double, double, double, double)}, but if that
+    * can't show the rectangle is uniform, it is cut into quarters, which are
+    * tried in turn, and so on up to the given number of times. Intervals
+    * overestimate more with every iteration, so a smaller rectangle is often
+    * shown to be uniform where a big one isn't.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param minReal
+    *           the smallest real component in the rectangle
+    * @param maxReal
+    *           the largest real component in the rectangle
+    * @param minImaginary
+    *           the smallest imaginary component in the rectangle
+    * @param maxImaginary
+    *           the largest imaginary component in the rectangle
+    * @param splits
+    *           how many times the rectangle may be cut into quarters
+    * @return the count the kernel returns for every point of the rectangle, or
+    *         {@link #MIXED} if that can't be shown
+    */
+   public int uniformCount(double minReal, double maxReal, double minImaginary, double maxImaginary, int splits) {
+      var count = uniformCount(minReal, maxReal, minImaginary, maxImaginary);
+      if (count != MIXED || splits <= 0) {
+         return count;
+      }
+
+      var middleReal = minReal + (maxReal - minReal) / 2;
+      var middleImaginary = minImaginary + (maxImaginary - minImaginary) / 2;
+      count = uniformCount(minReal, middleReal, minImaginary, middleImaginary, splits - 1);
+      if (count == MIXED || count != uniformCount(middleReal, maxReal, minImaginary, middleImaginary, splits - 1)
+            || count != uniformCount(minReal, middleReal, middleImaginary, maxImaginary, splits - 1)
+            || count != uniformCount(middleReal, maxReal, middleImaginary, maxImaginary, splits - 1)) {
+         return MIXED;
+      }
+      return count;
+   }
+
+   /**
+    * Works out the escape count shared by every point of a rectangle.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param minReal
+    *           the smallest real component in the rectangle
+    * @param maxReal
+    *           the largest real component in the rectangle
+    * @param minImaginary
+    *           the smallest imaginary component in the rectangle
+    * @param maxImaginary
+    *           the largest imaginary component in the rectangle
+    * @return the count the kernel returns for every point of the rectangle, or
+    *         {@link #MIXED} if that can't be shown
+    */
+   public int uniformCount(double minReal, double maxReal, double minImaginary, double maxImaginary) {
+      var minR = minReal;
+      var maxR = maxReal;
+      var minI = minImaginary;
+      var maxI = maxImaginary;
+
+      var savedMinR = minR;
+      var savedMaxR = maxR;
+      var savedMinI = minI;
+      var savedMaxI = maxI;
+      var period = 1;
+      var sinceSaved = 0;
+      var periodicityExcluded = periodicityCheck;
+
+      for (var i = 1; i <= iterations; i++) {
+         var minR2 = squareMin(minR, maxR);
+         var maxR2 = squareMax(minR, maxR);
+         var minI2 = squareMin(minI, maxI);
+         var maxI2 = squareMax(minI, maxI);
+         if (minR2 + minI2 > bailoutSquared) {
+            // a count is only certain if no point can have been cut short
+            return (periodicityExcluded || !periodicityCheck) ? i : MIXED;
+         }
+         if (maxR2 + maxI2 > bailoutSquared) {
+            return MIXED;
+         }
+
+         // the same operations as the kernel: zi = 2 zr zi + ci and
+         // zr = (zr^2 - zi^2) + cr
+         var p1 = 2 * minR * minI;
+         var p2 = 2 * minR * maxI;
+         var p3 = 2 * maxR * minI;
+         var p4 = 2 * maxR * maxI;
+         minI = Math.min(Math.min(p1, p2), Math.min(p3, p4)) + juliaImaginary;
+         maxI = Math.max(Math.max(p1, p2), Math.max(p3, p4)) + juliaImaginary;
+         minR = minR2 - maxI2 + juliaReal;
+         maxR = maxR2 - minI2 + juliaReal;
+
+         if (periodicityExcluded) {
+            // the kernel's periodicity check fires below the tolerance
+            periodicityExcluded = squareMin(minR - savedMaxR, maxR - savedMinR)
+                  + squareMin(minI - savedMaxI, maxI - savedMinI) >= periodicityToleranceSquared;
+         }
+         if (minR >= savedMinR && maxR <= savedMaxR && minI >= savedMinI && maxI <= savedMaxI) {
+            // every later bound is inside one already below the bailout
+            return EscapeCountMatrix.INTERIOR;
+         }
+         if (++sinceSaved == period) {
+            sinceSaved = 0;
+            period <<= 1;
+            savedMinR = minR;
+            savedMaxR = maxR;
+            savedMinI = minI;
+            savedMaxI = maxI;
+         }
+      }
+      return EscapeCountMatrix.INTERIOR;
+   }
+
+   private static double squareMin(double min, double max) {
+      if (min > 0) {
+         return min * min;
+      }
+      return (max < 0) ? max * max : 0;
+   }
+
+   private static double squareMax(double min, double max) {
+      return Math.max(min * min, max * max);
+   }
+
+   @Override
+   public String toString() {
+      return "IntervalEscapeTime [juliaReal=" + juliaReal + ", juliaImaginary=" + juliaImaginary + ", iterations="
+            + iterations + ", periodicityCheck=" + periodicityCheck + "]";
+   }
+}
@@ -1,6 +1,8 @@
 package com.julia.sets.domain.matrix;
 
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +12,8 @@ import com.julia.sets.config.ApplicationProperties;
 import com.julia.sets.domain.services.ImageFileServiceException;
 import com.julia.sets.presentation.complex.plane.JuliaPicture;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * Matrix calculator to do the mathematics before being converted to colors.
  * 
@@ -21,9 +25,61 @@ import com.julia.sets.presentation.complex.plane.JuliaPicture;
 @Component
 public class JuliaSetMatrixCalculator {
 
+   static final String TIMEOUT_MESSAGE = "Threads took too long and were terminated."
+         + " Please consider adjusting input parameters.";
+
+   /**
+    * Strides of the coarse passes run by
+    * {@link #fillMatrix(JuliaPicture, MatrixPassListener)} before the full
+    * resolution pass, i.e., a 1/16 and then a 1/4 subsample of the picture.
+    */
+   private static final int[] COARSE_STRIDES = { 4, 2 };
+
+   /**
+    * Name of the counter of renders stopped through their
+    * {@link RenderCancellation}, tagged by reason
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String CANCELLED_METRIC = "juliasets.render.cancelled";
+
+   /**
+    * Name of the counter of pixels in the pictures of those renders, tagged by
+    * reason
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String CANCELLED_PIXELS_METRIC = "juliasets.render.cancelled.pixels";
+
+   /**
+    * Name of the counter of pixels copied from an earlier render through a
+    * {@link MatrixOverlap} instead of being iterated
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String REUSED_PIXELS_METRIC = "juliasets.render.reused.pixels";
+
    @Autowired
    private ApplicationProperties props;
 
+   @Autowired
+   private EscapeTimeKernelFactory kernelFactory;
+
+   @Autowired
+   private RenderExecutor renderExecutor;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   @Autowired
+   private MatrixCache matrixCache;
+
    /**
     * Empty constructor to create the bean
     * 
@@ -38,7 +94,10 @@ public class JuliaSetMatrixCalculator {
 
    /**
     * This method creates, sets up the threads, runs them, and returns the matrix
-    * computed.
+    * computed. The threads fill the matrix using the {@link RenderMode} set in the
+    * application properties. Only the part of the matrix that can't be copied
+    * using the symmetries of the Julia set (see {@link SymmetryPlan}) is
+    * iterated.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
@@ -53,26 +112,268 @@ public class JuliaSetMatrixCalculator {
     *            if a bad {@link JuliaWindow} is used for the picture or the
     *            threads ran too long and were cancelled.
     */
-   public Integer[][] fillMatrix(JuliaPicture jp) throws InterruptedException, ImageFileServiceException {
+   public EscapeCountMatrix fillMatrix(JuliaPicture jp) throws InterruptedException, ImageFileServiceException {
+      return fillMatrix(jp, null);
+   }
 
-      // create the matrix thread tracker
+   /**
+    * Same as {@link #fillMatrix(JuliaPicture)}, but when a listener is given the
+    * matrix is filled coarse-to-fine: first every 4th pixel of every 4th row, then
+    * every 2nd pixel of every 2nd row, then the rest. Each pass only computes the
+    * pixels the earlier passes skipped, and the listener is told after each of
+    * the coarse passes so it can publish a low resolution image. <br>
+    * <br>
+    * The coarse passes sample the whole picture since the reflection of a sampled
+    * pixel is generally not a sampled pixel. The symmetries are still used for
+    * the full resolution pass, and the finished matrix is the same as the one
+    * {@link #fillMatrix(JuliaPicture)} returns.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           {@link JuliaPicture} for the image we want to create
+    * @param listener
+    *           told about each coarse pass, or null to fill the matrix in one
+    *           pass
+    * @return the matrix with the values all determined
+    * @throws InterruptedException
+    *            if a thread is interrupted
+    * @throws ImageFileServiceException
+    *            if a bad {@link JuliaWindow} is used for the picture or the
+    *            threads ran too long and were cancelled.
+    */
+   public EscapeCountMatrix fillMatrix(JuliaPicture jp, MatrixPassListener listener)
+         throws InterruptedException, ImageFileServiceException {
+      return fillMatrix(jp, listener, new RenderCancellation());
+   }
+
+   /**
+    * Same as {@link #fillMatrix(JuliaPicture, MatrixPassListener)}, but the
+    * render can be stopped from another thread through the cancellation. Running
+    * past maxWaitTime cancels it as well. Cancelled renders are counted in the
+    * {@value #CANCELLED_METRIC} and {@value #CANCELLED_PIXELS_METRIC} metrics.
+    * <br>
+    * <br>
+    * Every filled matrix goes in the {@link MatrixCache}. If the cache already
+    * has the matrix, e.g., because the picture was drawn before in other colors,
+    * it is returned straight away and the listener is never called. The matrix
+    * returned may be shared, so it must not be changed. <br>
+    * <br>
+    * Otherwise, if a cached matrix overlaps the picture (see
+    * {@link MatrixOverlap}), e.g., because the picture was panned or zoomed from
+    * one drawn before, its escape counts are copied and only the rest of the
+    * picture is iterated. Since that is usually a thin border, the listener isn't
+    * called then either. Copied pixels are counted in the
+    * {@value #REUSED_PIXELS_METRIC} metric.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           {@link JuliaPicture} for the image we want to create
+    * @param listener
+    *           told about each coarse pass, or null to fill the matrix in one
+    *           pass
+    * @param cancellation
+    *           stops the render when cancelled
+    * @return the matrix with the values all determined
+    * @throws InterruptedException
+    *            if a thread is interrupted
+    * @throws RenderCancelledException
+    *            if the render was cancelled
+    * @throws ImageFileServiceException
+    *            if a bad {@link JuliaWindow} is used for the picture or the
+    *            threads ran too long and were cancelled.
+    */
+   public EscapeCountMatrix fillMatrix(JuliaPicture jp, MatrixPassListener listener,
+         RenderCancellation cancellation) throws InterruptedException, ImageFileServiceException {
+      return fillMatrix(jp, listener, null, cancellation);
+   }
+
+   /**
+    * Same as
+    * {@link #fillMatrix(JuliaPicture, MatrixPassListener, RenderCancellation)},
+    * but the row listener is told about every row of the full resolution pass
+    * as soon as it is finished, so the image can be encoded while the rest of
+    * the matrix is still being iterated. Rows copied from an overlapping matrix
+    * are reported before the pass starts. <br>
+    * <br>
+    * Only {@link RenderMode#BRUTE_FORCE} finishes rows as it goes. With
+    * {@link RenderMode#MARIANI_SILVER}, or when the matrix is in the
+    * {@link MatrixCache}, the row listener is never called, and the caller has
+    * to use the matrix returned.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           {@link JuliaPicture} for the image we want to create
+    * @param listener
+    *           told about each coarse pass, or null to fill the matrix in one
+    *           pass
+    * @param rowListener
+    *           told about each finished row, or null
+    * @param cancellation
+    *           stops the render when cancelled
+    * @return the matrix with the values all determined
+    * @throws InterruptedException
+    *            if a thread is interrupted
+    * @throws RenderCancelledException
+    *            if the render was cancelled
+    * @throws ImageFileServiceException
+    *            if a bad {@link JuliaWindow} is used for the picture or the
+    *            threads ran too long and were cancelled.
+    */
+   public EscapeCountMatrix fillMatrix(JuliaPicture jp, MatrixPassListener listener, MatrixRowListener rowListener,
+         RenderCancellation cancellation) throws InterruptedException, ImageFileServiceException {
+      var cached = matrixCache.get(jp);
+      if (cached != null) {
+         return cached;
+      }
+
+      var finished = false;
+      try {
+         var matrix = fill(jp, listener, rowListener, cancellation);
+         finished = true;
+         matrixCache.put(jp, matrix);
+         return matrix;
+      } finally {
+         if (!finished && cancellation.isCancelled()) {
+            countCancelled(jp, cancellation.getReason());
+         }
+      }
+   }
+
+   private EscapeCountMatrix fill(JuliaPicture jp, MatrixPassListener listener, MatrixRowListener rowListener,
+         RenderCancellation cancellation) throws InterruptedException, ImageFileServiceException {
+      var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(props.getMaxWaitTime());
+
+      // create the matrix thread tracker. There's no point in more workers than
+      // rows or than threads in the render pool.
       var jw = jp.getJuliaWindow();
-      var mtt = new MatrixThreadTracker(jw);
+      int threads = Math.max(1, Math.min(Math.min(props.getMaxThreads(), renderExecutor.getParallelism()),
+            jw.getPictureHeight()));
 
-      // set up thread pool
-      var executorService = Executors.newFixedThreadPool(props.getMaxThreads());
-      executorService.execute(new FillMatrix(jp, mtt));
-      executorService.shutdown();
+      // the kernel is immutable, so every thread can share it
+      var kernel = kernelFactory.create(jp);
+      var symmetryPlan = new SymmetryPlan(jp, kernel);
+      var overlap = findOverlap(matrixCache, jp, kernel);
 
-      // wait for finish and throw exception if timeout elapsed before termination
-      if (!executorService.awaitTermination(props.getMaxWaitTime(), TimeUnit.SECONDS)) {
-         var msg = new StringBuilder("Threads took too long and were terminated.");
-         msg.append(" Please consider adjusting input parameters.");
+      MatrixThreadTracker mtt;
+      if (overlap != null) {
+         var regions = symmetryPlan.getRegionsToCompute();
+         mtt = new MatrixThreadTracker(jw, kernel, jp.getIterations(), threads,
+               overlap.getRegionsToCompute(regions));
+         overlap.copyInto(mtt.matrix);
+         meterRegistry.counter(REUSED_PIXELS_METRIC).increment(overlap.getCopiedPixels());
 
-         throw new ImageThreadTimeoutException(msg.toString());
+         // zoomed in, only some of the overlap was copied
+         var between = overlap.getRegionsBetweenCopies(regions);
+         if (!between.isEmpty()) {
+            fillBruteForce(kernel, new MatrixThreadTracker(mtt, between, overlap.getPass()), threads, deadline,
+                  cancellation);
+         }
+      } else if (listener == null) {
+         mtt = new MatrixThreadTracker(jw, kernel, jp.getIterations(), threads,
+               symmetryPlan.getRegionsToCompute());
+      } else {
+         mtt = new MatrixThreadTracker(jw, kernel, jp.getIterations(), threads, null);
+         for (var i = 0; i < COARSE_STRIDES.length; i++) {
+            mtt = new MatrixThreadTracker(mtt, null, new ProgressivePass(COARSE_STRIDES[i], i > 0));
+            fillBruteForce(kernel, mtt, threads, deadline, cancellation);
+            listener.passComplete(mtt.matrix, COARSE_STRIDES[i]);
+         }
+         mtt = new MatrixThreadTracker(mtt, symmetryPlan.getRegionsToCompute(), new ProgressivePass(1, true));
       }
 
+      if (props.getRenderMode() == RenderMode.MARIANI_SILVER) {
+         // subdivision decides for itself which pixels to iterate, so it simply
+         // recomputes the few border pixels the coarse passes already have
+         fillMarianiSilver(kernel, mtt, deadline, cancellation);
+      } else if (rowListener != null) {
+         // the workers mirror and report each row as they finish it
+         var completion = new RowCompletion(mtt.matrix, mtt.getRegions(), symmetryPlan, rowListener);
+         completion.start();
+         fillBruteForce(kernel, mtt, threads, deadline, cancellation, completion);
+         return mtt.matrix;
+      } else {
+         fillBruteForce(kernel, mtt, threads, deadline, cancellation);
+      }
+
+      // copy the computed values onto their reflections
+      symmetryPlan.mirror(mtt.matrix);
+
       // return the answer
       return mtt.matrix;
    }
+
+   /**
+    * Fills the matrix by having every worker pull row bands from the tracker and
+    * iterate every pixel.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   private void fillBruteForce(EscapeTimeKernel kernel, MatrixThreadTracker mtt, int threads, long deadline,
+         RenderCancellation cancellation) throws InterruptedException, ImageFileServiceException {
+      fillBruteForce(kernel, mtt, threads, deadline, cancellation, null);
+   }
+
+   /**
+    * Same as above, with the workers counting the rows they compute in the
+    * completion if there is one.
+    */
+   private void fillBruteForce(EscapeTimeKernel kernel, MatrixThreadTracker mtt, int threads, long deadline,
+         RenderCancellation cancellation, RowCompletion completion)
+         throws InterruptedException, ImageFileServiceException {
+      List<ForkJoinTask<?>> tasks = new ArrayList<>();
+      for (var i = 0; i < threads; i++) {
+         tasks.add(ForkJoinTask.adapt(new FillMatrix(kernel, mtt, cancellation, completion)));
+      }
+      renderExecutor.invokeAll(tasks, deadline, cancellation);
+      cancellation.throwIfCancelled();
+   }
+
+   /**
+    * Fills the matrix with {@link MarianiSilverFill} tasks, one for each region
+    * in the tracker. The tasks fork their subdivisions onto the render pool.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   private void fillMarianiSilver(EscapeTimeKernel kernel, MatrixThreadTracker mtt, long deadline,
+         RenderCancellation cancellation) throws InterruptedException, ImageFileServiceException {
+      List<MarianiSilverFill> tasks = new ArrayList<>();
+      for (var region : mtt.getRegions()) {
+         tasks.add(new MarianiSilverFill(kernel, mtt, region, cancellation));
+      }
+      renderExecutor.invokeAll(tasks, deadline, cancellation);
+      cancellation.throwIfCancelled();
+   }
+
+   /**
+    * Finds a cached matrix to copy part of the picture from. The counts of a
+    * picture needing more precision than doubles can't be taken from one drawn
+    * with doubles, so those pictures are always iterated in full.
+    */
+   static MatrixOverlap findOverlap(MatrixCache matrixCache, JuliaPicture jp, EscapeTimeKernel kernel) {
+      if (kernel instanceof DoubleDoubleEscapeTimeKernel || kernel instanceof PerturbationEscapeTimeKernel) {
+         return null;
+      }
+      return matrixCache.findOverlap(jp);
+   }
+
+   private void countCancelled(JuliaPicture jp, RenderCancellation.Reason reason) {
+      var jw = jp.getJuliaWindow();
+      var tag = reason.name().toLowerCase();
+      meterRegistry.counter(CANCELLED_METRIC, "reason", tag).increment();
+      meterRegistry.counter(CANCELLED_PIXELS_METRIC, "reason", tag)
+            .increment((double) jw.getPictureWidth() * jw.getPictureHeight());
+   }
 }
@@ -0,0 +1,204 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills a matrix using Mariani-Silver rectangle subdivision. <br>
+ * <br>
+ * Each task is handed a rectangle whose border has already been computed. If
+ * every pixel on the border has the same escape count, the interior is likely
+ * to share it, which is then checked with the kernel's
+ * {@link IntervalEscapeTime}. Only if that shows every pixel of the interior
+ * gets the same count is the interior filled in with it without iterating it,
+ * so a thin filament crossing a rectangle between the border pixels is never
+ * lost and the matrix is the same as the one {@link FillMatrix} computes.
+ * Otherwise the rectangle is cut into four by computing its middle row and
+ * middle column, and the four pieces (whose borders are now all known) are
+ * forked as new tasks. Small rectangles are simply iterated pixel by pixel.
+ * The first task for a region computes the region's border itself. Kernels
+ * without an {@link IntervalEscapeTime}, i.e., the deep zoom ones, never have
+ * a rectangle filled in. <br>
+ * <br>
+ * Every task checks the {@link RenderCancellation} before doing anything, so a
+ * cancelled render stops forking and its queued rectangles return at once.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class MarianiSilverFill extends RecursiveAction {
+
+   private static final long serialVersionUID = 2893526137455623105L;
+
+   /**
+    * Rectangles with an interior this size or smaller are iterated directly,
+    * which cuts down on the number of tasks and on interval checks that save
+    * little.
+    */
+   private static final int MIN_INTERIOR = 6;
+
+   private final transient EscapeTimeKernel kernel;
+
+   private final transient IntervalEscapeTime intervals;
+
+   private final transient MatrixThreadTracker mtt;
+
+   private final transient RenderCancellation cancellation;
+
+   private final int top;
+
+   private final int left;
+
+   private final int bottom;
+
+   private final int right;
+
+   private final boolean borderComputed;
+
+   /**
+    * Creates the task for a region of the matrix. The border of the region is
+    * computed when the task runs.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param kernel
+    *           the {@link EscapeTimeKernel} for the picture being drawn
+    * @param mtt
+    *           the {@link MatrixThreadTracker} holding the matrix to fill
+    * @param region
+    *           the non-empty part of the matrix to fill
+    * @param cancellation
+    *           checked by this task and every task it forks
+    */
+   public MarianiSilverFill(EscapeTimeKernel kernel, MatrixThreadTracker mtt, MatrixRegion region,
+         RenderCancellation cancellation) {
+      this(kernel, kernel.getIntervalEscapeTime(), mtt, cancellation, region.top, region.left, region.bottom - 1,
+            region.right - 1, false);
+   }
+
+   /**
+    * Creates the task for a rectangle of the matrix (corners inclusive).
+    */
+   private MarianiSilverFill(EscapeTimeKernel kernel, IntervalEscapeTime intervals, MatrixThreadTracker mtt,
+         RenderCancellation cancellation, int top, int left, int bottom, int right, boolean borderComputed) {
+      this.kernel = kernel;
+      this.intervals = intervals;
+      this.mtt = mtt;
+      this.cancellation = cancellation;
+      this.top = top;
+      this.left = left;
+      this.bottom = bottom;
+      this.right = right;
+      this.borderComputed = borderComputed;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   protected void compute() {
+      if (cancellation.isCancelled()) {
+         return;
+      }
+
+      if (!borderComputed) {
+         computeRow(top, left, right);
+         computeRow(bottom, left, right);
+         computeColumn(left, top + 1, bottom - 1);
+         computeColumn(right, top + 1, bottom - 1);
+      }
+
+      int interiorHeight = bottom - top - 1;
+      int interiorWidth = right - left - 1;
+      if (interiorHeight <= 0 || interiorWidth <= 0) {
+         return;
+      }
+
+      if (interiorHeight <= MIN_INTERIOR || interiorWidth <= MIN_INTERIOR) {
+         for (var row = top + 1; row < bottom && !cancellation.isCancelled(); row++) {
+            computeRow(row, left + 1, right - 1);
+         }
+         return;
+      }
+
+      int count = interiorCount();
+      if (count != IntervalEscapeTime.MIXED) {
+         for (var row = top + 1; row < bottom; row++) {
+            for (var column = left + 1; column < right; column++) {
+               mtt.matrix.set(row, column, count);
+            }
+         }
+         return;
+      }
+
+      // split into four along the middle row and column
+      int middleRow = (top + bottom) >>> 1;
+      int middleColumn = (left + right) >>> 1;
+      computeRow(middleRow, left + 1, right - 1);
+      computeColumn(middleColumn, top + 1, middleRow - 1);
+      computeColumn(middleColumn, middleRow + 1, bottom - 1);
+
+      invokeAll(subdivision(top, left, middleRow, middleColumn), subdivision(top, middleColumn, middleRow, right),
+            subdivision(middleRow, left, bottom, middleColumn), subdivision(middleRow, middleColumn, bottom, right));
+   }
+
+   /**
+    * The task for a piece of this rectangle whose border has been computed
+    */
+   private MarianiSilverFill subdivision(int pieceTop, int pieceLeft, int pieceBottom, int pieceRight) {
+      return new MarianiSilverFill(kernel, intervals, mtt, cancellation, pieceTop, pieceLeft, pieceBottom,
+            pieceRight, true);
+   }
+
+   /**
+    * The count every pixel inside the border shares, or
+    * {@link IntervalEscapeTime#MIXED} if that can't be shown
+    */
+   private int interiorCount() {
+      var count = mtt.matrix.get(top, left);
+      if (intervals == null || !hasUniformBorder(count)) {
+         return IntervalEscapeTime.MIXED;
+      }
+      var x1 = mtt.xValues[left + 1];
+      var x2 = mtt.xValues[right - 1];
+      // row 0 is the top of the picture
+      var y1 = mtt.yValues[mtt.rows - top - 2];
+      var y2 = mtt.yValues[mtt.rows - bottom];
+      // cut down to pieces about MIN_INTERIOR pixels across at the smallest
+      var splits = 31 - Integer.numberOfLeadingZeros(Math.min(right - left - 1, bottom - top - 1) / MIN_INTERIOR);
+      return intervals.uniformCount(Math.min(x1, x2), Math.max(x1, x2), Math.min(y1, y2), Math.max(y1, y2),
+            splits);
+   }
+
+   private boolean hasUniformBorder(int count) {
+      for (var column = left; column <= right; column++) {
+         if (mtt.matrix.get(top, column) != count || mtt.matrix.get(bottom, column) != count) {
+            return false;
+         }
+      }
+      for (var row = top + 1; row < bottom; row++) {
+         if (mtt.matrix.get(row, left) != count || mtt.matrix.get(row, right) != count) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private void computeRow(int row, int fromColumn, int toColumn) {
+      // row 0 is the top of the picture
+      double imaginaryComponent = mtt.yValues[mtt.rows - row - 1];
+      kernel.fillRow(mtt.matrix, row, mtt.xValues, fromColumn, toColumn + 1, imaginaryComponent);
+   }
+
+   private void computeColumn(int column, int fromRow, int toRow) {
+      double realComponent = mtt.xValues[column];
+      for (var row = fromRow; row <= toRow; row++) {
+         double imaginaryComponent = mtt.yValues[mtt.rows - row - 1];
+         mtt.matrix.set(row, column, kernel.iterationsToDiverge(realComponent, imaginaryComponent));
+      }
+   }
+}
@@ -0,0 +1,230 @@
+package com.julia.sets.domain.matrix;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy.Eviction;
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Keeps the matrices {@link JuliaSetMatrixCalculator} has filled, keyed by
+ * {@link JuliaPicture#getMatrixFingerprint()}. The colors aren't part of the
+ * key, so a picture that only differs from an earlier one in its colors is
+ * colored from the earlier matrix instead of being computed again. <br>
+ * <br>
+ * The cache holds at most matrixCacheBytes of matrices, counted as rows
+ * &times; columns &times; {@link EscapeCountMatrix#getBytesPerElement()}.
+ * Hits, misses, evictions and size are published under the cache name
+ * {@value #CACHE_NAME}, and the bytes held as the {@value #BYTES_METRIC}
+ * gauge. <br>
+ * <br>
+ * A picture that isn't cached can still overlap a cached one, e.g., when it
+ * was panned or zoomed from it. {@link #findOverlap(JuliaPicture)} finds the
+ * cached matrix of the same Julia set that has the most of the picture's escape
+ * counts. <br>
+ * <br>
+ * Cached matrices are shared by everyone who asks for them, so they must not be
+ * changed.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class MatrixCache {
+
+   /**
+    * Name the cache's metrics are tagged with
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String CACHE_NAME = "matrices";
+
+   /**
+    * Name of the gauge of the bytes of matrices held
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String BYTES_METRIC = "juliasets.matrix.cache.bytes";
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private Cache<String, Entry> matrices;
+
+   /**
+    * Empty constructor to create the bean
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   MatrixCache() {
+      super();
+   }
+
+   /**
+    * Creates the cache and registers its metrics.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PostConstruct
+   public void start() {
+      matrices = Caffeine.newBuilder()
+            .maximumWeight(props.getMatrixCacheBytes())
+            .weigher((String fingerprint, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, sizeOf(entry.matrix)))
+            .recordStats()
+            .build();
+
+      CaffeineCacheMetrics.monitor(meterRegistry, matrices, CACHE_NAME);
+      Eviction<String, Entry> eviction = matrices.policy().eviction().orElseThrow();
+      Gauge.builder(BYTES_METRIC, eviction, e -> e.weightedSize().orElse(0))
+            .baseUnit("bytes")
+            .register(meterRegistry);
+   }
+
+   /**
+    * Adds a filled matrix to the cache. Matrices bigger than matrixCacheBytes
+    * are not kept.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} the matrix was filled for
+    * @param m
+    *           the filled matrix, which mustn't be changed afterwards
+    */
+   public void put(JuliaPicture jp, EscapeCountMatrix m) {
+      if (sizeOf(m) <= props.getMatrixCacheBytes()) {
+         matrices.put(jp.getMatrixFingerprint(), new Entry(jp, m));
+      }
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           a {@link JuliaPicture}
+    * @return the filled matrix of a picture with the same escape counts as jp,
+    *         or null if there is none
+    */
+   public EscapeCountMatrix get(JuliaPicture jp) {
+      var entry = matrices.getIfPresent(jp.getMatrixFingerprint());
+      return (entry == null) ? null : entry.matrix;
+   }
+
+   /**
+    * Like {@link #get(JuliaPicture)}, but without counting as a hit or a miss,
+    * for deciding how a picture would be drawn
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           a {@link JuliaPicture}
+    * @return true if the matrix of a picture with the same escape counts as jp
+    *         is cached
+    */
+   public boolean contains(JuliaPicture jp) {
+      return matrices.asMap().containsKey(jp.getMatrixFingerprint());
+   }
+
+   /**
+    * Finds the cached matrix of the same Julia set, iterations and maxModulus
+    * as a picture that has the most of its escape counts. Doesn't count as a
+    * hit or a miss.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           a {@link JuliaPicture} that isn't cached
+    * @return the overlap copying the most pixels, or null if no cached matrix
+    *         lines up with jp
+    */
+   public MatrixOverlap findOverlap(JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      if (jw.isDeepZoom()) {
+         return null;
+      }
+      var family = jp.getFamilyFingerprint();
+      MatrixOverlap best = null;
+      for (var entry : matrices.asMap().values()) {
+         if (family.equals(entry.family)) {
+            var overlap = MatrixOverlap.create(jw, entry.minXValue, entry.maxXValue, entry.minYValue,
+                  entry.maxYValue, entry.matrix);
+            if (overlap != null && (best == null || overlap.getCopiedPixels() > best.getCopiedPixels())) {
+               best = overlap;
+            }
+         }
+      }
+      return best;
+   }
+
+   private static long sizeOf(EscapeCountMatrix m) {
+      return (long) m.getRows() * m.getColumns() * m.getBytesPerElement();
+   }
+
+   @Override
+   public String toString() {
+      return "MatrixCache [matrices=" + matrices.estimatedSize() + "]";
+   }
+
+   /**
+    * A cached matrix with where it lies in the complex plane. The window is
+    * copied, so a picture changed after it was drawn doesn't move its matrix.
+    */
+   private static final class Entry {
+
+      /**
+       * {@link JuliaPicture#getFamilyFingerprint()} of the picture, or null for
+       * a deep zoom, which is never overlapped
+       */
+      private final String family;
+
+      private final double minXValue;
+
+      private final double maxXValue;
+
+      private final double minYValue;
+
+      private final double maxYValue;
+
+      private final EscapeCountMatrix matrix;
+
+      private Entry(JuliaPicture jp, EscapeCountMatrix matrix) {
+         var jw = jp.getJuliaWindow();
+         this.family = jw.isDeepZoom() ? null : jp.getFamilyFingerprint();
+         this.minXValue = jw.getMinXValue();
+         this.maxXValue = jw.getMaxXValue();
+         this.minYValue = jw.getMinYValue();
+         this.maxYValue = jw.getMaxYValue();
+         this.matrix = matrix;
+      }
+   }
+}
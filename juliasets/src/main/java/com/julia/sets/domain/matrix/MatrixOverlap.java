@@ -0,0 +1,349 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * The part of a picture whose escape counts an earlier render of the same
+ * Julia set already has, e.g., because the picture was panned or zoomed from
+ * it. <br>
+ * <br>
+ * The earlier render, the parent, can be used when its pixels line up with the
+ * picture's:
+ * <ul>
+ * <li>with the same pixel size and the windows a whole number of pixels apart
+ * (a pan), every pixel of the overlap is copied</li>
+ * <li>with pixels k times smaller than the picture's (zoomed out by k), every
+ * k<sup>th</sup> pixel of the parent is copied and the overlap is again
+ * complete</li>
+ * <li>with pixels {@value #MAX_ZOOM_IN} times bigger than the picture's (zoomed
+ * in), the parent has every other pixel of every other row of the overlap. The
+ * pixels in between are computed by a {@link ProgressivePass} that skips the
+ * copied ones, so a quarter of the overlap is copied.</li>
+ * </ul>
+ * Only the pixels outside the overlap, usually a thin border after a pan, are
+ * iterated in full. <br>
+ * <br>
+ * A copied count is only the one a fresh render would give if the parent's
+ * pixel was iterated from exactly the same point, so the overlap is only used
+ * when every copied pixel has the same {@link PixelGrid} coordinates, to the
+ * last bit, in both windows.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class MatrixOverlap {
+
+   /**
+    * The largest zoom in a parent is used for. Zoomed in further, the copied
+    * pixels are too sparse for a {@link ProgressivePass} to skip.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int MAX_ZOOM_IN = 2;
+
+   /**
+    * How far from a whole number of pixels the windows may be and still line up
+    */
+   private static final double ALIGNMENT_TOLERANCE = 1e-6;
+
+   private final EscapeCountMatrix parent;
+
+   private final int rows;
+
+   private final int columns;
+
+   /**
+    * Size of a pixel of the picture and of the parent, in the smaller of the two
+    */
+   private final int step;
+
+   private final int parentStep;
+
+   /**
+    * Where column 0 and the bottom row of the picture are, in the smaller
+    * pixels, counted from column 0 and the bottom row of the parent
+    */
+   private final long columnOffset;
+
+   private final long yOffset;
+
+   private final MatrixRegion covered;
+
+   private MatrixOverlap(EscapeCountMatrix parent, int rows, int columns, int step, int parentStep,
+         long columnOffset, long yOffset, MatrixRegion covered) {
+      this.parent = parent;
+      this.rows = rows;
+      this.columns = columns;
+      this.step = step;
+      this.parentStep = parentStep;
+      this.columnOffset = columnOffset;
+      this.yOffset = yOffset;
+      this.covered = covered;
+   }
+
+   /**
+    * Works out where a parent's pixels fall in a picture's window.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jw
+    *           the window of the picture to be drawn
+    * @param parentMinXValue
+    *           the left side of the parent's window
+    * @param parentMaxXValue
+    *           the right side of the parent's window
+    * @param parentMinYValue
+    *           the bottom of the parent's window
+    * @param parentMaxYValue
+    *           the top of the parent's window
+    * @param parent
+    *           the parent's filled matrix
+    * @return the overlap, or null if the pixels don't line up or the windows
+    *         don't overlap
+    */
+   public static MatrixOverlap create(JuliaWindow jw, double parentMinXValue, double parentMaxXValue,
+         double parentMinYValue, double parentMaxYValue, EscapeCountMatrix parent) {
+      if (jw.isDeepZoom()) {
+         return null;
+      }
+      var parentXStep = (parentMaxXValue - parentMinXValue) / parent.getColumns();
+      var parentYStep = (parentMaxYValue - parentMinYValue) / parent.getRows();
+      var zoomedIn = jw.getXStep() < parentXStep;
+      var scale = zoomedIn ? wholeNumber(parentXStep / jw.getXStep()) : wholeNumber(jw.getXStep() / parentXStep);
+      var yScale = zoomedIn ? wholeNumber(parentYStep / jw.getYStep()) : wholeNumber(jw.getYStep() / parentYStep);
+      if (scale < 1 || scale != yScale || (zoomedIn && scale > MAX_ZOOM_IN)) {
+         return null;
+      }
+
+      var step = zoomedIn ? 1 : (int) scale;
+      var parentStep = zoomedIn ? (int) scale : 1;
+      var columnOffset = wholeNumber((jw.getMinXValue() - parentMinXValue) / Math.min(jw.getXStep(), parentXStep));
+      var yOffset = wholeNumber((jw.getMinYValue() - parentMinYValue) / Math.min(jw.getYStep(), parentYStep));
+      if (columnOffset == Long.MIN_VALUE || yOffset == Long.MIN_VALUE) {
+         return null;
+      }
+
+      // the picture's columns and y indexes that land inside the parent
+      var columns = jw.getPictureWidth();
+      var rows = jw.getPictureHeight();
+      var firstColumn = Math.max(0, ceilDiv(-columnOffset, step));
+      var lastColumn = Math.min(columns - 1L,
+            Math.floorDiv((parent.getColumns() - 1L) * parentStep - columnOffset, step));
+      var firstY = Math.max(0, ceilDiv(-yOffset, step));
+      var lastY = Math.min(rows - 1L, Math.floorDiv((parent.getRows() - 1L) * parentStep - yOffset, step));
+      if (firstColumn > lastColumn || firstY > lastY) {
+         return null;
+      }
+
+      var xValues = PixelGrid.values(jw.getMinXValue(), jw.getMaxXValue(), columns);
+      var parentXValues = PixelGrid.values(parentMinXValue, parentMaxXValue, parent.getColumns());
+      var yValues = PixelGrid.values(jw.getMinYValue(), jw.getMaxYValue(), rows);
+      var parentYValues = PixelGrid.values(parentMinYValue, parentMaxYValue, parent.getRows());
+      if (!sameValues(xValues, parentXValues, firstColumn, lastColumn, columnOffset, step, parentStep)
+            || !sameValues(yValues, parentYValues, firstY, lastY, yOffset, step, parentStep)) {
+         return null;
+      }
+
+      // row 0 is the top of the picture, so y index k is row (rows - 1 - k)
+      var covered = new MatrixRegion((int) (rows - 1 - lastY), (int) firstColumn, (int) (rows - firstY),
+            (int) lastColumn + 1);
+      return new MatrixOverlap(parent, rows, columns, step, parentStep, columnOffset, yOffset, covered);
+   }
+
+   /**
+    * Rounds a value that should be a whole number, or returns Long.MIN_VALUE if
+    * it isn't one
+    */
+   private static long wholeNumber(double value) {
+      var rounded = Math.round(value);
+      if (!(Math.abs(value - rounded) <= ALIGNMENT_TOLERANCE) || Math.abs(rounded) > Integer.MAX_VALUE) {
+         return Long.MIN_VALUE;
+      }
+      return rounded;
+   }
+
+   /**
+    * Whether every value from first to last that lands on a value of the
+    * parent is equal to it, bit for bit but for the sign of 0
+    */
+   private static boolean sameValues(double[] values, double[] parentValues, long first, long last, long offset,
+         int step, int parentStep) {
+      for (var k = first; k <= last; k++) {
+         var position = offset + k * step;
+         if (Math.floorMod(position, parentStep) == 0
+               && values[(int) k] != parentValues[(int) (position / parentStep)]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static long ceilDiv(long dividend, long divisor) {
+      return -Math.floorDiv(-dividend, divisor);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the smallest region of the picture holding every copied pixel
+    */
+   public MatrixRegion getCovered() {
+      return covered;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if the parent's pixels are bigger than the picture's, so only
+    *         some of the pixels in {@link #getCovered()} are copied
+    */
+   public boolean isZoomedIn() {
+      return parentStep > 1;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the number of pixels {@link #copyInto(EscapeCountMatrix)} copies
+    */
+   public long getCopiedPixels() {
+      if (!isZoomedIn()) {
+         return (long) covered.getHeight() * covered.getWidth();
+      }
+      var copiedColumns = Math.floorDiv(columnOffset + covered.right - 1, parentStep)
+            - Math.floorDiv(columnOffset + covered.left - 1, parentStep);
+      var firstY = rows - covered.bottom;
+      var lastY = rows - 1 - covered.top;
+      var copiedRows = Math.floorDiv(yOffset + lastY, parentStep) - Math.floorDiv(yOffset + firstY - 1, parentStep);
+      return copiedColumns * copiedRows;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the fraction of the picture's pixels that are copied
+    */
+   public double getCopiedFraction() {
+      return (double) getCopiedPixels() / ((long) rows * columns);
+   }
+
+   /**
+    * Copies the parent's escape counts into the matrix of the picture.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param matrix
+    *           the picture's matrix
+    */
+   public void copyInto(EscapeCountMatrix matrix) {
+      var firstColumn = covered.left + Math.floorMod(-(columnOffset + (long) covered.left * step), parentStep);
+      for (var row = covered.top; row < covered.bottom; row++) {
+         var y = yOffset + (long) (rows - 1 - row) * step;
+         if (Math.floorMod(y, parentStep) != 0) {
+            continue;
+         }
+         var parentRow = parent.getRows() - 1 - (int) (y / parentStep);
+         for (var column = firstColumn; column < covered.right; column += parentStep) {
+            var parentColumn = (int) ((columnOffset + (long) column * step) / parentStep);
+            matrix.set(row, column, parent.get(parentRow, parentColumn));
+         }
+      }
+   }
+
+   /**
+    * The parts of the regions outside {@link #getCovered()}, which have to be
+    * iterated in full
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param regions
+    *           the regions that would be iterated without the parent, e.g.,
+    *           from a {@link SymmetryPlan}
+    * @return the regions left to iterate
+    */
+   public List<MatrixRegion> getRegionsToCompute(List<MatrixRegion> regions) {
+      List<MatrixRegion> answer = new ArrayList<>();
+      for (var r : regions) {
+         var bandTop = Math.max(r.top, covered.top);
+         var bandBottom = Math.min(r.bottom, covered.bottom);
+         addIfNotEmpty(answer, new MatrixRegion(r.top, r.left, Math.min(r.bottom, covered.top), r.right));
+         addIfNotEmpty(answer, new MatrixRegion(bandTop, r.left, bandBottom, Math.min(r.right, covered.left)));
+         addIfNotEmpty(answer, new MatrixRegion(bandTop, Math.max(r.left, covered.right), bandBottom, r.right));
+         addIfNotEmpty(answer, new MatrixRegion(Math.max(r.top, covered.bottom), r.left, r.bottom, r.right));
+      }
+      return answer;
+   }
+
+   /**
+    * The parts of the regions inside {@link #getCovered()}, where the pixels
+    * between the copied ones are left to compute with {@link #getPass()}. Empty
+    * unless {@link #isZoomedIn()}.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param regions
+    *           the regions that would be iterated without the parent, e.g.,
+    *           from a {@link SymmetryPlan}
+    * @return the regions with pixels left between the copied ones
+    */
+   public List<MatrixRegion> getRegionsBetweenCopies(List<MatrixRegion> regions) {
+      List<MatrixRegion> answer = new ArrayList<>();
+      if (isZoomedIn()) {
+         for (var r : regions) {
+            addIfNotEmpty(answer, new MatrixRegion(Math.max(r.top, covered.top), Math.max(r.left, covered.left),
+                  Math.min(r.bottom, covered.bottom), Math.min(r.right, covered.right)));
+         }
+      }
+      return answer;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return a pass computing every pixel {@link #copyInto(EscapeCountMatrix)}
+    *         doesn't copy when {@link #isZoomedIn()}
+    */
+   public ProgressivePass getPass() {
+      // the copied pixels are where the parent's rows and columns fall, i.e.,
+      // where y and the column are multiples of parentStep
+      var rowOrigin = Math.floorMod(yOffset + rows - 1, parentStep);
+      var columnOrigin = Math.floorMod(-columnOffset, parentStep);
+      return new ProgressivePass(1, true, rowOrigin, columnOrigin);
+   }
+
+   private static void addIfNotEmpty(List<MatrixRegion> regions, MatrixRegion region) {
+      if (!region.isEmpty()) {
+         regions.add(region);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "MatrixOverlap [covered=" + covered + ", step=" + step + ", parentStep=" + parentStep
+            + ", columnOffset=" + columnOffset + ", yOffset=" + yOffset + "]";
+   }
+}
@@ -0,0 +1,35 @@
+package com.julia.sets.domain.matrix;
+
+import com.julia.sets.domain.services.ImageFileServiceException;
+
+/**
+ * Callback for coarse-to-fine renders. {@link JuliaSetMatrixCalculator} calls
+ * this after each coarse pass so an intermediate image can be published while
+ * the finer passes are still running.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface MatrixPassListener {
+
+   /**
+    * Called after a coarse pass. Every element of the matrix whose row and column
+    * are multiples of stride holds its final value, so those elements may still
+    * be read after this returns, e.g., to encode an image while the next pass
+    * runs. Other elements may be changed by later passes at any time.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param matrix
+    *           the partially filled matrix
+    * @param stride
+    *           the stride of the pass that finished
+    * @throws ImageFileServiceException
+    *            if the intermediate image could not be published. This stops the
+    *            render.
+    */
+   void passComplete(EscapeCountMatrix matrix, int stride) throws ImageFileServiceException;
+}
@@ -0,0 +1,126 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.Objects;
+
+/**
+ * A rectangle of matrix elements, from row top (inclusive) to row bottom
+ * (exclusive) and from column left (inclusive) to column right (exclusive).
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class MatrixRegion {
+
+   /**
+    * First row in the region
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final int top;
+
+   /**
+    * First column in the region
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final int left;
+
+   /**
+    * Row just past the end of the region
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final int bottom;
+
+   /**
+    * Column just past the end of the region
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final int right;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param top
+    *           first row in the region
+    * @param left
+    *           first column in the region
+    * @param bottom
+    *           row just past the end of the region
+    * @param right
+    *           column just past the end of the region
+    */
+   public MatrixRegion(int top, int left, int bottom, int right) {
+      this.top = top;
+      this.left = left;
+      this.bottom = bottom;
+      this.right = right;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return number of rows in the region
+    */
+   public int getHeight() {
+      return Math.max(0, bottom - top);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return number of columns in the region
+    */
+   public int getWidth() {
+      return Math.max(0, right - left);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if the region contains no elements
+    */
+   public boolean isEmpty() {
+      return getHeight() == 0 || getWidth() == 0;
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hash(bottom, left, right, top);
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      if (this == obj) {
+         return true;
+      }
+      if (!(obj instanceof MatrixRegion)) {
+         return false;
+      }
+      MatrixRegion other = (MatrixRegion) obj;
+      return bottom == other.bottom && left == other.left && right == other.right && top == other.top;
+   }
+
+   @Override
+   public String toString() {
+      return "MatrixRegion [top=" + top + ", left=" + left + ", bottom=" + bottom + ", right=" + right + "]";
+   }
+}
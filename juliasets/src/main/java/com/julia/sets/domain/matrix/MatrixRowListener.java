@@ -0,0 +1,47 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * Callback for renders whose image is encoded while the matrix is filled.
+ * {@link JuliaSetMatrixCalculator} calls this as each row of the full
+ * resolution pass is finished, copies from its reflection included, so the
+ * rows can be colored and compressed without waiting for the rest of the
+ * matrix.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface MatrixRowListener {
+
+   /**
+    * Called once, on the thread filling the matrix, before any row is
+    * reported and before the full resolution pass starts.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param matrix
+    *           the matrix whose rows will be reported
+    */
+   void fillStarted(EscapeCountMatrix matrix);
+
+   /**
+    * Called once for every row of the matrix when it holds its final values.
+    * Rows are finished in no particular order, and this is called from the
+    * threads of the {@link RenderExecutor} that fill them, several at a time,
+    * so it must be thread-safe and should hand any real work on rather than do
+    * it. Rows copied from an earlier render are reported on the thread filling
+    * the matrix, just after {@link #fillStarted(EscapeCountMatrix)}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param matrix
+    *           the matrix being filled
+    * @param row
+    *           the row that is finished, from 0 at the top
+    */
+   void rowComplete(EscapeCountMatrix matrix, int row);
+}
@@ -1,13 +1,15 @@
 package com.julia.sets.domain.matrix;
 
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.julia.sets.presentation.complex.plane.JuliaException;
 import com.julia.sets.presentation.complex.plane.JuliaWindow;
 
 /**
- * Class to hold shared values among {@link FillMatrix} threads
+ * Class to hold shared values among {@link FillMatrix} threads. A tracker
+ * belongs to a single pass of a single render, so trackers are only ever equal
+ * to themselves.
  * 
  * @author Dan Sievewright
  * @version 1.0.0
@@ -16,14 +18,25 @@ import com.julia.sets.presentation.complex.plane.JuliaWindow;
 public class MatrixThreadTracker {
 
    /**
-    * Number to track the number of matrix positions that have been calculated for
-    * the {@link FillMatrix} threads
+    * The first region row that has not yet been claimed by a {@link FillMatrix}
+    * thread. Rows are handed out in bands with a compare-and-set so no thread
+    * ever has to lock this tracker.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
     * @since 1.0.0
     */
-   private Integer threadsLocation = -1;
+   private final AtomicInteger nextRow = new AtomicInteger(0);
+
+   /**
+    * Number of {@link FillMatrix} threads sharing this tracker. This is used to
+    * size the row bands handed out by {@link #getNextRowBand()}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   private final int workers;
 
    /**
     * The matrix to be populated by the FillMatrix threads
@@ -32,7 +45,7 @@ public class MatrixThreadTracker {
     * @version 1.0.0
     * @since 1.0.0
     */
-   public final Integer[][] matrix;
+   public final EscapeCountMatrix matrix;
 
    /**
     * Number of rows in matrix. This field is added for code clarity instead of
@@ -65,16 +78,89 @@ public class MatrixThreadTracker {
    public final Integer size;
 
    /**
+    * Values along the real axis for each column of the matrix. These are worked
+    * out once, as a {@link PixelGrid} or by the kernel, so the threads only look
+    * them up.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final double[] xValues;
+
+   /**
+    * Values along the imaginary axis for each row of the matrix. Note that row 0
+    * of the matrix is the top of the picture, so it corresponds with the last
+    * element of this array.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final double[] yValues;
+
+   /**
+    * The parts of the matrix that the {@link FillMatrix} threads need to compute.
+    * The rows of all the regions are numbered one after the other ("region rows")
+    * and handed out in bands by {@link #getNextRowBand()}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   private final List<MatrixRegion> regions;
+
+   /**
+    * The region row that each region starts at
+    */
+   private final int[] regionStarts;
+
+   /**
+    * Total number of rows over all the regions
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final int regionRows;
+
+   /**
+    * The coarse-to-fine pass the {@link FillMatrix} threads are running, or null
+    * if every pixel in the regions is to be computed.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public final ProgressivePass pass;
+
+   /**
+    * Creates a tracker where the {@link FillMatrix} threads only compute part of
+    * the matrix with a kernel that may work in its own coordinates (see
+    * {@link EscapeTimeKernel#getXValues(JuliaWindow)}).
+    * 
     * @author Dan Sievewright
     * @version 1.0.0
     * @since 1.0.0
     *
     * @param jw
     *           the {@link JuliaWindow} being used to create the finished image
+    * @param kernel
+    *           the kernel the threads will use, or null to use the
+    *           {@link PixelGrid} of the window
+    * @param iterations
+    *           the maximum number of iterations, used to size the matrix elements
+    * @param workers
+    *           the number of {@link FillMatrix} threads that will share this
+    *           tracker
+    * @param regions
+    *           the parts of the matrix to compute. If null, the whole matrix is
+    *           computed.
     * @throws JuliaException
     *            if an invalid {@link JuliaWindow} is passed in
     */
-   public MatrixThreadTracker(JuliaWindow jw) throws JuliaException {
+   public MatrixThreadTracker(JuliaWindow jw, EscapeTimeKernel kernel, int iterations, int workers,
+         List<MatrixRegion> regions) throws JuliaException {
       if (jw == null) {
          throw new JuliaException(JuliaException.NULL_JULIA_WINDOW);
       }
@@ -88,49 +174,173 @@ public class MatrixThreadTracker {
          throw new JuliaException(JuliaException.POSITIVE_WIDTH_REQ);
       }
       size = rows * columns;
-      this.matrix = new Integer[rows][columns];
+      this.workers = Math.max(1, workers);
+      this.matrix = EscapeCountMatrix.create(rows, columns, iterations);
+      this.xValues = (kernel == null) ? PixelGrid.values(jw.getMinXValue(), jw.getMaxXValue(), columns)
+            : kernel.getXValues(jw);
+      this.yValues = (kernel == null) ? PixelGrid.values(jw.getMinYValue(), jw.getMaxYValue(), rows)
+            : kernel.getYValues(jw);
+      this.pass = null;
+
+      this.regions = regionsOrWholeMatrix(regions);
+      regionStarts = regionStarts(this.regions);
+      regionRows = regionRows(this.regions);
    }
 
    /**
-    * Increments the threadsLocation and returns the value. Make sure calls to this
-    * are synchronized across threads.
+    * Creates a tracker for another pass over the same matrix, e.g., the next
+    * {@link ProgressivePass} of a coarse-to-fine render.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
     * @since 1.0.0
     *
-    * @return the next value of threadsLocation
+    * @param previous
+    *           the tracker of the previous pass. Its threads must have finished.
+    * @param regions
+    *           the parts of the matrix to compute. If null, the whole matrix is
+    *           computed.
+    * @param pass
+    *           the pixels of the regions to compute, or null for all of them
     */
-   public Integer getNextThreadLocation() {
-      threadsLocation++;
-      return threadsLocation;
+   public MatrixThreadTracker(MatrixThreadTracker previous, List<MatrixRegion> regions, ProgressivePass pass) {
+      rows = previous.rows;
+      columns = previous.columns;
+      size = previous.size;
+      workers = previous.workers;
+      matrix = previous.matrix;
+      xValues = previous.xValues;
+      yValues = previous.yValues;
+      this.pass = pass;
+
+      this.regions = regionsOrWholeMatrix(regions);
+      regionStarts = regionStarts(this.regions);
+      regionRows = regionRows(this.regions);
    }
 
-   @Override
-   public int hashCode() {
-      final var prime = 31;
-      var result = 1;
-      result = prime * result + Arrays.deepHashCode(matrix);
-      result = prime * result + Objects.hash(threadsLocation);
-      return result;
+   private List<MatrixRegion> regionsOrWholeMatrix(List<MatrixRegion> regions) {
+      if (regions == null) {
+         return List.of(new MatrixRegion(0, 0, rows, columns));
+      }
+      return List.copyOf(regions);
    }
 
-   @Override
-   public boolean equals(Object obj) {
-      if (this == obj) {
-         return true;
+   private static int[] regionStarts(List<MatrixRegion> regions) {
+      var starts = new int[regions.size()];
+      var total = 0;
+      for (var i = 0; i < starts.length; i++) {
+         starts[i] = total;
+         total += regions.get(i).getHeight();
+      }
+      return starts;
+   }
+
+   private static int regionRows(List<MatrixRegion> regions) {
+      var total = 0;
+      for (var region : regions) {
+         total += region.getHeight();
       }
-      if (!(obj instanceof MatrixThreadTracker)) {
-         return false;
+      return total;
+   }
+
+   /**
+    * Claims the next band of rows for a {@link FillMatrix} thread. This is safe to
+    * call from any number of threads without synchronization. <br>
+    * <br>
+    * Bands are sized by guided self-scheduling: each band is a fraction of the
+    * rows still unclaimed, so early bands are large (little contention on the
+    * counter) and the bands near the end shrink down to a single row. That way a
+    * thread that lands on an expensive part of the picture does not leave the
+    * others idle while it finishes.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the first region row of the claimed band. A value greater than or
+    *         equal to {@link #regionRows} means every row has been claimed.
+    * @see #getRowBandEnd(int)
+    */
+   public int getNextRowBand() {
+      while (true) {
+         int start = nextRow.get();
+         if (start >= regionRows) {
+            return regionRows;
+         }
+         if (nextRow.compareAndSet(start, getRowBandEnd(start))) {
+            return start;
+         }
+      }
+   }
+
+   /**
+    * Determines where the band starting at the given row ends. The band size only
+    * depends on its starting row, so a thread can recompute it after
+    * {@link #getNextRowBand()} without sharing any more state.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param start
+    *           the first region row of the band
+    * @return the region row just past the end of the band
+    */
+   public int getRowBandEnd(int start) {
+      int bandSize = Math.max(1, (regionRows - start) / (2 * workers));
+      return Math.min(regionRows, start + bandSize);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the parts of the matrix that need to be computed
+    */
+   public List<MatrixRegion> getRegions() {
+      return regions;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param regionRow
+    *           a region row from a band
+    * @return the {@link MatrixRegion} the region row belongs to
+    */
+   public MatrixRegion getRegion(int regionRow) {
+      return regions.get(regionIndex(regionRow));
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param regionRow
+    *           a region row from a band
+    * @return the row of the matrix the region row refers to
+    */
+   public int getRow(int regionRow) {
+      var index = regionIndex(regionRow);
+      return regions.get(index).top + regionRow - regionStarts[index];
+   }
+
+   private int regionIndex(int regionRow) {
+      // there are only ever a handful of regions
+      var index = regionStarts.length - 1;
+      while (index > 0 && regionStarts[index] > regionRow) {
+         index--;
       }
-      MatrixThreadTracker other = (MatrixThreadTracker) obj;
-      return Arrays.deepEquals(matrix, other.matrix)
-            && Objects.equals(threadsLocation, other.threadsLocation);
+      return index;
    }
 
    @Override
    public String toString() {
-      return "MatrixThreadTracker [threadsLocation=" + threadsLocation + ", matrix=" + Arrays.toString(matrix)
+      return "MatrixThreadTracker [nextRow=" + nextRow + ", matrix=" + matrix
             + "]";
    }
 
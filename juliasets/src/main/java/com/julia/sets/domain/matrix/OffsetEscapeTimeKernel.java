@@ -0,0 +1,100 @@
+package com.julia.sets.domain.matrix;
+
+import java.math.BigDecimal;
+
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Base for the deep zoom kernels. These can't take pixels as points in the
+ * plane, since doubles can't tell neighboring pixels apart at those zooms.
+ * Instead they take each pixel as a double offset from a reference point: the
+ * pixel nearest the center of the window, kept exactly as a
+ * {@link BigDecimal}.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public abstract class OffsetEscapeTimeKernel implements EscapeTimeKernel {
+
+   private final int referenceColumn;
+
+   private final int referenceYIndex;
+
+   private final BigDecimal referenceReal;
+
+   private final BigDecimal referenceImaginary;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} to be drawn
+    */
+   protected OffsetEscapeTimeKernel(JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      referenceColumn = jw.getPictureWidth() / 2;
+      referenceYIndex = jw.getPictureHeight() / 2;
+      referenceReal = jw.getPreciseMinXValue()
+            .add(new BigDecimal(jw.getXStep()).multiply(BigDecimal.valueOf(referenceColumn)));
+      referenceImaginary = jw.getPreciseMinYValue()
+            .add(new BigDecimal(jw.getYStep()).multiply(BigDecimal.valueOf(referenceYIndex)));
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the exact real component of the reference point
+    */
+   protected BigDecimal getReferenceReal() {
+      return referenceReal;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the exact imaginary component of the reference point
+    */
+   protected BigDecimal getReferenceImaginary() {
+      return referenceImaginary;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return offsets along the real axis from the reference point
+    */
+   @Override
+   public double[] getXValues(JuliaWindow jw) {
+      var offsets = new double[jw.getPictureWidth()];
+      for (var column = 0; column < offsets.length; column++) {
+         offsets[column] = (column - referenceColumn) * jw.getXStep();
+      }
+      return offsets;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return offsets along the imaginary axis from the reference point
+    */
+   @Override
+   public double[] getYValues(JuliaWindow jw) {
+      var offsets = new double[jw.getPictureHeight()];
+      for (var index = 0; index < offsets.length; index++) {
+         offsets[index] = (index - referenceYIndex) * jw.getYStep();
+      }
+      return offsets;
+   }
+}
@@ -0,0 +1,168 @@
+package com.julia.sets.domain.matrix;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * {@link EscapeTimeKernel} for deep zooms, where neighboring pixels are too
+ * close together to tell apart as doubles. <br>
+ * <br>
+ * One {@link ReferenceOrbit} Z<sub>n</sub> is computed in high precision from
+ * the pixel nearest the center of the window. Every other pixel z<sub>0</sub> =
+ * Z<sub>0</sub> + &delta;<sub>0</sub> is then iterated as a double offset from
+ * it, since<br>
+ * <br>
+ * z<sub>n+1</sub> = Z<sub>n+1</sub> + &delta;<sub>n+1</sub> with
+ * &delta;<sub>n+1</sub> = 2Z<sub>n</sub>&delta;<sub>n</sub> +
+ * &delta;<sub>n</sub><sup>2</sup><br>
+ * <br>
+ * and &delta;<sub>n</sub> only needs to be accurate relative to its own size.
+ * The coordinates this kernel takes are therefore offsets from Z<sub>0</sub>,
+ * the reference point of {@link OffsetEscapeTimeKernel}. <br>
+ * <br>
+ * The offset stops being accurate (a "glitch") when z<sub>n</sub> comes closer
+ * to 0 than to Z<sub>n</sub>, because Z<sub>n</sub> + &delta;<sub>n</sub> then
+ * cancels. It also can't go on once the reference orbit has escaped. In both
+ * cases the pixel is rebased: z<sub>n</sub> becomes the offset from the orbit of
+ * the critical point 0, and iteration carries on along that orbit. The offset is
+ * then z<sub>n</sub> itself, so nothing is lost. Since every glitch is rebased
+ * as it happens, no pixels have to be recomputed with extra references. <br>
+ * <br>
+ * Periodicity checking is not done, since saved iterates can't be compared to a
+ * fraction of such a small pixel.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class PerturbationEscapeTimeKernel extends OffsetEscapeTimeKernel {
+
+   /**
+    * Decimal digits carried beyond those needed to tell pixels apart, to absorb
+    * the rounding errors the orbit picks up as it is iterated
+    */
+   private static final int GUARD_DIGITS = 20;
+
+   /**
+    * Measured: an iteration takes about a third longer than a double one, plus
+    * the occasional rebase
+    */
+   private static final double RELATIVE_COST = 1.5;
+
+   private final int iterations;
+
+   private final double bailoutSquared;
+
+   private final ReferenceOrbit reference;
+
+   private final ReferenceOrbit critical;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} holding the Julia Number, iterations,
+    *           maxModulus and window
+    */
+   public PerturbationEscapeTimeKernel(JuliaPicture jp) {
+      super(jp);
+      iterations = jp.getIterations();
+      bailoutSquared = ScalarEscapeTimeKernel.bailoutSquared(jp.getMaxModulus());
+
+      var mc = precision(jp.getJuliaWindow());
+      reference = new ReferenceOrbit(getReferenceReal(), getReferenceImaginary(), jp.getJuliaNum(), iterations,
+            jp.getMaxModulus(), mc);
+      critical = new ReferenceOrbit(BigDecimal.ZERO, BigDecimal.ZERO, jp.getJuliaNum(), iterations,
+            jp.getMaxModulus(), mc);
+   }
+
+   /**
+    * Enough decimal digits to separate neighboring pixels anywhere in the
+    * window, plus {@link #GUARD_DIGITS}.
+    */
+   private static MathContext precision(JuliaWindow jw) {
+      var digits = (int) Math.ceil(-Math.log10(EscapeTimeKernelFactory.relativePixelSize(jw)));
+      return new MathContext(Math.max(0, digits) + GUARD_DIGITS);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the high precision orbit the pixels are offsets from
+    */
+   public ReferenceOrbit getReference() {
+      return reference;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param realComponent
+    *           offset along the real axis from the reference point
+    * @param imaginaryComponent
+    *           offset along the imaginary axis from the reference point
+    */
+   @Override
+   public int iterationsToDiverge(double realComponent, double imaginaryComponent) {
+      var orbit = reference;
+      var last = orbit.getLength() - 1;
+      var n = 0;
+      var dr = realComponent;
+      var di = imaginaryComponent;
+
+      for (var i = 1; i <= iterations; i++) {
+         var referenceReal = orbit.getReal(n);
+         var referenceImaginary = orbit.getImaginary(n);
+         var zr = referenceReal + dr;
+         var zi = referenceImaginary + di;
+         var modulusSquared = zr * zr + zi * zi;
+         if (modulusSquared > bailoutSquared) {
+            return i;
+         }
+
+         // rebase onto the critical orbit, whose start is 0, so the offset is z itself
+         if (n == last || modulusSquared < dr * dr + di * di) {
+            orbit = critical;
+            last = orbit.getLength() - 1;
+            n = 0;
+            referenceReal = 0;
+            referenceImaginary = 0;
+            dr = zr;
+            di = zi;
+         }
+
+         // delta' = 2 Z delta + delta^2 = delta (2 Z + delta)
+         var tr = 2 * referenceReal + dr;
+         var ti = 2 * referenceImaginary + di;
+         var nextDr = dr * tr - di * ti;
+         di = dr * ti + di * tr;
+         dr = nextDr;
+         n++;
+      }
+      return EscapeCountMatrix.INTERIOR;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public double getRelativeCost() {
+      return RELATIVE_COST;
+   }
+
+   @Override
+   public String toString() {
+      return "PerturbationEscapeTimeKernel [reference=" + reference + ", critical=" + critical + "]";
+   }
+}
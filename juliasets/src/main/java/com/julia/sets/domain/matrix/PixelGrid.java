@@ -0,0 +1,81 @@
+package com.julia.sets.domain.matrix;
+
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Works out the coordinate of every column or row of a window, so that windows
+ * panned, zoomed or reflected onto each other give their shared pixels exactly
+ * the same coordinates. <br>
+ * <br>
+ * Adding up the step one pixel at a time, as {@link JuliaWindow#getXValues()}
+ * does, rounds differently from window to window, so a copied or mirrored
+ * escape count can be one a fresh render wouldn't give. Here the k<sup>th</sup>
+ * value is (origin + k) * step instead, rounded once, where
+ * <ul>
+ * <li>step is the pixel size rounded to {@value #STEP_BITS} significant bits,
+ * so windows whose pixel sizes only differ by rounding get the same step</li>
+ * <li>origin is minValue / step rounded to a multiple of
+ * 2<sup>-{@value #ORIGIN_BITS}</sup>, so windows a whole number of pixels apart
+ * get origins a whole number apart</li>
+ * </ul>
+ * origin + k is then exact, so two values are equal whenever origin + k times
+ * step is the same real number for both, e.g., -x for a window centred on 0 or
+ * the same point in a window that was panned. Neither rounding moves a pixel by
+ * more than a millionth of its size.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class PixelGrid {
+
+   /**
+    * Significant bits kept of the step
+    */
+   static final int STEP_BITS = 44;
+
+   /**
+    * Fraction bits kept of the origin, in pixels
+    */
+   static final int ORIGIN_BITS = 20;
+
+   private PixelGrid() {
+      super();
+   }
+
+   /**
+    * The coordinate of each of size pixels from minValue to maxValue.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param minValue
+    *           the coordinate of the first pixel's edge
+    * @param maxValue
+    *           the coordinate of the far edge of the last pixel
+    * @param size
+    *           the number of pixels
+    * @return the coordinate of every pixel, starting at minValue
+    */
+   public static double[] values(double minValue, double maxValue, int size) {
+      var step = roundStep((maxValue - minValue) / size);
+      var origin = Math.scalb(Math.rint(Math.scalb(minValue / step, ORIGIN_BITS)), -ORIGIN_BITS);
+      var values = new double[size];
+      for (var k = 0; k < size; k++) {
+         values[k] = (origin + k) * step;
+      }
+      return values;
+   }
+
+   /**
+    * Rounds a step to {@link #STEP_BITS} significant bits
+    */
+   private static double roundStep(double step) {
+      if (step == 0 || !Double.isFinite(step)) {
+         return step;
+      }
+      var shift = STEP_BITS - 1 - Math.getExponent(step);
+      return Math.scalb(Math.rint(Math.scalb(step, shift)), -shift);
+   }
+}
@@ -0,0 +1,128 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * One pass of a coarse-to-fine render. A pass with stride s computes the pixels
+ * whose row and column are both multiples of s. If there was a coarser pass
+ * before it (stride 2s), the pixels that pass already computed are skipped.
+ * <br>
+ * <br>
+ * The rows and columns are counted from an origin, which is the top left corner
+ * of the matrix unless another is given, e.g., to skip the pixels a
+ * {@link MatrixOverlap} copied.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ProgressivePass {
+
+   private final int stride;
+
+   private final boolean afterCoarserPass;
+
+   private final int rowOrigin;
+
+   private final int columnOrigin;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param stride
+    *           distance between the pixels computed in this pass
+    * @param afterCoarserPass
+    *           true if a pass with twice this stride has already been run
+    */
+   public ProgressivePass(int stride, boolean afterCoarserPass) {
+      this(stride, afterCoarserPass, 0, 0);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param stride
+    *           distance between the pixels computed in this pass
+    * @param afterCoarserPass
+    *           true if a pass with twice this stride has already been run
+    * @param rowOrigin
+    *           a row the coarser pass went through
+    * @param columnOrigin
+    *           a column the coarser pass went through
+    */
+   public ProgressivePass(int stride, boolean afterCoarserPass, int rowOrigin, int columnOrigin) {
+      this.stride = stride;
+      this.afterCoarserPass = afterCoarserPass;
+      this.rowOrigin = rowOrigin;
+      this.columnOrigin = columnOrigin;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return distance between the pixels computed in this pass
+    */
+   public int getStride() {
+      return stride;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param row
+    *           a row of the matrix
+    * @return true if this pass computes anything in the row
+    */
+   public boolean includesRow(int row) {
+      return Math.floorMod(row - rowOrigin, stride) == 0;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param row
+    *           a row included in this pass
+    * @return the distance between the columns to compute in the row
+    */
+   public int getColumnStep(int row) {
+      return isCoarseRow(row) ? 2 * stride : stride;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param row
+    *           a row included in this pass
+    * @param fromColumn
+    *           the first column that may be computed
+    * @return the first column at or after fromColumn to compute in the row
+    */
+   public int getFirstColumn(int row, int fromColumn) {
+      var step = getColumnStep(row);
+      var offset = columnOrigin + (isCoarseRow(row) ? stride : 0);
+      return fromColumn + Math.floorMod(offset - fromColumn, step);
+   }
+
+   /**
+    * Rows the coarser pass went through: only the columns it skipped are left.
+    */
+   private boolean isCoarseRow(int row) {
+      return afterCoarserPass && Math.floorMod(row - rowOrigin, 2 * stride) == 0;
+   }
+
+   @Override
+   public String toString() {
+      return "ProgressivePass [stride=" + stride + ", afterCoarserPass=" + afterCoarserPass + ", rowOrigin="
+            + rowOrigin + ", columnOrigin=" + columnOrigin + "]";
+   }
+}
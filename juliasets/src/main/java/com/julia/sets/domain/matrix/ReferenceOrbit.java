@@ -0,0 +1,120 @@
+package com.julia.sets.domain.matrix;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+
+/**
+ * The orbit Z<sub>0</sub>, Z<sub>1</sub> = Z<sub>0</sub><sup>2</sup> + c, ...
+ * of a single point, computed with {@link BigDecimal} arithmetic and then
+ * rounded to doubles for {@link PerturbationEscapeTimeKernel}. <br>
+ * <br>
+ * The orbit is cut off once it exceeds the maxModulus or reaches the maximum
+ * number of iterations, so the last element may be the first one outside the
+ * maxModulus.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ReferenceOrbit {
+
+   private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+   private final double[] realValues;
+
+   private final double[] imaginaryValues;
+
+   private final int length;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param startReal
+    *           real component of Z<sub>0</sub>
+    * @param startImaginary
+    *           imaginary component of Z<sub>0</sub>
+    * @param juliaNum
+    *           the c in Z<sup>2</sup> + c
+    * @param iterations
+    *           the maximum number of iterations
+    * @param maxModulus
+    *           the orbit stops after the first element with a larger modulus
+    * @param mc
+    *           the precision to iterate with
+    */
+   public ReferenceOrbit(BigDecimal startReal, BigDecimal startImaginary, Complex juliaNum, int iterations,
+         double maxModulus, MathContext mc) {
+      var juliaReal = new BigDecimal(juliaNum.getRealComponent());
+      var juliaImaginary = new BigDecimal(juliaNum.getImaginaryComponent());
+      var bailoutSquared = ScalarEscapeTimeKernel.bailoutSquared(maxModulus);
+
+      realValues = new double[iterations + 1];
+      imaginaryValues = new double[iterations + 1];
+
+      var zr = startReal.round(mc);
+      var zi = startImaginary.round(mc);
+      var n = 0;
+      while (true) {
+         var r = zr.doubleValue();
+         var i = zi.doubleValue();
+         realValues[n] = r;
+         imaginaryValues[n] = i;
+         n++;
+         if (n > iterations || r * r + i * i > bailoutSquared) {
+            break;
+         }
+         // z^2 + c with z^2 = (zr^2 - zi^2) + 2 zr zi i
+         var zr2 = zr.multiply(zr, mc);
+         var zi2 = zi.multiply(zi, mc);
+         zi = TWO.multiply(zr.multiply(zi, mc)).add(juliaImaginary, mc);
+         zr = zr2.subtract(zi2, mc).add(juliaReal, mc);
+      }
+      length = n;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the number of elements in the orbit
+    */
+   public int getLength() {
+      return length;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param n
+    *           index of the element, less than {@link #getLength()}
+    * @return real component of Z<sub>n</sub>
+    */
+   public double getReal(int n) {
+      return realValues[n];
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param n
+    *           index of the element, less than {@link #getLength()}
+    * @return imaginary component of Z<sub>n</sub>
+    */
+   public double getImaginary(int n) {
+      return imaginaryValues[n];
+   }
+
+   @Override
+   public String toString() {
+      return "ReferenceOrbit [length=" + length + ", start=" + realValues[0] + " + " + imaginaryValues[0] + "i]";
+   }
+}
@@ -0,0 +1,148 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.julia.sets.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decides whether a picture may be drawn from its {@link RenderEstimate}. <br>
+ * <br>
+ * A picture estimated to cost more than maxRenderCost is never drawn. Otherwise
+ * it is drawn as long as the estimates of all the pictures being drawn add up to
+ * no more than renderCostBudget. A picture is always let in when nothing else is
+ * being drawn, so a picture between the two limits can still be drawn on an
+ * idle server. The estimated cost of the pictures being drawn is published as
+ * the {@value #IN_FLIGHT_METRIC} gauge.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class RenderAdmission {
+
+   /**
+    * Name of the gauge of the estimated cost of the pictures being drawn
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String IN_FLIGHT_METRIC = "juliasets.render.cost.inflight";
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private final AtomicLong inFlightCost = new AtomicLong();
+
+   /**
+    * Empty constructor to create the bean
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   RenderAdmission() {
+      super();
+   }
+
+   /**
+    * Registers the {@value #IN_FLIGHT_METRIC} gauge.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PostConstruct
+   public void registerMetrics() {
+      meterRegistry.gauge(IN_FLIGHT_METRIC, inFlightCost);
+   }
+
+   /**
+    * Checks a picture against maxRenderCost.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param estimate
+    *           the estimate for the picture
+    * @throws RenderTooExpensiveException
+    *            if the picture costs too much to ever be drawn
+    */
+   public void checkCost(RenderEstimate estimate) throws RenderTooExpensiveException {
+      if (estimate.getCost() > props.getMaxRenderCost()) {
+         throw new RenderTooExpensiveException(estimate, props.getMaxRenderCost());
+      }
+   }
+
+   /**
+    * Takes a picture's cost out of the budget. Every call that returns normally
+    * must be followed by {@link #release(RenderEstimate)} once the picture is
+    * done.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param estimate
+    *           the estimate for the picture
+    * @throws RenderTooExpensiveException
+    *            if the picture costs too much to ever be drawn
+    * @throws RenderOverBudgetException
+    *            if there isn't enough budget left for the picture
+    */
+   public void acquire(RenderEstimate estimate) throws RenderRejectedException {
+      checkCost(estimate);
+      while (true) {
+         var current = inFlightCost.get();
+         if (current > 0 && current + estimate.getCost() > props.getRenderCostBudget()) {
+            throw new RenderOverBudgetException(estimate);
+         }
+         if (inFlightCost.compareAndSet(current, current + estimate.getCost())) {
+            return;
+         }
+      }
+   }
+
+   /**
+    * Gives a picture's cost back to the budget.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param estimate
+    *           the estimate passed to {@link #acquire(RenderEstimate)}
+    */
+   public void release(RenderEstimate estimate) {
+      inFlightCost.addAndGet(-estimate.getCost());
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the estimated cost of the pictures being drawn
+    */
+   public long getInFlightCost() {
+      return inFlightCost.get();
+   }
+
+   @Override
+   public String toString() {
+      return "RenderAdmission [inFlightCost=" + inFlightCost + "]";
+   }
+}
@@ -0,0 +1,131 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.julia.sets.domain.services.ImageFileServiceException;
+
+/**
+ * Lets a render be stopped part way through. <br>
+ * <br>
+ * {@link FillMatrix} checks the token before every row it computes and
+ * {@link MarianiSilverFill} before every rectangle, so once a render has been
+ * cancelled its tasks give their threads back to the {@link RenderExecutor}
+ * after at most one more row. The work they skip is simply left undone; the
+ * calculator then throws rather than return a partly filled matrix.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RenderCancellation {
+
+   /**
+    * Why a render was cancelled
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public enum Reason {
+      /**
+       * The render ran past maxWaitTime
+       */
+      TIMEOUT(JuliaSetMatrixCalculator.TIMEOUT_MESSAGE),
+
+      /**
+       * Nobody is waiting for the picture any more
+       */
+      CLIENT_GONE("The picture was stopped because nobody is waiting for it any more."),
+
+      /**
+       * An administrator stopped the render
+       */
+      ABORTED("The picture was stopped by an administrator."),
+
+      /**
+       * The thread waiting for the render was interrupted, e.g., at shutdown
+       */
+      INTERRUPTED(ImageFileServiceException.MATRIX_THREAD_INTERRUPTED),
+
+      /**
+       * Another task of the same render threw an exception
+       */
+      FAILED(ImageFileServiceException.MATRIX_THREAD_FAILED);
+
+      private final String message;
+
+      Reason(String message) {
+         this.message = message;
+      }
+
+      /**
+       * @author Dan Sievewright
+       * @version 1.0.0
+       * @since 1.0.0
+       *
+       * @return a message for the user
+       */
+      public String getMessage() {
+         return message;
+      }
+   }
+
+   private final AtomicReference<Reason> reason = new AtomicReference<>();
+
+   /**
+    * Cancels the render. Only the first reason given is kept.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param reason
+    *           why the render is being cancelled
+    * @return true if this call cancelled the render, false if it already was
+    */
+   public boolean cancel(Reason reason) {
+      return this.reason.compareAndSet(null, reason);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true once {@link #cancel(Reason)} has been called
+    */
+   public boolean isCancelled() {
+      return reason.get() != null;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return why the render was cancelled, or null if it hasn't been
+    */
+   public Reason getReason() {
+      return reason.get();
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @throws RenderCancelledException
+    *            if the render has been cancelled
+    */
+   public void throwIfCancelled() throws RenderCancelledException {
+      var cancelledFor = reason.get();
+      if (cancelledFor != null) {
+         throw new RenderCancelledException(cancelledFor);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "RenderCancellation [reason=" + reason.get() + "]";
+   }
+}
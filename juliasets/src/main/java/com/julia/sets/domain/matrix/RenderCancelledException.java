@@ -0,0 +1,33 @@
+package com.julia.sets.domain.matrix;
+
+import com.julia.sets.domain.services.ImageFileServiceException;
+
+/**
+ * Thrown when a render is stopped through its {@link RenderCancellation}.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RenderCancelledException extends ImageFileServiceException {
+
+   private static final long serialVersionUID = -1839006625107523427L;
+
+   private final RenderCancellation.Reason reason;
+
+   public RenderCancelledException(RenderCancellation.Reason reason) {
+      super(reason.getMessage());
+      this.reason = reason;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return why the render was stopped
+    */
+   public RenderCancellation.Reason getReason() {
+      return reason;
+   }
+}
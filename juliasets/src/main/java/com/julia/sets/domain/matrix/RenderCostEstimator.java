@@ -0,0 +1,115 @@
+package com.julia.sets.domain.matrix;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * Estimates what a picture will cost to draw before any of it is drawn. <br>
+ * <br>
+ * The starting point is pixels &times; iterations, which is what the picture
+ * costs when every pixel runs the full number of iterations. That is cut down
+ * by the fraction of the pixels the {@link SymmetryPlan} actually iterates and
+ * then refined by a probe: a {@value #PROBE_SIZE} by {@value #PROBE_SIZE} grid
+ * of pixels spread evenly over the picture is run through the kernel the
+ * picture would use. Pixels that escape are charged their escape count, and
+ * pixels in the interior are charged the full number of iterations. The
+ * periodicity check usually stops interior pixels well before that, so pictures
+ * with a lot of interior are overestimated. <br>
+ * <br>
+ * A picture whose matrix is in the {@link MatrixCache} only has to be colored,
+ * so it is estimated to cost nothing. When part of it can be copied from a
+ * cached matrix (see {@link MatrixOverlap}), only the rest of it is charged.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class RenderCostEstimator {
+
+   /**
+    * Number of probed rows and columns, i.e., the probe costs at most 1024
+    * pixels.
+    */
+   static final int PROBE_SIZE = 32;
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private EscapeTimeKernelFactory kernelFactory;
+
+   @Autowired
+   private MatrixCache matrixCache;
+
+   /**
+    * Empty constructor to create the bean
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   RenderCostEstimator() {
+      super();
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} to be drawn
+    * @return the estimated cost of drawing jp
+    */
+   public RenderEstimate estimate(JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      var kernel = kernelFactory.chooseKernel(jp);
+      if (matrixCache.contains(jp)) {
+         var pixels = (long) jw.getPictureWidth() * jw.getPictureHeight();
+         return new RenderEstimate(pixels, 0, 0, 0, 0, 0, kernel.getClass().getSimpleName(), props.getRenderMode(),
+               false, true);
+      }
+
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+
+      var probeColumns = Math.min(PROBE_SIZE, xValues.length);
+      var probeRows = Math.min(PROBE_SIZE, yValues.length);
+      long probeIterations = 0;
+      var interior = 0;
+      for (var i = 0; i < probeRows; i++) {
+         // the middle of each of probeRows equal strips
+         var y = yValues[(int) ((2L * i + 1) * yValues.length / (2L * probeRows))];
+         for (var j = 0; j < probeColumns; j++) {
+            var x = xValues[(int) ((2L * j + 1) * xValues.length / (2L * probeColumns))];
+            var count = kernel.iterationsToDiverge(x, y);
+            if (count == EscapeCountMatrix.INTERIOR) {
+               interior++;
+               probeIterations += jp.getIterations();
+            } else {
+               probeIterations += count;
+            }
+         }
+      }
+
+      var probes = probeRows * probeColumns;
+      var meanIterations = (double) probeIterations / probes;
+      var pixels = (long) xValues.length * yValues.length;
+      var computedFraction = new SymmetryPlan(jp, kernel).getComputedFraction();
+      var overlap = JuliaSetMatrixCalculator.findOverlap(matrixCache, jp, kernel);
+      if (overlap != null) {
+         computedFraction *= 1 - overlap.getCopiedFraction();
+      }
+      var cost = Math.round(pixels * computedFraction * meanIterations * kernel.getRelativeCost());
+      var maxCost = Math.round((double) pixels * jp.getIterations() * kernel.getRelativeCost());
+
+      return new RenderEstimate(pixels, computedFraction, (double) interior / probes, meanIterations, cost, maxCost,
+            kernel.getClass().getSimpleName(), props.getRenderMode(),
+            overlap == null && pixels >= props.getProgressivePixels(), false);
+   }
+}
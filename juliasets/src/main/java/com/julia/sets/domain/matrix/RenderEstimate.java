@@ -0,0 +1,198 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * What {@link RenderCostEstimator} expects a picture to cost and how it would
+ * be drawn. <br>
+ * <br>
+ * Costs are counted in iterations of {@link ScalarEscapeTimeKernel}, so an
+ * iteration of a slower kernel counts for more than one (see
+ * {@link EscapeTimeKernel#getRelativeCost()}).
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RenderEstimate {
+
+   private final long pixels;
+
+   private final double computedFraction;
+
+   private final double interiorFraction;
+
+   private final double meanIterations;
+
+   private final long cost;
+
+   private final long maxCost;
+
+   private final String kernel;
+
+   private final RenderMode renderMode;
+
+   private final boolean progressive;
+
+   private final boolean matrixCached;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param pixels
+    *           number of pixels in the picture
+    * @param computedFraction
+    *           fraction of the pixels iterated rather than mirrored
+    * @param interiorFraction
+    *           fraction of the probed pixels in the interior of the Julia set
+    * @param meanIterations
+    *           iterations per probed pixel, counting interior pixels as the
+    *           picture's full number of iterations
+    * @param cost
+    *           the estimated cost of the picture
+    * @param maxCost
+    *           the cost if every pixel ran the full number of iterations
+    * @param kernel
+    *           the name of the {@link EscapeTimeKernel} that would be used
+    * @param renderMode
+    *           how the matrix would be filled
+    * @param progressive
+    *           true if the picture would be drawn coarse-to-fine
+    * @param matrixCached
+    *           true if the picture's matrix is in the {@link MatrixCache}, so
+    *           it would only be colored
+    */
+   public RenderEstimate(long pixels, double computedFraction, double interiorFraction, double meanIterations,
+         long cost, long maxCost, String kernel, RenderMode renderMode, boolean progressive, boolean matrixCached) {
+      this.pixels = pixels;
+      this.computedFraction = computedFraction;
+      this.interiorFraction = interiorFraction;
+      this.meanIterations = meanIterations;
+      this.cost = cost;
+      this.maxCost = maxCost;
+      this.kernel = kernel;
+      this.renderMode = renderMode;
+      this.progressive = progressive;
+      this.matrixCached = matrixCached;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return number of pixels in the picture
+    */
+   public long getPixels() {
+      return pixels;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return fraction of the pixels iterated rather than mirrored (see
+    *         {@link SymmetryPlan#getComputedFraction()})
+    */
+   public double getComputedFraction() {
+      return computedFraction;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return fraction of the probed pixels in the interior of the Julia set
+    */
+   public double getInteriorFraction() {
+      return interiorFraction;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return iterations per probed pixel
+    */
+   public double getMeanIterations() {
+      return meanIterations;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the estimated cost of the picture
+    */
+   public long getCost() {
+      return cost;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the cost if every pixel ran the full number of iterations
+    */
+   public long getMaxCost() {
+      return maxCost;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the name of the {@link EscapeTimeKernel} that would be used
+    */
+   public String getKernel() {
+      return kernel;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return how the matrix would be filled
+    */
+   public RenderMode getRenderMode() {
+      return renderMode;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if the picture would be drawn coarse-to-fine
+    */
+   public boolean isProgressive() {
+      return progressive;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if the picture's matrix is in the {@link MatrixCache}, so it
+    *         would only be colored
+    */
+   public boolean isMatrixCached() {
+      return matrixCached;
+   }
+
+   @Override
+   public String toString() {
+      return "RenderEstimate [pixels=" + pixels + ", computedFraction=" + computedFraction + ", interiorFraction="
+            + interiorFraction + ", meanIterations=" + meanIterations + ", cost=" + cost + ", maxCost=" + maxCost
+            + ", kernel=" + kernel + ", renderMode=" + renderMode + ", progressive=" + progressive + ", matrixCached="
+            + matrixCached + "]";
+   }
+}
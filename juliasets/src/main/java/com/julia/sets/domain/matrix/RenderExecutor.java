@@ -0,0 +1,237 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.domain.services.ImageFileServiceException;
+
+/**
+ * The one thread pool every render runs on. <br>
+ * <br>
+ * It is a {@link ForkJoinPool} with a thread per CPU available to the JVM
+ * (which follows the container's CPU quota), so {@link MarianiSilverFill} can
+ * fork its subdivisions and {@link FillMatrix} workers run on the same
+ * threads. The threads are named julia-render-N. <br>
+ * <br>
+ * At most renderQueueCapacity submitted tasks may be waiting or running at
+ * once. A render whose tasks don't all fit is turned away right away instead
+ * of queuing behind everything else.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class RenderExecutor {
+
+   private static final String THREAD_NAME = "julia-render-";
+
+   Logger logger = LogManager.getLogger(RenderExecutor.class);
+
+   @Autowired
+   private ApplicationProperties props;
+
+   private ForkJoinPool pool;
+
+   private Semaphore queueSlots;
+
+   /**
+    * Empty constructor to create the bean
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   RenderExecutor() {
+      super();
+   }
+
+   /**
+    * Starts the pool.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PostConstruct
+   public void start() {
+      var parallelism = Runtime.getRuntime().availableProcessors();
+      pool = new ForkJoinPool(parallelism, p -> {
+         var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+         thread.setName(THREAD_NAME + thread.getPoolIndex());
+         return thread;
+      }, null, false);
+      queueSlots = new Semaphore(props.getRenderQueueCapacity());
+      logger.info("Render pool started with {} threads and room for {} tasks", parallelism,
+            props.getRenderQueueCapacity());
+   }
+
+   /**
+    * Stops the pool, abandoning any renders still running.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PreDestroy
+   public void shutdown() {
+      pool.shutdownNow();
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the number of threads in the pool
+    */
+   public int getParallelism() {
+      return pool.getParallelism();
+   }
+
+   /**
+    * Runs the tasks of one render on the pool and waits for all of them. If the
+    * deadline passes or the waiting thread is interrupted, the render is
+    * cancelled so its tasks stop and give their threads back instead of running
+    * on with nobody waiting for them.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param tasks
+    *           the tasks to run. They must stop once the cancellation is
+    *           cancelled.
+    * @param deadline
+    *           {@link System#nanoTime()} by which every task has to be done
+    * @param cancellation
+    *           the cancellation the tasks check
+    * @throws InterruptedException
+    *            if the calling thread is interrupted while waiting
+    * @throws RenderRejectedException
+    *            if there is no room in the queue for the tasks
+    * @throws ImageThreadTimeoutException
+    *            if the deadline passes first
+    * @throws ImageFileServiceException
+    *            if a task threw an exception
+    */
+   public void invokeAll(List<? extends ForkJoinTask<?>> tasks, long deadline, RenderCancellation cancellation)
+         throws InterruptedException, ImageFileServiceException {
+      if (!queueSlots.tryAcquire(tasks.size())) {
+         throw new RenderRejectedException(RenderRejectedException.QUEUE_FULL);
+      }
+
+      List<ForkJoinTask<?>> submitted = new ArrayList<>(tasks.size());
+      for (var task : tasks) {
+         submitted.add(pool.submit(new SlotReleasingTask(task)));
+      }
+      awaitAll(submitted, deadline, cancellation);
+   }
+
+   /**
+    * Runs a single task of a render on the pool without waiting for it, e.g., to
+    * encode part of an image while the rest of the matrix is still being
+    * filled. It takes one of the renderQueueCapacity slots until it is done.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param task
+    *           the task to run. It must stop once the render is cancelled.
+    * @return the task that is waited for with
+    *         {@link #awaitAll(List, long, RenderCancellation)}
+    * @throws RenderRejectedException
+    *            if there is no room in the queue for the task
+    */
+   public ForkJoinTask<?> submit(ForkJoinTask<?> task) throws RenderRejectedException {
+      if (!queueSlots.tryAcquire()) {
+         throw new RenderRejectedException(RenderRejectedException.QUEUE_FULL);
+      }
+      return pool.submit(new SlotReleasingTask(task));
+   }
+
+   /**
+    * Waits for tasks from {@link #submit(ForkJoinTask)}, cancelling the render
+    * the same way {@link #invokeAll(List, long, RenderCancellation)} does.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param submitted
+    *           the tasks to wait for
+    * @param deadline
+    *           {@link System#nanoTime()} by which every task has to be done
+    * @param cancellation
+    *           the cancellation the tasks check
+    * @throws InterruptedException
+    *            if the calling thread is interrupted while waiting
+    * @throws ImageThreadTimeoutException
+    *            if the deadline passes first
+    * @throws ImageFileServiceException
+    *            if a task threw an exception
+    */
+   public void awaitAll(List<? extends ForkJoinTask<?>> submitted, long deadline, RenderCancellation cancellation)
+         throws InterruptedException, ImageFileServiceException {
+      for (var task : submitted) {
+         try {
+            task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+         } catch (TimeoutException e) {
+            cancellation.cancel(RenderCancellation.Reason.TIMEOUT);
+            throw new ImageThreadTimeoutException(JuliaSetMatrixCalculator.TIMEOUT_MESSAGE, e);
+         } catch (InterruptedException e) {
+            cancellation.cancel(RenderCancellation.Reason.INTERRUPTED);
+            throw e;
+         } catch (ExecutionException e) {
+            cancellation.cancel(RenderCancellation.Reason.FAILED);
+            throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_FAILED, e.getCause());
+         }
+      }
+   }
+
+   /**
+    * Runs a task and then gives its queue slot back
+    */
+   private class SlotReleasingTask extends RecursiveAction {
+
+      private static final long serialVersionUID = 4213178632185905618L;
+
+      private final transient ForkJoinTask<?> task;
+
+      SlotReleasingTask(ForkJoinTask<?> task) {
+         this.task = task;
+      }
+
+      @Override
+      protected void compute() {
+         try {
+            task.invoke();
+         } finally {
+            queueSlots.release();
+         }
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "RenderExecutor [pool=" + pool + ", queueSlots=" + queueSlots.availablePermits() + "]";
+   }
+}
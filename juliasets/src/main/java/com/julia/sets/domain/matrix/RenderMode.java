@@ -0,0 +1,24 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * The strategies {@link JuliaSetMatrixCalculator} can use to fill a matrix.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public enum RenderMode {
+
+   /**
+    * Every pixel is iterated, see {@link FillMatrix}.
+    */
+   BRUTE_FORCE,
+
+   /**
+    * Only rectangle borders are iterated and rectangles with a uniform border are
+    * filled in once they are shown to be uniform inside too, see
+    * {@link MarianiSilverFill}. The matrix is the same as with
+    * {@link #BRUTE_FORCE}.
+    */
+   MARIANI_SILVER
+}
@@ -0,0 +1,33 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * Thrown when the pictures already being drawn leave too little of the
+ * renderCostBudget for another one.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RenderOverBudgetException extends RenderRejectedException {
+
+   private static final long serialVersionUID = 2305622383960434512L;
+
+   private final transient RenderEstimate estimate;
+
+   public RenderOverBudgetException(RenderEstimate estimate) {
+      super("The server is busy drawing other pictures and this one would take about " + estimate.getCost()
+            + " iterations. Please try again shortly.");
+      this.estimate = estimate;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the estimate of the rejected picture
+    */
+   public RenderEstimate getEstimate() {
+      return estimate;
+   }
+}
@@ -0,0 +1,29 @@
+package com.julia.sets.domain.matrix;
+
+import com.julia.sets.domain.services.ImageFileServiceException;
+
+/**
+ * Thrown when a render is turned away because the server is too busy to take it
+ * on.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RenderRejectedException extends ImageFileServiceException {
+
+   private static final long serialVersionUID = 6243319084212380907L;
+
+   /**
+    * Error message for a full {@link RenderExecutor} queue
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String QUEUE_FULL = "The server is busy drawing other pictures. Please try again shortly.";
+
+   public RenderRejectedException(String errorMessage) {
+      super(errorMessage);
+   }
+}
@@ -0,0 +1,33 @@
+package com.julia.sets.domain.matrix;
+
+/**
+ * Thrown when a picture is estimated to cost more than maxRenderCost, however
+ * idle the server is.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RenderTooExpensiveException extends RenderRejectedException {
+
+   private static final long serialVersionUID = -4470781521092836214L;
+
+   private final transient RenderEstimate estimate;
+
+   public RenderTooExpensiveException(RenderEstimate estimate, long maxRenderCost) {
+      super("This picture would take about " + estimate.getCost() + " iterations to draw, more than the "
+            + maxRenderCost + " allowed. Please consider a smaller picture or fewer iterations.");
+      this.estimate = estimate;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the estimate of the rejected picture
+    */
+   public RenderEstimate getEstimate() {
+      return estimate;
+   }
+}
@@ -0,0 +1,101 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Works out when each row of a matrix holds its final values while the last
+ * pass of a render fills it, and tells a {@link MatrixRowListener}. <br>
+ * <br>
+ * Every row counts down the segments the pass computes in it, one per region
+ * that covers it, plus one for its source row if {@link SymmetryPlan} copies it
+ * from its reflection. The thread that takes a row's count to zero mirrors the
+ * row, reports it, and counts down the row copied from it, so the
+ * {@link FillMatrix} workers finish rows as they go and
+ * {@link SymmetryPlan#mirror(EscapeCountMatrix)} isn't needed afterwards.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class RowCompletion {
+
+   private final EscapeCountMatrix matrix;
+
+   private final SymmetryPlan symmetryPlan;
+
+   private final MatrixRowListener listener;
+
+   /**
+    * What each row still waits for
+    */
+   private final AtomicIntegerArray remaining;
+
+   /**
+    * @param matrix
+    *           the matrix being filled
+    * @param regions
+    *           the regions the last pass computes
+    * @param symmetryPlan
+    *           the plan the regions were worked out from
+    * @param listener
+    *           told about each finished row
+    */
+   RowCompletion(EscapeCountMatrix matrix, List<MatrixRegion> regions, SymmetryPlan symmetryPlan,
+         MatrixRowListener listener) {
+      this.matrix = matrix;
+      this.symmetryPlan = symmetryPlan;
+      this.listener = listener;
+
+      var counts = new int[matrix.getRows()];
+      for (var region : regions) {
+         for (var row = region.top; row < region.bottom; row++) {
+            counts[row]++;
+         }
+      }
+      for (var row = 0; row < counts.length; row++) {
+         if (symmetryPlan.isDerivedRow(row)) {
+            counts[row]++;
+         }
+      }
+      remaining = new AtomicIntegerArray(counts);
+   }
+
+   /**
+    * Tells the listener the fill has started and finishes the rows the pass
+    * computes nothing in, e.g., rows copied from a cached matrix. Called
+    * before the pass starts.
+    */
+   void start() {
+      listener.fillStarted(matrix);
+      for (var row = 0; row < remaining.length(); row++) {
+         if (remaining.get(row) == 0) {
+            finish(row);
+         }
+      }
+   }
+
+   /**
+    * Called by a worker after computing the row's segment of one region
+    */
+   void segmentComputed(int row) {
+      if (remaining.decrementAndGet(row) == 0) {
+         finish(row);
+      }
+   }
+
+   private void finish(int row) {
+      symmetryPlan.mirrorRow(matrix, row);
+      listener.rowComplete(matrix, row);
+
+      var derivedRow = symmetryPlan.getDerivedRow(row);
+      if (derivedRow >= 0 && remaining.decrementAndGet(derivedRow) == 0) {
+         finish(derivedRow);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "RowCompletion [rows=" + remaining.length() + ", symmetryPlan=" + symmetryPlan + "]";
+   }
+}
@@ -0,0 +1,182 @@
+package com.julia.sets.domain.matrix;
+
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * {@link EscapeTimeKernel} that iterates f(z) = z<sup>2</sup> + c one point at a
+ * time on primitive doubles. <br>
+ * <br>
+ * Instead of taking a square root every iteration, |z|<sup>2</sup> is compared
+ * against a squared bailout. The bailout is nudged so that the comparison
+ * agrees exactly with the |z| > maxModulus test in
+ * {@link JuliaPicture#iterationsToDiverge}. <br>
+ * <br>
+ * When periodicity checking is on, the orbit is also checked for cycles using
+ * Brent's method: z is saved at iterations 1, 2, 4, 8, ... and every following
+ * iterate is compared against the saved value. An orbit that comes back within
+ * a small fraction of a pixel of the saved value has been caught by an
+ * attracting cycle, so the point is classified as interior right away instead
+ * of running all the iterations.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ScalarEscapeTimeKernel implements EscapeTimeKernel {
+
+   /**
+    * Orbits that return within this fraction of a pixel of a saved iterate are
+    * treated as periodic.
+    */
+   static final double PERIODICITY_TOLERANCE = 1e-3;
+
+   private final double juliaReal;
+
+   private final double juliaImaginary;
+
+   private final int iterations;
+
+   private final double bailoutSquared;
+
+   private final boolean periodicityCheck;
+
+   private final double periodicityToleranceSquared;
+
+   /**
+    * Creates a kernel without periodicity checking.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} holding the Julia Number, iterations and
+    *           maxModulus
+    */
+   public ScalarEscapeTimeKernel(JuliaPicture jp) {
+      this(jp, false);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} holding the Julia Number, iterations and
+    *           maxModulus
+    * @param periodicityCheck
+    *           true to stop iterating points caught in an attracting cycle
+    */
+   public ScalarEscapeTimeKernel(JuliaPicture jp, boolean periodicityCheck) {
+      juliaReal = jp.getJuliaNum().getRealComponent();
+      juliaImaginary = jp.getJuliaNum().getImaginaryComponent();
+      iterations = jp.getIterations();
+      bailoutSquared = bailoutSquared(jp.getMaxModulus());
+      this.periodicityCheck = periodicityCheck;
+      periodicityToleranceSquared = periodicityToleranceSquared(jp);
+   }
+
+   /**
+    * Works out the squared distance under which two iterates are considered the
+    * same point, based on the size of a pixel in the picture's
+    * {@link com.julia.sets.presentation.complex.plane.JuliaWindow}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} to be drawn
+    * @return the squared tolerance
+    */
+   static double periodicityToleranceSquared(JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      var pixelWidth = (jw.getMaxXValue() - jw.getMinXValue()) / jw.getPictureWidth();
+      var pixelHeight = (jw.getMaxYValue() - jw.getMinYValue()) / jw.getPictureHeight();
+      var tolerance = Math.min(pixelWidth, pixelHeight) * PERIODICITY_TOLERANCE;
+      return tolerance * tolerance;
+   }
+
+   /**
+    * Finds the largest double t with sqrt(t) <= maxModulus, so that for any
+    * |z|<sup>2</sup> = s we have s > t exactly when sqrt(s) > maxModulus.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param maxModulus
+    *           the bailout radius
+    * @return the threshold to compare |z|<sup>2</sup> against
+    */
+   static double bailoutSquared(double maxModulus) {
+      if (maxModulus < 0) {
+         // every modulus exceeds a negative bailout
+         return -1;
+      }
+
+      var threshold = maxModulus * maxModulus;
+      while (Math.sqrt(threshold) > maxModulus) {
+         threshold = Math.nextDown(threshold);
+      }
+      while (Math.sqrt(Math.nextUp(threshold)) <= maxModulus) {
+         threshold = Math.nextUp(threshold);
+      }
+      return threshold;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public IntervalEscapeTime getIntervalEscapeTime() {
+      return new IntervalEscapeTime(juliaReal, juliaImaginary, iterations, bailoutSquared, periodicityCheck,
+            periodicityToleranceSquared);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public int iterationsToDiverge(double realComponent, double imaginaryComponent) {
+      var zr = realComponent;
+      var zi = imaginaryComponent;
+
+      // Brent's cycle detection: compare against z saved at powers of two
+      var savedR = zr;
+      var savedI = zi;
+      var period = 1;
+      var sinceSaved = 0;
+
+      for (var i = 1; i <= iterations; i++) {
+         var zr2 = zr * zr;
+         var zi2 = zi * zi;
+         if (zr2 + zi2 > bailoutSquared) {
+            return i;
+         }
+         // z^2 + c with z^2 = (zr^2 - zi^2) + 2 zr zi i
+         zi = 2 * zr * zi + juliaImaginary;
+         zr = zr2 - zi2 + juliaReal;
+
+         if (periodicityCheck) {
+            var dr = zr - savedR;
+            var di = zi - savedI;
+            if (dr * dr + di * di < periodicityToleranceSquared) {
+               return EscapeCountMatrix.INTERIOR;
+            }
+            if (++sinceSaved == period) {
+               sinceSaved = 0;
+               period <<= 1;
+               savedR = zr;
+               savedI = zi;
+            }
+         }
+      }
+      return EscapeCountMatrix.INTERIOR;
+   }
+}
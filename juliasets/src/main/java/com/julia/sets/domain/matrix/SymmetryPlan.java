@@ -0,0 +1,285 @@
+package com.julia.sets.domain.matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Works out which part of a matrix actually needs to be computed by using the
+ * symmetries of f(z) = z<sup>2</sup> + c. <br>
+ * <br>
+ * Since f(-z) = f(z), every Julia set is symmetric under z &rarr; -z. When c is
+ * real, f({@link Complex#bar() z bar}) is the conjugate of f(z), so the Julia
+ * set is also symmetric under conjugation, and hence under z &rarr; -z bar as
+ * well. <br>
+ * <br>
+ * A symmetry can only be used when the pixels of the {@link JuliaWindow} are
+ * mapped onto other pixels by it, i.e., when the coordinates the kernel is
+ * given for the columns (or rows) are each other's negatives to the last bit,
+ * which a {@link PixelGrid} centred on 0 is. A reflected pixel is then iterated
+ * from exactly the negated point and gets exactly the same count. In that case
+ * the rows (or columns) on one side are copied from their reflections by
+ * {@link #mirror(EscapeCountMatrix)} and only the {@link #getRegionsToCompute()
+ * remaining regions} are iterated. For the default window this halves the work,
+ * and quarters it when c is real.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SymmetryPlan {
+
+   /**
+    * Used for rowSum and columnSum when the window is not symmetric in that
+    * direction.
+    */
+   private static final int NO_SYMMETRY = -1;
+
+   /**
+    * How far (in pixel steps) -minValue may be from a whole number of pixel
+    * steps for the coordinates to be checked for symmetry at all.
+    */
+   private static final double ALIGNMENT_TOLERANCE = 1e-6;
+
+   private final int rows;
+
+   private final int columns;
+
+   private final boolean realJuliaNumber;
+
+   /**
+    * Column c is the reflection of column columnSum - c across the imaginary
+    * axis
+    */
+   private final int columnSum;
+
+   /**
+    * Row r is the reflection of row rowSum - r across the real axis
+    */
+   private final int rowSum;
+
+   /**
+    * Rows in [derivedRowStart, derivedRowEnd) are copied from their reflection
+    */
+   private final int derivedRowStart;
+
+   private final int derivedRowEnd;
+
+   /**
+    * Columns in [derivedColumnStart, derivedColumnEnd) are copied from their
+    * reflection within the same row
+    */
+   private final int derivedColumnStart;
+
+   private final int derivedColumnEnd;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} to be drawn
+    * @param kernel
+    *           the kernel the picture is drawn with
+    */
+   public SymmetryPlan(JuliaPicture jp, EscapeTimeKernel kernel) {
+      var jw = jp.getJuliaWindow();
+      rows = jw.getPictureHeight();
+      columns = jw.getPictureWidth();
+      realJuliaNumber = jp.getJuliaNum().getImaginaryComponent() == 0;
+
+      // an offset kernel's coordinates are relative to a point off the axes, so
+      // whether its points are reflections of each other can't be seen from them
+      var offsets = kernel instanceof OffsetEscapeTimeKernel;
+      columnSum = offsets ? NO_SYMMETRY : reflectionSum(kernel.getXValues(jw));
+
+      // row 0 is the top of the picture, so y index k is row (rows - 1 - k)
+      var ySum = offsets ? NO_SYMMETRY : reflectionSum(kernel.getYValues(jw));
+      rowSum = (ySum == NO_SYMMETRY) ? NO_SYMMETRY : 2 * (rows - 1) - ySum;
+
+      // z -> -z bar maps columns to columns within the same row
+      if (realJuliaNumber && columnSum != NO_SYMMETRY) {
+         derivedColumnStart = Math.max(columnSum / 2 + 1, columnSum - columns + 1);
+         derivedColumnEnd = Math.min(columnSum, columns - 1) + 1;
+      } else {
+         derivedColumnStart = 0;
+         derivedColumnEnd = 0;
+      }
+
+      // z bar (or z -> -z when the columns line up as well) maps rows to rows
+      if (rowSum != NO_SYMMETRY && (realJuliaNumber || columnSum != NO_SYMMETRY)) {
+         derivedRowStart = Math.max(rowSum / 2 + 1, rowSum - rows + 1);
+         derivedRowEnd = Math.min(rowSum, rows - 1) + 1;
+      } else {
+         derivedRowStart = 0;
+         derivedRowEnd = 0;
+      }
+   }
+
+   /**
+    * Finds the index sum s such that values[k] and values[s - k] are exactly
+    * negatives of each other wherever both are in the array.
+    */
+   private static int reflectionSum(double[] values) {
+      var size = values.length;
+      if (size < 2) {
+         return NO_SYMMETRY;
+      }
+      var sum = -2 * values[0] / (values[1] - values[0]);
+      var rounded = Math.round(sum);
+      if (!(Math.abs(sum - rounded) <= ALIGNMENT_TOLERANCE) || rounded < 1 || rounded > 2L * size - 3) {
+         return NO_SYMMETRY;
+      }
+      var s = (int) rounded;
+      for (var k = Math.max(0, s - size + 1); k <= s / 2; k++) {
+         // 0 and -0 count the same
+         if (values[s - k] != -values[k]) {
+            return NO_SYMMETRY;
+         }
+      }
+      return s;
+   }
+
+   private boolean hasDerivedRows() {
+      return derivedRowStart < derivedRowEnd;
+   }
+
+   private boolean hasDerivedColumns() {
+      return derivedColumnStart < derivedColumnEnd;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the parts of the matrix that must be iterated before
+    *         {@link #mirror(EscapeCountMatrix)} fills in the rest
+    */
+   public List<MatrixRegion> getRegionsToCompute() {
+      List<MatrixRegion> regions = new ArrayList<>();
+
+      int[][] sourceRows = hasDerivedRows() ? new int[][] { { 0, derivedRowStart }, { derivedRowEnd, rows } }
+            : new int[][] { { 0, rows } };
+      int[][] sourceColumns = hasDerivedColumns()
+            ? new int[][] { { 0, derivedColumnStart }, { derivedColumnEnd, columns } }
+            : new int[][] { { 0, columns } };
+
+      for (var r : sourceRows) {
+         for (var c : sourceColumns) {
+            addIfNotEmpty(regions, new MatrixRegion(r[0], c[0], r[1], c[1]));
+         }
+      }
+
+      // when derived rows come from z -> -z, columns whose reflection is off the
+      // picture have nothing to copy from
+      if (hasDerivedRows() && !realJuliaNumber) {
+         addIfNotEmpty(regions, new MatrixRegion(derivedRowStart, 0, derivedRowEnd,
+               Math.min(columns, columnSum - columns + 1)));
+         addIfNotEmpty(regions, new MatrixRegion(derivedRowStart, Math.max(0, columnSum + 1), derivedRowEnd,
+               columns));
+      }
+
+      return regions;
+   }
+
+   private static void addIfNotEmpty(List<MatrixRegion> regions, MatrixRegion region) {
+      if (!region.isEmpty()) {
+         regions.add(region);
+      }
+   }
+
+   /**
+    * Copies escape counts from the computed regions into the rest of the matrix.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param matrix
+    *           a matrix where every element in {@link #getRegionsToCompute()} has
+    *           been computed
+    */
+   public void mirror(EscapeCountMatrix matrix) {
+      if (hasDerivedColumns()) {
+         for (var row = 0; row < rows; row++) {
+            if (!isDerivedRow(row)) {
+               mirrorRow(matrix, row);
+            }
+         }
+      }
+
+      for (var row = derivedRowStart; row < derivedRowEnd; row++) {
+         mirrorRow(matrix, row);
+      }
+   }
+
+   /**
+    * Copies escape counts into a single row, so rows can be finished one at a
+    * time as they are computed. A derived row may only be mirrored once its
+    * {@link #getDerivedRow(int) source row} has been, and any other row once its
+    * elements in {@link #getRegionsToCompute()} have been computed.
+    */
+   void mirrorRow(EscapeCountMatrix matrix, int row) {
+      if (!isDerivedRow(row)) {
+         for (var column = derivedColumnStart; column < derivedColumnEnd; column++) {
+            matrix.set(row, column, matrix.get(row, columnSum - column));
+         }
+         return;
+      }
+
+      var sourceRow = rowSum - row;
+      if (realJuliaNumber) {
+         for (var column = 0; column < columns; column++) {
+            matrix.set(row, column, matrix.get(sourceRow, column));
+         }
+      } else {
+         var firstColumn = Math.max(0, columnSum - columns + 1);
+         var lastColumn = Math.min(columns - 1, columnSum);
+         for (var column = firstColumn; column <= lastColumn; column++) {
+            matrix.set(row, column, matrix.get(sourceRow, columnSum - column));
+         }
+      }
+   }
+
+   /**
+    * Whether the row is copied from its reflection
+    */
+   boolean isDerivedRow(int row) {
+      return row >= derivedRowStart && row < derivedRowEnd;
+   }
+
+   /**
+    * The row copied from the given row, or -1 if none is
+    */
+   int getDerivedRow(int sourceRow) {
+      var row = rowSum - sourceRow;
+      return (rowSum != NO_SYMMETRY && isDerivedRow(row)) ? row : -1;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the fraction of the matrix that has to be iterated
+    */
+   public double getComputedFraction() {
+      long computed = 0;
+      for (var region : getRegionsToCompute()) {
+         computed += (long) region.getHeight() * region.getWidth();
+      }
+      return (double) computed / ((long) rows * columns);
+   }
+
+   @Override
+   public String toString() {
+      return "SymmetryPlan [rowSum=" + rowSum + ", columnSum=" + columnSum + ", realJuliaNumber="
+            + realJuliaNumber + ", derivedRows=[" + derivedRowStart + ", " + derivedRowEnd
+            + "), derivedColumns=[" + derivedColumnStart + ", " + derivedColumnEnd + ")]";
+   }
+}
@@ -0,0 +1,141 @@
+package com.julia.sets.domain.services;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An encoded image held by {@link ImageCache}, together with the fingerprint of
+ * its picture and the name of the file it was saved as.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class CachedImage {
+
+   private final String fingerprint;
+
+   private final String fileName;
+
+   private final ByteBuffer data;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fingerprint
+    *           the fingerprint of the image's picture, see
+    *           JuliaPicture.getFingerprint()
+    * @param fileName
+    *           name of the image file in the imageFolder, or null if the image
+    *           isn't saved as a file
+    * @param data
+    *           the encoded image, from its position to its limit. It must not
+    *           be changed afterwards.
+    */
+   public CachedImage(String fingerprint, String fileName, ByteBuffer data) {
+      this.fingerprint = fingerprint;
+      this.fileName = fileName;
+      this.data = data.asReadOnlyBuffer();
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the fingerprint of the image's picture
+    */
+   public String getFingerprint() {
+      return fingerprint;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return name of the image file in the imageFolder, or null if the image
+    *         isn't saved as a file
+    */
+   public String getFileName() {
+      return fileName;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return size of the encoded image in bytes
+    */
+   public int getLength() {
+      return data.remaining();
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return a new stream over the encoded image. Any number of streams can be
+    *         read at the same time.
+    */
+   public InputStream getInputStream() {
+      return new BufferInputStream(data.duplicate());
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return a new read-only buffer over the encoded image, e.g., to write it
+    *         to a channel
+    */
+   public ByteBuffer getData() {
+      return data.duplicate();
+   }
+
+   @Override
+   public String toString() {
+      return "CachedImage [fileName=" + fileName + ", length=" + getLength() + ", direct=" + data.isDirect() + "]";
+   }
+
+   /**
+    * Reads a {@link ByteBuffer} straight into the caller's array, so a direct
+    * buffer is never copied onto the heap as a whole.
+    */
+   private static class BufferInputStream extends InputStream {
+
+      private final ByteBuffer buffer;
+
+      BufferInputStream(ByteBuffer buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public int read() {
+         return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+         if (len == 0) {
+            return 0;
+         }
+         if (!buffer.hasRemaining()) {
+            return -1;
+         }
+         var n = Math.min(len, buffer.remaining());
+         buffer.get(b, off, n);
+         return n;
+      }
+
+      @Override
+      public int available() {
+         return buffer.remaining();
+      }
+   }
+}
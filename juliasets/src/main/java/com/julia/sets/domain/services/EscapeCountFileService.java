@@ -0,0 +1,51 @@
+package com.julia.sets.domain.services;
+
+import com.julia.sets.domain.matrix.EscapeCountFormat;
+import com.julia.sets.domain.matrix.EscapeCountMatrix;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * Interface to keep the escape counts behind images as files, so a picture can
+ * be colored again without computing it again. The counts are stored in the
+ * format of {@link EscapeCountFormat}.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ * 
+ */
+public interface EscapeCountFileService {
+
+   /**
+    * Saves the escape counts of a picture in the background, unless they already
+    * are. The counts are only kept to save computing them again, so they may be
+    * skipped when the disk can't keep up, and failing to write them is only
+    * logged.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the picture the matrix was filled for
+    * @param m
+    *           the filled matrix. It must not be changed afterwards.
+    */
+   public void save(JuliaPicture jp, EscapeCountMatrix m);
+
+   /**
+    * Reads the saved escape counts of a picture, or of any picture differing
+    * from it only in its colors.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the picture to look for
+    * @return the saved matrix, which can't be changed, or null if there is none
+    * @throws ImageFileServiceException
+    *            if the saved counts can't be read
+    */
+   public EscapeCountMatrix load(JuliaPicture jp) throws ImageFileServiceException;
+}
@@ -0,0 +1,190 @@
+package com.julia.sets.domain.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.domain.matrix.EscapeCountFormat;
+import com.julia.sets.domain.matrix.EscapeCountMatrix;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * Implementation of {@link EscapeCountFileService}. The files are saved to the
+ * countFolder, named after {@link JuliaPicture#getMatrixFingerprint()}, in the
+ * escapeCountEncoding set in juliaSetApplication.properties. <br>
+ * <br>
+ * The files are written on the thread of {@link ImageWriteBehind}, and skipped
+ * when too many images are waiting there. Once the files add up to more than
+ * countFolderBytes, the least recently used are deleted; reading a file marks
+ * it used by setting its last modified time.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ * 
+ */
+@Service
+public class EscapeCountFileServiceImpl implements EscapeCountFileService {
+
+   Logger logger = LogManager.getLogger(EscapeCountFileServiceImpl.class);
+
+   private static final String FILE_EXTENSION = ".counts";
+
+   /**
+    * Ends the temporary files {@link EscapeCountFormat} writes before moving
+    * them into place
+    */
+   private static final String TEMP_EXTENSION = ".tmp";
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private ImageWriteBehind writes;
+
+   /**
+    * Fingerprints of the matrices waiting to be written, so each is only
+    * queued once
+    */
+   private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+   /**
+    * Size of the files in the countFolder, as far as this service knows. Only
+    * the writer thread changes it after startup.
+    */
+   private final AtomicLong folderBytes = new AtomicLong();
+
+   /**
+    * Creates the countFolder if it doesn't exist, deletes files a crash left
+    * partly written, and adds up the size of the saved escape counts.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    * 
+    * @throws IOException
+    *            if the countFolder can't be created, so the application
+    *            doesn't start without anywhere to save the counts
+    */
+   @PostConstruct
+   public void start() throws IOException {
+      Files.createDirectories(props.getCountFolder().toPath());
+      var temps = props.getCountFolder().listFiles((dir, name) -> name.endsWith(TEMP_EXTENSION));
+      if (temps != null) {
+         for (var temp : temps) {
+            try {
+               Files.deleteIfExists(temp.toPath());
+            } catch (IOException e) {
+               logger.warn("Could not delete partly written escape counts " + temp, e);
+            }
+         }
+      }
+      folderBytes.set(Arrays.stream(listCountFiles()).mapToLong(File::length).sum());
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public void save(JuliaPicture jp, EscapeCountMatrix m) {
+      var file = getFile(jp);
+      var fingerprint = jp.getMatrixFingerprint();
+      if (file.exists() || !queued.add(fingerprint)) {
+         return;
+      }
+      var bytes = (long) m.getRows() * m.getColumns() * m.getBytesPerElement();
+      var write = writes.writeIfRoom(bytes, () -> {
+         try {
+            writeFile(m, jp.getIterations(), file);
+         } finally {
+            queued.remove(fingerprint);
+         }
+      });
+      if (!write) {
+         queued.remove(fingerprint);
+         logger.debug("Escape counts of {} not saved since too many images are waiting to be written", fingerprint);
+      }
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public EscapeCountMatrix load(JuliaPicture jp) throws ImageFileServiceException {
+      var file = getFile(jp);
+      if (!file.exists()) {
+         return null;
+      }
+      try {
+         var m = EscapeCountFormat.read(file.toPath());
+         // keeps the file from being the next one deleted
+         file.setLastModified(System.currentTimeMillis());
+         return m;
+      } catch (IOException e) {
+         logger.error("IO Exception while reading escape counts from " + file, e);
+         throw new ImageFileServiceException(ImageFileServiceException.IMAGE_IO_EXCEPTION, e);
+      }
+   }
+
+   /**
+    * Writes a matrix, then deletes the least recently used files until the
+    * countFolder is back within countFolderBytes. Runs on the writer thread.
+    */
+   private void writeFile(EscapeCountMatrix m, int iterations, File file) {
+      if (file.exists()) {
+         return;
+      }
+      try {
+         EscapeCountFormat.write(m, iterations, props.getEscapeCountEncoding(), file.toPath());
+      } catch (IOException e) {
+         logger.warn("IO Exception while writing escape counts to " + file, e);
+         return;
+      }
+      if (folderBytes.addAndGet(file.length()) > props.getCountFolderBytes()) {
+         deleteLeastRecentlyUsed();
+      }
+   }
+
+   private void deleteLeastRecentlyUsed() {
+      var files = listCountFiles();
+      Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+      var total = Arrays.stream(files).mapToLong(File::length).sum();
+      for (var i = 0; i < files.length && total > props.getCountFolderBytes(); i++) {
+         var length = files[i].length();
+         try {
+            // a matrix still mapped from the file stays readable
+            Files.deleteIfExists(files[i].toPath());
+            total -= length;
+         } catch (IOException e) {
+            logger.warn("Could not delete escape counts " + files[i], e);
+         }
+      }
+      folderBytes.set(total);
+   }
+
+   private File[] listCountFiles() {
+      var files = props.getCountFolder().listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+      return (files == null) ? new File[0] : files;
+   }
+
+   private File getFile(JuliaPicture jp) {
+      return new File(props.getCountFolder(), jp.getMatrixFingerprint() + FILE_EXTENSION);
+   }
+}
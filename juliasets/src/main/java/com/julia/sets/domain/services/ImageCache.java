@@ -0,0 +1,215 @@
+package com.julia.sets.domain.services;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy.Eviction;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Keeps the encoded bytes of finished images in memory, so a picture that has
+ * been drawn before is found without asking the database or listing the
+ * imageFolder, and its image is served without reading the file. <br>
+ * <br>
+ * Images are keyed by {@link JuliaPicture#getFingerprint()} and can also be
+ * looked up by file name. The cache holds at most imageCacheBytes of images;
+ * Caffeine's W-TinyLFU policy decides which go when it is full, so an image
+ * asked for once doesn't push out one asked for all the time. With
+ * imageCacheOffHeap the bytes are kept in direct buffers, which the garbage
+ * collector doesn't have to copy. <br>
+ * <br>
+ * Hits, misses, evictions and size are published under the cache name
+ * {@value #CACHE_NAME} (e.g., cache.gets), and the bytes held as the
+ * {@value #BYTES_METRIC} gauge.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class ImageCache {
+
+   /**
+    * Name the cache's metrics are tagged with
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String CACHE_NAME = "images";
+
+   /**
+    * Name of the gauge of the bytes of images held
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String BYTES_METRIC = "juliasets.image.cache.bytes";
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private Cache<String, CachedImage> images;
+
+   /**
+    * Fingerprint of each cached image, by file name
+    */
+   private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+   /**
+    * Empty constructor to create the bean
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   ImageCache() {
+      super();
+   }
+
+   /**
+    * Creates the cache and registers its metrics.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PostConstruct
+   public void start() {
+      images = Caffeine.newBuilder()
+            .maximumWeight(props.getImageCacheBytes())
+            .weigher((String fingerprint, CachedImage image) -> image.getLength())
+            // run on the thread making the change, so the file name is forgotten with the image
+            .executor(Runnable::run)
+            .removalListener(this::forgetFileName)
+            .recordStats()
+            .build();
+
+      CaffeineCacheMetrics.monitor(meterRegistry, images, CACHE_NAME);
+      Eviction<String, CachedImage> eviction = images.policy().eviction().orElseThrow();
+      Gauge.builder(BYTES_METRIC, eviction, e -> e.weightedSize().orElse(0))
+            .baseUnit("bytes")
+            .register(meterRegistry);
+   }
+
+   /**
+    * Adds an image to the cache. Images bigger than imageCacheBytes are not
+    * kept.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fingerprint
+    *           the fingerprint of the image's {@link JuliaPicture}
+    * @param fileName
+    *           name of the image file in the imageFolder
+    * @param encoded
+    *           the encoded image
+    */
+   public void put(String fingerprint, String fileName, byte[] encoded) {
+      if (encoded.length > props.getImageCacheBytes()) {
+         return;
+      }
+      fingerprints.put(fileName, fingerprint);
+      images.put(fingerprint, new CachedImage(fingerprint, fileName, store(encoded)));
+   }
+
+   /**
+    * Adds an image that isn't saved as a file, e.g., a map tile, to the cache.
+    * Images bigger than imageCacheBytes are not kept.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fingerprint
+    *           the fingerprint of the image's {@link JuliaPicture}
+    * @param encoded
+    *           the encoded image
+    * @return the image, whether or not it was kept
+    */
+   public CachedImage put(String fingerprint, byte[] encoded) {
+      if (encoded.length > props.getImageCacheBytes()) {
+         return new CachedImage(fingerprint, null, ByteBuffer.wrap(encoded));
+      }
+      var image = new CachedImage(fingerprint, null, store(encoded));
+      images.put(fingerprint, image);
+      return image;
+   }
+
+   /**
+    * Copies an encoded image off the heap if imageCacheOffHeap is set
+    */
+   private ByteBuffer store(byte[] encoded) {
+      if (Boolean.TRUE.equals(props.getImageCacheOffHeap())) {
+         return ByteBuffer.allocateDirect(encoded.length).put(encoded).flip();
+      }
+      return ByteBuffer.wrap(encoded);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fingerprint
+    *           the fingerprint of a {@link JuliaPicture}
+    * @return the picture's image, or null if it isn't cached
+    */
+   public CachedImage getByFingerprint(String fingerprint) {
+      return images.getIfPresent(fingerprint);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fileName
+    *           name of an image file in the imageFolder
+    * @return the image saved as fileName, or null if it isn't cached
+    */
+   public CachedImage getByFileName(String fileName) {
+      var fingerprint = fingerprints.get(fileName);
+      if (fingerprint == null) {
+         return null;
+      }
+      var image = images.getIfPresent(fingerprint);
+      return (image != null && fileName.equals(image.getFileName())) ? image : null;
+   }
+
+   /**
+    * Drops the file name of an image that has left the cache. A replaced image
+    * keeps its fingerprint, so its file name still leads to the new one.
+    */
+   private void forgetFileName(String fingerprint, CachedImage image, RemovalCause cause) {
+      if (image != null && image.getFileName() != null && cause != RemovalCause.REPLACED) {
+         fingerprints.remove(image.getFileName(), fingerprint);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "ImageCache [images=" + images.estimatedSize() + ", fileNames=" + fingerprints.size() + "]";
+   }
+}
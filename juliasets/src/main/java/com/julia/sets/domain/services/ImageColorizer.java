@@ -0,0 +1,306 @@
+package com.julia.sets.domain.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.julia.sets.domain.matrix.EscapeCountMatrix;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * Turns the escape counts of a filled matrix into the pixels of an image, a row
+ * at a time, so the image is never held whole: {@link PngEncoder} colors each
+ * band of rows just before it compresses it. <br>
+ * <br>
+ * The colors are looked up in the picture's color table, which has an entry
+ * for every escape count. When the table comes to at most
+ * {@value #MAX_PALETTE_SIZE} distinct colors, the image is indexed with all of
+ * them as its palette: each pixel is a single byte, an index into
+ * {@link #getPalette()}. That is known before the matrix is filled, so
+ * {@link PngStream} can encode such images row by row as they are computed.
+ * Larger tables usually go with pictures that use many escape counts, but a
+ * picture that only uses a small range of them is still indexed when the
+ * colors it uses come to at most {@value #MAX_PALETTE_SIZE}. Otherwise every
+ * pixel is RGB, or RGBA if any color isn't opaque.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ImageColorizer {
+
+   /**
+    * The most colors an indexed image has, which is the most a PNG palette
+    * holds
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int MAX_PALETTE_SIZE = 256;
+
+   private final EscapeCountMatrix matrix;
+
+   private final int stride;
+
+   private final int width;
+
+   private final int height;
+
+   /**
+    * ARGB color of every escape count, see {@link JuliaPicture#getColorTable()}
+    */
+   private final int[] colors;
+
+   /**
+    * Palette index of every escape count, or null if the image isn't indexed
+    */
+   private final byte[] indexes;
+
+   private final int[] palette;
+
+   private final boolean opaque;
+
+   private ImageColorizer(EscapeCountMatrix matrix, int stride, int[] colors, byte[] indexes, int[] palette,
+         boolean opaque) {
+      this.matrix = matrix;
+      this.stride = stride;
+      this.width = (matrix.getColumns() + stride - 1) / stride;
+      this.height = (matrix.getRows() + stride - 1) / stride;
+      this.colors = colors;
+      this.indexes = indexes;
+      this.palette = palette;
+      this.opaque = opaque;
+   }
+
+   /**
+    * Works out the colors of the image of every stride-th element of every
+    * stride-th row of the matrix, so a stride greater than 1 makes a smaller
+    * image.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} the matrix was filled for
+    * @param m
+    *           the filled matrix
+    * @param stride
+    *           distance between the elements colored
+    * @return a colorizer for the image's rows
+    */
+   public static ImageColorizer create(JuliaPicture jp, EscapeCountMatrix m, int stride) {
+      var colors = jp.getColorTable();
+      var tablePalette = paletteIndexes(colors, null);
+      if (tablePalette != null) {
+         return indexed(m, stride, colors, tablePalette, null);
+      }
+
+      // find the colors the image uses
+      var used = new boolean[colors.length];
+      for (var i = 0; i < m.getRows(); i += stride) {
+         for (var j = 0; j < m.getColumns(); j += stride) {
+            used[tableIndex(m.get(i, j), colors.length)] = true;
+         }
+      }
+      var paletteIndexes = paletteIndexes(colors, used);
+      if (paletteIndexes == null) {
+         return new ImageColorizer(m, stride, colors, null, null, isOpaque(colors, used));
+      }
+      return indexed(m, stride, colors, paletteIndexes, used);
+   }
+
+   /**
+    * Works out the colors of the full size image of a matrix that is still to
+    * be filled, from the color table alone. It is the colorizer
+    * {@link #create(JuliaPicture, EscapeCountMatrix, int)} makes when the table
+    * has at most {@value #MAX_PALETTE_SIZE} colors. For larger tables it is RGB,
+    * or RGBA if any color of the table isn't opaque, which
+    * {@link #hasSameFormat(ImageColorizer)} checks against the colors actually
+    * used once the matrix is filled.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the {@link JuliaPicture} the matrix is filled for
+    * @param m
+    *           the matrix, which may still be empty
+    * @return a colorizer for the image's rows
+    */
+   public static ImageColorizer createBeforeFill(JuliaPicture jp, EscapeCountMatrix m) {
+      var colors = jp.getColorTable();
+      var tablePalette = paletteIndexes(colors, null);
+      if (tablePalette != null) {
+         return indexed(m, 1, colors, tablePalette, null);
+      }
+      return new ImageColorizer(m, 1, colors, null, null, isOpaque(colors, null));
+   }
+
+   /**
+    * Palette index of every distinct color of the table, in the order they
+    * first appear, counting only the escape counts used if used isn't null, or
+    * null if there are more than {@value #MAX_PALETTE_SIZE}
+    */
+   private static Map<Integer, Integer> paletteIndexes(int[] colors, boolean[] used) {
+      Map<Integer, Integer> paletteIndexes = new HashMap<>();
+      for (var t = 0; t < colors.length; t++) {
+         if ((used == null || used[t]) && !paletteIndexes.containsKey(colors[t])) {
+            if (paletteIndexes.size() == MAX_PALETTE_SIZE) {
+               return null;
+            }
+            paletteIndexes.put(colors[t], paletteIndexes.size());
+         }
+      }
+      return paletteIndexes;
+   }
+
+   private static boolean isOpaque(int[] colors, boolean[] used) {
+      for (var t = 0; t < colors.length; t++) {
+         if ((used == null || used[t]) && (colors[t] >>> 24) != 0xFF) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static ImageColorizer indexed(EscapeCountMatrix m, int stride, int[] colors,
+         Map<Integer, Integer> paletteIndexes, boolean[] used) {
+      var palette = new int[paletteIndexes.size()];
+      paletteIndexes.forEach((color, index) -> palette[index] = color);
+      var indexes = new byte[colors.length];
+      for (var t = 0; t < colors.length; t++) {
+         if (used == null || used[t]) {
+            indexes[t] = paletteIndexes.get(colors[t]).byteValue();
+         }
+      }
+      return new ImageColorizer(m, stride, colors, indexes, palette, isOpaque(colors, used));
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param other
+    *           another colorizer of the same picture
+    * @return true if both write the same pixels, i.e., they have the same
+    *         palette or are both RGB or both RGBA
+    */
+   public boolean hasSameFormat(ImageColorizer other) {
+      return opaque == other.opaque && Arrays.equals(palette, other.palette);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the width of the image in pixels
+    */
+   public int getWidth() {
+      return width;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the height of the image in pixels
+    */
+   public int getHeight() {
+      return height;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if the pixels are indexes into {@link #getPalette()}
+    */
+   public boolean isIndexed() {
+      return indexes != null;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if any color of the image isn't opaque
+    */
+   public boolean hasAlpha() {
+      return !opaque;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the ARGB colors of an indexed image, or null if it isn't indexed
+    */
+   public int[] getPalette() {
+      return palette;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the bytes of a pixel: 1 for an indexed image, 4 for RGBA and 3 for
+    *         RGB
+    */
+   public int getBytesPerPixel() {
+      if (isIndexed()) {
+         return 1;
+      }
+      return opaque ? 3 : 4;
+   }
+
+   /**
+    * Colors a row of the image.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param row
+    *           the row, from 0 at the top
+    * @param samples
+    *           receives the row's pixels as PNG samples: palette indexes, RGB
+    *           or RGBA, {@link #getBytesPerPixel()} bytes each
+    */
+   public void colorizeRow(int row, byte[] samples) {
+      var i = row * stride;
+      if (isIndexed()) {
+         for (var j = 0; j < width; j++) {
+            samples[j] = indexes[tableIndex(matrix.get(i, j * stride), colors.length)];
+         }
+         return;
+      }
+      var s = 0;
+      for (var j = 0; j < width; j++) {
+         var argb = colors[tableIndex(matrix.get(i, j * stride), colors.length)];
+         samples[s++] = (byte) (argb >> 16);
+         samples[s++] = (byte) (argb >> 8);
+         samples[s++] = (byte) argb;
+         if (!opaque) {
+            samples[s++] = (byte) (argb >>> 24);
+         }
+      }
+   }
+
+   /**
+    * Where a matrix value's color is in the color table. Points inside the Julia
+    * set, and any value outside the palette, get the interior color.
+    */
+   private static int tableIndex(int a, int tableSize) {
+      return (1 <= a && a < tableSize) ? a : 0;
+   }
+}
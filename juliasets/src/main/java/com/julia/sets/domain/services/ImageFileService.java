@@ -1,8 +1,12 @@
 package com.julia.sets.domain.services;
 
 import java.util.List;
+import java.util.Set;
 
 import com.julia.sets.data.entities.JuliaPictureEntity;
+import com.julia.sets.domain.matrix.RenderEstimate;
+import com.julia.sets.domain.matrix.RenderOverBudgetException;
+import com.julia.sets.domain.matrix.RenderTooExpensiveException;
 import com.julia.sets.presentation.complex.plane.JuliaPicture;
 
 /**
@@ -31,6 +35,97 @@ public interface ImageFileService {
     */
    public String getFileName(List<Integer> ids);
 
+   /**
+    * Looks for the image of a {@link JuliaPicture} in memory, without asking
+    * the database or the imageFolder.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the parameters for the Julia Set image
+    * @return the image's file name if it is cached. An empty string is returned
+    *         if it isn't.
+    */
+   public String getCachedFileName(JuliaPicture jp);
+
+   /**
+    * Reads an existing image file into memory, so later requests for the
+    * picture find it with {@link #getCachedFileName(JuliaPicture)}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the parameters for the Julia Set image
+    * @param fileName
+    *           the name of the picture's image file, e.g., from
+    *           {@link #getFileName(List)}
+    */
+   public void cacheImage(JuliaPicture jp, String fileName);
+
+   /**
+    * Finds an image in memory, either cached or still waiting to be written to
+    * its file.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fileName
+    *           name of an image file
+    * @return the image saved as fileName if it is in memory, otherwise null
+    */
+   public CachedImage getCachedImage(String fileName);
+
+   /**
+    * Gets the image of a map tile, drawing it if it isn't cached.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param tile
+    *           the parameters for the tile
+    * @return the tile's image
+    * @throws RenderTooExpensiveException
+    *            if the tile is estimated to cost more than maxRenderCost
+    * @throws RenderOverBudgetException
+    *            if the images already being created leave too little budget
+    * @throws ImageFileServiceException
+    *            if a critical system error occurs while drawing the tile
+    */
+   public CachedImage getTile(JuliaPicture tile) throws ImageFileServiceException;
+
+   /**
+    * Estimates what an image would cost to create, without creating it.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the parameters for the Julia Set image
+    * @return the estimated cost and how the image would be drawn
+    */
+   public RenderEstimate estimateRender(JuliaPicture jp);
+
+   /**
+    * Checks that an image is not too expensive to ever be created.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param estimate
+    *           the estimate from {@link #estimateRender(JuliaPicture)}
+    * @throws RenderTooExpensiveException
+    *            if the image is estimated to cost more than maxRenderCost
+    */
+   public void checkRenderCost(RenderEstimate estimate) throws RenderTooExpensiveException;
+
    /**
     * Creates an image based on the {@link JuliaPicture}
     * 
@@ -42,10 +137,79 @@ public interface ImageFileService {
     *           the parameters for the Julia Set image to generate
     * @param pictureId
     *           the id corresponding with the associated {@link JuliaPictureEntity}
+    * @param estimate
+    *           the estimate from {@link #estimateRender(JuliaPicture)}
     * @return the file name for the image generated.
+    * @throws RenderOverBudgetException
+    *            if the images already being created leave too little budget
     * @throws ImageFileServiceException
     *            if a critical system error occurs during the creation of the image
     *            such as {@link InterruptedException} or {@link IOException}
     */
-   public String createImage(JuliaPicture jp, Integer pictureId) throws ImageFileServiceException;
+   public String createImage(JuliaPicture jp, Integer pictureId, RenderEstimate estimate)
+         throws ImageFileServiceException;
+
+   /**
+    * Creates an image based on the {@link JuliaPicture} coarse-to-fine. This
+    * returns as soon as the first low resolution preview has been written, and the
+    * rest of the render carries on in the background. Its progress can be followed
+    * with {@link #getRenderProgress(Integer)}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the parameters for the Julia Set image to generate
+    * @param pictureId
+    *           the id corresponding with the associated {@link JuliaPictureEntity}
+    * @param estimate
+    *           the estimate from {@link #estimateRender(JuliaPicture)}
+    * @return the progress of the render once the first image has been written
+    * @throws RenderOverBudgetException
+    *            if the images already being created leave too little budget
+    * @throws ImageFileServiceException
+    *            if a critical system error occurs before the first image is
+    *            written
+    */
+   public RenderProgress createImageProgressively(JuliaPicture jp, Integer pictureId, RenderEstimate estimate)
+         throws ImageFileServiceException;
+
+   /**
+    * Checks on a render started by
+    * {@link #createImageProgressively(JuliaPicture, Integer, RenderEstimate)}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param pictureId
+    *           the id corresponding with the associated {@link JuliaPictureEntity}
+    * @return the progress of the render. If no render is running, this is done
+    *         and holds the saved image, if there is one.
+    */
+   public RenderProgress getRenderProgress(Integer pictureId);
+
+   /**
+    * Stops a render part way through. Whoever is waiting for it gets an
+    * exception instead of an image.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param pictureId
+    *           the id corresponding with the associated {@link JuliaPictureEntity}
+    * @return true if a running render was stopped
+    */
+   public boolean cancelRender(Integer pictureId);
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the picture ids of the renders that are running
+    */
+   public Set<Integer> getRunningRenders();
 }
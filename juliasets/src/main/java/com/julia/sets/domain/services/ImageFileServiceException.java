@@ -30,6 +30,15 @@ public class ImageFileServiceException extends Exception {
     */
    public static final String IMAGE_IO_EXCEPTION = "IO Exception while writing Julia Set image to output file";
 
+   /**
+    * Error message for exceptions thrown from inside a thread filling the matrix
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String MATRIX_THREAD_FAILED = "Exception thrown by a thread while filling matrix for Julia Picture";
+
    /**
     * Creates an exception with the desired error message.
     * 
@@ -1,12 +1,30 @@
 package com.julia.sets.domain.services;
 
-import java.awt.Color;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-import javax.imageio.ImageIO;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -15,7 +33,19 @@ import org.springframework.stereotype.Service;
 
 import com.julia.sets.config.ApplicationProperties;
 import com.julia.sets.config.ImageFileFilter;
+import com.julia.sets.domain.matrix.EscapeCountMatrix;
+import com.julia.sets.domain.matrix.ImageThreadTimeoutException;
 import com.julia.sets.domain.matrix.JuliaSetMatrixCalculator;
+import com.julia.sets.domain.matrix.MatrixCache;
+import com.julia.sets.domain.matrix.MatrixPassListener;
+import com.julia.sets.domain.matrix.MatrixRowListener;
+import com.julia.sets.domain.matrix.RenderAdmission;
+import com.julia.sets.domain.matrix.RenderCancellation;
+import com.julia.sets.domain.matrix.RenderCostEstimator;
+import com.julia.sets.domain.matrix.RenderEstimate;
+import com.julia.sets.domain.matrix.RenderExecutor;
+import com.julia.sets.domain.matrix.RenderRejectedException;
+import com.julia.sets.domain.matrix.RenderTooExpensiveException;
 import com.julia.sets.presentation.complex.plane.JuliaPicture;
 
 /**
@@ -35,6 +65,115 @@ public class ImageFileServiceImpl implements ImageFileService {
    @Autowired
    private JuliaSetMatrixCalculator jsmc;
 
+   @Autowired
+   private RenderCostEstimator costEstimator;
+
+   @Autowired
+   private RenderAdmission admission;
+
+   @Autowired
+   private ImageCache imageCache;
+
+   @Autowired
+   private MatrixCache matrixCache;
+
+   @Autowired
+   private EscapeCountFileService escapeCountFiles;
+
+   @Autowired
+   private PngEncoder pngEncoder;
+
+   @Autowired
+   private ImageWriteBehind imageWrites;
+
+   @Autowired
+   private RenderExecutor renderExecutor;
+
+   private static final String PREVIEW_TIMEOUT_MESSAGE = "No preview image was ready in time."
+         + " Please consider adjusting input parameters.";
+
+   private static final String NO_RENDER_MESSAGE = "No image is being created for this picture.";
+
+   /**
+    * Progress of each coarse-to-fine render that is still running, by picture id
+    */
+   private final Map<Integer, RenderProgress> renders = new ConcurrentHashMap<>();
+
+   /**
+    * Runs the coarse-to-fine renders after the request that started them has
+    * returned its first preview. The renders hand their pixels out to the
+    * calculator's own threads, so these threads mostly wait. It has a thread
+    * and a queue slot per thread of the {@link RenderExecutor}; a render that
+    * finds both full is turned away like one that doesn't fit the render queue.
+    */
+   private ThreadPoolExecutor progressiveRenders;
+
+   /**
+    * Colors and writes the previews of the coarse-to-fine renders. Each render
+    * has at most one preview being written, so it never has to turn one away.
+    */
+   private ThreadPoolExecutor previewWrites;
+
+   /**
+    * Completed with the first image of each coarse-to-fine render that is
+    * running, by picture id
+    */
+   private final Map<Integer, CompletableFuture<RenderProgress>> firstImages = new ConcurrentHashMap<>();
+
+   /**
+    * Cancellation of every render that is running, by picture id
+    */
+   private final Map<Integer, RenderCancellation> cancellations = new ConcurrentHashMap<>();
+
+   /**
+    * When each coarse-to-fine render was last asked about, by picture id, as a
+    * {@link System#nanoTime()}
+    */
+   private final Map<Integer, Long> lastPolls = new ConcurrentHashMap<>();
+
+   /**
+    * Requests for a tile that arrive while it is being drawn wait for that
+    * render, keyed by {@link JuliaPicture#getFingerprint()}
+    */
+   private final SingleFlight<CachedImage> tileRenders = new SingleFlight<>();
+
+   /**
+    * Stops coarse-to-fine renders whose page has stopped asking about them
+    */
+   private final ScheduledExecutorService abandonedRenderSweeper = Executors
+         .newSingleThreadScheduledExecutor(namedThreads("julia-sweeper-"));
+
+   /**
+    * Starts the pools of the coarse-to-fine renders and looking for abandoned
+    * renders.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PostConstruct
+   public void start() {
+      var threads = renderExecutor.getParallelism();
+      progressiveRenders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads), namedThreads("julia-progressive-"));
+      previewWrites = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(2 * threads), namedThreads("julia-preview-"));
+      abandonedRenderSweeper.scheduleWithFixedDelay(this::cancelAbandonedRenders, 1, 1, TimeUnit.SECONDS);
+   }
+
+   /**
+    * Names the threads of a pool prefix-N, like the julia-render-N threads of
+    * the {@link RenderExecutor}
+    */
+   private static ThreadFactory namedThreads(String prefix) {
+      var count = new AtomicInteger();
+      return r -> {
+         var thread = Executors.defaultThreadFactory().newThread(r);
+         thread.setName(prefix + count.getAndIncrement());
+         return thread;
+      };
+   }
+
    /**
     * Searches the database to see if the Julia Picture has ever been attempted to
     * be made before. If so, this will search to see if the image file still exists
@@ -53,6 +192,10 @@ public class ImageFileServiceImpl implements ImageFileService {
          // check if this id corresponds with an image
          var folder = props.getImageFolder();
          var filter = new ImageFileFilter(ids);
+         var pending = imageWrites.find(filter);
+         if (pending != null) {
+            return pending;
+         }
          var files = folder.listFiles(filter);
          if (files != null && files.length > 0) {
             answer = files[0].getName();
@@ -67,46 +210,434 @@ public class ImageFileServiceImpl implements ImageFileService {
     * @since 1.0.0
     */
    @Override
-   public String createImage(JuliaPicture jp, Integer pictureId) throws ImageFileServiceException {
+   public String getCachedFileName(JuliaPicture jp) {
+      // tiles are cached without a file
+      var image = imageCache.getByFingerprint(jp.getFingerprint());
+      return (image == null || image.getFileName() == null) ? "" : image.getFileName();
+   }
 
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public void cacheImage(JuliaPicture jp, String fileName) {
+      var pending = imageWrites.get(fileName);
+      if (pending != null) {
+         var encoded = new byte[pending.getLength()];
+         pending.getData().get(encoded);
+         imageCache.put(jp.getFingerprint(), fileName, encoded);
+         return;
+      }
       try {
-         // get the matrix used to generate the image
-         Integer[][] m = jsmc.fillMatrix(jp);
-
-         // set up the image
-         var image = new BufferedImage(m[0].length, m.length, BufferedImage.TYPE_INT_ARGB);
-
-         // convert the matix's values to the desired colors
-         List<Color> colorPalette = jp.getFilledColorPalette();
-         for (var i = 0; i < m.length; i++) {
-            for (var j = 0; j < m[i].length; j++) {
-               int a = m[i][j];
-
-               // initialize next color as the desired color for points inside the Julia set.
-               // Points outside the Julia set will have a matrix value between 1 and cp.size()
-               // and be assigned their color from the palette.
-               var nextColor = jp.getInteriorColor();
-               if (1 <= a && a <= colorPalette.size()) {
-                  nextColor = colorPalette.get(a - 1);
-               }
-               image.setRGB(j, i, nextColor.getRGB());
-            }
-         }
+         var encoded = Files.readAllBytes(new File(props.getImageFolder(), fileName).toPath());
+         imageCache.put(jp.getFingerprint(), fileName, encoded);
+      } catch (IOException e) {
+         // the image is still served from its file
+         logger.warn("Could not cache image " + fileName, e);
+      }
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public CachedImage getCachedImage(String fileName) {
+      var cached = imageCache.getByFileName(fileName);
+      return (cached != null) ? cached : imageWrites.get(fileName);
+   }
+
+   /**
+    * Tiles are drawn on the same render pool and under the same cost limits as
+    * pictures, but aren't saved to the imageFolder or the database; they are
+    * kept in the {@link ImageCache} only.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public CachedImage getTile(JuliaPicture tile) throws ImageFileServiceException {
+      var fingerprint = tile.getFingerprint();
+      var cached = imageCache.getByFingerprint(fingerprint);
+      if (cached != null) {
+         return cached;
+      }
+      return tileRenders.execute(fingerprint, () -> renderTile(tile));
+   }
+
+   private CachedImage renderTile(JuliaPicture tile) throws ImageFileServiceException {
+      var estimate = costEstimator.estimate(tile);
+      admission.checkCost(estimate);
+      admission.acquire(estimate);
+      try {
+         var cancellation = new RenderCancellation();
+         var m = jsmc.fillMatrix(tile, null, cancellation);
+         return imageCache.put(tile.getFingerprint(), encodeImage(tile, m, 1, cancellation));
+      } catch (InterruptedException e) {
+         logger.error("Thread Interrupted Exception while filling matrix", e);
+         Thread.currentThread().interrupt();
+         throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_INTERRUPTED, e);
+      } finally {
+         admission.release(estimate);
+      }
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public RenderEstimate estimateRender(JuliaPicture jp) {
+      return costEstimator.estimate(jp);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public void checkRenderCost(RenderEstimate estimate) throws RenderTooExpensiveException {
+      admission.checkCost(estimate);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public String createImage(JuliaPicture jp, Integer pictureId, RenderEstimate estimate)
+         throws ImageFileServiceException {
 
-         // save the image to the correct location
-         var imageFolder = props.getImageFolder();
+      admission.acquire(estimate);
+      var cancellation = startRender(pictureId);
+      try {
+         // get the matrix used to generate the image, encoding it as it is filled
+         var stream = pngEncoder.stream(jp, cancellation);
+         var m = fillMatrix(jp, null, stream, cancellation);
          var fileName = pictureId.toString() + ".png";
-         var output = new File(imageFolder, fileName);
-         ImageIO.write(image, "png", output);
+         saveImage(jp, stream.finish(m), fileName, true);
          return fileName;
       } catch (InterruptedException e) {
          logger.error("Thread Interrupted Exception while filling matrix", e);
          Thread.currentThread().interrupt();
          throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_INTERRUPTED, e);
-      } catch (IOException e) {
-         logger.error("IO Exception while writing image to output file", e);
-         throw new ImageFileServiceException(ImageFileServiceException.IMAGE_IO_EXCEPTION, e);
+      } finally {
+         cancellations.remove(pictureId, cancellation);
+         admission.release(estimate);
+      }
+   }
+
+   /**
+    * The render runs on {@link #progressiveRenders}, and is turned away with
+    * {@link RenderRejectedException} if that is full. Each coarse pass of
+    * {@link JuliaSetMatrixCalculator#fillMatrix(JuliaPicture, MatrixPassListener)}
+    * is written as a small preview image, e.g., 12-preview4.png, which
+    * {@link ImageFileFilter} never matches. The previews are deleted once the
+    * render finishes, and one whose file hasn't been written by then never is.
+    * A preview is colored and encoded while the next pass
+    * computes; the pass after that waits for it, so only one preview is ever
+    * being written. <br>
+    * <br>
+    * The page showing the previews keeps asking for
+    * {@link #getRenderProgress(Integer)}. If it stops for renderAbandonSeconds,
+    * the render is cancelled. <br>
+    * <br>
+    * If the picture is already being drawn coarse-to-fine, no second render is
+    * started; this waits for the first image of the running one and returns its
+    * latest progress.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public RenderProgress createImageProgressively(JuliaPicture jp, Integer pictureId, RenderEstimate estimate)
+         throws ImageFileServiceException {
+      var firstImage = new CompletableFuture<RenderProgress>();
+      var running = firstImages.putIfAbsent(pictureId, firstImage);
+      if (running != null) {
+         var progress = awaitFirstImage(running);
+         var latest = renders.get(pictureId);
+         return (latest == null || latest.getFileName().isEmpty()) ? progress : latest;
+      }
+
+      try {
+         admission.acquire(estimate);
+      } catch (RenderRejectedException e) {
+         firstImages.remove(pictureId, firstImage);
+         firstImage.completeExceptionally(e);
+         throw e;
+      }
+      renders.put(pictureId, new RenderProgress("", false, null));
+      var cancellation = startRender(pictureId);
+      lastPolls.put(pictureId, System.nanoTime());
+      try {
+         progressiveRenders.execute(() -> renderProgressively(jp, pictureId, estimate, cancellation, firstImage));
+      } catch (RejectedExecutionException e) {
+         lastPolls.remove(pictureId);
+         cancellations.remove(pictureId, cancellation);
+         renders.remove(pictureId);
+         admission.release(estimate);
+         var rejected = new RenderRejectedException(RenderRejectedException.QUEUE_FULL);
+         firstImages.remove(pictureId, firstImage);
+         firstImage.completeExceptionally(rejected);
+         throw rejected;
       }
+      return awaitFirstImage(firstImage);
+   }
+
+   private RenderProgress awaitFirstImage(CompletableFuture<RenderProgress> firstImage)
+         throws ImageFileServiceException {
+      try {
+         // the calculator gives up after maxWaitTime, so this only guards against
+         // the render never being started
+         return firstImage.get(2L * props.getMaxWaitTime(), TimeUnit.SECONDS);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof ImageFileServiceException) {
+            throw (ImageFileServiceException) e.getCause();
+         }
+         throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_FAILED, e.getCause());
+      } catch (TimeoutException e) {
+         throw new ImageThreadTimeoutException(PREVIEW_TIMEOUT_MESSAGE, e);
+      } catch (InterruptedException e) {
+         logger.error("Thread Interrupted Exception while waiting for preview image", e);
+         Thread.currentThread().interrupt();
+         throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_INTERRUPTED, e);
+      }
+   }
+
+   /**
+    * Runs a coarse-to-fine render, completing firstImage with whichever image is
+    * written first (or the failure, if none is).
+    */
+   private void renderProgressively(JuliaPicture jp, Integer pictureId, RenderEstimate estimate,
+         RenderCancellation cancellation, CompletableFuture<RenderProgress> firstImage) {
+      // the listener is called on this thread, between the passes, and hands the
+      // preview to another thread. Waiting for the one before orders the writes.
+      // The previews are listed on those threads, and deleted on this one.
+      List<String> previews = Collections.synchronizedList(new ArrayList<>());
+      var previewWrite = new AtomicReference<CompletableFuture<Void>>(CompletableFuture.completedFuture(null));
+      try {
+         var stream = pngEncoder.stream(jp, cancellation);
+         var m = fillMatrix(jp, (matrix, stride) -> {
+            awaitPreview(previewWrite.get());
+            previewWrite.set(CompletableFuture.runAsync(() -> {
+               try {
+                  var preview = writePreview(jp, matrix, stride,
+                        pictureId.toString() + "-preview" + stride + ".png", cancellation);
+                  previews.add(preview);
+                  var progress = new RenderProgress(preview, false, null);
+                  renders.put(pictureId, progress);
+                  firstImage.complete(progress);
+               } catch (ImageFileServiceException e) {
+                  throw new CompletionException(e);
+               }
+            }, previewWrites));
+         }, stream, cancellation);
+         awaitPreview(previewWrite.get());
+         var fileName = pictureId.toString() + ".png";
+         saveImage(jp, stream.finish(m), fileName, true);
+         var progress = new RenderProgress(fileName, true, null);
+
+         // from now on getFileName finds the finished image
+         renders.remove(pictureId);
+         firstImage.complete(progress);
+      } catch (ImageFileServiceException e) {
+         logger.error("Exception during progressive render of picture " + pictureId, e);
+         renders.put(pictureId, new RenderProgress("", true, e.getMessage()));
+         firstImage.completeExceptionally(e);
+      } catch (InterruptedException e) {
+         logger.error("Thread Interrupted Exception while filling matrix", e);
+         Thread.currentThread().interrupt();
+         renders.put(pictureId, new RenderProgress("", true, ImageFileServiceException.MATRIX_THREAD_INTERRUPTED));
+         firstImage.completeExceptionally(
+               new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_INTERRUPTED, e));
+      } catch (RuntimeException e) {
+         logger.error("Exception during progressive render of picture " + pictureId, e);
+         renders.put(pictureId, new RenderProgress("", true, ImageFileServiceException.MATRIX_THREAD_FAILED));
+         firstImage.completeExceptionally(e);
+      } finally {
+         // the preview being encoded, if any, has to be listed to be deleted
+         previewWrite.get().handle((result, e) -> null).join();
+         firstImages.remove(pictureId, firstImage);
+         cancellations.remove(pictureId, cancellation);
+         lastPolls.remove(pictureId);
+         admission.release(estimate);
+         previews.forEach(imageWrites::delete);
+      }
+   }
+
+   /**
+    * Waits for a preview to be written, passing on why it couldn't be
+    */
+   private static void awaitPreview(CompletableFuture<Void> previewWrite) throws ImageFileServiceException {
+      try {
+         previewWrite.join();
+      } catch (CompletionException e) {
+         if (e.getCause() instanceof ImageFileServiceException) {
+            throw (ImageFileServiceException) e.getCause();
+         }
+         throw e;
+      }
+   }
+
+   /**
+    * A render that failed is reported once and then forgotten, and a finished
+    * render is only in {@link #renders} until its image has been written, so the
+    * map only ever holds the renders that are running.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public RenderProgress getRenderProgress(Integer pictureId) {
+      var progress = renders.get(pictureId);
+      if (progress != null) {
+         lastPolls.replace(pictureId, System.nanoTime());
+         if (progress.isDone()) {
+            renders.remove(pictureId, progress);
+         }
+         return progress;
+      }
+
+      var fileName = getFileName(List.of(pictureId));
+      return new RenderProgress(fileName, true, fileName.isEmpty() ? NO_RENDER_MESSAGE : null);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public boolean cancelRender(Integer pictureId) {
+      var cancellation = cancellations.get(pictureId);
+      if (cancellation == null || !cancellation.cancel(RenderCancellation.Reason.ABORTED)) {
+         return false;
+      }
+      logger.info("Render of picture {} aborted", pictureId);
+      return true;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @Override
+   public Set<Integer> getRunningRenders() {
+      return Set.copyOf(cancellations.keySet());
+   }
+
+   /**
+    * Registers a new render so it can be cancelled.
+    */
+   private RenderCancellation startRender(Integer pictureId) {
+      var cancellation = new RenderCancellation();
+      cancellations.put(pictureId, cancellation);
+      return cancellation;
+   }
+
+   /**
+    * Cancels the coarse-to-fine renders nobody has asked about for
+    * renderAbandonSeconds.
+    */
+   private void cancelAbandonedRenders() {
+      var cutoff = System.nanoTime() - TimeUnit.SECONDS.toNanos(props.getRenderAbandonSeconds());
+      lastPolls.forEach((pictureId, lastPoll) -> {
+         var cancellation = cancellations.get(pictureId);
+         if (lastPoll - cutoff < 0 && cancellation != null
+               && cancellation.cancel(RenderCancellation.Reason.CLIENT_GONE)) {
+            logger.info("Render of picture {} cancelled since its page stopped asking about it", pictureId);
+         }
+      });
+   }
+
+   /**
+    * Gets the matrix for a picture from the {@link MatrixCache}, the saved
+    * escape counts or the calculator, in that order. The counts of a matrix that
+    * had to be computed are saved for next time, behind the render; failing to
+    * read or write them only costs a computation. The row listener only hears about a matrix the
+    * calculator fills.
+    */
+   private EscapeCountMatrix fillMatrix(JuliaPicture jp, MatrixPassListener listener, MatrixRowListener rowListener,
+         RenderCancellation cancellation) throws InterruptedException, ImageFileServiceException {
+      if (!matrixCache.contains(jp)) {
+         try {
+            var saved = escapeCountFiles.load(jp);
+            if (saved != null) {
+               matrixCache.put(jp, saved);
+               return saved;
+            }
+         } catch (ImageFileServiceException e) {
+            logger.warn("Computing picture again since its saved escape counts can't be read", e);
+         }
+      }
+
+      var m = jsmc.fillMatrix(jp, listener, rowListener, cancellation);
+      escapeCountFiles.save(jp, m);
+      return m;
+   }
+
+   /**
+    * Colors every stride-th element of every stride-th row of a partly filled
+    * matrix and saves the result as a preview, a smaller image for a stride
+    * greater than 1.
+    */
+   private String writePreview(JuliaPicture jp, EscapeCountMatrix m, int stride, String fileName,
+         RenderCancellation cancellation) throws ImageFileServiceException {
+      saveImage(jp, encodeImage(jp, m, stride, cancellation), fileName, false);
+      return fileName;
+   }
+
+   /**
+    * Saves an encoded image. The file is written by {@link ImageWriteBehind},
+    * which serves the image from memory until then. A finished image is also
+    * put in the {@link ImageCache}, so it is encoded once for both.
+    */
+   private void saveImage(JuliaPicture jp, byte[] bytes, String fileName, boolean finished) {
+      var fingerprint = jp.getFingerprint();
+      if (finished) {
+         imageCache.put(fingerprint, fileName, bytes);
+      }
+      imageWrites.write(fingerprint, fileName, bytes);
+   }
+
+   /**
+    * Colors every stride-th element of every stride-th row of the matrix and
+    * returns the result as a PNG. Encoding stops if the render is cancelled.
+    */
+   private byte[] encodeImage(JuliaPicture jp, EscapeCountMatrix m, int stride, RenderCancellation cancellation)
+         throws ImageFileServiceException {
+      try {
+         return pngEncoder.encode(ImageColorizer.create(jp, m, stride), cancellation);
+      } catch (InterruptedException e) {
+         logger.error("Thread Interrupted Exception while encoding image", e);
+         Thread.currentThread().interrupt();
+         throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_INTERRUPTED, e);
+      }
+   }
+
+   /**
+    * Stops any renders still running when the application shuts down.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PreDestroy
+   public void shutdown() {
+      abandonedRenderSweeper.shutdownNow();
+      progressiveRenders.shutdownNow();
+      previewWrites.shutdownNow();
    }
 
 }
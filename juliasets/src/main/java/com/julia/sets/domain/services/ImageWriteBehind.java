@@ -0,0 +1,361 @@
+package com.julia.sets.domain.services;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.julia.sets.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Saves images to the imageFolder behind the requests that draw them, so a
+ * render returns as soon as its image is encoded. Until its file is written, an
+ * image is served from memory. <br>
+ * <br>
+ * The files are written one at a time, in the order they were asked for, on a
+ * single thread. Each is written to a {@value #PART_SUFFIX} file next to it,
+ * forced to the disk and then renamed, so a crash never leaves a partly
+ * written image behind a real file name. Leftover {@value #PART_SUFFIX} files
+ * are deleted at startup. <br>
+ * <br>
+ * At most imageWriteBehindBytes of images wait to be written. Once that is
+ * reached, {@link #write(String, String, byte[])} still queues the image, but
+ * waits until it has been written before returning, so requests slow down to
+ * the speed of the disk instead of filling the heap. Files that can be done
+ * without, such as saved escape counts, are written on the same thread by
+ * {@link #writeIfRoom(long, Runnable)}, which skips them instead. <br>
+ * <br>
+ * The number of images waiting to be written is published as the
+ * {@value #PENDING_METRIC} gauge, and the writes that had to wait are counted
+ * in the {@value #SYNCHRONOUS_METRIC} metric.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class ImageWriteBehind {
+
+   /**
+    * Name of the gauge of the images waiting to be written
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String PENDING_METRIC = "juliasets.image.writes.pending";
+
+   /**
+    * Added to the name of an image while it is being written
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String PART_SUFFIX = ".part";
+
+   /**
+    * Name of the counter of writes that waited for their image to be written
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final String SYNCHRONOUS_METRIC = "juliasets.image.writes.synchronous";
+
+   /**
+    * How long shutting down waits for the images still waiting to be written
+    */
+   private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+   Logger logger = LogManager.getLogger(ImageWriteBehind.class);
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   /**
+    * Images that haven't been written yet, by file name
+    */
+   private final Map<String, CachedImage> pending = new ConcurrentHashMap<>();
+
+   private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+      var thread = Executors.defaultThreadFactory().newThread(r);
+      thread.setName("julia-writer");
+      return thread;
+   });
+
+   /**
+    * Bytes of images that may still be queued without waiting
+    */
+   private Semaphore pendingBytes;
+
+   /**
+    * Empty constructor to create the bean
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   ImageWriteBehind() {
+      super();
+   }
+
+   /**
+    * Deletes images a crash left partly written, and registers the metric.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PostConstruct
+   public void start() {
+      var parts = props.getImageFolder().listFiles((dir, name) -> name.endsWith(PART_SUFFIX));
+      if (parts != null) {
+         for (var part : parts) {
+            try {
+               Files.deleteIfExists(part.toPath());
+            } catch (IOException e) {
+               logger.warn("Could not delete partly written image " + part, e);
+            }
+         }
+      }
+
+      pendingBytes = new Semaphore(props.getImageWriteBehindBytes());
+      Gauge.builder(PENDING_METRIC, pending, Map::size).register(meterRegistry);
+   }
+
+   /**
+    * Saves an image to the imageFolder in the background, replacing any file of
+    * the same name. The image is served by {@link #get(String)} until then. If
+    * imageWriteBehindBytes are already waiting, this waits until the image has
+    * been written.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fingerprint
+    *           the fingerprint of the image's picture
+    * @param fileName
+    *           name of the image file in the imageFolder
+    * @param encoded
+    *           the encoded image. It must not be changed afterwards.
+    */
+   public void write(String fingerprint, String fileName, byte[] encoded) {
+      var image = new CachedImage(fingerprint, fileName, ByteBuffer.wrap(encoded));
+      // an image larger than the whole allowance only has to wait for the others
+      var permits = Math.min(encoded.length, props.getImageWriteBehindBytes());
+      if (pendingBytes.tryAcquire(permits)) {
+         pending.put(fileName, image);
+         writer.execute(() -> {
+            try {
+               writeFile(image);
+            } finally {
+               pendingBytes.release(permits);
+            }
+         });
+         return;
+      }
+
+      // still written by the writer, so it can't overtake an earlier write or
+      // delete of the same file
+      meterRegistry.counter(SYNCHRONOUS_METRIC).increment();
+      pending.put(fileName, image);
+      var written = writer.submit(() -> writeFile(image));
+      try {
+         written.get();
+      } catch (ExecutionException e) {
+         logger.error("Exception while writing image " + fileName, e.getCause());
+      } catch (InterruptedException e) {
+         // the image is still written, just not waited for
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Runs some other write on the writer thread, after the images queued before
+    * it, for a file the application can do without. It holds its share of
+    * imageWriteBehindBytes like an image does, but once those are used up it is
+    * skipped instead of waited for, so it never slows a request down.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param bytes
+    *           the memory held until the write is done
+    * @param write
+    *           writes the file, handling its own failures
+    * @return whether the write was queued
+    */
+   public boolean writeIfRoom(long bytes, Runnable write) {
+      var permits = (int) Math.min(bytes, props.getImageWriteBehindBytes());
+      if (!pendingBytes.tryAcquire(permits)) {
+         return false;
+      }
+      writer.execute(() -> {
+         try {
+            write.run();
+         } finally {
+            pendingBytes.release(permits);
+         }
+      });
+      return true;
+   }
+
+   /**
+    * Deletes an image from the imageFolder, after any write of it that is still
+    * waiting. A write that hasn't started yet is skipped.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fileName
+    *           name of the image file in the imageFolder
+    */
+   public void delete(String fileName) {
+      pending.remove(fileName);
+      writer.execute(() -> {
+         try {
+            Files.deleteIfExists(new File(props.getImageFolder(), fileName).toPath());
+         } catch (IOException e) {
+            logger.warn("Could not delete image " + fileName, e);
+         }
+      });
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fileName
+    *           name of an image file in the imageFolder
+    * @return the image, or null if it isn't waiting to be written
+    */
+   public CachedImage get(String fileName) {
+      return pending.get(fileName);
+   }
+
+   /**
+    * The name of an image waiting to be written that the filter accepts, since
+    * listing the imageFolder won't find it yet
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param filter
+    *           the filter the image files are listed with
+    * @return the file name, or null if no such image is waiting
+    */
+   public String find(FileFilter filter) {
+      var imageFolder = props.getImageFolder();
+      for (var fileName : pending.keySet()) {
+         if (filter.accept(new File(imageFolder, fileName))) {
+            return fileName;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Writes the images still waiting before the application shuts down.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   @PreDestroy
+   public void shutdown() {
+      writer.shutdown();
+      try {
+         if (!writer.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("{} images were not written before shutting down", pending.size());
+         }
+      } catch (InterruptedException e) {
+         logger.warn("Interrupted while writing images before shutting down", e);
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Writes an image unless it has been replaced or deleted since it was asked
+    * for. It is served from memory until the file has its final name.
+    */
+   private void writeFile(CachedImage image) {
+      var fileName = image.getFileName();
+      if (pending.get(fileName) != image) {
+         return;
+      }
+      var output = new File(props.getImageFolder(), fileName).toPath();
+      var part = output.resolveSibling(fileName + PART_SUFFIX);
+      try {
+         try (var channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+               StandardOpenOption.TRUNCATE_EXISTING)) {
+            var data = image.getData();
+            while (data.hasRemaining()) {
+               channel.write(data);
+            }
+            channel.force(true);
+         }
+         move(part, output);
+      } catch (IOException e) {
+         logger.error("IO Exception while writing image to output file " + fileName, e);
+         try {
+            Files.deleteIfExists(part);
+         } catch (IOException e2) {
+            logger.warn("Could not delete partly written image " + part, e2);
+         }
+      } finally {
+         pending.remove(fileName, image);
+      }
+   }
+
+   /**
+    * Gives the written file its final name, atomically if the file system
+    * can
+    */
+   private static void move(Path part, Path output) throws IOException {
+      try {
+         Files.move(part, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+         Files.move(part, output, StandardCopyOption.REPLACE_EXISTING);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "ImageWriteBehind [pending=" + pending.size() + ", pendingBytes="
+            + ((pendingBytes == null) ? null : pendingBytes.availablePermits()) + "]";
+   }
+}
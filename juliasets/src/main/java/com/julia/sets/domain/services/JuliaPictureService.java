@@ -39,7 +39,7 @@ public interface JuliaPictureService {
     * @param jpe
     *           the {@link JuliaPictureEntity} to save
     * @return the saved {@link JuliaPictureEntity}. This may be a new instance of
-    *         the object.
+    *         the object, or the record already saved for the same picture.
     */
    public JuliaPictureEntity save(JuliaPictureEntity jpe);
 }
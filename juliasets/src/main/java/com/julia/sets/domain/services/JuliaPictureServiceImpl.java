@@ -3,6 +3,7 @@ package com.julia.sets.domain.services;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import com.julia.sets.data.entities.JuliaPictureEntity;
@@ -32,11 +33,21 @@ public class JuliaPictureServiceImpl implements JuliaPictureService {
    }
 
    /**
+    * If another server saved the same picture first, the fingerprint's unique
+    * key rejects this insert and that server's record is returned instead.
+    * 
     * @author Dan Sievewright
     * @version 1.0.0
     * @since 1.0.0
     */
    public JuliaPictureEntity save(JuliaPictureEntity jpe) {
-      return juliaPictureRepository.save(jpe);
+      try {
+         return juliaPictureRepository.save(jpe);
+      } catch (DataIntegrityViolationException e) {
+         if (jpe.getFingerprint() == null) {
+            throw e;
+         }
+         return juliaPictureRepository.findByFingerprint(jpe.getFingerprint()).orElseThrow(() -> e);
+      }
    }
 }
@@ -0,0 +1,479 @@
+package com.julia.sets.domain.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.domain.matrix.RenderCancellation;
+import com.julia.sets.domain.matrix.RenderExecutor;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * Writes the images described by {@link ImageColorizer} as PNGs, coloring and
+ * compressing them on every thread of the {@link RenderExecutor}. <br>
+ * <br>
+ * The rows are split into bands of about {@value #BAND_BYTES} bytes, and each
+ * band is a task that colors its rows straight from the matrix, filters them
+ * and deflates them, the way pigz does, so the image is never held whole and
+ * coloring one band overlaps compressing the others. Every band but the
+ * last ends with a sync flush, which ends it on a byte boundary without ending
+ * the stream, so the bands simply follow each other in a single zlib stream.
+ * The Adler-32 checksums of the bands are combined into the checksum of the
+ * whole. Each band is written as an IDAT chunk. <br>
+ * <br>
+ * A band stops at the next row once the render's {@link RenderCancellation}
+ * is cancelled, so a render that is aborted or times out while its image is
+ * encoded gives the threads back too. <br>
+ * <br>
+ * The bands of a full size image can also be deflated while its matrix is
+ * still being filled, each as soon as the rows it needs are computed, through
+ * a {@link PngStream}. <br>
+ * <br>
+ * Indexed images are written unfiltered with their palette, as the PNG
+ * specification recommends. For RGB and ARGB images each row gets whichever
+ * filter leaves the smallest sum of absolute differences. Images are deflated
+ * at pngCompressionLevel, or at {@link Deflater#BEST_SPEED} from pngFastPixels
+ * pixels on.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Component
+public class PngEncoder {
+
+   /**
+    * How many bytes of filtered rows a band holds, roughly
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int BAND_BYTES = 1 << 19;
+
+   /**
+    * The most bands per thread in the pool. More bands than that would only
+    * fill the render queue.
+    */
+   private static final int BANDS_PER_THREAD = 4;
+
+   private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+   private static final int COLOR_TYPE_RGB = 2;
+
+   private static final int COLOR_TYPE_INDEXED = 3;
+
+   private static final int COLOR_TYPE_RGBA = 6;
+
+   private static final int FILTER_TYPES = 5;
+
+   /**
+    * The largest prime below 2<sup>16</sup>, which Adler-32 sums are taken
+    * modulo
+    */
+   private static final int ADLER_BASE = 65521;
+
+   @Autowired
+   private ApplicationProperties props;
+
+   @Autowired
+   private RenderExecutor renderExecutor;
+
+   /**
+    * Empty constructor to create the bean
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    */
+   PngEncoder() {
+      super();
+   }
+
+   /**
+    * Colors and encodes an image as a PNG.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param image
+    *           the colorizer of the image
+    * @param cancellation
+    *           the cancellation of the render the image belongs to
+    * @return the PNG
+    * @throws InterruptedException
+    *            if the thread is interrupted while the bands are deflated
+    * @throws ImageFileServiceException
+    *            if deflating takes longer than maxWaitTime or fails, or the
+    *            render is cancelled
+    */
+   public byte[] encode(ImageColorizer image, RenderCancellation cancellation)
+         throws InterruptedException, ImageFileServiceException {
+      var level = level(image);
+      var tasks = bandTasks(image, bandRows(image), level, cancellation);
+      renderExecutor.invokeAll(tasks, deadline(), cancellation);
+      cancellation.throwIfCancelled();
+      return assemble(image, level, tasks);
+   }
+
+   /**
+    * Starts encoding the full size image of a picture whose matrix is about to
+    * be filled, so each band of rows is colored and compressed on the render
+    * pool as soon as its rows are computed. The stream is passed to
+    * {@link com.julia.sets.domain.matrix.JuliaSetMatrixCalculator} as the row
+    * listener, and the PNG is taken from {@link PngStream#finish(EscapeCountMatrix)}
+    * once the matrix is filled.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param jp
+    *           the picture to be drawn
+    * @param cancellation
+    *           the cancellation of the render the image belongs to
+    * @return the stream
+    */
+   public PngStream stream(JuliaPicture jp, RenderCancellation cancellation) {
+      return new PngStream(this, renderExecutor, jp, cancellation);
+   }
+
+   /**
+    * The compression level of an image
+    */
+   int level(ImageColorizer image) {
+      return ((long) image.getWidth() * image.getHeight() >= props.getPngFastPixels()) ? Deflater.BEST_SPEED
+            : props.getPngCompressionLevel();
+   }
+
+   /**
+    * When the bands of an image that start now have to be done
+    */
+   long deadline() {
+      return System.nanoTime() + TimeUnit.SECONDS.toNanos(props.getMaxWaitTime());
+   }
+
+   /**
+    * Splits the rows of an image into bands.
+    *
+    * @return the first row of each band, followed by the height
+    */
+   int[] bandRows(ImageColorizer image) {
+      var height = image.getHeight();
+      var rowBytes = 1L + (long) image.getWidth() * image.getBytesPerPixel();
+      var bandCount = (int) Math.max(1, Math.min(Math.min(height, (rowBytes * height + BAND_BYTES - 1) / BAND_BYTES),
+            (long) BANDS_PER_THREAD * renderExecutor.getParallelism()));
+      var bandRows = new int[bandCount + 1];
+      for (var b = 0; b <= bandCount; b++) {
+         bandRows[b] = (int) ((long) height * b / bandCount);
+      }
+      return bandRows;
+   }
+
+   /**
+    * A task for each band, which colors, filters and deflates its rows
+    */
+   static List<ForkJoinTask<Band>> bandTasks(ImageColorizer image, int[] bandRows, int level,
+         RenderCancellation cancellation) {
+      var bandCount = bandRows.length - 1;
+      List<ForkJoinTask<Band>> tasks = new ArrayList<>(bandCount);
+      for (var b = 0; b < bandCount; b++) {
+         var firstRow = bandRows[b];
+         var endRow = bandRows[b + 1];
+         var last = b == bandCount - 1;
+         tasks.add(ForkJoinTask.adapt(() -> deflateBand(image, firstRow, endRow, level, last, cancellation)));
+      }
+      return tasks;
+   }
+
+   /**
+    * Writes the PNG from its deflated bands, which must all be done
+    */
+   static byte[] assemble(ImageColorizer image, int level, List<ForkJoinTask<Band>> tasks)
+         throws ImageFileServiceException {
+      var colorType = colorType(image);
+      try {
+         var png = new ByteArrayOutputStream();
+         png.write(SIGNATURE);
+
+         var header = new ByteArrayOutputStream();
+         var headerData = new DataOutputStream(header);
+         headerData.writeInt(image.getWidth());
+         headerData.writeInt(image.getHeight());
+         headerData.writeByte(8);
+         headerData.writeByte(colorType);
+         // deflate compression, adaptive filtering, no interlacing
+         headerData.writeByte(0);
+         headerData.writeByte(0);
+         headerData.writeByte(0);
+         writeChunk(png, "IHDR", header.toByteArray());
+
+         if (colorType == COLOR_TYPE_INDEXED) {
+            writePalette(png, image);
+         }
+
+         // the zlib header goes before the first band and the checksum after the
+         // last one
+         var adler = 1L;
+         var bandCount = tasks.size();
+         for (var b = 0; b < bandCount; b++) {
+            var band = tasks.get(b).join();
+            adler = combineAdler(adler, band.adler, band.length);
+            var data = new ByteArrayOutputStream(band.deflated.length + 6);
+            if (b == 0) {
+               data.write(0x78);
+               data.write(zlibFlags(level));
+            }
+            data.write(band.deflated);
+            if (b == bandCount - 1) {
+               new DataOutputStream(data).writeInt((int) adler);
+            }
+            writeChunk(png, "IDAT", data.toByteArray());
+         }
+         writeChunk(png, "IEND", new byte[0]);
+         return png.toByteArray();
+      } catch (IOException e) {
+         throw new ImageFileServiceException(ImageFileServiceException.IMAGE_IO_EXCEPTION, e);
+      }
+   }
+
+   private static int colorType(ImageColorizer image) {
+      if (image.isIndexed()) {
+         return COLOR_TYPE_INDEXED;
+      }
+      return image.hasAlpha() ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB;
+   }
+
+   /**
+    * The filtered and deflated rows from firstRow up to endRow
+    */
+   static final class Band {
+
+      private final byte[] deflated;
+
+      private final long adler;
+
+      private final long length;
+
+      private Band(byte[] deflated, long adler, long length) {
+         this.deflated = deflated;
+         this.adler = adler;
+         this.length = length;
+      }
+   }
+
+   /**
+    * Colors, filters and deflates the rows of a band, or returns null if the
+    * render is cancelled first
+    */
+   private static Band deflateBand(ImageColorizer image, int firstRow, int endRow, int level, boolean last,
+         RenderCancellation cancellation) {
+      var bytesPerPixel = image.getBytesPerPixel();
+      var rowBytes = image.getWidth() * bytesPerPixel;
+      var previous = new byte[rowBytes];
+      var current = new byte[rowBytes];
+      // indexed rows aren't filtered against the one above
+      if (firstRow > 0 && !image.isIndexed()) {
+         image.colorizeRow(firstRow - 1, previous);
+      }
+      var filtered = new byte[FILTER_TYPES][1 + rowBytes];
+
+      var out = new ByteArrayOutputStream();
+      var buffer = new byte[1 << 16];
+      var adler = new Adler32();
+      var deflater = new Deflater(level, true);
+      try {
+         for (var row = firstRow; row < endRow; row++) {
+            if (cancellation.isCancelled()) {
+               return null;
+            }
+            image.colorizeRow(row, current);
+            var line = image.isIndexed() ? filter(current, previous, bytesPerPixel, 0, filtered[0])
+                  : bestFilter(current, previous, bytesPerPixel, filtered);
+            adler.update(line);
+            deflater.setInput(line);
+            while (!deflater.needsInput()) {
+               out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            var swap = previous;
+            previous = current;
+            current = swap;
+         }
+
+         if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+               out.write(buffer, 0, deflater.deflate(buffer));
+            }
+         } else {
+            int written;
+            do {
+               written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+               out.write(buffer, 0, written);
+            } while (written == buffer.length);
+         }
+      } finally {
+         deflater.end();
+      }
+      return new Band(out.toByteArray(), adler.getValue(), (long) (endRow - firstRow) * (1 + rowBytes));
+   }
+
+   /**
+    * Tries every filter on the row and returns the one whose bytes, read as
+    * signed, add up to the least in absolute value
+    */
+   private static byte[] bestFilter(byte[] row, byte[] previous, int bytesPerPixel, byte[][] filtered) {
+      byte[] best = null;
+      var bestSum = Long.MAX_VALUE;
+      for (var type = 0; type < FILTER_TYPES; type++) {
+         var line = filter(row, previous, bytesPerPixel, type, filtered[type]);
+         long sum = 0;
+         for (var i = 1; i < line.length; i++) {
+            sum += Math.abs(line[i]);
+         }
+         if (sum < bestSum) {
+            bestSum = sum;
+            best = line;
+         }
+      }
+      return best;
+   }
+
+   /**
+    * Applies one of the five PNG filters to a row, putting the filter type
+    * first. The first pixel has no left neighbor, so it is filtered on its own.
+    */
+   private static byte[] filter(byte[] row, byte[] previous, int bytesPerPixel, int type, byte[] line) {
+      line[0] = (byte) type;
+      var n = row.length;
+      var first = Math.min(bytesPerPixel, n);
+      switch (type) {
+      case 1:
+         System.arraycopy(row, 0, line, 1, first);
+         for (var i = first; i < n; i++) {
+            line[i + 1] = (byte) (row[i] - row[i - bytesPerPixel]);
+         }
+         break;
+      case 2:
+         for (var i = 0; i < n; i++) {
+            line[i + 1] = (byte) (row[i] - previous[i]);
+         }
+         break;
+      case 3:
+         for (var i = 0; i < first; i++) {
+            line[i + 1] = (byte) (row[i] - ((previous[i] & 0xFF) >>> 1));
+         }
+         for (var i = first; i < n; i++) {
+            line[i + 1] = (byte) (row[i] - (((row[i - bytesPerPixel] & 0xFF) + (previous[i] & 0xFF)) >>> 1));
+         }
+         break;
+      case 4:
+         for (var i = 0; i < first; i++) {
+            line[i + 1] = (byte) (row[i] - previous[i]);
+         }
+         for (var i = first; i < n; i++) {
+            line[i + 1] = (byte) (row[i] - paeth(row[i - bytesPerPixel] & 0xFF, previous[i] & 0xFF,
+                  previous[i - bytesPerPixel] & 0xFF));
+         }
+         break;
+      default:
+         System.arraycopy(row, 0, line, 1, n);
+      }
+      return line;
+   }
+
+   private static int paeth(int a, int b, int c) {
+      var p = a + b - c;
+      var pa = Math.abs(p - a);
+      var pb = Math.abs(p - b);
+      var pc = Math.abs(p - c);
+      if (pa <= pb && pa <= pc) {
+         return a;
+      }
+      return (pb <= pc) ? b : c;
+   }
+
+   private static void writePalette(ByteArrayOutputStream png, ImageColorizer image) throws IOException {
+      var colors = image.getPalette();
+      var size = colors.length;
+      var palette = new byte[3 * size];
+      var alphas = new byte[size];
+      for (var i = 0; i < size; i++) {
+         palette[3 * i] = (byte) (colors[i] >> 16);
+         palette[3 * i + 1] = (byte) (colors[i] >> 8);
+         palette[3 * i + 2] = (byte) colors[i];
+         alphas[i] = (byte) (colors[i] >>> 24);
+      }
+      writeChunk(png, "PLTE", palette);
+      if (image.hasAlpha()) {
+         writeChunk(png, "tRNS", alphas);
+      }
+   }
+
+   private static void writeChunk(ByteArrayOutputStream png, String type, byte[] data) throws IOException {
+      var typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+      var crc = new CRC32();
+      crc.update(typeBytes);
+      crc.update(data);
+
+      var out = new DataOutputStream(png);
+      out.writeInt(data.length);
+      out.write(typeBytes);
+      out.write(data);
+      out.writeInt((int) crc.getValue());
+   }
+
+   /**
+    * The second byte of the zlib header, which records the compression level
+    * and makes the header a multiple of 31
+    */
+   private static int zlibFlags(int level) {
+      if (level >= 0 && level <= 1) {
+         return 0x01;
+      }
+      if (level >= 2 && level <= 5) {
+         return 0x5E;
+      }
+      return (level >= 7) ? 0xDA : 0x9C;
+   }
+
+   /**
+    * The Adler-32 checksum of two pieces of data one after the other, from the
+    * checksums of the pieces and the length of the second, as zlib's
+    * adler32_combine works it out
+    */
+   private static long combineAdler(long first, long second, long secondLength) {
+      var remainder = secondLength % ADLER_BASE;
+      var sum1 = first & 0xFFFF;
+      var sum2 = (remainder * sum1) % ADLER_BASE;
+      sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+      sum2 += ((first >> 16) & 0xFFFF) + ((second >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+      if (sum1 >= ADLER_BASE) {
+         sum1 -= ADLER_BASE;
+      }
+      if (sum1 >= ADLER_BASE) {
+         sum1 -= ADLER_BASE;
+      }
+      if (sum2 >= 2L * ADLER_BASE) {
+         sum2 -= 2L * ADLER_BASE;
+      }
+      if (sum2 >= ADLER_BASE) {
+         sum2 -= ADLER_BASE;
+      }
+      return sum1 | (sum2 << 16);
+   }
+}
@@ -0,0 +1,176 @@
+package com.julia.sets.domain.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.julia.sets.domain.matrix.EscapeCountMatrix;
+import com.julia.sets.domain.matrix.MatrixRowListener;
+import com.julia.sets.domain.matrix.RenderCancellation;
+import com.julia.sets.domain.matrix.RenderExecutor;
+import com.julia.sets.domain.matrix.RenderRejectedException;
+import com.julia.sets.domain.services.PngEncoder.Band;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+
+/**
+ * Encodes the PNG of a picture while
+ * {@link com.julia.sets.domain.matrix.JuliaSetMatrixCalculator} fills its
+ * matrix, so coloring and compressing overlap iterating instead of following
+ * it. <br>
+ * <br>
+ * The image is split into the same bands as {@link PngEncoder} splits it into,
+ * and each band counts down the rows it needs: its own, and the row above it
+ * unless the image is indexed, since the other filters look at it. Whichever
+ * thread finishes the last of them submits the band to the
+ * {@link RenderExecutor}, whose bounded queue sits between filling and
+ * encoding. A band that doesn't fit in the queue is left for
+ * {@link #finish(EscapeCountMatrix)}, which deflates the bands still left and
+ * waits for the others. <br>
+ * <br>
+ * Which colors the image is written with has to be known before the first
+ * band is deflated, see {@link ImageColorizer#createBeforeFill(JuliaPicture,
+ * EscapeCountMatrix)}. If the filled matrix turns out to use colors that
+ * {@link ImageColorizer#create(JuliaPicture, EscapeCountMatrix, int)} writes
+ * differently, the image is encoded again from the matrix, so the PNG is always
+ * the same as {@link PngEncoder#encode(ImageColorizer, RenderCancellation)}
+ * makes. The same happens when no rows were reported at all, e.g., when the
+ * matrix came from a cache or was filled with
+ * {@link com.julia.sets.domain.matrix.RenderMode#MARIANI_SILVER}.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class PngStream implements MatrixRowListener {
+
+   private final PngEncoder encoder;
+
+   private final RenderExecutor renderExecutor;
+
+   private final JuliaPicture jp;
+
+   private final RenderCancellation cancellation;
+
+   /**
+    * The rest is set up by fillStarted, before any row is reported
+    */
+   private EscapeCountMatrix matrix;
+
+   private ImageColorizer image;
+
+   private int level;
+
+   /**
+    * The first row of each band, followed by the height
+    */
+   private int[] bandRows;
+
+   private List<ForkJoinTask<Band>> tasks;
+
+   /**
+    * The rows each band still needs
+    */
+   private AtomicIntegerArray remaining;
+
+   /**
+    * The task each band was submitted as, or null if it is left for finish
+    */
+   private AtomicReferenceArray<ForkJoinTask<?>> submitted;
+
+   PngStream(PngEncoder encoder, RenderExecutor renderExecutor, JuliaPicture jp, RenderCancellation cancellation) {
+      this.encoder = encoder;
+      this.renderExecutor = renderExecutor;
+      this.jp = jp;
+      this.cancellation = cancellation;
+   }
+
+   @Override
+   public void fillStarted(EscapeCountMatrix matrix) {
+      this.matrix = matrix;
+      image = ImageColorizer.createBeforeFill(jp, matrix);
+      level = encoder.level(image);
+      bandRows = encoder.bandRows(image);
+      tasks = PngEncoder.bandTasks(image, bandRows, level, cancellation);
+
+      var bandCount = tasks.size();
+      var counts = new int[bandCount];
+      for (var b = 0; b < bandCount; b++) {
+         counts[b] = bandRows[b + 1] - bandRows[b] + ((b > 0 && !image.isIndexed()) ? 1 : 0);
+      }
+      remaining = new AtomicIntegerArray(counts);
+      submitted = new AtomicReferenceArray<>(bandCount);
+   }
+
+   @Override
+   public void rowComplete(EscapeCountMatrix matrix, int row) {
+      var insertion = Arrays.binarySearch(bandRows, row);
+      var band = (insertion >= 0) ? insertion : -insertion - 2;
+      rowDone(band);
+
+      // the next band filters its first row against this one
+      if (!image.isIndexed() && band + 1 < tasks.size() && row == bandRows[band + 1] - 1) {
+         rowDone(band + 1);
+      }
+   }
+
+   private void rowDone(int band) {
+      if (remaining.decrementAndGet(band) > 0) {
+         return;
+      }
+      try {
+         submitted.set(band, renderExecutor.submit(tasks.get(band)));
+      } catch (RenderRejectedException e) {
+         // the queue is full, so finish deflates it
+      }
+   }
+
+   /**
+    * Finishes the PNG once the matrix is filled.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param m
+    *           the filled matrix
+    * @return the PNG
+    * @throws InterruptedException
+    *            if the thread is interrupted while the bands are deflated
+    * @throws ImageFileServiceException
+    *            if deflating takes longer than maxWaitTime or fails, or the
+    *            render is cancelled
+    */
+   public byte[] finish(EscapeCountMatrix m) throws InterruptedException, ImageFileServiceException {
+      var colorizer = ImageColorizer.create(jp, m, 1);
+      if (m != matrix || !image.hasSameFormat(colorizer)) {
+         return encoder.encode(colorizer, cancellation);
+      }
+
+      List<ForkJoinTask<?>> running = new ArrayList<>();
+      List<ForkJoinTask<Band>> left = new ArrayList<>();
+      for (var b = 0; b < tasks.size(); b++) {
+         var task = submitted.get(b);
+         if (task != null) {
+            running.add(task);
+         } else {
+            left.add(tasks.get(b));
+         }
+      }
+      // the bands running give their queue slots back to the ones left
+      var deadline = encoder.deadline();
+      renderExecutor.awaitAll(running, deadline, cancellation);
+      if (!left.isEmpty()) {
+         renderExecutor.invokeAll(left, deadline, cancellation);
+      }
+      cancellation.throwIfCancelled();
+      return PngEncoder.assemble(image, level, tasks);
+   }
+
+   @Override
+   public String toString() {
+      return "PngStream [jp=" + jp + ", bands=" + ((tasks == null) ? 0 : tasks.size()) + "]";
+   }
+}
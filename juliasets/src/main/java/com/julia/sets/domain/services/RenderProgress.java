@@ -0,0 +1,77 @@
+package com.julia.sets.domain.services;
+
+/**
+ * Snapshot of a coarse-to-fine render started by
+ * {@link ImageFileService#createImageProgressively(com.julia.sets.presentation.complex.plane.JuliaPicture, Integer, com.julia.sets.domain.matrix.RenderEstimate)}.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RenderProgress {
+
+   private final String fileName;
+
+   private final boolean done;
+
+   private final String errorMessage;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param fileName
+    *           the finest image written so far, or an empty string if there is
+    *           none yet
+    * @param done
+    *           true if fileName is the finished image or the render failed
+    * @param errorMessage
+    *           why the render failed, or null if it hasn't
+    */
+   public RenderProgress(String fileName, boolean done, String errorMessage) {
+      this.fileName = (fileName == null) ? "" : fileName;
+      this.done = done;
+      this.errorMessage = errorMessage;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the finest image written so far, or an empty string if there is
+    *         none yet
+    */
+   public String getFileName() {
+      return fileName;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if {@link #getFileName()} is the finished image or the render
+    *         failed
+    */
+   public boolean isDone() {
+      return done;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return why the render failed, or null if it hasn't
+    */
+   public String getErrorMessage() {
+      return errorMessage;
+   }
+
+   @Override
+   public String toString() {
+      return "RenderProgress [fileName=" + fileName + ", done=" + done + ", errorMessage=" + errorMessage + "]";
+   }
+}
@@ -0,0 +1,106 @@
+package com.julia.sets.domain.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs at most one call per key at a time. A caller that arrives while a call
+ * for its key is running waits for that call and gets its result (or its
+ * exception) instead of running its own. Once the call finishes the key is
+ * forgotten, so the next caller runs a new one.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ *
+ * @param <V>
+ *           the type of result shared between the callers
+ */
+public class SingleFlight<V> {
+
+   /**
+    * The work to share
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param <V>
+    *           the type of result
+    */
+   @FunctionalInterface
+   public interface Call<V> {
+
+      /**
+       * @author Dan Sievewright
+       * @version 1.0.0
+       * @since 1.0.0
+       *
+       * @return the result
+       * @throws ImageFileServiceException
+       *            if the work fails
+       */
+      V call() throws ImageFileServiceException;
+   }
+
+   private final Map<String, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+   /**
+    * Runs the call, or waits for the one already running for the key.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param key
+    *           identifies calls that would produce the same result
+    * @param call
+    *           the work to run if no call for key is running
+    * @return the result of whichever call ran
+    * @throws ImageFileServiceException
+    *            if the call that ran threw one, or the wait was interrupted
+    */
+   public V execute(String key, Call<V> call) throws ImageFileServiceException {
+      var mine = new CompletableFuture<V>();
+      var running = calls.putIfAbsent(key, mine);
+      if (running != null) {
+         return await(running);
+      }
+
+      try {
+         var result = call.call();
+         mine.complete(result);
+         return result;
+      } catch (ImageFileServiceException | RuntimeException | Error e) {
+         // an Error, e.g., running out of memory, must not leave the waiters hanging
+         mine.completeExceptionally(e);
+         throw e;
+      } finally {
+         calls.remove(key, mine);
+      }
+   }
+
+   private V await(CompletableFuture<V> running) throws ImageFileServiceException {
+      try {
+         return running.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_INTERRUPTED, e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof ImageFileServiceException) {
+            throw (ImageFileServiceException) e.getCause();
+         }
+         if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         throw new ImageFileServiceException(ImageFileServiceException.MATRIX_THREAD_FAILED, e.getCause());
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "SingleFlight [running=" + calls.size() + "]";
+   }
+}
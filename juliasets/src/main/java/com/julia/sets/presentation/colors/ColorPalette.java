@@ -5,8 +5,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 /**
- * Utility class for retrieving a color palette
+ * Utility class for retrieving a color palette <br>
+ * <br>
+ * Palettes are compiled into color tables of packed ARGB ints, see
+ * {@link #getColorTable(Color)}. Only a handful of base colors are ever used,
+ * so the tables are shared by every palette with the same base colors, size
+ * and interior color, in a cache of the {@value #COLOR_TABLE_CACHE_SIZE} most
+ * used ones.
  * 
  * @author Dan Sievewright
  * @version 1.0.0
@@ -14,16 +23,28 @@ import java.util.List;
  */
 public class ColorPalette {
 
+   /**
+    * The most color tables kept. A table has an entry per iteration, so the
+    * cache holds at most a few megabytes.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int COLOR_TABLE_CACHE_SIZE = 64;
+
+   private static final Cache<ColorTableKey, int[]> COLOR_TABLES = Caffeine.newBuilder()
+         .maximumSize(COLOR_TABLE_CACHE_SIZE)
+         .build();
+
    private Color[] colors;
 
    private int colorPaletteSize;
 
-   private List<Color> filledColorPalette;
-
    /**
-    * This method returns a list of colors that starts with the first color in
-    * colors, then contains colors in between colors[i] and colors[i+1], for 0 <= i
-    * < colors.size - 1. <br>
+    * This method returns the colors of the palette that starts with the first
+    * color in colors, then contains colors in between colors[i] and colors[i+1],
+    * for 0 <= i < colors.size - 1, as packed ARGB ints. <br>
     * <br>
     * Notes:
     * <ul>
@@ -35,7 +56,7 @@ public class ColorPalette {
     * </ul>
     * 
     * As an example if colors = [Blue, White, Red] and colorPaletteSize = 100, then
-    * this method returns a list that
+    * this method returns a palette that
     * <ul>
     * <li>starts with Blue,</li>
     * <li>contains progressively lighter shades of Blue in elements 1-49,</li>
@@ -44,25 +65,26 @@ public class ColorPalette {
     * <li>contains Red as the last element.</li>
     * </ul>
     * 
-    * 
+    * The palette is returned as a color table: element 0 holds the interior
+    * color, and element a holds the color of the points that escape after a
+    * iterations, i.e., palette element a - 1.
+    *
     * @author Dan Sievewright
     * @version 1.0.0
     * @since 1.0.0
     *
-    * @param colors
-    *           a small base set of {@link Color}s to start with
-    * @param colorPaletteSize
-    *           the final size of the color palette
-    * @return the resulting color palette
-    * @throws ColorPaletteException
-    *            if colors is null/empty or if the desired colorPaletteSize is not
-    *            positive
+    * @param key
+    *           the base colors, palette size and interior color
+    * @return the resulting color table
     */
-   private List<Color> createColorPalette() {
+   private static int[] createColorTable(ColorTableKey key) {
+      var colors = key.colors;
+      var table = new int[key.colorPaletteSize + 1];
+      table[0] = key.interiorColor;
 
       // initialize answer with first color
-      List<Color> answer = new ArrayList<>();
-      answer.add(colors[0]);
+      table[1] = colors[0];
+      var size = 1;
 
       for (var i = 0; i < colors.length - 1; i++) {
          // calculate number of color palettes remaining to be found
@@ -70,65 +92,54 @@ public class ColorPalette {
 
          // calculate remaining palette size
          // include remaining intervals since endpoint needs to be double counted
-         int remainingPaletteSize = colorPaletteSize - answer.size() + colorIntervalsRemaining;
+         int remainingPaletteSize = key.colorPaletteSize - size + colorIntervalsRemaining;
 
          int nextPaletteSize = remainingPaletteSize / colorIntervalsRemaining;
 
-         List<Color> tmpAnswer = getColorPalette(colors[i], colors[i + 1], nextPaletteSize);
-
-         answer.addAll(tmpAnswer);
+         size = addGradient(table, size, colors[i], colors[i + 1], nextPaletteSize);
       }
 
-      return answer;
+      return size < key.colorPaletteSize ? Arrays.copyOf(table, size + 1) : table;
    }
 
    /**
-    * This creates a color palette between two pairs of colors that undergoes a
-    * sequence of linear gradient differences between the two.
+    * This adds the colors of a linear gradient between two colors to a color
+    * table, leaving out the start color, which is already there.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
     * @since 1.0.0
     *
+    * @param table
+    *           the color table being filled
+    * @param size
+    *           the number of palette colors in the table so far
     * @param startColor
-    *           the first color in the color palette
+    *           the first color of the gradient, as RGB
     * @param endColor
-    *           the last color in the color palette
+    *           the last color of the gradient, as RGB
     * @param paletteSize
-    *           the desired size of the color palette
-    * @param removeStart
-    *           {@link Boolean} to indicate if the start color should be removed.
-    *           If true, the response will have size = paletteSize - 1
-    * @return the color palette
-    * @throws ColorPaletteException
-    *            if any passed in parameter is null
+    *           the size of the gradient, including both ends
+    * @return the number of palette colors in the table afterwards
     */
-   private List<Color> getColorPalette(Color startColor, Color endColor, int paletteSize) {
+   private static int addGradient(int[] table, int size, int startColor, int endColor, int paletteSize) {
 
-      int redStart = startColor.getRed();
-      int greenStart = startColor.getGreen();
-      int blueStart = startColor.getBlue();
+      int redStart = (startColor >> 16) & 0xFF;
+      int greenStart = (startColor >> 8) & 0xFF;
+      int blueStart = startColor & 0xFF;
 
-      int redEnd = endColor.getRed();
-      int greenEnd = endColor.getGreen();
-      int blueEnd = endColor.getBlue();
+      int redDiff = ((endColor >> 16) & 0xFF) - redStart;
+      int greenDiff = ((endColor >> 8) & 0xFF) - greenStart;
+      int blueDiff = (endColor & 0xFF) - blueStart;
 
-      int redDiff = redEnd - redStart;
-      int greenDiff = greenEnd - greenStart;
-      int blueDiff = blueEnd - blueStart;
-
-      List<Color> answer = new ArrayList<>();
-
-      while (answer.size() < paletteSize) {
-         int newRed = redStart + (redDiff * answer.size()) / (paletteSize - 1);
-         int newGreen = greenStart + (greenDiff * answer.size()) / (paletteSize - 1);
-         int newBlue = blueStart + (blueDiff * answer.size()) / (paletteSize - 1);
-         answer.add(new Color(newRed, newGreen, newBlue));
+      for (var k = 1; k < paletteSize; k++) {
+         int newRed = redStart + (redDiff * k) / (paletteSize - 1);
+         int newGreen = greenStart + (greenDiff * k) / (paletteSize - 1);
+         int newBlue = blueStart + (blueDiff * k) / (paletteSize - 1);
+         table[++size] = 0xFF000000 | (newRed << 16) | (newGreen << 8) | newBlue;
       }
 
-      answer.remove(0);
-
-      return answer;
+      return size;
    }
 
    /**
@@ -152,7 +163,6 @@ public class ColorPalette {
 
       this.colors = colors;
       this.colorPaletteSize = colorPaletteSize;
-      filledColorPalette = createColorPalette();
    }
 
    /**
@@ -165,7 +175,33 @@ public class ColorPalette {
     * @return the full color palette
     */
    public List<Color> getFilledColorPalette() {
-      return filledColorPalette;
+      var table = getColorTable(Color.BLACK);
+      List<Color> answer = new ArrayList<>(table.length - 1);
+      for (var a = 1; a < table.length; a++) {
+         answer.add(new Color(table[a], true));
+      }
+      return answer;
+   }
+
+   /**
+    * Returns the color palette as a color table, so the color of an escape
+    * count is a single array load: element 0 holds the interior color, and
+    * element a the color of the points that escape after a iterations. <br>
+    * <br>
+    * The table is shared with every palette that has the same base colors,
+    * size and interior color, so it must not be changed.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param interiorColor
+    *           the color of the points inside the Julia set
+    * @return the colors as packed ARGB ints
+    */
+   public int[] getColorTable(Color interiorColor) {
+      return COLOR_TABLES.get(new ColorTableKey(colors, colorPaletteSize, interiorColor),
+            ColorPalette::createColorTable);
    }
 
    /**
@@ -193,16 +229,7 @@ public class ColorPalette {
    public void setColors(Color[] colors) throws ColorPaletteException {
       validateColors(colors);
 
-      var resetPalette = true;
-      if (Arrays.equals(this.colors, colors)) {
-         resetPalette = false;
-      }
-
       this.colors = colors;
-
-      if (resetPalette) {
-         filledColorPalette = createColorPalette();
-      }
    }
 
    /**
@@ -251,16 +278,7 @@ public class ColorPalette {
    public void setColorPaletteSize(int colorPaletteSize) throws ColorPaletteException {
       validateColorPaletteSize(colorPaletteSize);
 
-      var resetPalette = true;
-      if (this.colorPaletteSize == colorPaletteSize) {
-         resetPalette = false;
-      }
-
       this.colorPaletteSize = colorPaletteSize;
-
-      if (resetPalette) {
-         filledColorPalette = createColorPalette();
-      }
    }
 
    /**
@@ -310,4 +328,44 @@ public class ColorPalette {
             + "]";
    }
 
+   /**
+    * What a color table is made from. The colors are copied as ARGB ints, so
+    * changes to the {@link Color} array don't reach the cache.
+    */
+   private static final class ColorTableKey {
+
+      private final int[] colors;
+
+      private final int colorPaletteSize;
+
+      private final int interiorColor;
+
+      private ColorTableKey(Color[] colors, int colorPaletteSize, Color interiorColor) {
+         this.colors = new int[colors.length];
+         for (var i = 0; i < colors.length; i++) {
+            this.colors[i] = colors[i].getRGB();
+         }
+         this.colorPaletteSize = colorPaletteSize;
+         this.interiorColor = interiorColor.getRGB();
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * (31 * Arrays.hashCode(colors) + colorPaletteSize) + interiorColor;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         if (this == obj) {
+            return true;
+         }
+         if (!(obj instanceof ColorTableKey)) {
+            return false;
+         }
+         var other = (ColorTableKey) obj;
+         return colorPaletteSize == other.colorPaletteSize && interiorColor == other.interiorColor
+               && Arrays.equals(colors, other.colors);
+      }
+   }
+
 }
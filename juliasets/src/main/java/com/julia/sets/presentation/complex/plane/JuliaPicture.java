@@ -1,6 +1,9 @@
 package com.julia.sets.presentation.complex.plane;
 
 import java.awt.Color;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -409,8 +412,8 @@ public class JuliaPicture {
     * @return the number of iterations needed for f<sub>n</sub>(z) to exceed
     *         maxModulus.
     */
-   public Integer iterationsToDiverge(Complex z) {
-      for (Integer i = 1; i <= getIterations(); i++) {
+   public int iterationsToDiverge(Complex z) {
+      for (var i = 1; i <= getIterations(); i++) {
          if (z.modulus() - getMaxModulus() > 0) {
             return i;
          } else {
@@ -442,6 +445,129 @@ public class JuliaPicture {
       return colorPalette.getFilledColorPalette();
    }
 
+   /**
+    * Get the colors of the Julia picture as a table indexed by
+    * {@link JuliaPicture#iterationsToDiverge}: element 0 holds the interior
+    * color, and element a the color of the points that escape after a
+    * iterations. The table is shared between pictures, so it must not be
+    * changed.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the colors as packed ARGB ints
+    */
+   public int[] getColorTable() {
+      return colorPalette.getColorTable(interiorColor);
+   }
+
+   /**
+    * A hash of everything that goes into the image, so that requests for the
+    * same image can be recognized without comparing every field. Pictures that
+    * are {@link #equals(Object) equal} have the same fingerprint.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the SHA-256 hash of the picture's parameters as 64 hex digits
+    */
+   public String getFingerprint() {
+      var canonical = matrixParameters();
+      canonical.append(";interior=").append(Integer.toHexString(interiorColor.getRGB())).append(";colors=");
+      for (var color : getColors()) {
+         canonical.append(Integer.toHexString(color.getRGB())).append(',');
+      }
+      return sha256(canonical);
+   }
+
+   /**
+    * Like {@link #getFingerprint()}, but leaving out the colors, so that
+    * pictures that only differ in their colors share the escape counts behind
+    * their images.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the SHA-256 hash of the parameters that decide the escape counts
+    *         as 64 hex digits
+    */
+   public String getMatrixFingerprint() {
+      return sha256(matrixParameters());
+   }
+
+   /**
+    * Like {@link #getMatrixFingerprint()}, but leaving out the window as well,
+    * so that pictures of different parts of the same Julia set, e.g., one panned
+    * or zoomed from the other, can be recognized as such.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the SHA-256 hash of the Julia number, iterations and maxModulus as
+    *         64 hex digits
+    */
+   public String getFamilyFingerprint() {
+      return sha256(familyParameters());
+   }
+
+   /**
+    * The Julia number, iterations and maxModulus, which decide the escape count
+    * of every point
+    */
+   private StringBuilder familyParameters() {
+      var canonical = new StringBuilder();
+      canonical.append("c=").append(canonical(juliaNum.getRealComponent())).append(',')
+            .append(canonical(juliaNum.getImaginaryComponent()));
+      canonical.append(";iterations=").append(iterations).append(";maxModulus=").append(canonical(maxModulus));
+      return canonical;
+   }
+
+   /**
+    * The Julia number, iterations, maxModulus and window, written out the same
+    * way for every picture with the same escape counts
+    */
+   private StringBuilder matrixParameters() {
+      var canonical = familyParameters();
+
+      var jw = juliaWindow;
+      canonical.append(";x=").append(canonical(jw.getMinXValue())).append(',')
+            .append(canonical(jw.getMaxXValue())).append(',').append(jw.getPictureWidth());
+      canonical.append(";y=").append(canonical(jw.getMinYValue())).append(',')
+            .append(canonical(jw.getMaxYValue())).append(',').append(jw.getPictureHeight());
+      if (jw.isDeepZoom()) {
+         canonical.append(";precise=").append(jw.getPreciseMinXValue().stripTrailingZeros().toPlainString())
+               .append(',').append(jw.getPreciseMinYValue().stripTrailingZeros().toPlainString()).append(',')
+               .append(canonical(jw.getXStep()));
+      }
+      return canonical;
+   }
+
+   private static String sha256(CharSequence canonical) {
+      try {
+         var hash = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+         var hex = new StringBuilder(2 * hash.length);
+         for (var b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+         }
+         return hex.toString();
+      } catch (NoSuchAlgorithmException e) {
+         // every JVM has to provide SHA-256
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Writes a double so that 0.0 and -0.0, which draw the same picture, are
+    * written the same way
+    */
+   private static String canonical(double value) {
+      return Double.toString(value == 0 ? 0.0 : value);
+   }
+
    @Override
    public int hashCode() {
       return Objects.hash(colorPalette, interiorColor, iterations, juliaNum, juliaWindow, maxModulus);
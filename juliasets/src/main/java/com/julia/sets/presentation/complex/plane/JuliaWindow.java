@@ -1,5 +1,6 @@
 package com.julia.sets.presentation.complex.plane;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -18,7 +19,14 @@ import java.util.Objects;
  * yValues lists. In other words, each pixel corresponds to a point in the
  * following set <br>
  * <br>
- * {z &isin; &Copf;: Re(z) &isin; xValues and Im(z) &isin; yValues}
+ * {z &isin; &Copf;: Re(z) &isin; xValues and Im(z) &isin; yValues} <br>
+ * <br>
+ * Windows narrower than doubles can resolve are made with
+ * {@link #deepZoom(BigDecimal, BigDecimal, double, Integer, Integer)}, which
+ * keeps the corner of the window as a {@link BigDecimal}. The double bounds and
+ * values of such a window are only approximations, so deep zoom kernels work
+ * from {@link #getPreciseMinXValue()}, {@link #getPreciseMinYValue()} and the
+ * pixel steps instead.
  * 
  * @author Dan Sievewright
  * @version 1.0.0
@@ -72,6 +80,24 @@ public class JuliaWindow {
     */
    public static final Integer RESOLUTION_UPPER_BOUND = 10000;
 
+   /**
+    * Most decimal places the center of a deep zoom may be given with
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int PRECISE_SCALE_UPPER_BOUND = 500;
+
+   /**
+    * Most digits before the decimal point the center of a deep zoom may have
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int PRECISE_INTEGER_DIGITS_UPPER_BOUND = 10;
+
    private double minXValue = DEFAULT_MIN_VALUE;
 
    private double maxXValue = DEFAULT_MAX_VALUE;
@@ -88,6 +114,19 @@ public class JuliaWindow {
 
    private List<Double> yValues = new ArrayList<>();
 
+   /**
+    * Exact lower left-hand corner of a deep zoom window, or null for a window
+    * given by its double bounds
+    */
+   private BigDecimal preciseMinXValue;
+
+   private BigDecimal preciseMinYValue;
+
+   /**
+    * Width and height of a pixel in a deep zoom window
+    */
+   private double pixelSize;
+
    /**
     * Initializes a JuliaWindow with default values
     * 
@@ -152,6 +191,143 @@ public class JuliaWindow {
       populateYValues();
    }
 
+   /**
+    * Creates a window too narrow for double bounds. The center is kept exactly,
+    * and every pixel is a square pixelSize wide. The double bounds of the window
+    * are rounded from the exact ones and may even be equal.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param centerXValue
+    *           the value along the real axis at the center of the picture
+    * @param centerYValue
+    *           the value along the imaginary axis at the center of the picture
+    * @param pixelSize
+    *           width and height of a pixel
+    * @param pictureWidth
+    *           width in pixels that the final image will be
+    * @param pictureHeight
+    *           height in pixels that the final image will be
+    * @return the window
+    * @throws JuliaException
+    *            if pixelSize is not positive, the picture size is invalid or
+    *            the center has more digits than
+    *            {@link #PRECISE_SCALE_UPPER_BOUND} and
+    *            {@link #PRECISE_INTEGER_DIGITS_UPPER_BOUND} allow
+    */
+   public static JuliaWindow deepZoom(BigDecimal centerXValue, BigDecimal centerYValue, double pixelSize,
+         Integer pictureWidth, Integer pictureHeight) throws JuliaException {
+      if (!(pixelSize > 0) || Double.isInfinite(pixelSize)) {
+         throw new JuliaException(JuliaException.POSITIVE_WIDTH_REQ);
+      }
+      validatePreciseValue(centerXValue);
+      validatePreciseValue(centerYValue);
+
+      var jw = new JuliaWindow();
+      jw.validatePictureWidth(pictureWidth);
+      jw.validatePictureHeight(pictureHeight);
+
+      var size = new BigDecimal(pixelSize);
+      var halfWidth = size.multiply(BigDecimal.valueOf(pictureWidth)).divide(BigDecimal.valueOf(2));
+      var halfHeight = size.multiply(BigDecimal.valueOf(pictureHeight)).divide(BigDecimal.valueOf(2));
+
+      jw.preciseMinXValue = centerXValue.subtract(halfWidth);
+      jw.preciseMinYValue = centerYValue.subtract(halfHeight);
+      jw.pixelSize = pixelSize;
+      jw.minXValue = jw.preciseMinXValue.doubleValue();
+      jw.maxXValue = centerXValue.add(halfWidth).doubleValue();
+      jw.pictureWidth = pictureWidth;
+      jw.minYValue = jw.preciseMinYValue.doubleValue();
+      jw.maxYValue = centerYValue.add(halfHeight).doubleValue();
+      jw.pictureHeight = pictureHeight;
+
+      jw.populateXValues();
+      jw.populateYValues();
+      return jw;
+   }
+
+   /**
+    * Keeps a deep zoom's center small enough to be written out in full, e.g.,
+    * 1E+999999999 would take a gigabyte
+    */
+   private static void validatePreciseValue(BigDecimal value) throws JuliaException {
+      if (value == null) {
+         throw new JuliaException("The center of a deep zoom cannot be null");
+      }
+      if (value.scale() > PRECISE_SCALE_UPPER_BOUND
+            || value.precision() - value.scale() > PRECISE_INTEGER_DIGITS_UPPER_BOUND) {
+         throw new JuliaException("The center of a deep zoom cannot have more than "
+               + PRECISE_INTEGER_DIGITS_UPPER_BOUND + " digits before the decimal point or "
+               + PRECISE_SCALE_UPPER_BOUND + " after it");
+      }
+   }
+
+   /**
+    * A window changed through its double bounds or size is no longer a deep zoom
+    */
+   private void clearPrecision() {
+      preciseMinXValue = null;
+      preciseMinYValue = null;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return true if this window was made by
+    *         {@link #deepZoom(BigDecimal, BigDecimal, double, Integer, Integer)}
+    */
+   public boolean isDeepZoom() {
+      return preciseMinXValue != null;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the exact value along the real axis of the left side of the picture
+    */
+   public BigDecimal getPreciseMinXValue() {
+      return isDeepZoom() ? preciseMinXValue : new BigDecimal(minXValue);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the exact value along the imaginary axis of the bottom of the picture
+    */
+   public BigDecimal getPreciseMinYValue() {
+      return isDeepZoom() ? preciseMinYValue : new BigDecimal(minYValue);
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the width of a pixel along the real axis
+    */
+   public double getXStep() {
+      return isDeepZoom() ? pixelSize : (maxXValue - minXValue) / pictureWidth;
+   }
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the height of a pixel along the imaginary axis
+    */
+   public double getYStep() {
+      return isDeepZoom() ? pixelSize : (maxYValue - minYValue) / pictureHeight;
+   }
+
    /**
     * @author Dan Sievewright
     * @version 1.0.0
@@ -179,6 +355,7 @@ public class JuliaWindow {
       if (minXValue >= maxXValue) {
          throw new JuliaException(JuliaException.POSITIVE_WIDTH_REQ);
       }
+      clearPrecision();
       populateXValues();
 
       this.minXValue = minXValue;
@@ -211,6 +388,7 @@ public class JuliaWindow {
       if (maxXValue <= minXValue) {
          throw new JuliaException(JuliaException.POSITIVE_WIDTH_REQ);
       }
+      clearPrecision();
       populateXValues();
 
       this.maxXValue = maxXValue;
@@ -239,6 +417,7 @@ public class JuliaWindow {
     */
    public void setPictureWidth(Integer pictureWidth) throws JuliaException {
       validatePictureWidth(pictureWidth);
+      clearPrecision();
       populateXValues();
       this.pictureWidth = pictureWidth;
    }
@@ -289,6 +468,7 @@ public class JuliaWindow {
       if (minYValue >= maxYValue) {
          throw new JuliaException(JuliaException.POSITIVE_HEIGHT_REQ);
       }
+      clearPrecision();
       populateYValues();
       this.minYValue = minYValue;
    }
@@ -320,6 +500,7 @@ public class JuliaWindow {
       if (maxYValue <= minYValue) {
          throw new JuliaException(JuliaException.POSITIVE_HEIGHT_REQ);
       }
+      clearPrecision();
       populateYValues();
       this.maxYValue = maxYValue;
    }
@@ -347,6 +528,7 @@ public class JuliaWindow {
     */
    public void setPictureHeight(Integer pictureHeight) throws JuliaException {
       validatePictureHeight(pictureHeight);
+      clearPrecision();
       populateYValues();
       this.pictureHeight = pictureHeight;
    }
@@ -460,7 +642,8 @@ public class JuliaWindow {
 
    @Override
    public int hashCode() {
-      return Objects.hash(maxXValue, maxYValue, minXValue, minYValue, pictureHeight, pictureWidth);
+      return Objects.hash(maxXValue, maxYValue, minXValue, minYValue, pictureHeight, pictureWidth,
+            preciseMinXValue, preciseMinYValue);
    }
 
    @Override
@@ -477,14 +660,18 @@ public class JuliaWindow {
             && Double.doubleToLongBits(minXValue) == Double.doubleToLongBits(other.minXValue)
             && Double.doubleToLongBits(minYValue) == Double.doubleToLongBits(other.minYValue)
             && Objects.equals(pictureHeight, other.pictureHeight)
-            && Objects.equals(pictureWidth, other.pictureWidth);
+            && Objects.equals(pictureWidth, other.pictureWidth)
+            && Objects.equals(preciseMinXValue, other.preciseMinXValue)
+            && Objects.equals(preciseMinYValue, other.preciseMinYValue)
+            && Double.doubleToLongBits(getXStep()) == Double.doubleToLongBits(other.getXStep());
    }
 
    @Override
    public String toString() {
       return "JuliaWindow [minXValue=" + minXValue + ", maxXValue=" + maxXValue + ", pictureWidth="
             + pictureWidth + ", minYValue=" + minYValue + ", maxYValue=" + maxYValue + ", pictureHeight="
-            + pictureHeight + "]";
+            + pictureHeight + (isDeepZoom() ? ", preciseMinXValue=" + preciseMinXValue + ", preciseMinYValue="
+                  + preciseMinYValue + ", pixelSize=" + pixelSize : "") + "]";
    }
 
 }
@@ -11,6 +11,10 @@ import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.handler.AbstractHandlerExceptionResolver;
 
 import com.julia.sets.domain.matrix.ImageThreadTimeoutException;
+import com.julia.sets.domain.matrix.RenderCancelledException;
+import com.julia.sets.domain.matrix.RenderOverBudgetException;
+import com.julia.sets.domain.matrix.RenderRejectedException;
+import com.julia.sets.domain.matrix.RenderTooExpensiveException;
 
 /**
  * Handler for exceptions
@@ -54,6 +58,12 @@ public class ExceptionHandlingController extends AbstractHandlerExceptionResolve
 
       if (ex instanceof ImageThreadTimeoutException) {
          return handleImageThreadTimeout(ex);
+      } else if (ex instanceof RenderTooExpensiveException) {
+         return handleRejectedForCost(ex, HttpStatus.PAYLOAD_TOO_LARGE);
+      } else if (ex instanceof RenderOverBudgetException) {
+         return handleRejectedForCost(ex, HttpStatus.TOO_MANY_REQUESTS);
+      } else if (ex instanceof RenderRejectedException || ex instanceof RenderCancelledException) {
+         return handleRenderRejected(ex);
       } else if (ex instanceof FileNotFoundException) {
          return handleFileNotFound(ex);
       } else {
@@ -78,6 +88,44 @@ public class ExceptionHandlingController extends AbstractHandlerExceptionResolve
       return mav;
    }
 
+   /**
+    * Handler for {@link RenderRejectedException}s and
+    * {@link RenderCancelledException}s
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param ex the exception
+    * @return {@link ModelAndView} for the front end
+    */
+   private ModelAndView handleRenderRejected(Exception ex) {
+      var mav = new ModelAndView(EXCEPTION);
+      mav.setStatus(HttpStatus.SERVICE_UNAVAILABLE);
+      mav.addObject(ERROR_MESSAGE, ex.getMessage());
+      return mav;
+   }
+
+   /**
+    * Handler for {@link RenderTooExpensiveException}s and
+    * {@link RenderOverBudgetException}s. The error message includes the
+    * estimated cost.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param ex the exception
+    * @param status the status to respond with
+    * @return {@link ModelAndView} for the front end
+    */
+   private ModelAndView handleRejectedForCost(Exception ex, HttpStatus status) {
+      var mav = new ModelAndView(EXCEPTION);
+      mav.setStatus(status);
+      mav.addObject(ERROR_MESSAGE, ex.getMessage());
+      return mav;
+   }
+
    /**
     * Handler for {@link FileNotFoundException}s
     * 
@@ -1,5 +1,6 @@
 package com.julia.sets.presentation.controllers;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,10 +15,13 @@ import com.google.gson.JsonObject;
 import com.julia.sets.config.ApplicationProperties;
 import com.julia.sets.config.JuliaSetModelMapper;
 import com.julia.sets.data.entities.JuliaPictureEntity;
+import com.julia.sets.domain.matrix.RenderEstimate;
 import com.julia.sets.domain.services.ImageFileService;
 import com.julia.sets.domain.services.ImageFileServiceException;
 import com.julia.sets.domain.services.JuliaPictureService;
+import com.julia.sets.domain.services.SingleFlight;
 import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaException;
 import com.julia.sets.presentation.complex.plane.JuliaPicture;
 import com.julia.sets.presentation.complex.plane.JuliaWindow;
 
@@ -44,6 +48,19 @@ public class GenerateJuliaSetController {
    @Autowired
    private ApplicationProperties properties;
 
+   /**
+    * Requests for a picture that arrive while the same picture is being looked
+    * up or drawn wait for that one and share its result, keyed by
+    * {@link JuliaPicture#getFingerprint()}
+    */
+   private final SingleFlight<JuliaPictureEntityProcessor> pictureRequests = new SingleFlight<>();
+
+   private static final String DEEP_ZOOM_PARAMS_REQ = "A deep zoom needs all of centerXValue, centerYValue and"
+         + " pixelSize";
+
+   private static final String WINDOW_BOUNDS_REQ = "The window needs all of minXValue, maxXValue, minYValue and"
+         + " maxYValue, or a deep zoom's centerXValue, centerYValue and pixelSize";
+
    /**
     * Method to get default min and max values for client side checking
     * 
@@ -69,6 +86,11 @@ public class GenerateJuliaSetController {
       constraints.addProperty("modulusLimit", JuliaPicture.MAX_MODULUS_UPPER_BOUND);
       constraints.addProperty("resolutionLimit", JuliaWindow.RESOLUTION_UPPER_BOUND);
 
+      // add the layout of the map tiles
+      constraints.addProperty("tileSize", TileController.TILE_SIZE);
+      constraints.addProperty("tileExtent", TileController.TILE_EXTENT);
+      constraints.addProperty("maxTileZoom", TileController.MAX_TILE_ZOOM);
+
       return constraints.toString();
    }
 
@@ -77,7 +99,12 @@ public class GenerateJuliaSetController {
    
    /**
     * Either finds an existing image with the same parameters or generates a new
-    * Julia set image.
+    * Julia set image. <br>
+    * <br>
+    * The window is given by minXValue, maxXValue, minYValue and maxYValue, or,
+    * for a zoom deeper than doubles can describe, by centerXValue, centerYValue
+    * and pixelSize instead. A deep zoom is drawn from its exact center, with
+    * the double-double or perturbation kernel its pixel size needs.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
@@ -87,6 +114,12 @@ public class GenerateJuliaSetController {
     *           real component of the complex number for the Julia Function
     * @param imaginaryComponent
     *           imaginary component of the complex number for the Julia Function
+    * @param centerXValue
+    *           exact value along the real axis at the center of a deep zoom
+    * @param centerYValue
+    *           exact value along the imaginary axis at the center of a deep zoom
+    * @param pixelSize
+    *           width and height of a pixel of a deep zoom
     * @return {@link ModelAndView} to display the Julia Set picture
     * @throws ImageFileServiceException
     *            if any exception occurs while generating a new Julia set image
@@ -94,35 +127,149 @@ public class GenerateJuliaSetController {
    @GetMapping("/generateJuliaSet.html")
    @ResponseBody
    public ModelAndView getJuliaSetWithDefaults(@RequestParam double realComponent,
-         @RequestParam double imaginaryComponent, @RequestParam double minXValue,
-         @RequestParam double maxXValue, @RequestParam double minYValue, @RequestParam double maxYValue,
-         @RequestParam int pictureWidth, @RequestParam int pictureHeight, @RequestParam int iterations,
-         @RequestParam int maxModulus)
+         @RequestParam double imaginaryComponent, @RequestParam(required = false) Double minXValue,
+         @RequestParam(required = false) Double maxXValue, @RequestParam(required = false) Double minYValue,
+         @RequestParam(required = false) Double maxYValue, @RequestParam int pictureWidth,
+         @RequestParam int pictureHeight, @RequestParam int iterations, @RequestParam int maxModulus,
+         @RequestParam(required = false) BigDecimal centerXValue,
+         @RequestParam(required = false) BigDecimal centerYValue, @RequestParam(required = false) Double pixelSize)
          throws ImageFileServiceException {
 
       // TODO: validate JuliaPicture parameters
 
-      
-      // create the JuliaPicture based on passed in parameters
-      var juliaWindow = new JuliaWindow(minXValue, maxXValue, pictureWidth, minYValue, maxYValue, pictureHeight);
-      var juliaNum =  new Complex(realComponent, imaginaryComponent);
-      var colors = JuliaPicture.getDefaultColors();
-      var interiorColor = JuliaPicture.DEFAULT_INTERIOR_COLOR;
-      var juliaPicture = new JuliaPicture(juliaNum, iterations, maxModulus, juliaWindow, colors, interiorColor);
-      
-      
-      // create the entity processor
-      var jpeProcessor = new JuliaPictureEntityProcessor(juliaPicture);
+      var juliaWindow = createJuliaWindow(minXValue, maxXValue, minYValue, maxYValue, pictureWidth, pictureHeight,
+            centerXValue, centerYValue, pixelSize);
+      var juliaPicture = createJuliaPicture(realComponent, imaginaryComponent, juliaWindow, iterations, maxModulus);
 
-      // get the fileName from the processor and create a new file if none exists.
-      var fileName = jpeProcessor.getFileName();
+      // pictures drawn recently are found in memory
+      var fileName = imageFileService.getCachedFileName(juliaPicture);
+      JuliaPictureEntityProcessor jpeProcessor = null;
+      if (fileName.isEmpty()) {
+         // find the file with the entity processor, creating a new file if none
+         // exists. Identical requests arriving together share one processor.
+         jpeProcessor = pictureRequests.execute(juliaPicture.getFingerprint(), () -> {
+            var processor = new JuliaPictureEntityProcessor(juliaPicture);
+            processor.findOrCreateFile();
+            return processor;
+         });
+         fileName = jpeProcessor.getFileName();
+      }
 
       var mav = new ModelAndView("juliaSetImage");
       mav.addObject("fileName", fileName);
+      if (jpeProcessor != null && jpeProcessor.isRenderPending()) {
+         // the file is a low resolution preview and the page has to ask for the rest
+         mav.addObject("pictureId", jpeProcessor.getPictureId());
+         mav.addObject("pictureWidth", pictureWidth);
+         mav.addObject("pictureHeight", pictureHeight);
+      }
 
       return mav;
    }
 
+   /**
+    * Works out what generating a Julia set image would cost and how it would be
+    * drawn, without drawing it or saving anything. The parameters are the same
+    * as for {@link #getJuliaSetWithDefaults}.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return JSON with the estimated cost, what it was worked out from, the
+    *         kernel and render mode that would be used, and whether the picture
+    *         is within maxRenderCost
+    * @throws ImageFileServiceException
+    *            if the parameters don't make a valid picture
+    */
+   @GetMapping("explainJuliaSet")
+   @ResponseBody
+   public String explainJuliaSet(@RequestParam double realComponent, @RequestParam double imaginaryComponent,
+         @RequestParam(required = false) Double minXValue, @RequestParam(required = false) Double maxXValue,
+         @RequestParam(required = false) Double minYValue, @RequestParam(required = false) Double maxYValue,
+         @RequestParam int pictureWidth, @RequestParam int pictureHeight, @RequestParam int iterations,
+         @RequestParam int maxModulus, @RequestParam(required = false) BigDecimal centerXValue,
+         @RequestParam(required = false) BigDecimal centerYValue, @RequestParam(required = false) Double pixelSize)
+         throws ImageFileServiceException {
+      var juliaWindow = createJuliaWindow(minXValue, maxXValue, minYValue, maxYValue, pictureWidth, pictureHeight,
+            centerXValue, centerYValue, pixelSize);
+      var juliaPicture = createJuliaPicture(realComponent, imaginaryComponent, juliaWindow, iterations, maxModulus);
+      var estimate = imageFileService.estimateRender(juliaPicture);
+
+      var answer = new JsonObject();
+      answer.addProperty("cost", estimate.getCost());
+      answer.addProperty("maxCost", estimate.getMaxCost());
+      answer.addProperty("maxRenderCost", properties.getMaxRenderCost());
+      answer.addProperty("withinLimit", estimate.getCost() <= properties.getMaxRenderCost());
+      answer.addProperty("pixels", estimate.getPixels());
+      answer.addProperty("computedFraction", estimate.getComputedFraction());
+      answer.addProperty("interiorFraction", estimate.getInteriorFraction());
+      answer.addProperty("meanIterations", estimate.getMeanIterations());
+      answer.addProperty("kernel", estimate.getKernel());
+      answer.addProperty("renderMode", estimate.getRenderMode().name());
+      answer.addProperty("progressive", estimate.isProgressive());
+      answer.addProperty("matrixCached", estimate.isMatrixCached());
+      return answer.toString();
+   }
+
+   /**
+    * Creates the {@link JuliaWindow} for the request parameters: a deep zoom if
+    * any of centerXValue, centerYValue and pixelSize is given, and otherwise
+    * the window between the bounds
+    */
+   private static JuliaWindow createJuliaWindow(Double minXValue, Double maxXValue, Double minYValue,
+         Double maxYValue, int pictureWidth, int pictureHeight, BigDecimal centerXValue, BigDecimal centerYValue,
+         Double pixelSize) throws JuliaException {
+      if (centerXValue != null || centerYValue != null || pixelSize != null) {
+         if (centerXValue == null || centerYValue == null || pixelSize == null) {
+            throw new JuliaException(DEEP_ZOOM_PARAMS_REQ);
+         }
+         return JuliaWindow.deepZoom(centerXValue, centerYValue, pixelSize, pictureWidth, pictureHeight);
+      }
+      if (minXValue == null || maxXValue == null || minYValue == null || maxYValue == null) {
+         throw new JuliaException(WINDOW_BOUNDS_REQ);
+      }
+      return new JuliaWindow(minXValue, maxXValue, pictureWidth, minYValue, maxYValue, pictureHeight);
+   }
+
+   /**
+    * Creates the {@link JuliaPicture} for the request parameters, with the
+    * default colors.
+    */
+   private static JuliaPicture createJuliaPicture(double realComponent, double imaginaryComponent,
+         JuliaWindow juliaWindow, int iterations, int maxModulus) throws ImageFileServiceException {
+      var juliaNum = new Complex(realComponent, imaginaryComponent);
+      var colors = JuliaPicture.getDefaultColors();
+      var interiorColor = JuliaPicture.DEFAULT_INTERIOR_COLOR;
+      return new JuliaPicture(juliaNum, iterations, maxModulus, juliaWindow, colors, interiorColor);
+   }
+
+   /**
+    * Reports on a coarse-to-fine render started by
+    * {@link #getJuliaSetWithDefaults}, so the page can swap in each finer image
+    * as it is written.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param pictureId
+    *           id of the picture being rendered
+    * @return JSON with the fileName of the finest image so far, whether the
+    *         render is done, and an error message if it failed
+    */
+   @GetMapping("renderProgress")
+   @ResponseBody
+   public String getRenderProgress(@RequestParam int pictureId) {
+      var progress = imageFileService.getRenderProgress(pictureId);
+
+      var answer = new JsonObject();
+      answer.addProperty("fileName", progress.getFileName());
+      answer.addProperty("done", progress.isDone());
+      answer.addProperty("errorMessage", progress.getErrorMessage());
+      return answer.toString();
+   }
+
    /**
     * Processor class for the Julia Set image.
     * 
@@ -141,6 +288,10 @@ public class GenerateJuliaSetController {
 
       private String fileName;
 
+      private Integer pictureId;
+
+      private boolean renderPending;
+
       /**
        * Constructor - determines the entity, potential matches in the DB, and
        * corresponding files on the server.
@@ -188,8 +339,8 @@ public class GenerateJuliaSetController {
       }
 
       /**
-       * Helper method to be called for {@link #getFileName()} to determine if an
-       * existing file exists.
+       * Helper method to be called for {@link #findOrCreateFile()} to determine if
+       * an existing file exists.
        * 
        * @author Dan Sievewright
        * @version 1.0.0
@@ -221,8 +372,8 @@ public class GenerateJuliaSetController {
       }
 
       /**
-       * Method to get the file name for the Julia Set image. If one doesn't exist, a
-       * new picture is created and its file name is returned.
+       * Method to find the file name for the Julia Set image. If one doesn't exist,
+       * a new picture is created and its file name is returned.
        * 
        * @author Dan Sievewright
        * @version 1.0.0
@@ -232,12 +383,64 @@ public class GenerateJuliaSetController {
        * @throws ImageFileServiceException
        *            if creating the file resulted in a server error
        */
-      public String getFileName() throws ImageFileServiceException {
-         var id = getId();
+      public String findOrCreateFile() throws ImageFileServiceException {
+         // turn away pictures that are too expensive before anything is saved
+         RenderEstimate estimate = null;
          if (fileName.isEmpty()) {
-            fileName = imageFileService.createImage(jp, id);
+            estimate = imageFileService.estimateRender(jp);
+            imageFileService.checkRenderCost(estimate);
+         }
+
+         var id = getId();
+         pictureId = id;
+         if (!fileName.isEmpty()) {
+            // keep the image found on disk in memory for next time
+            imageFileService.cacheImage(jp, fileName);
+         } else {
+            if (estimate.isProgressive()) {
+               var progress = imageFileService.createImageProgressively(jp, id, estimate);
+               fileName = progress.getFileName();
+               renderPending = !progress.isDone();
+            } else {
+               fileName = imageFileService.createImage(jp, id, estimate);
+            }
          }
          return fileName;
       }
+
+      /**
+       * @author Dan Sievewright
+       * @version 1.0.0
+       * @since 1.0.0
+       *
+       * @return true if {@link #findOrCreateFile()} returned a preview and the
+       *         image is still being created
+       */
+      public boolean isRenderPending() {
+         return renderPending;
+      }
+
+      /**
+       * @author Dan Sievewright
+       * @version 1.0.0
+       * @since 1.0.0
+       *
+       * @return the id of the picture, once {@link #findOrCreateFile()} has been
+       *         called
+       */
+      public Integer getPictureId() {
+         return pictureId;
+      }
+
+      /**
+       * @author Dan Sievewright
+       * @version 1.0.0
+       * @since 1.0.0
+       *
+       * @return the file name found or created by {@link #findOrCreateFile()}
+       */
+      public String getFileName() {
+         return fileName;
+      }
    }
 }
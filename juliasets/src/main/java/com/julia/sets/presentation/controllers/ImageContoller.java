@@ -1,25 +1,27 @@
 package com.julia.sets.presentation.controllers;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
+
 import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.domain.services.ImageFileService;
 
 /**
  * This handles all requests for images for Julia Sets. Files are saved to the
- * imageFolder property set in juliaSet.properties.
+ * imageFolder property set in juliaSet.properties. <br>
+ * <br>
+ * A picture's images never change, so they are sent as immutable; the tex
+ * images can be replaced, so they are checked again every time they are used.
+ * Both are sent by {@link ImageResponses}, with ETags and byte ranges.
  * 
  * @author Dan Sievewright
  * @version 1.0.0
@@ -32,9 +34,13 @@ public class ImageContoller {
    @Autowired
    private ApplicationProperties applicationProperties;
 
+   @Autowired
+   private ImageFileService imageFileService;
+
    /**
     * Handles requests for images and grabs the desired file from within the
-    * defined imageFolder.
+    * defined imageFolder. Images still in memory, cached or waiting to be
+    * written, are served from there.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
@@ -42,36 +48,31 @@ public class ImageContoller {
     *
     * @param imageName
     *           name of the requested file
-    * @return {@link ResponseEntity} to show the image
+    * @param request
+    *           the request, which may ask for a byte range or only for a newer
+    *           image
+    * @param response
+    *           the response the image is written to
     * @throws IOException
     *            if an I/O error occurs
     */
    @GetMapping(value = "/images/{imageName}")
-   public @ResponseBody ResponseEntity<InputStreamResource> getImageFile(
-         @PathVariable("imageName") String imageName)
-         throws IOException {
+   public void getImageFile(@PathVariable("imageName") String imageName, HttpServletRequest request,
+         HttpServletResponse response) throws IOException {
 
-      // get output file
-      File imageFolder = applicationProperties.getImageFolder();
-      var output = new File(imageFolder, imageName);
-
-      if (!output.exists()) {
-         throw new FileNotFoundException("The requested image, '" + imageName + "', does not exist.");
+      var cached = imageFileService.getCachedImage(imageName);
+      if (cached != null) {
+         ImageResponses.sendImage(request, response, cached, ImageResponses.IMMUTABLE);
+         return;
       }
 
-      // get MediaType
-      var contentType = Files.probeContentType(output.toPath());
-      var mediaType = MediaType.parseMediaType(contentType);
-
-      // get Stream
-      var isr = new InputStreamResource(new FileInputStream(output));
-
-      return ResponseEntity.ok().contentLength(output.length()).contentType(mediaType).body(isr);
+      var output = getFile(applicationProperties.getImageFolder(), imageName);
+      ImageResponses.sendFile(request, response, output, ImageResponses.fileTag(output), ImageResponses.IMMUTABLE);
    }
-   
+
    /**
     * Handles requests for images and grabs the desired file from within the
-    * defined imageFolder.
+    * defined texFolder.
     * 
     * @author Dan Sievewright
     * @version 1.0.0
@@ -79,32 +80,30 @@ public class ImageContoller {
     *
     * @param imageName
     *           name of the requested file
-    * @return {@link ResponseEntity} to show the image
+    * @param request
+    *           the request, which may ask for a byte range or only for a newer
+    *           image
+    * @param response
+    *           the response the image is written to
     * @throws IOException
     *            if an I/O error occurs
     */
    @GetMapping(value = "/tex/{imageName}")
-   public @ResponseBody ResponseEntity<InputStreamResource> getTexFile(
-         @PathVariable("imageName") String imageName)
-         throws IOException {
+   public void getTexFile(@PathVariable("imageName") String imageName, HttpServletRequest request,
+         HttpServletResponse response) throws IOException {
 
-      // get output file
-      File imageFolder = applicationProperties.getTexFolder();
-      var output = new File(imageFolder, imageName);
+      var output = getFile(applicationProperties.getTexFolder(), imageName);
+      ImageResponses.sendFile(request, response, output, ImageResponses.fileTag(output), ImageResponses.REVALIDATE);
+   }
 
-      if (!output.exists()) {
+   /**
+    * The file of an image in a folder
+    */
+   private static File getFile(File folder, String imageName) throws FileNotFoundException {
+      var output = new File(folder, imageName);
+      if (!output.isFile()) {
          throw new FileNotFoundException("The requested image, '" + imageName + "', does not exist.");
       }
-
-      // get MediaType
-      var contentType = Files.probeContentType(output.toPath());
-      var mediaType = MediaType.parseMediaType(contentType);
-
-      // get Stream
-      var isr = new InputStreamResource(new FileInputStream(output));
-
-      return ResponseEntity.ok().contentLength(output.length()).contentType(mediaType).body(isr);
+      return output;
    }
-   
-   //TODO: refactor above methods
 }
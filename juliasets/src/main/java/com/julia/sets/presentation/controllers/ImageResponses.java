@@ -0,0 +1,248 @@
+package com.julia.sets.presentation.controllers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+import com.julia.sets.domain.services.CachedImage;
+
+/**
+ * Writes images to responses for the controllers that serve them, with the
+ * headers that let browsers and proxies keep them:
+ * <ul>
+ * <li>a strong ETag, and 304 Not Modified for a request whose If-None-Match
+ * has it</li>
+ * <li>a Cache-Control header, {@link #IMMUTABLE} for images whose URL always
+ * names the same picture</li>
+ * <li>a single byte range, with 206 Partial Content, so a very large image can
+ * be fetched in pieces or resumed. A request for several ranges is sent the
+ * whole image.</li>
+ * </ul>
+ * Files are sent with the container's sendfile when it offers it, and
+ * otherwise with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * so their bytes are not read onto the heap first.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class ImageResponses {
+
+   /**
+    * Cache-Control of images that never change: cached by anyone for a year,
+    * without being checked again
+    */
+   static final String IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue()
+         + ", immutable";
+
+   /**
+    * Cache-Control of files that can change: checked again with their ETag
+    * every time they are used
+    */
+   static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+   /**
+    * Request attributes Tomcat reads to send a file with sendfile once the
+    * servlet returns
+    */
+   private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+   private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+   private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+   private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+   /**
+    * Content type of each file extension served, so the file system is only
+    * asked once
+    */
+   private static final Map<String, String> CONTENT_TYPES = new ConcurrentHashMap<>();
+
+   private ImageResponses() {
+      // static methods only
+   }
+
+   /**
+    * The ETag of a picture's image, which only changes with the picture
+    */
+   static String fingerprintTag(String fingerprint) {
+      return '"' + fingerprint + '"';
+   }
+
+   /**
+    * The ETag of a file, which changes whenever the file is replaced
+    */
+   static String fileTag(File file) {
+      return '"' + Long.toHexString(file.lastModified()) + '-' + Long.toHexString(file.length()) + '"';
+   }
+
+   /**
+    * Answers a request with 304 Not Modified if it already has the image with
+    * the ETag, e.g., before drawing a tile again.
+    *
+    * @return true if the response has been sent
+    */
+   static boolean notModified(HttpServletRequest request, HttpServletResponse response, String eTag,
+         String cacheControl) {
+      var ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+      if (ifNoneMatch == null) {
+         return false;
+      }
+      for (var tag : ifNoneMatch.split(",")) {
+         tag = tag.trim();
+         // If-None-Match compares weakly, so W/ is ignored
+         if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Sends an image held in memory. It is always a PNG.
+    */
+   static void sendImage(HttpServletRequest request, HttpServletResponse response, CachedImage image,
+         String cacheControl) throws IOException {
+      var eTag = fingerprintTag(image.getFingerprint());
+      if (notModified(request, response, eTag, cacheControl)) {
+         return;
+      }
+      var range = writeHeaders(request, response, eTag, cacheControl, MediaType.IMAGE_PNG_VALUE,
+            image.getLength());
+      if (range == null || isHead(request)) {
+         return;
+      }
+      var data = image.getData();
+      data.position((int) range[0]).limit((int) range[1]);
+      Channels.newChannel(response.getOutputStream()).write(data);
+   }
+
+   /**
+    * Sends a file with the given ETag.
+    */
+   static void sendFile(HttpServletRequest request, HttpServletResponse response, File file, String eTag,
+         String cacheControl) throws IOException {
+      if (notModified(request, response, eTag, cacheControl)) {
+         return;
+      }
+      var range = writeHeaders(request, response, eTag, cacheControl, contentType(file), file.length());
+      if (range == null || isHead(request)) {
+         return;
+      }
+
+      if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+         // Tomcat sends the bytes straight from the page cache to the socket
+         request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+         request.setAttribute(SENDFILE_START, range[0]);
+         request.setAttribute(SENDFILE_END, range[1]);
+         return;
+      }
+      try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         var out = Channels.newChannel(response.getOutputStream());
+         var position = range[0];
+         while (position < range[1]) {
+            position += channel.transferTo(position, range[1] - position, out);
+         }
+      }
+   }
+
+   /**
+    * Sets the status and headers of a response for an image of the given
+    * length.
+    *
+    * @return the first and after-last byte to send, or null if no bytes are to
+    *         be sent because the range asked for isn't in the image
+    */
+   private static long[] writeHeaders(HttpServletRequest request, HttpServletResponse response, String eTag,
+         String cacheControl, String contentType, long length) {
+      response.setHeader(HttpHeaders.ETAG, eTag);
+      response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+      response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+      var range = getRange(request, eTag);
+      if (range == null) {
+         response.setStatus(HttpServletResponse.SC_OK);
+         response.setContentType(contentType);
+         response.setContentLengthLong(length);
+         return new long[] { 0, length };
+      }
+      long start;
+      long end;
+      try {
+         start = range.getRangeStart(length);
+         end = range.getRangeEnd(length) + 1;
+      } catch (IllegalArgumentException e) {
+         // the range starts after the end of the image
+         start = length;
+         end = length;
+      }
+      if (start >= end) {
+         response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+         response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+         return null;
+      }
+      response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      response.setContentType(contentType);
+      response.setContentLengthLong(end - start);
+      response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+      return new long[] { start, end };
+   }
+
+   /**
+    * The one range a request asks for, or null if the whole image is to be
+    * sent: there is no Range header, it can't be read or asks for several
+    * ranges, or its If-Range names another version of the image
+    */
+   private static HttpRange getRange(HttpServletRequest request, String eTag) {
+      var rangeHeader = request.getHeader(HttpHeaders.RANGE);
+      var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+      if (rangeHeader == null || (ifRange != null && !ifRange.trim().equals(eTag))) {
+         return null;
+      }
+      try {
+         var ranges = HttpRange.parseRanges(rangeHeader);
+         return (ranges.size() == 1) ? ranges.get(0) : null;
+      } catch (IllegalArgumentException e) {
+         // a Range header that can't be read is ignored
+         return null;
+      }
+   }
+
+   private static boolean isHead(HttpServletRequest request) {
+      return "HEAD".equals(request.getMethod());
+   }
+
+   /**
+    * The content type of a file, found by its extension
+    */
+   private static String contentType(File file) {
+      var name = file.getName();
+      var extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+      return CONTENT_TYPES.computeIfAbsent(extension, e -> {
+         try {
+            var contentType = Files.probeContentType(file.toPath());
+            return (contentType == null) ? MediaType.APPLICATION_OCTET_STREAM_VALUE : contentType;
+         } catch (IOException ex) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+         }
+      });
+   }
+}
@@ -0,0 +1,65 @@
+package com.julia.sets.presentation.controllers;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import com.julia.sets.domain.services.ImageFileService;
+
+/**
+ * Actuator endpoint for administrators to see which pictures are being drawn
+ * and to stop one. <br>
+ * <br>
+ * Anyone who can reach it can stop any render, so it is only exposed over JMX,
+ * as the MBean org.springframework.boot:type=Endpoint,name=Renders with the
+ * operations runningRenders and abortRender. An operator opens it with
+ * jconsole on the server, or remotely once the container is started with
+ * -Dcom.sun.management.jmxremote.port and JMX authentication. It must not be
+ * added to management.endpoints.web.exposure.include, which has no
+ * authentication.
+ * 
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ * 
+ */
+@Component
+@Endpoint(id = "renders")
+public class RenderEndpoint {
+
+   @Autowired
+   private ImageFileService imageFileService;
+
+   /**
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @return the picture ids of the renders that are running
+    */
+   @ReadOperation
+   public Set<Integer> runningRenders() {
+      return imageFileService.getRunningRenders();
+   }
+
+   /**
+    * Stops the render of a picture.
+    * 
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param pictureId
+    *           id of the picture being rendered
+    * @return true if a running render was stopped
+    */
+   @DeleteOperation
+   public boolean abortRender(@Selector int pictureId) {
+      return imageFileService.cancelRender(pictureId);
+   }
+}
@@ -0,0 +1,154 @@
+package com.julia.sets.presentation.controllers;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.julia.sets.domain.services.ImageFileService;
+import com.julia.sets.domain.services.ImageFileServiceException;
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Serves a Julia set as map tiles, so the page can pan and zoom by only asking
+ * for the tiles it hasn't seen. <br>
+ * <br>
+ * The tiles form a quadtree over the square of the complex plane with corners
+ * -{@value #TILE_EXTENT} - {@value #TILE_EXTENT}i and {@value #TILE_EXTENT} +
+ * {@value #TILE_EXTENT}i, which holds the whole Julia set whenever |c| &le; 2.
+ * At zoom 0 that square is a single tile. Each zoom level halves the side of a
+ * tile, so zoom z has 2<sup>z</sup> by 2<sup>z</sup> tiles, numbered from 0
+ * left to right (x) and top to bottom (y). Every tile is {@value #TILE_SIZE} by
+ * {@value #TILE_SIZE} pixels. <br>
+ * <br>
+ * A tile's URL names everything that goes into it, so tiles are sent as
+ * immutable, with the picture's fingerprint as their ETag. A browser that asks
+ * again with that ETag is answered without the tile being drawn.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ *
+ */
+@Controller
+public class TileController {
+
+   /**
+    * Width and height of a tile in pixels
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int TILE_SIZE = 256;
+
+   /**
+    * Half the side of the tile at zoom 0
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final double TILE_EXTENT = 2;
+
+   /**
+    * The deepest zoom served. The corners of every tile up to this zoom are
+    * exact as doubles.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    */
+   public static final int MAX_TILE_ZOOM = 40;
+
+   @Autowired
+   private ImageFileService imageFileService;
+
+   /**
+    * Handles requests for tiles, drawing the ones that aren't cached.
+    *
+    * @author Dan Sievewright
+    * @version 1.0.0
+    * @since 1.0.0
+    *
+    * @param c
+    *           the Julia number, as its real and imaginary components separated
+    *           by a comma, e.g., -0.4,0.6
+    * @param zoom
+    *           the zoom level, from 0 to {@value #MAX_TILE_ZOOM}
+    * @param x
+    *           the column of the tile, from 0 to 2<sup>zoom</sup> - 1
+    * @param y
+    *           the row of the tile, from 0 to 2<sup>zoom</sup> - 1
+    * @param iterations
+    *           the number of iterations
+    * @param maxModulus
+    *           the maxModulus
+    * @param request
+    *           the request, which may only ask for a newer tile
+    * @param response
+    *           the response the tile is written to
+    * @throws FileNotFoundException
+    *            if there is no such tile
+    * @throws ImageFileServiceException
+    *            if any exception occurs while drawing the tile
+    * @throws IOException
+    *            if an I/O error occurs while sending the tile
+    */
+   @GetMapping(value = "/tiles/{c}/{zoom}/{x}/{y}.png")
+   public void getTile(@PathVariable("c") String c, @PathVariable("zoom") int zoom, @PathVariable("x") long x,
+         @PathVariable("y") long y, @RequestParam int iterations, @RequestParam double maxModulus,
+         HttpServletRequest request, HttpServletResponse response)
+         throws ImageFileServiceException, IOException {
+
+      if (zoom < 0 || zoom > MAX_TILE_ZOOM || x < 0 || y < 0 || x >= (1L << zoom) || y >= (1L << zoom)) {
+         throw new FileNotFoundException(
+               "The requested tile, '" + c + "/" + zoom + "/" + x + "/" + y + "', does not exist.");
+      }
+      var juliaNum = parseJuliaNumber(c);
+
+      // the corners are exact, so neighboring tiles meet without gaps
+      var side = Math.scalb(2 * TILE_EXTENT, -zoom);
+      var minXValue = -TILE_EXTENT + x * side;
+      var maxYValue = TILE_EXTENT - y * side;
+      var juliaWindow = new JuliaWindow(minXValue, minXValue + side, TILE_SIZE, maxYValue - side, maxYValue,
+            TILE_SIZE);
+      var tile = new JuliaPicture(juliaNum, iterations, maxModulus, juliaWindow, JuliaPicture.getDefaultColors(),
+            JuliaPicture.DEFAULT_INTERIOR_COLOR);
+
+      var eTag = ImageResponses.fingerprintTag(tile.getFingerprint());
+      if (ImageResponses.notModified(request, response, eTag, ImageResponses.IMMUTABLE)) {
+         return;
+      }
+      var image = imageFileService.getTile(tile);
+      ImageResponses.sendImage(request, response, image, ImageResponses.IMMUTABLE);
+   }
+
+   /**
+    * Reads a Julia number written as "real,imaginary".
+    */
+   private static Complex parseJuliaNumber(String c) throws FileNotFoundException {
+      var components = c.split(",");
+      try {
+         if (components.length == 2) {
+            var realComponent = Double.parseDouble(components[0]);
+            var imaginaryComponent = Double.parseDouble(components[1]);
+            if (Double.isFinite(realComponent) && Double.isFinite(imaginaryComponent)) {
+               return new Complex(realComponent, imaginaryComponent);
+            }
+         }
+      } catch (NumberFormatException e) {
+         // reported below
+      }
+      throw new FileNotFoundException("There are no tiles for the Julia number '" + c + "'.");
+   }
+}
@@ -0,0 +1,7 @@
+-- Adds the columns of JuliaPictureEntity that record the exact corner and pixel
+-- size of a deep zoom window. They are null for every other picture, including
+-- all records saved before this change.
+ALTER TABLE julia_picture
+   ADD COLUMN precise_min_x_value VARCHAR(1200) NULL,
+   ADD COLUMN precise_min_y_value VARCHAR(1200) NULL,
+   ADD COLUMN pixel_size DOUBLE NULL;
@@ -0,0 +1,6 @@
+-- Adds the fingerprint column of JuliaPictureEntity. Records saved before this
+-- change keep a null fingerprint (a unique key allows any number of nulls) and
+-- are still found by comparing every column.
+ALTER TABLE julia_picture
+   ADD COLUMN fingerprint CHAR(64) NULL,
+   ADD CONSTRAINT uk_julia_picture_fingerprint UNIQUE (fingerprint);
@@ -0,0 +1,126 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Compares loading saved escape counts with computing them again, for a full
+ * HD picture, in each {@link EscapeCountEncoding}: the size of the file, the
+ * time to write it, and the time to read it and look at every count. The
+ * computation uses every core, like a render does. <br>
+ * <br>
+ * The class name doesn't end in Test, so it isn't part of the build. Run it
+ * with
+ *
+ * <pre>
+ * mvn test -Dtest=EscapeCountFormatBenchmark
+ * </pre>
+ *
+ * and it prints a table like this one, from a single core machine
+ *
+ * <pre>
+ * computed in 516.1 ms
+ * RAW             4147224 bytes, written in 22.5 ms, loaded in 16.6 ms
+ * DELTA_DEFLATE    890735 bytes, written in 71.5 ms, loaded in 41.6 ms
+ * </pre>
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class EscapeCountFormatBenchmark {
+
+   private static final int WARMUPS = 3;
+
+   private static final int RUNS = 10;
+
+   @TempDir
+   Path folder;
+
+   @Test
+   void loadAgainstRecompute() throws Exception {
+      var jw = new JuliaWindow(-1.6, 1.6, 1920, -0.9, 0.9, 1080);
+      var jp = new JuliaPicture(new Complex(-0.8, 0.156), 1000, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var kernel = new ScalarEscapeTimeKernel(jp, true);
+
+      var m = compute(kernel, jp);
+      for (var i = 0; i < WARMUPS; i++) {
+         compute(kernel, jp);
+      }
+      var start = System.nanoTime();
+      for (var i = 0; i < RUNS; i++) {
+         compute(kernel, jp);
+      }
+      System.out.printf("computed in %.1f ms%n", millis(start));
+
+      var expected = sum(m);
+      for (var encoding : EscapeCountEncoding.values()) {
+         var file = folder.resolve(encoding + ".counts");
+         for (var i = 0; i < WARMUPS; i++) {
+            EscapeCountFormat.write(m, jp.getIterations(), encoding, file);
+         }
+         start = System.nanoTime();
+         for (var i = 0; i < RUNS; i++) {
+            EscapeCountFormat.write(m, jp.getIterations(), encoding, file);
+         }
+         var written = millis(start);
+
+         for (var i = 0; i < WARMUPS; i++) {
+            assertEquals(expected, load(file));
+         }
+         start = System.nanoTime();
+         for (var i = 0; i < RUNS; i++) {
+            load(file);
+         }
+         System.out.printf("%-14s %8d bytes, written in %.1f ms, loaded in %.1f ms%n", encoding, Files.size(file),
+               written, millis(start));
+      }
+   }
+
+   private static EscapeCountMatrix compute(EscapeTimeKernel kernel, JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      var m = EscapeCountMatrix.create(jw.getPictureHeight(), jw.getPictureWidth(), jp.getIterations());
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+      IntStream.range(0, m.getRows()).parallel().forEach(
+            row -> kernel.fillRow(m, row, xValues, 0, m.getColumns(), yValues[m.getRows() - row - 1]));
+      return m;
+   }
+
+   /**
+    * Reads a file and every count in it, since a mapped file is only read as
+    * its counts are
+    */
+   private static long load(Path file) throws IOException {
+      return sum(EscapeCountFormat.read(file));
+   }
+
+   private static long sum(EscapeCountMatrix m) {
+      var sum = 0L;
+      for (var row = 0; row < m.getRows(); row++) {
+         for (var column = 0; column < m.getColumns(); column++) {
+            sum += m.get(row, column);
+         }
+      }
+      return sum;
+   }
+
+   /**
+    * Average milliseconds of the runs since start
+    */
+   private static double millis(long start) {
+      return (System.nanoTime() - start) / 1e6 / RUNS;
+   }
+}
@@ -0,0 +1,160 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Writes matrices of every element width with {@link EscapeCountFormat} in
+ * every {@link EscapeCountEncoding} and reads them back, and checks that files
+ * whose header doesn't describe what follows are refused. <br>
+ * <br>
+ * The counts are random, with the interior count and the largest count next to
+ * each other, so the differences stored by
+ * {@link EscapeCountEncoding#DELTA_DEFLATE} wrap around the element width.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class EscapeCountFormatTest {
+
+   /**
+    * Iterations stored as bytes, shorts and ints
+    */
+   private static final int[] ITERATIONS = { Byte.MAX_VALUE, Short.MAX_VALUE, 100_000 };
+
+   @TempDir
+   Path folder;
+
+   @ParameterizedTest
+   @EnumSource(EscapeCountEncoding.class)
+   void roundTrips(EscapeCountEncoding encoding) throws IOException {
+      for (var iterations : ITERATIONS) {
+         var m = randomMatrix(37, 53, iterations);
+         var file = folder.resolve(iterations + ".counts");
+         EscapeCountFormat.write(m, iterations, encoding, file);
+         var read = EscapeCountFormat.read(file);
+
+         assertEquals(m.getBytesPerElement(), read.getBytesPerElement(), "width for " + iterations + " iterations");
+         assertEquals(m.getRows(), read.getRows());
+         assertEquals(m.getColumns(), read.getColumns());
+         for (var row = 0; row < m.getRows(); row++) {
+            for (var column = 0; column < m.getColumns(); column++) {
+               assertEquals(m.get(row, column), read.get(row, column),
+                     "count at " + row + ", " + column + " for " + iterations + " iterations");
+            }
+         }
+      }
+   }
+
+   @Test
+   void replacesExistingFile() throws IOException {
+      var file = folder.resolve("replaced.counts");
+      EscapeCountFormat.write(randomMatrix(5, 5, 100), 100, EscapeCountEncoding.RAW, file);
+      var m = randomMatrix(3, 4, 1000);
+      EscapeCountFormat.write(m, 1000, EscapeCountEncoding.DELTA_DEFLATE, file);
+
+      var read = EscapeCountFormat.read(file);
+      assertEquals(3, read.getRows());
+      assertEquals(m.get(2, 3), read.get(2, 3));
+      try (var files = Files.list(folder)) {
+         assertEquals(1, files.count(), "temporary files left behind");
+      }
+   }
+
+   @ParameterizedTest
+   @EnumSource(EscapeCountEncoding.class)
+   void refusesWrongMagicNumber(EscapeCountEncoding encoding) throws IOException {
+      var file = corrupt(encoding, header -> header.putInt(0, 0x504E4700));
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   @ParameterizedTest
+   @EnumSource(EscapeCountEncoding.class)
+   void refusesUnknownVersion(EscapeCountEncoding encoding) throws IOException {
+      var file = corrupt(encoding, header -> header.putShort(4, (short) (EscapeCountFormat.VERSION + 1)));
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   @ParameterizedTest
+   @EnumSource(EscapeCountEncoding.class)
+   void refusesUnknownEncoding(EscapeCountEncoding encoding) throws IOException {
+      var file = corrupt(encoding, header -> header.put(7, (byte) EscapeCountEncoding.values().length));
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   @ParameterizedTest
+   @EnumSource(EscapeCountEncoding.class)
+   void refusesMoreRowsThanStored(EscapeCountEncoding encoding) throws IOException {
+      var file = corrupt(encoding, header -> header.putInt(8, header.getInt(8) + 1));
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   @Test
+   void refusesRawWidthNotMatchingSize() throws IOException {
+      var file = corrupt(EscapeCountEncoding.RAW, header -> header.put(6, (byte) Integer.BYTES));
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   @Test
+   void refusesDeltaWidthNotMatchingIterations() throws IOException {
+      // the counts of 1000 iterations are stored as shorts
+      var file = corrupt(EscapeCountEncoding.DELTA_DEFLATE, header -> header.putInt(16, 100_000));
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   @Test
+   void refusesTruncatedDeltaFile() throws IOException {
+      var file = folder.resolve("truncated.counts");
+      EscapeCountFormat.write(randomMatrix(40, 40, 1000), 1000, EscapeCountEncoding.DELTA_DEFLATE, file);
+      var bytes = Files.readAllBytes(file);
+      Files.write(file, Arrays.copyOf(bytes, bytes.length - 16));
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   @Test
+   void refusesFileShorterThanHeader() throws IOException {
+      var file = folder.resolve("short.counts");
+      Files.write(file, new byte[EscapeCountFormat.HEADER_BYTES - 1]);
+      assertThrows(IOException.class, () -> EscapeCountFormat.read(file));
+   }
+
+   /**
+    * Writes a matrix of 1000 iterations and changes its header
+    */
+   private Path corrupt(EscapeCountEncoding encoding, Consumer<ByteBuffer> change) throws IOException {
+      var file = folder.resolve(encoding + ".counts");
+      EscapeCountFormat.write(randomMatrix(20, 30, 1000), 1000, encoding, file);
+      var bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+      change.accept(bytes);
+      Files.write(file, bytes.array());
+      return file;
+   }
+
+   private static EscapeCountMatrix randomMatrix(int rows, int columns, int iterations) {
+      var random = new Random(iterations);
+      var m = EscapeCountMatrix.create(rows, columns, iterations);
+      for (var row = 0; row < rows; row++) {
+         for (var column = 0; column < columns; column++) {
+            m.set(row, column, random.nextInt(iterations + 1) - 1);
+         }
+      }
+      m.set(0, 0, iterations);
+      m.set(0, 1, EscapeCountMatrix.INTERIOR);
+      m.set(0, 2, iterations);
+      return m;
+   }
+}
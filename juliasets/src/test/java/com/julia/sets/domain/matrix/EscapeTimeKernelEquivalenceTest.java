@@ -0,0 +1,137 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.Color;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaException;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Checks that every {@link EscapeTimeKernel} draws a shallow window the same
+ * way, so which one {@link EscapeTimeKernelFactory} picks never shows in the
+ * picture. <br>
+ * <br>
+ * The vectorized kernel does the same double arithmetic as the scalar one, so
+ * their counts have to match exactly. It is only tested when it is compiled in
+ * and the jdk.incubator.vector module is present, i.e., when the tests run
+ * with the vector-kernel profile. The double-double kernel rounds less, so it
+ * may disagree on the odd pixel right on the edge of the Julia set, where a
+ * last-bit difference decides when the orbit escapes.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class EscapeTimeKernelEquivalenceTest {
+
+   private static final String VECTOR_KERNEL = "com.julia.sets.domain.matrix.VectorEscapeTimeKernel";
+
+   /**
+    * The share of pixels the double-double kernel may count differently
+    */
+   private static final double DOUBLE_DOUBLE_TOLERANCE = 1e-3;
+
+   static Stream<Arguments> pictures() throws JuliaException {
+      return Stream.of(
+            Arguments.of(new Complex(-0.8, 0.156), 300, new JuliaWindow(-2.0, 2.0, 160, -1.5, 1.5, 120), false),
+            Arguments.of(new Complex(-0.4, 0.6), 500, new JuliaWindow(-1.0, 1.0, 160, -1.0, 1.0, 120), true),
+            Arguments.of(new Complex(0.285, 0.01), 1000, new JuliaWindow(-0.2, 0.2, 160, -0.15, 0.15, 120), true),
+            Arguments.of(new Complex(-0.8, 0.0), 200, new JuliaWindow(-2.0, 2.0, 161, -1.5, 1.5, 121), false),
+            Arguments.of(new Complex(-0.123, 0.745), 400, new JuliaWindow(-0.5, 0.1, 97, 0.2, 0.7, 83), true));
+   }
+
+   @ParameterizedTest
+   @MethodSource("pictures")
+   void vectorKernelMatchesScalarKernel(Complex c, int iterations, JuliaWindow jw, boolean periodicityCheck)
+         throws Exception {
+      assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+            "jdk.incubator.vector is not present");
+      Class<? extends EscapeTimeKernel> vectorClass;
+      try {
+         vectorClass = Class.forName(VECTOR_KERNEL).asSubclass(EscapeTimeKernel.class);
+      } catch (ClassNotFoundException e) {
+         assumeTrue(false, "the vector kernel is not compiled in");
+         return;
+      }
+      assumeTrue((Boolean) vectorClass.getMethod("isSupported").invoke(null), "vector registers too narrow");
+
+      var jp = picture(c, iterations, jw);
+      var vector = vectorClass.getConstructor(JuliaPicture.class, boolean.class).newInstance(jp, periodicityCheck);
+      var expected = fill(new ScalarEscapeTimeKernel(jp, periodicityCheck), jp);
+      var actual = fill(vector, jp);
+      assertEquals(0, countDifferences(expected, actual), "pixels counted differently");
+   }
+
+   @ParameterizedTest
+   @MethodSource("pictures")
+   void doubleDoubleKernelMatchesScalarKernel(Complex c, int iterations, JuliaWindow jw, boolean periodicityCheck)
+         throws Exception {
+      var jp = picture(c, iterations, jw);
+      var expected = fill(new ScalarEscapeTimeKernel(jp, periodicityCheck), jp);
+      var actual = fill(new DoubleDoubleEscapeTimeKernel(jp, periodicityCheck), jp);
+
+      var pixels = (double) jw.getPictureWidth() * jw.getPictureHeight();
+      var differences = countDifferences(expected, actual);
+      assertTrue(differences <= DOUBLE_DOUBLE_TOLERANCE * pixels,
+            differences + " of " + (long) pixels + " pixels counted differently");
+   }
+
+   @ParameterizedTest
+   @MethodSource("pictures")
+   void fillRowMatchesIterationsToDiverge(Complex c, int iterations, JuliaWindow jw, boolean periodicityCheck)
+         throws Exception {
+      var jp = picture(c, iterations, jw);
+      var kernel = new ScalarEscapeTimeKernel(jp, periodicityCheck);
+      var matrix = fill(kernel, jp);
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+      for (var row = 0; row < matrix.getRows(); row++) {
+         for (var column = 0; column < matrix.getColumns(); column++) {
+            assertEquals(kernel.iterationsToDiverge(xValues[column], yValues[matrix.getRows() - row - 1]),
+                  matrix.get(row, column));
+         }
+      }
+   }
+
+   private static JuliaPicture picture(Complex c, int iterations, JuliaWindow jw) throws Exception {
+      return new JuliaPicture(c, iterations, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+   }
+
+   /**
+    * Fills a whole matrix with the kernel, a row at a time, the way
+    * {@link FillMatrix} does
+    */
+   private static EscapeCountMatrix fill(EscapeTimeKernel kernel, JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      var matrix = EscapeCountMatrix.create(jw.getPictureHeight(), jw.getPictureWidth(), jp.getIterations());
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+      for (var row = 0; row < matrix.getRows(); row++) {
+         // row 0 is the top of the picture
+         kernel.fillRow(matrix, row, xValues, 0, matrix.getColumns(), yValues[matrix.getRows() - row - 1]);
+      }
+      return matrix;
+   }
+
+   private static int countDifferences(EscapeCountMatrix expected, EscapeCountMatrix actual) {
+      var differences = 0;
+      for (var row = 0; row < expected.getRows(); row++) {
+         for (var column = 0; column < expected.getColumns(); column++) {
+            if (expected.get(row, column) != actual.get(row, column)) {
+               differences++;
+            }
+         }
+      }
+      return differences;
+   }
+}
@@ -0,0 +1,157 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaException;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Fills a corpus of pictures with {@link MarianiSilverFill} and checks every
+ * pixel against iterating the whole matrix, the way {@link FillMatrix} does.
+ * <br>
+ * <br>
+ * The corpus leans on the pictures where a uniform border says least about the
+ * inside of a rectangle: dendrites and thin filaments, dust of a disconnected
+ * Julia set, and the parabolic cauliflower whose interior is reached only
+ * slowly, each with and without periodicity checking. The last two pictures
+ * each have a pixel that filling every rectangle with a uniform border gets
+ * wrong.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class MarianiSilverFillTest {
+
+   static Stream<Arguments> pictures() throws JuliaException {
+      return Stream.of(
+            Arguments.of(new Complex(-0.8, 0.156), 300, new JuliaWindow(-2.0, 2.0, 321, -1.5, 1.5, 241)),
+            Arguments.of(new Complex(-0.4, 0.6), 500, new JuliaWindow(-1.3, 1.1, 300, -0.9, 0.9, 225)),
+            Arguments.of(new Complex(0.285, 0.01), 1000, new JuliaWindow(-0.2, 0.2, 240, -0.15, 0.15, 180)),
+            Arguments.of(new Complex(-0.8, 0.0), 200, new JuliaWindow(-2.0, 2.0, 301, -1.5, 1.5, 227)),
+            Arguments.of(new Complex(-0.123, 0.745), 400, new JuliaWindow(-0.5, 0.1, 297, 0.2, 0.7, 243)),
+            Arguments.of(new Complex(0.0, 1.0), 300, new JuliaWindow(-1.6, 1.6, 320, -1.2, 1.2, 240)),
+            Arguments.of(new Complex(-0.75, 0.11), 600, new JuliaWindow(-1.7, 1.7, 340, -1.1, 1.1, 220)),
+            Arguments.of(new Complex(-1.755, 0.0), 300, new JuliaWindow(-2.1, 2.1, 350, -0.7, 0.7, 117)),
+            Arguments.of(new Complex(0.3, 0.5), 300, new JuliaWindow(-1.4, 1.4, 280, -1.2, 1.2, 240)),
+            Arguments.of(new Complex(-2.0, 0.0), 200, new JuliaWindow(-2.2, 2.2, 330, -0.3, 0.3, 45)),
+            Arguments.of(new Complex(0.25, 0.0), 500, new JuliaWindow(-1.6, 0.9, 250, -1.1, 1.1, 220)),
+            Arguments.of(new Complex(-0.671, 0.286), 335, new JuliaWindow(-0.842, 0.368, 176, 0.226, 1.594, 199)),
+            Arguments.of(new Complex(-0.768, 0.082), 463, new JuliaWindow(-1.197, -0.587, 232, -0.108, 0.252, 137)));
+   }
+
+   @ParameterizedTest
+   @MethodSource("pictures")
+   void matchesBruteForce(Complex c, int iterations, JuliaWindow jw) throws Exception {
+      var jp = new JuliaPicture(c, iterations, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      for (var periodicityCheck : new boolean[] { false, true }) {
+         var kernel = new ScalarEscapeTimeKernel(jp, periodicityCheck);
+         assertEquals(0, countDifferences(fillBruteForce(kernel, jp), fillMarianiSilver(kernel, jp)),
+               "pixels counted differently with periodicityCheck=" + periodicityCheck);
+      }
+   }
+
+   @Test
+   void skipsUniformRectangles() throws Exception {
+      var jw = new JuliaWindow(-2.0, 2.0, 640, -1.5, 1.5, 480);
+      var jp = new JuliaPicture(new Complex(-0.8, 0.156), 300, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var kernel = new CountingKernel(new ScalarEscapeTimeKernel(jp, true));
+      var matrix = fillMarianiSilver(kernel, jp);
+
+      var pixels = (long) jw.getPictureWidth() * jw.getPictureHeight();
+      assertTrue(kernel.points.get() < 2 * pixels / 3, kernel.points + " of " + pixels + " pixels iterated");
+      assertEquals(0, countDifferences(fillBruteForce(kernel, jp), matrix));
+   }
+
+   @Test
+   void fillsNothingWithoutIntervals() throws Exception {
+      // deep zoom kernels can't be bounded, so every pixel has to be iterated
+      var jw = new JuliaWindow(-2.0, 2.0, 160, -1.5, 1.5, 120);
+      var jp = new JuliaPicture(new Complex(-0.8, 0.156), 300, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var kernel = new CountingKernel(new DoubleDoubleEscapeTimeKernel(jp, true));
+      var matrix = fillMarianiSilver(kernel, jp);
+
+      assertTrue(kernel.points.get() >= (long) jw.getPictureWidth() * jw.getPictureHeight());
+      assertEquals(0, countDifferences(fillBruteForce(kernel, jp), matrix));
+   }
+
+   private static EscapeCountMatrix fillMarianiSilver(EscapeTimeKernel kernel, JuliaPicture jp) throws Exception {
+      var jw = jp.getJuliaWindow();
+      var mtt = new MatrixThreadTracker(jw, kernel, jp.getIterations(), 1, null);
+      var region = new MatrixRegion(0, 0, jw.getPictureHeight(), jw.getPictureWidth());
+      ForkJoinPool.commonPool().invoke(new MarianiSilverFill(kernel, mtt, region, new RenderCancellation()));
+      return mtt.matrix;
+   }
+
+   private static EscapeCountMatrix fillBruteForce(EscapeTimeKernel kernel, JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      var matrix = EscapeCountMatrix.create(jw.getPictureHeight(), jw.getPictureWidth(), jp.getIterations());
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+      for (var row = 0; row < matrix.getRows(); row++) {
+         // row 0 is the top of the picture
+         kernel.fillRow(matrix, row, xValues, 0, matrix.getColumns(), yValues[matrix.getRows() - row - 1]);
+      }
+      return matrix;
+   }
+
+   private static int countDifferences(EscapeCountMatrix expected, EscapeCountMatrix actual) {
+      var differences = 0;
+      for (var row = 0; row < expected.getRows(); row++) {
+         for (var column = 0; column < expected.getColumns(); column++) {
+            if (expected.get(row, column) != actual.get(row, column)) {
+               differences++;
+            }
+         }
+      }
+      return differences;
+   }
+
+   /**
+    * Counts the points a kernel iterates
+    */
+   private static class CountingKernel implements EscapeTimeKernel {
+
+      private final EscapeTimeKernel kernel;
+
+      private final AtomicLong points = new AtomicLong();
+
+      CountingKernel(EscapeTimeKernel kernel) {
+         this.kernel = kernel;
+      }
+
+      @Override
+      public int iterationsToDiverge(double realComponent, double imaginaryComponent) {
+         points.incrementAndGet();
+         return kernel.iterationsToDiverge(realComponent, imaginaryComponent);
+      }
+
+      @Override
+      public double[] getXValues(JuliaWindow jw) {
+         return kernel.getXValues(jw);
+      }
+
+      @Override
+      public double[] getYValues(JuliaWindow jw) {
+         return kernel.getYValues(jw);
+      }
+
+      @Override
+      public IntervalEscapeTime getIntervalEscapeTime() {
+         return kernel.getIntervalEscapeTime();
+      }
+   }
+}
@@ -0,0 +1,139 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Puts matrices of 100 by 100 pixels in a {@link MatrixCache} of
+ * {@value #CAPACITY} bytes and checks that a picture finds its own matrix,
+ * whatever its colors, and that the cache weighs each matrix by its bytes per
+ * element and evicts matrices to stay within its bytes. <br>
+ * <br>
+ * Each test gets a new cache.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@SpringJUnitConfig(classes = { ApplicationProperties.class, MatrixCache.class, SimpleMeterRegistry.class })
+@TestPropertySource(properties = { "matrixCacheBytes=" + MatrixCacheTest.CAPACITY })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MatrixCacheTest {
+
+   static final int CAPACITY = 100_000;
+
+   private static final int SIZE = 100;
+
+   @Autowired
+   private MatrixCache matrixCache;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   @Test
+   void hitForSamePictureInOtherColors() throws Exception {
+      var jp = picture(-0.4, 100, Color.BLACK);
+      var m = EscapeCountMatrix.create(SIZE, SIZE, jp.getIterations());
+      matrixCache.put(jp, m);
+
+      assertTrue(matrixCache.contains(jp));
+      assertSame(m, matrixCache.get(picture(-0.4, 100, Color.BLACK)));
+      assertSame(m, matrixCache.get(picture(-0.4, 100, Color.WHITE)));
+      assertEquals(2, gets("hit"));
+   }
+
+   @Test
+   void missForOtherPicture() throws Exception {
+      matrixCache.put(picture(-0.4, 100, Color.BLACK), EscapeCountMatrix.create(SIZE, SIZE, 100));
+
+      assertNull(matrixCache.get(picture(-0.41, 100, Color.BLACK)));
+      assertNull(matrixCache.get(picture(-0.4, 101, Color.BLACK)));
+      assertFalse(matrixCache.contains(picture(-0.4, 120, Color.BLACK)));
+      assertEquals(2, gets("miss"));
+   }
+
+   @Test
+   void weighsBytesPerElement() throws Exception {
+      // a byte per element, then two
+      matrixCache.put(picture(-0.4, 100, Color.BLACK), EscapeCountMatrix.create(SIZE, SIZE, 100));
+      awaitCachedBytes(SIZE * SIZE);
+      matrixCache.put(picture(-0.4, 1000, Color.BLACK), EscapeCountMatrix.create(SIZE, SIZE, 1000));
+      awaitCachedBytes(3 * SIZE * SIZE);
+   }
+
+   @Test
+   void evictsToStayWithinBytes() throws Exception {
+      var pictures = 30;
+      for (var i = 0; i < pictures; i++) {
+         var jp = picture(-0.4 + i * 0.01, 100, Color.BLACK);
+         matrixCache.put(jp, EscapeCountMatrix.create(SIZE, SIZE, jp.getIterations()));
+      }
+      awaitCachedBytes(CAPACITY);
+
+      var cached = 0;
+      for (var i = 0; i < pictures; i++) {
+         if (matrixCache.contains(picture(-0.4 + i * 0.01, 100, Color.BLACK))) {
+            cached++;
+         }
+      }
+      assertEquals(CAPACITY / (SIZE * SIZE), cached);
+      assertEquals(pictures - cached, meterRegistry.get("cache.evictions").functionCounter().count());
+   }
+
+   @Test
+   void matrixLargerThanCacheIsNotKept() throws Exception {
+      var jp = picture(-0.4, 1000, Color.BLACK);
+      // 200,000 bytes of shorts
+      matrixCache.put(jp, EscapeCountMatrix.create(SIZE, 10 * SIZE, jp.getIterations()));
+      assertNull(matrixCache.get(jp));
+      assertEquals(0, cachedBytes());
+   }
+
+   private double gets(String result) {
+      return meterRegistry.get("cache.gets").tag("result", result).functionCounter().count();
+   }
+
+   private double cachedBytes() {
+      return meterRegistry.get(MatrixCache.BYTES_METRIC).gauge().value();
+   }
+
+   /**
+    * Caffeine evicts on another thread, so the cache may be over its bytes
+    * for a moment
+    */
+   private void awaitCachedBytes(long bytes) throws InterruptedException {
+      var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (cachedBytes() != bytes) {
+         if (System.nanoTime() > deadline) {
+            fail(cachedBytes() + " bytes cached instead of " + bytes);
+         }
+         Thread.sleep(1);
+      }
+   }
+
+   private static JuliaPicture picture(double real, int iterations, Color color) throws Exception {
+      var jw = new JuliaWindow(-1.5, 1.5, SIZE, -1.5, 1.5, SIZE);
+      return new JuliaPicture(new Complex(real, 0.6), iterations, 2, jw, JuliaPicture.getDefaultColors(), color);
+   }
+}
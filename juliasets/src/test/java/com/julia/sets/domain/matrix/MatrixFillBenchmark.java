@@ -0,0 +1,164 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compares filling a matrix the way it was first done, by a single
+ * {@link Runnable} claiming one pixel at a time under a lock on the tracker,
+ * with {@link JuliaSetMatrixCalculator} handing row bands of the matrix to
+ * every thread of the {@link RenderExecutor}. <br>
+ * <br>
+ * Three fills of the same picture are timed:
+ * <ul>
+ * <li>single runnable: the first version, iterating each pixel through
+ * {@link JuliaPicture#iterationsToDiverge(Complex)} with boxed coordinates</li>
+ * <li>single runnable, kernel: the same locking and single thread, iterating
+ * with {@link ScalarEscapeTimeKernel}, so the difference to the last row is
+ * only how the work is handed out</li>
+ * <li>row bands: {@link JuliaSetMatrixCalculator#fillMatrix(JuliaPicture)},
+ * without the matrix cache</li>
+ * </ul>
+ * The picture has no symmetry, so every fill iterates every pixel. <br>
+ * <br>
+ * The class name doesn't end in Test, so it isn't part of the build. Run it
+ * with
+ *
+ * <pre>
+ * mvn test -Dtest=MatrixFillBenchmark
+ * </pre>
+ *
+ * and it prints a table like this one, from a single core machine, where the
+ * row bands can only gain what the lock cost
+ *
+ * <pre>
+ * single runnable            146.2 ms
+ * single runnable, kernel    100.2 ms
+ * row bands                   90.1 ms
+ * </pre>
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@SpringJUnitConfig(classes = { ApplicationProperties.class, EscapeTimeKernelFactory.class, RenderExecutor.class,
+      MatrixCache.class, JuliaSetMatrixCalculator.class, SimpleMeterRegistry.class })
+@TestPropertySource(properties = { "matrixCacheBytes=0", "renderMode=BRUTE_FORCE", "vectorKernel=false" })
+class MatrixFillBenchmark {
+
+   private static final int WARMUPS = 3;
+
+   private static final int RUNS = 10;
+
+   @Autowired
+   private JuliaSetMatrixCalculator calculator;
+
+   @Test
+   void singleRunnableAgainstRowBands() throws Exception {
+      var jw = new JuliaWindow(-1.1, 1.5, 800, -0.6, 1.0, 600);
+      var jp = new JuliaPicture(new Complex(-0.4, 0.6), 300, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var kernel = new ScalarEscapeTimeKernel(jp, false);
+
+      var expected = calculator.fillMatrix(jp);
+      assertEquals(0, countDifferences(expected, fillSingleRunnable(jp, null)));
+
+      for (var i = 0; i < WARMUPS; i++) {
+         fillSingleRunnable(jp, null);
+      }
+      var start = System.nanoTime();
+      for (var i = 0; i < RUNS; i++) {
+         fillSingleRunnable(jp, null);
+      }
+      System.out.printf("%-25s %6.1f ms%n", "single runnable", millis(start));
+
+      for (var i = 0; i < WARMUPS; i++) {
+         fillSingleRunnable(jp, kernel);
+      }
+      start = System.nanoTime();
+      for (var i = 0; i < RUNS; i++) {
+         fillSingleRunnable(jp, kernel);
+      }
+      System.out.printf("%-25s %6.1f ms%n", "single runnable, kernel", millis(start));
+
+      for (var i = 0; i < WARMUPS; i++) {
+         calculator.fillMatrix(jp);
+      }
+      start = System.nanoTime();
+      for (var i = 0; i < RUNS; i++) {
+         calculator.fillMatrix(jp);
+      }
+      System.out.printf("%-25s %6.1f ms%n", "row bands", millis(start));
+   }
+
+   /**
+    * Fills the matrix on one runnable of a pool, which takes a lock to claim
+    * each pixel, through the picture itself if there is no kernel
+    */
+   private static EscapeCountMatrix fillSingleRunnable(JuliaPicture jp, EscapeTimeKernel kernel)
+         throws InterruptedException {
+      var jw = jp.getJuliaWindow();
+      var rows = jw.getPictureHeight();
+      var columns = jw.getPictureWidth();
+      var matrix = EscapeCountMatrix.create(rows, columns, jp.getIterations());
+      var xValues = PixelGrid.values(jw.getMinXValue(), jw.getMaxXValue(), columns);
+      var yValues = PixelGrid.values(jw.getMinYValue(), jw.getMaxYValue(), rows);
+      var tracker = new int[] { -1 };
+
+      var executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      executorService.execute(() -> {
+         while (true) {
+            int location;
+            synchronized (tracker) {
+               location = ++tracker[0];
+            }
+            if (location >= rows * columns) {
+               return;
+            }
+            var column = location % columns;
+            var row = location / columns;
+            Double realComponent = xValues[column];
+            Double imaginaryComponent = yValues[rows - row - 1];
+            matrix.set(row, column, (kernel == null)
+                  ? jp.iterationsToDiverge(new Complex(realComponent, imaginaryComponent))
+                  : kernel.iterationsToDiverge(realComponent, imaginaryComponent));
+         }
+      });
+      executorService.shutdown();
+      executorService.awaitTermination(1, TimeUnit.MINUTES);
+      return matrix;
+   }
+
+   private static int countDifferences(EscapeCountMatrix expected, EscapeCountMatrix actual) {
+      var differences = 0;
+      for (var row = 0; row < expected.getRows(); row++) {
+         for (var column = 0; column < expected.getColumns(); column++) {
+            if (expected.get(row, column) != actual.get(row, column)) {
+               differences++;
+            }
+         }
+      }
+      return differences;
+   }
+
+   /**
+    * Average milliseconds of the runs since start
+    */
+   private static double millis(long start) {
+      return (System.nanoTime() - start) / 1e6 / RUNS;
+   }
+}
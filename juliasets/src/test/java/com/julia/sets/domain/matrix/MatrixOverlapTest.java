@@ -0,0 +1,125 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Draws pictures panned and zoomed from one in the {@link MatrixCache}, so
+ * {@link JuliaSetMatrixCalculator} copies part of them through a
+ * {@link MatrixOverlap}, and checks that they come out the same as a fresh
+ * render that iterates every pixel. <br>
+ * <br>
+ * The pixel sizes and window edges are decimals that aren't exact doubles, the
+ * way a page asks for them, so a copied pixel only has the count of a fresh
+ * render because the {@link PixelGrid} gives it exactly the same coordinates
+ * in both windows.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@SpringJUnitConfig(classes = { ApplicationProperties.class, EscapeTimeKernelFactory.class, RenderExecutor.class,
+      MatrixCache.class, JuliaSetMatrixCalculator.class, SimpleMeterRegistry.class })
+class MatrixOverlapTest {
+
+   private static final int WIDTH = 300;
+
+   private static final int HEIGHT = 225;
+
+   @Autowired
+   private JuliaSetMatrixCalculator calculator;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   @Test
+   void panMatchesFreshRender() throws Exception {
+      var c = new Complex(-0.4, 0.6);
+      // pixels are 0.01 wide, so the window moves 30 pixels right and 20 down
+      assertCopiedRenderMatches(picture(c, -1.5, 1.5, -1.125, 1.125), picture(c, -1.2, 1.8, -1.325, 0.925), true);
+   }
+
+   @Test
+   void symmetricPanMatchesFreshRender() throws Exception {
+      // c is real, so both pictures are mirrored as well
+      var c = new Complex(-0.8, 0.0);
+      assertCopiedRenderMatches(picture(c, -1.65, 1.65, -1.2375, 1.2375), picture(c, -1.815, 1.485, -1.2375, 1.2375),
+            true);
+   }
+
+   @Test
+   void zoomOutMatchesFreshRender() throws Exception {
+      var c = new Complex(0.285, 0.01);
+      assertCopiedRenderMatches(picture(c, -0.9, 0.6, -0.6, 0.525), picture(c, -1.5, 1.5, -1.2, 1.05), true);
+   }
+
+   @Test
+   void zoomInMatchesFreshRender() throws Exception {
+      var c = new Complex(-0.123, 0.745);
+      assertCopiedRenderMatches(picture(c, -1.5, 1.5, -1.125, 1.125), picture(c, -0.4, 1.1, -0.7, 0.425), true);
+   }
+
+   @Test
+   void nearlyAlignedPanMatchesFreshRender() throws Exception {
+      // half a millionth of a pixel off, close enough to look aligned
+      var c = new Complex(-0.70176, -0.3842);
+      assertCopiedRenderMatches(picture(c, -1.5, 1.5, -1.125, 1.125),
+            picture(c, -1.2 + 5e-9, 1.8 + 5e-9, -1.325, 0.925), false);
+   }
+
+   private void assertCopiedRenderMatches(JuliaPicture parent, JuliaPicture picture, boolean mustCopy)
+         throws Exception {
+      calculator.fillMatrix(parent);
+      var reused = reusedPixels();
+      var copied = calculator.fillMatrix(picture);
+      if (mustCopy) {
+         assertTrue(reusedPixels() > reused, "no pixels were copied from the parent");
+      }
+
+      var fresh = fill(picture);
+      for (var row = 0; row < HEIGHT; row++) {
+         for (var column = 0; column < WIDTH; column++) {
+            assertEquals(fresh.get(row, column), copied.get(row, column), "pixel (" + column + ", " + row + ")");
+         }
+      }
+   }
+
+   private double reusedPixels() {
+      return meterRegistry.counter(JuliaSetMatrixCalculator.REUSED_PIXELS_METRIC).count();
+   }
+
+   private static JuliaPicture picture(Complex c, double minX, double maxX, double minY, double maxY)
+         throws Exception {
+      return new JuliaPicture(c, 300, 2, new JuliaWindow(minX, maxX, WIDTH, minY, maxY, HEIGHT),
+            JuliaPicture.getDefaultColors(), Color.BLACK);
+   }
+
+   /**
+    * Iterates every pixel of the picture, without the calculator
+    */
+   private static EscapeCountMatrix fill(JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      var kernel = new ScalarEscapeTimeKernel(jp, true);
+      var matrix = EscapeCountMatrix.create(HEIGHT, WIDTH, jp.getIterations());
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+      for (var row = 0; row < HEIGHT; row++) {
+         kernel.fillRow(matrix, row, xValues, 0, WIDTH, yValues[HEIGHT - row - 1]);
+      }
+      return matrix;
+   }
+}
@@ -0,0 +1,106 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaException;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Compares {@link ScalarEscapeTimeKernel} with and without the periodicity
+ * check, pixel by pixel. <br>
+ * <br>
+ * Stopping at a cycle can only turn an escape count into
+ * {@link EscapeCountMatrix#INTERIOR}, and only for an orbit that comes back
+ * within {@link ScalarEscapeTimeKernel#PERIODICITY_TOLERANCE} of a pixel of
+ * itself before it escapes. That happens near a parabolic point like c = 0.25,
+ * where the orbits crawl past the fixed point, and almost nowhere else.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class PeriodicityCheckTest {
+
+   /**
+    * The share of pixels the check may call interior that escape without it
+    */
+   private static final double EARLY_INTERIOR_TOLERANCE = 1e-3;
+
+   static Stream<Arguments> pictures() throws JuliaException {
+      return Stream.of(
+            // mostly escaping
+            Arguments.of(new Complex(-0.8, 0.156), 300, new JuliaWindow(-2.0, 2.0, 320, -1.5, 1.5, 240)),
+            // attracting cycles of period 3 and 2
+            Arguments.of(new Complex(-0.123, 0.745), 400, new JuliaWindow(-0.5, 0.1, 300, 0.2, 0.7, 250)),
+            Arguments.of(new Complex(-1.0, 0.0), 2000, new JuliaWindow(-1.8, 1.8, 320, -1.0, 1.0, 240)),
+            // parabolic
+            Arguments.of(new Complex(0.25, 0.0), 2000, new JuliaWindow(-1.5, 1.5, 320, -1.0, 1.0, 240)));
+   }
+
+   @ParameterizedTest
+   @MethodSource("pictures")
+   void onlyCutsOffOrbitsThatReturn(Complex c, int iterations, JuliaWindow jw) throws Exception {
+      var jp = new JuliaPicture(c, iterations, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var plain = new ScalarEscapeTimeKernel(jp, false);
+      var checked = new ScalarEscapeTimeKernel(jp, true);
+      var xValues = plain.getXValues(jw);
+      var yValues = plain.getYValues(jw);
+
+      var earlyInterior = 0;
+      for (var y : yValues) {
+         for (var x : xValues) {
+            var expected = plain.iterationsToDiverge(x, y);
+            var actual = checked.iterationsToDiverge(x, y);
+            if (expected == EscapeCountMatrix.INTERIOR) {
+               assertEquals(EscapeCountMatrix.INTERIOR, actual, "interior point (" + x + ", " + y + ") escaped");
+            } else if (actual == EscapeCountMatrix.INTERIOR) {
+               earlyInterior++;
+            } else {
+               assertEquals(expected, actual, "escape count of (" + x + ", " + y + ")");
+            }
+         }
+      }
+      var pixels = (double) xValues.length * yValues.length;
+      assertTrue(earlyInterior <= EARLY_INTERIOR_TOLERANCE * pixels,
+            earlyInterior + " of " + (long) pixels + " pixels cut off before they escaped");
+   }
+
+   @Test
+   void toleranceFollowsPixelSize() throws Exception {
+      var wide = new JuliaWindow(-1.5, 1.5, 300, -1.0, 1.0, 200);
+      var narrow = new JuliaWindow(-0.15, 0.15, 300, -0.1, 0.1, 200);
+      var c = new Complex(0.25, 0.0);
+      var colors = JuliaPicture.getDefaultColors();
+      var wideTolerance = ScalarEscapeTimeKernel
+            .periodicityToleranceSquared(new JuliaPicture(c, 2000, 2, wide, colors, Color.BLACK));
+      var narrowTolerance = ScalarEscapeTimeKernel
+            .periodicityToleranceSquared(new JuliaPicture(c, 2000, 2, narrow, colors, Color.BLACK));
+
+      var pixel = 0.01 * ScalarEscapeTimeKernel.PERIODICITY_TOLERANCE;
+      assertEquals(pixel * pixel, wideTolerance, 1e-12 * wideTolerance);
+      assertEquals(100, wideTolerance / narrowTolerance, 1e-9);
+   }
+
+   @Test
+   void attractingCycleIsInterior() throws Exception {
+      // 0 and -1 swap places forever when c = -1
+      var jw = new JuliaWindow(-1.8, 1.8, 320, -1.0, 1.0, 240);
+      var jp = new JuliaPicture(new Complex(-1.0, 0.0), 5000, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var checked = new ScalarEscapeTimeKernel(jp, true);
+      assertEquals(EscapeCountMatrix.INTERIOR, checked.iterationsToDiverge(0.0, 0.0));
+      assertEquals(EscapeCountMatrix.INTERIOR, checked.iterationsToDiverge(0.1, 0.05));
+      assertEquals(new ScalarEscapeTimeKernel(jp, false).iterationsToDiverge(1.7, 0.2),
+            checked.iterationsToDiverge(1.7, 0.2));
+   }
+}
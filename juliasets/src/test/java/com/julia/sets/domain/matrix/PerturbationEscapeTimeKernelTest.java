@@ -0,0 +1,94 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashSet;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Zooms far past double precision into the Julia set of c = -0.8 and checks
+ * every pixel {@link PerturbationEscapeTimeKernel} counts against iterating
+ * that pixel on its own in {@link BigDecimal}. <br>
+ * <br>
+ * The windows are centred just off the repelling fixed point (1 + sqrt(1 -
+ * 4c)) / 2, which lies on the Julia set, so neighboring pixels escape after
+ * different numbers of iterations however deep the zoom. The reference orbit
+ * passes the fixed point and escapes, so the pixels that outlast it are
+ * rebased onto the critical orbit.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class PerturbationEscapeTimeKernelTest {
+
+   private static final Complex JULIA_NUM = new Complex(-0.8, 0.0);
+
+   private static final int ITERATIONS = 300;
+
+   private static final int WIDTH = 32;
+
+   private static final int HEIGHT = 24;
+
+   /**
+    * Digits the orbits are checked with beyond the pixel size
+    */
+   private static final int GUARD_DIGITS = 40;
+
+   @ParameterizedTest
+   @ValueSource(doubles = { 1e-20, 1e-40, 1e-60 })
+   void deepZoomMatchesPreciseOrbits(double pixelSize) throws Exception {
+      var mc = new MathContext((int) -Math.log10(pixelSize) + GUARD_DIGITS);
+      // for c as the double it is, not -0.8, or the zoom misses the Julia set
+      var discriminant = BigDecimal.ONE
+            .subtract(new BigDecimal(JULIA_NUM.getRealComponent()).multiply(BigDecimal.valueOf(4)));
+      var fixedPoint = BigDecimal.ONE.add(discriminant.sqrt(mc)).divide(BigDecimal.valueOf(2), mc);
+      // thirty pixels above the real axis
+      var jw = JuliaWindow.deepZoom(fixedPoint, BigDecimal.valueOf(30 * pixelSize), pixelSize, WIDTH, HEIGHT);
+      var jp = new JuliaPicture(JULIA_NUM, ITERATIONS, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var kernel = new PerturbationEscapeTimeKernel(jp);
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+
+      var counts = new HashSet<Integer>();
+      for (var y : yValues) {
+         for (var x : xValues) {
+            var expected = preciseCount(kernel.getReferenceReal().add(new BigDecimal(x)),
+                  kernel.getReferenceImaginary().add(new BigDecimal(y)), jp, mc);
+            assertEquals(expected, kernel.iterationsToDiverge(x, y), "pixel at offset (" + x + ", " + y + ")");
+            counts.add(expected);
+         }
+      }
+      assertTrue(counts.size() > 2, "only " + counts + " escape counts in the window");
+      var referenceLength = kernel.getReference().getLength();
+      assertTrue(counts.stream().anyMatch(count -> count > referenceLength),
+            "no pixel outlasts the reference orbit's " + referenceLength + " elements");
+   }
+
+   /**
+    * The escape count of a point, iterated entirely in {@link BigDecimal}: the
+    * orbit's last element is the first outside the maxModulus, unless the
+    * iterations ran out first
+    */
+   private static int preciseCount(BigDecimal real, BigDecimal imaginary, JuliaPicture jp, MathContext mc) {
+      var orbit = new ReferenceOrbit(real, imaginary, jp.getJuliaNum(), jp.getIterations(), jp.getMaxModulus(), mc);
+      var last = orbit.getLength() - 1;
+      var modulusSquared = orbit.getReal(last) * orbit.getReal(last)
+            + orbit.getImaginary(last) * orbit.getImaginary(last);
+      if (orbit.getLength() > jp.getIterations()
+            || !(modulusSquared > ScalarEscapeTimeKernel.bailoutSquared(jp.getMaxModulus()))) {
+         return EscapeCountMatrix.INTERIOR;
+      }
+      return orbit.getLength();
+   }
+}
@@ -0,0 +1,130 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.julia.sets.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Takes estimates in and out of the {@link RenderAdmission} budget and checks
+ * that the cost in flight, and its gauge, always add up to the pictures let in
+ * and not yet released. Every test releases what it acquired, so the next one
+ * starts from an idle server.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@SpringJUnitConfig(classes = { ApplicationProperties.class, RenderAdmission.class, SimpleMeterRegistry.class })
+@TestPropertySource(properties = { "maxRenderCost=300", "renderCostBudget=250" })
+class RenderAdmissionTest {
+
+   private static final long BUDGET = 250;
+
+   @Autowired
+   private RenderAdmission admission;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   @AfterEach
+   void idle() {
+      assertEquals(0, admission.getInFlightCost());
+   }
+
+   @Test
+   void tooExpensiveIsRejectedWithoutTakingBudget() {
+      assertThrows(RenderTooExpensiveException.class, () -> admission.acquire(estimate(301)));
+      assertThrows(RenderTooExpensiveException.class, () -> admission.checkCost(estimate(301)));
+      assertEquals(0, admission.getInFlightCost());
+   }
+
+   @Test
+   void budgetAddsUpUntilReleased() throws Exception {
+      var first = estimate(100);
+      var second = estimate(120);
+      admission.acquire(first);
+      admission.acquire(second);
+      assertInFlight(220);
+
+      assertThrows(RenderOverBudgetException.class, () -> admission.acquire(estimate(31)));
+      assertInFlight(220);
+      admission.acquire(estimate(30));
+      assertInFlight(250);
+
+      admission.release(first);
+      admission.release(second);
+      admission.release(estimate(30));
+      assertInFlight(0);
+   }
+
+   @Test
+   void idleServerLetsInPictureOverBudget() throws Exception {
+      var large = estimate(280);
+      admission.acquire(large);
+      assertInFlight(280);
+      assertThrows(RenderOverBudgetException.class, () -> admission.acquire(estimate(1)));
+      admission.release(large);
+      assertInFlight(0);
+   }
+
+   @Test
+   void concurrentRendersNeverOverspend() throws Exception {
+      var cost = 40;
+      var highest = new AtomicLong();
+      var executor = Executors.newFixedThreadPool(8);
+      var renders = new ArrayList<Callable<Integer>>();
+      for (var thread = 0; thread < 8; thread++) {
+         renders.add(() -> {
+            var admitted = 0;
+            for (var i = 0; i < 10_000; i++) {
+               try {
+                  admission.acquire(estimate(cost));
+               } catch (RenderOverBudgetException e) {
+                  continue;
+               }
+               highest.accumulateAndGet(admission.getInFlightCost(), Math::max);
+               admission.release(estimate(cost));
+               admitted++;
+            }
+            return admitted;
+         });
+      }
+      var admitted = 0;
+      for (var render : executor.invokeAll(renders)) {
+         admitted += render.get();
+      }
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+      assertTrue(admitted > 0);
+      assertTrue(highest.get() <= BUDGET, highest + " in flight");
+      assertInFlight(0);
+   }
+
+   private void assertInFlight(long cost) {
+      assertEquals(cost, admission.getInFlightCost());
+      assertEquals(cost, meterRegistry.get(RenderAdmission.IN_FLIGHT_METRIC).gauge().value());
+   }
+
+   private static RenderEstimate estimate(long cost) {
+      return new RenderEstimate(100, 1, 0, 1, cost, cost, "ScalarEscapeTimeKernel", RenderMode.BRUTE_FORCE, false,
+            false);
+   }
+}
@@ -0,0 +1,137 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.domain.services.ImageFileServiceException;
+
+/**
+ * Fills the {@link RenderExecutor}'s queue and checks that a render turned
+ * away with {@link RenderRejectedException#QUEUE_FULL} takes none of its
+ * slots, and that every slot comes back once its task is done, whether the
+ * task finished, threw or was cancelled. <br>
+ * <br>
+ * Each test ends by running a render that needs every slot, which is turned
+ * away if any were lost.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@SpringJUnitConfig(classes = { ApplicationProperties.class, RenderExecutor.class })
+@TestPropertySource(properties = { "renderQueueCapacity=" + RenderExecutorTest.CAPACITY })
+class RenderExecutorTest {
+
+   static final int CAPACITY = 4;
+
+   private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+   @Autowired
+   private RenderExecutor renderExecutor;
+
+   @Test
+   void rejectedRenderTakesNoSlots() throws Exception {
+      var release = new CountDownLatch(1);
+      var blocked = new ArrayList<ForkJoinTask<?>>();
+      for (var i = 0; i < CAPACITY - 1; i++) {
+         blocked.add(renderExecutor.submit(ForkJoinTask.adapt(() -> await(release))));
+      }
+
+      var rejected = assertThrows(RenderRejectedException.class,
+            () -> renderExecutor.invokeAll(tasks(2, new AtomicInteger()), deadline(), new RenderCancellation()));
+      assertEquals(RenderRejectedException.QUEUE_FULL, rejected.getMessage());
+      // the rejected render didn't keep the one slot that was free
+      var last = renderExecutor.submit(ForkJoinTask.adapt(() -> await(release)));
+      assertThrows(RenderRejectedException.class, () -> renderExecutor.submit(tasks(1, new AtomicInteger()).get(0)));
+
+      release.countDown();
+      blocked.add(last);
+      renderExecutor.awaitAll(blocked, deadline(), new RenderCancellation());
+      assertEverySlotFree();
+   }
+
+   @Test
+   void failingTasksGiveSlotsBack() throws Exception {
+      List<ForkJoinTask<?>> failing = new ArrayList<>();
+      for (var i = 0; i < CAPACITY; i++) {
+         failing.add(ForkJoinTask.adapt(() -> {
+            throw new IllegalStateException("failed on purpose");
+         }));
+      }
+      var cancellation = new RenderCancellation();
+      assertThrows(ImageFileServiceException.class, () -> renderExecutor.invokeAll(failing, deadline(), cancellation));
+      assertEquals(RenderCancellation.Reason.FAILED, cancellation.getReason());
+      assertEverySlotFree();
+   }
+
+   @Test
+   void timedOutTasksGiveSlotsBack() throws Exception {
+      List<ForkJoinTask<?>> spinning = new ArrayList<>();
+      var cancellation = new RenderCancellation();
+      for (var i = 0; i < CAPACITY; i++) {
+         spinning.add(ForkJoinTask.adapt(() -> {
+            while (!cancellation.isCancelled()) {
+               Thread.onSpinWait();
+            }
+         }));
+      }
+      assertThrows(ImageThreadTimeoutException.class,
+            () -> renderExecutor.invokeAll(spinning, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50),
+                  cancellation));
+      assertEquals(RenderCancellation.Reason.TIMEOUT, cancellation.getReason());
+      assertEverySlotFree();
+   }
+
+   /**
+    * Runs a render with a task per slot. Tasks that were cancelled may still be
+    * winding down, so it is tried until the deadline.
+    */
+   private void assertEverySlotFree() throws Exception {
+      var deadline = deadline();
+      var ran = new AtomicInteger();
+      while (true) {
+         try {
+            renderExecutor.invokeAll(tasks(CAPACITY, ran), deadline, new RenderCancellation());
+            break;
+         } catch (RenderRejectedException e) {
+            assertTrue(System.nanoTime() < deadline, "slots were not given back: " + renderExecutor);
+            Thread.sleep(10);
+         }
+      }
+      assertEquals(CAPACITY, ran.get());
+   }
+
+   private static List<ForkJoinTask<?>> tasks(int count, AtomicInteger ran) {
+      List<ForkJoinTask<?>> tasks = new ArrayList<>();
+      for (var i = 0; i < count; i++) {
+         tasks.add(ForkJoinTask.adapt(ran::incrementAndGet));
+      }
+      return tasks;
+   }
+
+   private static void await(CountDownLatch latch) {
+      try {
+         latch.await();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private static long deadline() {
+      return System.nanoTime() + TIMEOUT;
+   }
+}
@@ -0,0 +1,89 @@
+package com.julia.sets.domain.matrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaException;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Iterates only the regions a {@link SymmetryPlan} asks for, mirrors the rest
+ * and checks every pixel against iterating the whole matrix. <br>
+ * <br>
+ * None of the windows' pixel sizes or edges are exact doubles, so the
+ * coordinates on either side of an axis only come out as each other's
+ * negatives if the {@link PixelGrid} makes them so.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class SymmetryPlanTest {
+
+   static Stream<Arguments> pictures() throws JuliaException {
+      return Stream.of(
+            // centred, with c real and not
+            Arguments.of(new Complex(-0.8, 0.0), new JuliaWindow(-1.7, 1.7, 333, -1.1, 1.1, 217)),
+            Arguments.of(new Complex(-0.4, 0.6), new JuliaWindow(-1.3, 1.3, 300, -0.9, 0.9, 210)),
+            // the axes off centre, on a pixel edge
+            Arguments.of(new Complex(-1.1, 0.0), new JuliaWindow(-1.3, 2.1, 340, -0.7, 1.3, 200)),
+            Arguments.of(new Complex(0.285, 0.01), new JuliaWindow(-0.9, 0.3, 360, -0.45, 0.15, 180)),
+            // the axes through the middle of a pixel
+            Arguments.of(new Complex(-0.75, 0.0), new JuliaWindow(-1.65, 1.65, 330, -0.95, 0.95, 190)));
+   }
+
+   @ParameterizedTest
+   @MethodSource("pictures")
+   void mirroredMatchesFreshRender(Complex c, JuliaWindow jw) throws Exception {
+      var jp = new JuliaPicture(c, 300, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      var kernel = new ScalarEscapeTimeKernel(jp, true);
+      var plan = new SymmetryPlan(jp, kernel);
+      assertTrue(plan.getComputedFraction() < 1, "symmetry not used: " + plan);
+
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+      var rows = jw.getPictureHeight();
+      var mirrored = EscapeCountMatrix.create(rows, jw.getPictureWidth(), jp.getIterations());
+      for (var region : plan.getRegionsToCompute()) {
+         for (var row = region.top; row < region.bottom; row++) {
+            kernel.fillRow(mirrored, row, xValues, region.left, region.right, yValues[rows - row - 1]);
+         }
+      }
+      plan.mirror(mirrored);
+
+      var fresh = EscapeCountMatrix.create(rows, jw.getPictureWidth(), jp.getIterations());
+      for (var row = 0; row < rows; row++) {
+         kernel.fillRow(fresh, row, xValues, 0, jw.getPictureWidth(), yValues[rows - row - 1]);
+      }
+      for (var row = 0; row < rows; row++) {
+         for (var column = 0; column < jw.getPictureWidth(); column++) {
+            assertEquals(fresh.get(row, column), mirrored.get(row, column), "pixel (" + column + ", " + row + ")");
+         }
+      }
+   }
+
+   @Test
+   void offsetKernelIsNotMirrored() throws Exception {
+      var jw = new JuliaWindow(-1.7, 1.7, 333, -1.1, 1.1, 217);
+      var jp = new JuliaPicture(new Complex(-0.8, 0.0), 300, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      assertEquals(1.0, new SymmetryPlan(jp, new DoubleDoubleEscapeTimeKernel(jp, true)).getComputedFraction());
+   }
+
+   @Test
+   void misalignedWindowIsNotMirrored() throws Exception {
+      // the imaginary axis is a third of a pixel from a pixel edge
+      var jw = new JuliaWindow(-1.3, 2.1, 341, -1.0, 1.0, 200);
+      var jp = new JuliaPicture(new Complex(-0.4, 0.6), 300, 2, jw, JuliaPicture.getDefaultColors(), Color.BLACK);
+      assertEquals(1.0, new SymmetryPlan(jp, new ScalarEscapeTimeKernel(jp, true)).getComputedFraction());
+   }
+}
@@ -0,0 +1,156 @@
+package com.julia.sets.domain.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.julia.sets.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Fills an {@link ImageCache} of {@value #CAPACITY} bytes and checks that its
+ * images are weighed by their encoded length, that it never holds more than
+ * its bytes, and that a file name is only found while its image is cached. The
+ * {@link OffHeap} tests store the same images in direct buffers. <br>
+ * <br>
+ * Each test gets a new cache.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@SpringJUnitConfig(classes = { ApplicationProperties.class, ImageCache.class, SimpleMeterRegistry.class })
+@TestPropertySource(properties = { "imageCacheBytes=" + ImageCacheTest.CAPACITY, "imageCacheOffHeap=false" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ImageCacheTest {
+
+   static final int CAPACITY = 1000;
+
+   @Autowired
+   ImageCache imageCache;
+
+   @Autowired
+   MeterRegistry meterRegistry;
+
+   @Test
+   void weighsEncodedLength() {
+      imageCache.put("a", "a.png", encoded(300));
+      assertEquals(300, cachedBytes());
+      imageCache.put("b", "b.png", encoded(200));
+      assertEquals(500, cachedBytes());
+      assertEquals(300, imageCache.getByFileName("a.png").getLength());
+      assertEquals(200, imageCache.getByFingerprint("b").getLength());
+   }
+
+   @Test
+   void staysWithinBytes() {
+      for (var i = 0; i < 10; i++) {
+         imageCache.put("f" + i, i + ".png", encoded(300));
+         assertTrue(cachedBytes() <= CAPACITY, cachedBytes() + " bytes cached");
+      }
+      var cached = 0;
+      for (var i = 0; i < 10; i++) {
+         var image = imageCache.getByFingerprint("f" + i);
+         // the file name goes with the image
+         assertSame(image, imageCache.getByFileName(i + ".png"));
+         if (image != null) {
+            cached++;
+         }
+      }
+      assertTrue(cached > 0 && cached <= CAPACITY / 300, cached + " images cached");
+   }
+
+   @Test
+   void imageLargerThanCacheIsNotKept() throws IOException {
+      imageCache.put("large", "large.png", encoded(CAPACITY + 1));
+      assertNull(imageCache.getByFileName("large.png"));
+
+      var tile = imageCache.put("tile", encoded(CAPACITY + 1));
+      assertArrayEquals(encoded(CAPACITY + 1), tile.getInputStream().readAllBytes());
+      assertNull(imageCache.getByFingerprint("tile"));
+      assertEquals(0, cachedBytes());
+   }
+
+   @Test
+   void fileNameIsForgottenWhenTileReplacesImage() {
+      imageCache.put("same", "picture.png", encoded(100));
+      var tile = imageCache.put("same", encoded(100));
+      assertSame(tile, imageCache.getByFingerprint("same"));
+      assertNull(imageCache.getByFileName("picture.png"));
+   }
+
+   @Test
+   void storesOnHeap() throws IOException {
+      var image = imageCache.put("tile", encoded(300));
+      assertFalse(image.getData().isDirect());
+      assertArrayEquals(encoded(300), image.getInputStream().readAllBytes());
+   }
+
+   /**
+    * The same cache with its images outside the heap
+    */
+   @Nested
+   @TestPropertySource(properties = "imageCacheOffHeap=true")
+   class OffHeap {
+
+      @Autowired
+      ImageCache offHeapCache;
+
+      @Autowired
+      MeterRegistry offHeapRegistry;
+
+      @Test
+      void storesInDirectBuffers() throws IOException {
+         offHeapCache.put("a", "a.png", encoded(300));
+         var image = offHeapCache.getByFileName("a.png");
+         assertNotNull(image);
+         assertTrue(image.getData().isDirect());
+         assertEquals(300, cachedBytes(offHeapRegistry));
+         assertArrayEquals(encoded(300), image.getInputStream().readAllBytes());
+         // reading doesn't use the image up
+         assertArrayEquals(encoded(300), image.getInputStream().readAllBytes());
+      }
+
+      @Test
+      void staysWithinBytes() {
+         for (var i = 0; i < 10; i++) {
+            offHeapCache.put("f" + i, encoded(300));
+            assertTrue(cachedBytes(offHeapRegistry) <= CAPACITY, cachedBytes(offHeapRegistry) + " bytes cached");
+         }
+      }
+   }
+
+   private double cachedBytes() {
+      return cachedBytes(meterRegistry);
+   }
+
+   private static double cachedBytes(MeterRegistry registry) {
+      return registry.get(ImageCache.BYTES_METRIC).gauge().value();
+   }
+
+   /**
+    * Stands in for an encoded image of the length
+    */
+   private static byte[] encoded(int length) {
+      var bytes = new byte[length];
+      Arrays.fill(bytes, (byte) length);
+      bytes[0] = 1;
+      return bytes;
+   }
+}
@@ -0,0 +1,189 @@
+package com.julia.sets.domain.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.julia.sets.domain.matrix.EscapeCountMatrix;
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Colors matrices with chosen escape counts and checks when an
+ * {@link ImageColorizer} writes palette indexes and when RGB or RGBA: by the
+ * whole color table when it has at most
+ * {@value ImageColorizer#MAX_PALETTE_SIZE} colors, and otherwise by the colors
+ * the matrix actually uses. Whichever it picks, every pixel has to come out as
+ * the color table's color of its escape count.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class ImageColorizerTest {
+
+   private static final int WIDTH = 61;
+
+   private static final int HEIGHT = 47;
+
+   private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+
+   @Test
+   void smallTableIsIndexedBeforeFill() throws Exception {
+      var jp = picture(200, Color.BLACK);
+      assertTrue(distinctColors(jp.getColorTable()) <= ImageColorizer.MAX_PALETTE_SIZE);
+
+      var beforeFill = ImageColorizer.createBeforeFill(jp, matrix(jp, 0));
+      assertTrue(beforeFill.isIndexed());
+      assertEquals(1, beforeFill.getBytesPerPixel());
+      assertEquals(distinctColors(jp.getColorTable()), beforeFill.getPalette().length);
+
+      // filled with a single count, the image still gets the table's palette
+      var filled = ImageColorizer.create(jp, matrix(jp, 7), 1);
+      assertTrue(filled.hasSameFormat(beforeFill));
+      assertColorsMatchTable(jp, matrix(jp, 7), filled, 1);
+   }
+
+   @Test
+   void largeTableUsingFewColorsIsIndexed() throws Exception {
+      var jp = picture(1000, Color.BLACK);
+      var colors = jp.getColorTable();
+      assertTrue(distinctColors(colors) > ImageColorizer.MAX_PALETTE_SIZE);
+
+      // counts 0 to 99 only
+      var m = matrix(jp, 100);
+      var image = ImageColorizer.create(jp, m, 1);
+      assertTrue(image.isIndexed());
+      assertEquals(1, image.getBytesPerPixel());
+      assertEquals(distinctColors(Arrays.copyOf(colors, 100)), image.getPalette().length);
+      assertColorsMatchTable(jp, m, image, 1);
+
+      // before the fill the used colors aren't known
+      var beforeFill = ImageColorizer.createBeforeFill(jp, m);
+      assertFalse(beforeFill.isIndexed());
+      assertFalse(image.hasSameFormat(beforeFill));
+   }
+
+   @Test
+   void manyUsedColorsAreRgb() throws Exception {
+      var jp = picture(1000, Color.BLACK);
+      var m = matrix(jp, jp.getColorTable().length);
+      var image = ImageColorizer.create(jp, m, 1);
+      assertFalse(image.isIndexed());
+      assertFalse(image.hasAlpha());
+      assertNull(image.getPalette());
+      assertEquals(3, image.getBytesPerPixel());
+      assertTrue(image.hasSameFormat(ImageColorizer.createBeforeFill(jp, m)));
+      assertColorsMatchTable(jp, m, image, 1);
+   }
+
+   @Test
+   void usedTransparentInteriorIsRgba() throws Exception {
+      var jp = picture(1000, TRANSPARENT);
+      var m = matrix(jp, jp.getColorTable().length);
+      var image = ImageColorizer.create(jp, m, 1);
+      assertFalse(image.isIndexed());
+      assertTrue(image.hasAlpha());
+      assertEquals(4, image.getBytesPerPixel());
+      assertColorsMatchTable(jp, m, image, 1);
+   }
+
+   @Test
+   void unusedTransparentInteriorIsRgb() throws Exception {
+      var jp = picture(1000, TRANSPARENT);
+      var m = matrix(jp, jp.getColorTable().length);
+      for (var i = 0; i < HEIGHT; i++) {
+         for (var j = 0; j < WIDTH; j++) {
+            if (m.get(i, j) == 0) {
+               m.set(i, j, 1);
+            }
+         }
+      }
+      var image = ImageColorizer.create(jp, m, 1);
+      assertFalse(image.hasAlpha());
+      assertEquals(3, image.getBytesPerPixel());
+      // the table alone can't tell
+      var beforeFill = ImageColorizer.createBeforeFill(jp, m);
+      assertTrue(beforeFill.hasAlpha());
+      assertFalse(image.hasSameFormat(beforeFill));
+   }
+
+   @ParameterizedTest
+   @ValueSource(ints = { 1, 2, 3, 8 })
+   void strideSkipsElements(int stride) throws Exception {
+      for (var jp : new JuliaPicture[] { picture(200, Color.BLACK), picture(1000, TRANSPARENT) }) {
+         var m = matrix(jp, jp.getColorTable().length);
+         var image = ImageColorizer.create(jp, m, stride);
+         assertEquals((WIDTH + stride - 1) / stride, image.getWidth());
+         assertEquals((HEIGHT + stride - 1) / stride, image.getHeight());
+         assertColorsMatchTable(jp, m, image, stride);
+      }
+   }
+
+   /**
+    * Colors every row and checks each pixel against the color table's color of
+    * its element
+    */
+   private static void assertColorsMatchTable(JuliaPicture jp, EscapeCountMatrix m, ImageColorizer image,
+         int stride) {
+      var colors = jp.getColorTable();
+      var bytesPerPixel = image.getBytesPerPixel();
+      var samples = new byte[image.getWidth() * bytesPerPixel];
+      for (var y = 0; y < image.getHeight(); y++) {
+         image.colorizeRow(y, samples);
+         for (var x = 0; x < image.getWidth(); x++) {
+            var count = m.get(y * stride, x * stride);
+            var expected = colors[(1 <= count && count < colors.length) ? count : 0];
+            var s = x * bytesPerPixel;
+            int actual;
+            if (image.isIndexed()) {
+               actual = image.getPalette()[samples[s] & 0xFF];
+            } else {
+               var alpha = image.hasAlpha() ? samples[s + 3] & 0xFF : 0xFF;
+               actual = alpha << 24 | (samples[s] & 0xFF) << 16 | (samples[s + 1] & 0xFF) << 8
+                     | (samples[s + 2] & 0xFF);
+            }
+            assertEquals(Integer.toHexString(expected), Integer.toHexString(actual),
+                  "pixel (" + x + ", " + y + ")");
+         }
+      }
+   }
+
+   /**
+    * A matrix whose elements run through the counts from 0 up to, but not
+    * including, counts, and then start again; 0 is the interior
+    */
+   private static EscapeCountMatrix matrix(JuliaPicture jp, int counts) {
+      var m = EscapeCountMatrix.create(HEIGHT, WIDTH, jp.getIterations());
+      for (var i = 0; i < HEIGHT; i++) {
+         for (var j = 0; j < WIDTH; j++) {
+            m.set(i, j, counts == 0 ? 0 : (i * WIDTH + j) % counts);
+         }
+      }
+      return m;
+   }
+
+   private static int distinctColors(int[] colors) {
+      var distinct = new HashSet<Integer>();
+      for (var color : colors) {
+         distinct.add(color);
+      }
+      return distinct.size();
+   }
+
+   private static JuliaPicture picture(int iterations, Color interiorColor) throws Exception {
+      var jw = new JuliaWindow(-2.0, 2.0, WIDTH, -1.5, 1.5, HEIGHT);
+      return new JuliaPicture(new Complex(-0.8, 0.156), iterations, 2, jw, JuliaPicture.getDefaultColors(),
+            interiorColor);
+   }
+}
@@ -0,0 +1,234 @@
+package com.julia.sets.domain.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.julia.sets.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Writes images through an {@link ImageWriteBehind} into a temporary folder
+ * and checks that writes and deletes of a file happen in the order they were
+ * asked for, that an image is served from memory until its file is written,
+ * that a write waits for the disk once {@value #BYTES} bytes are waiting, and
+ * that no {@value ImageWriteBehind#PART_SUFFIX} file is left behind. <br>
+ * <br>
+ * The writer thread is held up by a write of its own while the tests queue
+ * theirs, so nothing is written before the test lets it.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ImageWriteBehindTest {
+
+   private static final int BYTES = 100;
+
+   @TempDir
+   Path folder;
+
+   @Mock
+   private ApplicationProperties props;
+
+   @Spy
+   private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+   @InjectMocks
+   private ImageWriteBehind writeBehind;
+
+   @BeforeEach
+   void start() {
+      when(props.getImageFolder()).thenReturn(folder.toFile());
+      when(props.getImageWriteBehindBytes()).thenReturn(BYTES);
+   }
+
+   @AfterEach
+   void shutdown() throws Exception {
+      writeBehind.shutdown();
+      assertEquals(List.of(), files(ImageWriteBehind.PART_SUFFIX));
+   }
+
+   @Test
+   void imageIsServedUntilWritten() throws Exception {
+      writeBehind.start();
+      var release = holdWriter(0);
+      writeBehind.write("fingerprint", "a.png", image(10));
+
+      assertArrayEquals(image(10), writeBehind.get("a.png").getInputStream().readAllBytes());
+      assertEquals("a.png", writeBehind.find(file -> file.getName().startsWith("a")));
+      assertNull(writeBehind.find(file -> file.getName().startsWith("b")));
+      assertEquals(1, pending());
+      assertFalse(Files.exists(folder.resolve("a.png")));
+
+      release.countDown();
+      awaitWritten();
+      assertNull(writeBehind.get("a.png"));
+      assertEquals(0, pending());
+      assertArrayEquals(image(10), Files.readAllBytes(folder.resolve("a.png")));
+   }
+
+   @Test
+   void writesAndDeletesInOrder() throws Exception {
+      writeBehind.start();
+      var release = holdWriter(0);
+      writeBehind.write("first", "replaced.png", image(10));
+      writeBehind.write("second", "replaced.png", image(20));
+      writeBehind.write("written", "deleted.png", image(10));
+      writeBehind.delete("deleted.png");
+      writeBehind.delete("rewritten.png");
+      writeBehind.write("rewritten", "rewritten.png", image(30));
+
+      // later writes run after the images queued before them
+      var existed = new ArrayList<Boolean>();
+      writeBehind.writeIfRoom(0, () -> existed.add(Files.exists(folder.resolve("replaced.png"))));
+
+      assertArrayEquals(image(20), writeBehind.get("replaced.png").getInputStream().readAllBytes());
+      assertNull(writeBehind.get("deleted.png"));
+      release.countDown();
+      awaitWritten();
+
+      assertEquals(List.of(true), existed);
+      assertArrayEquals(image(20), Files.readAllBytes(folder.resolve("replaced.png")));
+      assertFalse(Files.exists(folder.resolve("deleted.png")));
+      assertArrayEquals(image(30), Files.readAllBytes(folder.resolve("rewritten.png")));
+   }
+
+   @Test
+   void writeWaitsOnceBytesAreUsedUp() throws Exception {
+      writeBehind.start();
+      var release = holdWriter(BYTES);
+      assertFalse(writeBehind.writeIfRoom(1, () -> fail("skipped write ran")));
+
+      var waiting = new Thread(() -> writeBehind.write("fingerprint", "waited.png", image(10)));
+      waiting.setDaemon(true);
+      waiting.start();
+      waitFor(() -> waiting.getState() == Thread.State.WAITING);
+      // queued behind the writer all the same
+      assertArrayEquals(image(10), writeBehind.get("waited.png").getInputStream().readAllBytes());
+      assertEquals(1, meterRegistry.counter(ImageWriteBehind.SYNCHRONOUS_METRIC).count());
+
+      release.countDown();
+      waiting.join(TimeUnit.SECONDS.toMillis(10));
+      assertFalse(waiting.isAlive(), "still waiting");
+      // written by the time the write returns
+      assertArrayEquals(image(10), Files.readAllBytes(folder.resolve("waited.png")));
+   }
+
+   @Test
+   void imageLargerThanBytesOnlyWaitsForOthers() throws Exception {
+      writeBehind.start();
+      var release = holdWriter(0);
+      writeBehind.write("fingerprint", "large.png", image(10 * BYTES));
+      assertEquals(0, meterRegistry.counter(ImageWriteBehind.SYNCHRONOUS_METRIC).count());
+      release.countDown();
+      awaitWritten();
+      assertArrayEquals(image(10 * BYTES), Files.readAllBytes(folder.resolve("large.png")));
+   }
+
+   @Test
+   void leftoverPartsAreDeletedAtStart() throws Exception {
+      Files.write(folder.resolve("crashed.png" + ImageWriteBehind.PART_SUFFIX), image(10));
+      Files.write(folder.resolve("kept.png"), image(10));
+      writeBehind.start();
+      assertEquals(List.of("kept.png"), files(""));
+   }
+
+   @Test
+   void failedWriteLeavesNoPart() throws Exception {
+      writeBehind.start();
+      // a folder that isn't empty can't be replaced by the image
+      Files.createDirectories(folder.resolve("taken.png").resolve("inside"));
+      writeBehind.write("fingerprint", "taken.png", image(10));
+      awaitWritten();
+      assertNull(writeBehind.get("taken.png"));
+      assertTrue(Files.isDirectory(folder.resolve("taken.png")));
+   }
+
+   /**
+    * Queues a write that holds the writer thread, and the bytes, until the
+    * latch returned is counted down
+    */
+   private CountDownLatch holdWriter(long bytes) throws InterruptedException {
+      var started = new CountDownLatch(1);
+      var release = new CountDownLatch(1);
+      assertTrue(writeBehind.writeIfRoom(bytes, () -> {
+         started.countDown();
+         try {
+            release.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }));
+      assertTrue(started.await(10, TimeUnit.SECONDS), "the writer didn't start");
+      return release;
+   }
+
+   /**
+    * Waits for everything queued so far to be written
+    */
+   private void awaitWritten() throws InterruptedException {
+      var written = new CountDownLatch(1);
+      assertTrue(writeBehind.writeIfRoom(0, written::countDown));
+      assertTrue(written.await(10, TimeUnit.SECONDS), "the writes didn't finish");
+   }
+
+   private double pending() {
+      return meterRegistry.get(ImageWriteBehind.PENDING_METRIC).gauge().value();
+   }
+
+   private List<String> files(String suffix) throws Exception {
+      try (var list = Files.list(folder)) {
+         return list.map(file -> file.getFileName().toString())
+               .filter(name -> name.endsWith(suffix))
+               .sorted()
+               .collect(Collectors.toList());
+      }
+   }
+
+   private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+      var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (!condition.getAsBoolean()) {
+         if (System.nanoTime() > deadline) {
+            fail("timed out");
+         }
+         Thread.sleep(1);
+      }
+   }
+
+   /**
+    * Stands in for an encoded image of the length
+    */
+   private static byte[] image(int length) {
+      var bytes = new byte[length];
+      Arrays.fill(bytes, (byte) length);
+      return bytes;
+   }
+}
@@ -0,0 +1,183 @@
+package com.julia.sets.domain.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.julia.sets.config.ApplicationProperties;
+import com.julia.sets.domain.matrix.EscapeCountMatrix;
+import com.julia.sets.domain.matrix.RenderCancellation;
+import com.julia.sets.domain.matrix.RenderExecutor;
+import com.julia.sets.domain.matrix.ScalarEscapeTimeKernel;
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Encodes pictures large enough to be split into several bands and reads them
+ * back with {@link ImageIO}, which has to see exactly the colors of the color
+ * table, whichever kind of PNG the picture is written as. A {@link PngStream}
+ * fed the rows of a fill out of order has to write the same bytes as encoding
+ * the finished matrix.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@SpringJUnitConfig(classes = { ApplicationProperties.class, RenderExecutor.class, PngEncoder.class })
+@TestPropertySource(properties = { "pngCompressionLevel=6", "pngFastPixels=8388608" })
+class PngEncoderTest {
+
+   @Autowired
+   private PngEncoder pngEncoder;
+
+   @Test
+   void indexedImageRoundTrips() throws Exception {
+      // 200 iterations never need more than 256 colors
+      var jp = picture(200, Color.BLACK, 1024, 768);
+      var image = ImageColorizer.create(jp, fill(jp), 1);
+      assertTrue(image.isIndexed());
+      assertRoundTrips(jp, image, 1);
+   }
+
+   @Test
+   void rgbImageRoundTrips() throws Exception {
+      var jp = picture(1000, Color.BLACK, 640, 480);
+      var image = ImageColorizer.create(jp, fill(jp), 1);
+      assertFalse(image.isIndexed());
+      assertFalse(image.hasAlpha());
+      assertRoundTrips(jp, image, 1);
+   }
+
+   @Test
+   void rgbaImageRoundTrips() throws Exception {
+      var jp = picture(1000, new Color(0, 0, 0, 0), 640, 480);
+      var image = ImageColorizer.create(jp, fill(jp), 1);
+      assertFalse(image.isIndexed());
+      assertTrue(image.hasAlpha());
+      assertRoundTrips(jp, image, 1);
+   }
+
+   @Test
+   void transparentIndexedImageRoundTrips() throws Exception {
+      var jp = picture(200, new Color(0, 0, 0, 0), 1024, 768);
+      var image = ImageColorizer.create(jp, fill(jp), 1);
+      assertTrue(image.isIndexed());
+      assertTrue(image.hasAlpha());
+      assertRoundTrips(jp, image, 1);
+   }
+
+   @Test
+   void previewRoundTrips() throws Exception {
+      // an odd size leaves a partial last row and column of samples
+      var jp = picture(1000, Color.BLACK, 1281, 961);
+      var image = ImageColorizer.create(jp, fill(jp), 2);
+      assertEquals(641, image.getWidth());
+      assertEquals(481, image.getHeight());
+      assertRoundTrips(jp, image, 2);
+   }
+
+   @Test
+   void streamedIndexedImageMatchesEncode() throws Exception {
+      assertStreamMatchesEncode(picture(200, Color.BLACK, 1024, 768));
+   }
+
+   @Test
+   void streamedRgbImageMatchesEncode() throws Exception {
+      assertStreamMatchesEncode(picture(1000, Color.BLACK, 640, 480));
+   }
+
+   @Test
+   void streamedRgbaImageMatchesEncode() throws Exception {
+      assertStreamMatchesEncode(picture(1000, new Color(0, 0, 0, 0), 640, 480));
+   }
+
+   private void assertStreamMatchesEncode(JuliaPicture jp) throws Exception {
+      var filled = fill(jp);
+      var stream = pngEncoder.stream(jp, new RenderCancellation());
+      var matrix = EscapeCountMatrix.create(filled.getRows(), filled.getColumns(), jp.getIterations());
+      stream.fillStarted(matrix);
+      // bottom up, so every band waits for the row above it until the very end
+      for (var row = matrix.getRows() - 1; row >= 0; row--) {
+         for (var column = 0; column < matrix.getColumns(); column++) {
+            matrix.set(row, column, filled.get(row, column));
+         }
+         stream.rowComplete(matrix, row);
+      }
+      var streamed = stream.finish(matrix);
+
+      var encoded = pngEncoder.encode(ImageColorizer.create(jp, filled, 1), new RenderCancellation());
+      assertArrayEquals(encoded, streamed);
+   }
+
+   private void assertRoundTrips(JuliaPicture jp, ImageColorizer image, int stride) throws Exception {
+      var png = pngEncoder.encode(image, new RenderCancellation());
+      assertTrue(countChunks(png, "IDAT") > 1, "the image should be deflated in several bands");
+
+      var decoded = ImageIO.read(new ByteArrayInputStream(png));
+      assertEquals(image.getWidth(), decoded.getWidth());
+      assertEquals(image.getHeight(), decoded.getHeight());
+
+      var matrix = fill(jp);
+      var colors = jp.getColorTable();
+      for (var y = 0; y < decoded.getHeight(); y++) {
+         for (var x = 0; x < decoded.getWidth(); x++) {
+            var count = matrix.get(y * stride, x * stride);
+            var expected = colors[(1 <= count && count < colors.length) ? count : 0];
+            var actual = decoded.getRGB(x, y);
+            if (expected != actual) {
+               assertEquals(Integer.toHexString(expected), Integer.toHexString(actual),
+                     "pixel (" + x + ", " + y + ")");
+            }
+         }
+      }
+   }
+
+   private static JuliaPicture picture(int iterations, Color interiorColor, int width, int height)
+         throws Exception {
+      var jw = new JuliaWindow(-2.0, 2.0, width, -1.5, 1.5, height);
+      return new JuliaPicture(new Complex(-0.8, 0.156), iterations, 2, jw, JuliaPicture.getDefaultColors(),
+            interiorColor);
+   }
+
+   private static EscapeCountMatrix fill(JuliaPicture jp) {
+      var jw = jp.getJuliaWindow();
+      var kernel = new ScalarEscapeTimeKernel(jp, true);
+      var matrix = EscapeCountMatrix.create(jw.getPictureHeight(), jw.getPictureWidth(), jp.getIterations());
+      var xValues = kernel.getXValues(jw);
+      var yValues = kernel.getYValues(jw);
+      for (var row = 0; row < matrix.getRows(); row++) {
+         kernel.fillRow(matrix, row, xValues, 0, matrix.getColumns(), yValues[matrix.getRows() - row - 1]);
+      }
+      return matrix;
+   }
+
+   private static int countChunks(byte[] png, String type) throws IOException {
+      var in = new DataInputStream(new ByteArrayInputStream(png));
+      in.skipBytes(8);
+      var count = 0;
+      while (in.available() > 0) {
+         var length = in.readInt();
+         var chunkType = new String(in.readNBytes(4), StandardCharsets.US_ASCII);
+         if (chunkType.equals(type)) {
+            count++;
+         }
+         in.skipBytes(length + 4);
+      }
+      return count;
+   }
+}
@@ -0,0 +1,225 @@
+package com.julia.sets.domain.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sends callers to a {@link SingleFlight} while a call for their key is
+ * blocked, and checks that they share its result or exception, and that the key
+ * is forgotten once the call is done. <br>
+ * <br>
+ * The call is only let go once every waiting caller's thread is parked, so the
+ * callers can't arrive after it finished and run calls of their own.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class SingleFlightTest {
+
+   private static final String KEY = "tile";
+
+   private static final int WAITERS = 4;
+
+   private final SingleFlight<String> singleFlight = new SingleFlight<>();
+
+   private final AtomicInteger calls = new AtomicInteger();
+
+   /**
+    * Counted down by the leader's call when it starts
+    */
+   private final CountDownLatch started = new CountDownLatch(1);
+
+   @Test
+   void waitersShareResult() throws Exception {
+      var release = new CountDownLatch(1);
+      var leader = new Caller(() -> {
+         calls.incrementAndGet();
+         started.countDown();
+         await(release);
+         return "drawn";
+      });
+      var waiters = startWaiters(leader);
+
+      release.countDown();
+      assertEquals("drawn", leader.join());
+      for (var waiter : waiters) {
+         assertSame(leader.result.get(), waiter.join());
+      }
+      assertEquals(1, calls.get());
+   }
+
+   @Test
+   void waitersShareException() throws Exception {
+      var release = new CountDownLatch(1);
+      var failure = new ImageFileServiceException(ImageFileServiceException.IMAGE_IO_EXCEPTION);
+      var leader = new Caller(() -> {
+         calls.incrementAndGet();
+         started.countDown();
+         await(release);
+         throw failure;
+      });
+      var waiters = startWaiters(leader);
+
+      release.countDown();
+      assertSame(failure, leader.joinException());
+      for (var waiter : waiters) {
+         assertSame(failure, waiter.joinException());
+      }
+      assertEquals(1, calls.get());
+   }
+
+   @Test
+   void waitersShareRuntimeException() throws Exception {
+      var release = new CountDownLatch(1);
+      var failure = new IllegalStateException("failed on purpose");
+      var leader = new Caller(() -> {
+         started.countDown();
+         await(release);
+         throw failure;
+      });
+      var waiters = startWaiters(leader);
+
+      release.countDown();
+      assertSame(failure, leader.joinException());
+      for (var waiter : waiters) {
+         assertSame(failure, waiter.joinException());
+      }
+   }
+
+   @Test
+   void waitersAreReleasedByError() throws Exception {
+      var release = new CountDownLatch(1);
+      var leader = new Caller(() -> {
+         started.countDown();
+         await(release);
+         throw new AssertionError("failed on purpose");
+      });
+      var waiters = startWaiters(leader);
+
+      release.countDown();
+      assertTrue(leader.joinException() instanceof AssertionError);
+      for (var waiter : waiters) {
+         var e = waiter.joinException();
+         assertTrue(e instanceof ImageFileServiceException, "waiter got " + e);
+         assertEquals(ImageFileServiceException.MATRIX_THREAD_FAILED, e.getMessage());
+      }
+   }
+
+   @Test
+   void keyIsForgottenOnceCallIsDone() throws Exception {
+      assertEquals("1", singleFlight.execute(KEY, () -> Integer.toString(calls.incrementAndGet())));
+      assertEquals("2", singleFlight.execute(KEY, () -> Integer.toString(calls.incrementAndGet())));
+      assertThrows(ImageFileServiceException.class, () -> singleFlight.execute(KEY, () -> {
+         throw new ImageFileServiceException(ImageFileServiceException.IMAGE_IO_EXCEPTION);
+      }));
+      assertEquals("3", singleFlight.execute(KEY, () -> Integer.toString(calls.incrementAndGet())));
+   }
+
+   @Test
+   void otherKeysDoNotWait() throws Exception {
+      var release = new CountDownLatch(1);
+      var leader = new Caller(() -> {
+         started.countDown();
+         await(release);
+         return "drawn";
+      });
+      startWaiters(leader);
+      assertEquals("other", singleFlight.execute("other", () -> "other"));
+      release.countDown();
+      leader.join();
+   }
+
+   /**
+    * Starts the leader, waits for its call to start, then starts callers for
+    * the same key and waits for them to park
+    */
+   private List<Caller> startWaiters(Caller leader) throws InterruptedException {
+      leader.thread.start();
+      assertTrue(started.await(10, TimeUnit.SECONDS), "the leader's call didn't start");
+
+      var waiters = new ArrayList<Caller>();
+      for (var i = 0; i < WAITERS; i++) {
+         var waiter = new Caller(() -> {
+            calls.incrementAndGet();
+            return "ran its own call";
+         });
+         waiter.thread.start();
+         waiters.add(waiter);
+      }
+      for (var waiter : waiters) {
+         waitFor(() -> waiter.thread.getState() == Thread.State.WAITING);
+      }
+      return waiters;
+   }
+
+   private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+      var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (!condition.getAsBoolean()) {
+         if (System.nanoTime() > deadline) {
+            fail("timed out");
+         }
+         Thread.sleep(1);
+      }
+   }
+
+   private static void await(CountDownLatch latch) {
+      try {
+         latch.await();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * A thread calling {@link SingleFlight#execute(String, SingleFlight.Call)}
+    * for {@link #KEY}
+    */
+   private class Caller {
+
+      final AtomicReference<String> result = new AtomicReference<>();
+
+      final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+      final Thread thread;
+
+      Caller(SingleFlight.Call<String> call) {
+         thread = new Thread(() -> {
+            try {
+               result.set(singleFlight.execute(KEY, call));
+            } catch (ImageFileServiceException | RuntimeException | Error e) {
+               exception.set(e);
+            }
+         });
+         // a caller left waiting mustn't keep the tests running
+         thread.setDaemon(true);
+      }
+
+      String join() throws InterruptedException {
+         thread.join(TimeUnit.SECONDS.toMillis(10));
+         assertNull(exception.get());
+         return result.get();
+      }
+
+      Throwable joinException() throws InterruptedException {
+         thread.join(TimeUnit.SECONDS.toMillis(10));
+         assertFalse(thread.isAlive(), "still waiting");
+         return exception.get();
+      }
+   }
+}
@@ -0,0 +1,109 @@
+package com.julia.sets.presentation.colors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+
+import org.junit.jupiter.api.Test;
+
+import com.julia.sets.presentation.complex.plane.Complex;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Asks {@link ColorPalette}s for their color tables and checks that palettes
+ * with the same base colors, size and interior color share one table, that
+ * any difference gets a table of its own, and that the tables hold the
+ * gradient between the base colors behind the interior color.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class ColorPaletteTest {
+
+   private static final Color[] COLORS = { Color.BLUE, Color.WHITE, Color.RED };
+
+   @Test
+   void tableHoldsInteriorThenGradient() throws Exception {
+      var table = new ColorPalette(COLORS, 100).getColorTable(Color.BLACK);
+      assertEquals(101, table.length);
+      assertEquals(Color.BLACK.getRGB(), table[0]);
+      assertEquals(Color.BLUE.getRGB(), table[1]);
+      assertEquals(Color.WHITE.getRGB(), table[50]);
+      assertEquals(Color.RED.getRGB(), table[100]);
+      // lighter shades of blue, then darker shades of red
+      assertEquals(0xFF0505FF, table[2]);
+      assertEquals(0xFFFFFAFA, table[51]);
+   }
+
+   @Test
+   void filledPaletteMatchesTable() throws Exception {
+      var palette = new ColorPalette(COLORS, 1000);
+      var table = palette.getColorTable(Color.BLACK);
+      var filled = palette.getFilledColorPalette();
+      assertEquals(table.length - 1, filled.size());
+      for (var a = 1; a < table.length; a++) {
+         assertEquals(table[a], filled.get(a - 1).getRGB());
+      }
+   }
+
+   @Test
+   void samePaletteSharesTable() throws Exception {
+      var table = new ColorPalette(COLORS, 1000).getColorTable(Color.BLACK);
+      // equal colors in another array
+      var colors = new Color[] { new Color(0, 0, 255), new Color(255, 255, 255), new Color(255, 0, 0) };
+      assertSame(table, new ColorPalette(colors, 1000).getColorTable(new Color(0, 0, 0)));
+
+      var jw = new JuliaWindow(-1.5, 1.5, 10, -1.5, 1.5, 10);
+      var first = new JuliaPicture(new Complex(-0.4, 0.6), 1000, 2, jw, COLORS, Color.BLACK);
+      var second = new JuliaPicture(new Complex(0.285, 0.01), 1000, 4, jw, colors, Color.BLACK);
+      assertSame(table, first.getColorTable());
+      assertSame(table, second.getColorTable());
+   }
+
+   @Test
+   void anyDifferenceGetsOwnTable() throws Exception {
+      var table = new ColorPalette(COLORS, 1000).getColorTable(Color.BLACK);
+
+      assertEquals(1000, new ColorPalette(COLORS, 999).getColorTable(Color.BLACK).length);
+      var transparent = new ColorPalette(COLORS, 1000).getColorTable(new Color(0, 0, 0, 0));
+      assertNotSame(table, transparent);
+      assertEquals(0, transparent[0]);
+      var green = new Color[] { Color.BLUE, Color.GREEN, Color.RED };
+      assertNotEquals(table[500], new ColorPalette(green, 1000).getColorTable(Color.BLACK)[500]);
+   }
+
+   @Test
+   void changedColorsDoNotReachCachedTable() throws Exception {
+      var colors = COLORS.clone();
+      var palette = new ColorPalette(colors, 100);
+      var table = palette.getColorTable(Color.BLACK);
+      var copy = table.clone();
+
+      colors[1] = Color.GREEN;
+      var changed = palette.getColorTable(Color.BLACK);
+      assertNotSame(table, changed);
+      assertEquals(Color.GREEN.getRGB(), changed[50]);
+      assertArrayEquals(copy, table);
+      assertSame(table, new ColorPalette(COLORS, 100).getColorTable(Color.BLACK));
+   }
+
+   @Test
+   void smallPaletteOfManyColors() throws Exception {
+      // there may be fewer colors than base colors, and escape counts past the
+      // end of the table are interior
+      var colors = new Color[] { Color.BLUE, Color.WHITE, Color.RED, Color.GREEN, Color.YELLOW };
+      for (var size = 1; size <= 10; size++) {
+         var table = new ColorPalette(colors, size).getColorTable(Color.BLACK);
+         assertTrue(table.length <= size + 1, table.length + " colors for " + size);
+         assertEquals(Color.BLACK.getRGB(), table[0]);
+         assertEquals(Color.BLUE.getRGB(), table[1]);
+      }
+   }
+}
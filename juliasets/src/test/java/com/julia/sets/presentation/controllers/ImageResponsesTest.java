@@ -0,0 +1,219 @@
+package com.julia.sets.presentation.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.julia.sets.domain.services.CachedImage;
+
+/**
+ * Checks the statuses and headers {@link ImageResponses} answers with: 200 for
+ * a whole image, 206 for a single byte range, 304 when the browser already has
+ * the image and 416 for a range past its end.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class ImageResponsesTest {
+
+   private static final byte[] DATA = data(1000);
+
+   private static final CachedImage IMAGE = new CachedImage("abc123", "1.png", ByteBuffer.wrap(DATA));
+
+   private static final String ETAG = "\"abc123\"";
+
+   @Test
+   void sendsWholeImage() throws Exception {
+      var response = send(request("GET"));
+
+      assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+      assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+      assertEquals(ImageResponses.IMMUTABLE, response.getHeader(HttpHeaders.CACHE_CONTROL));
+      assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+      assertEquals(MediaType.IMAGE_PNG_VALUE, response.getContentType());
+      assertEquals(DATA.length, response.getContentLengthLong());
+      assertArrayEquals(DATA, response.getContentAsByteArray());
+   }
+
+   @Test
+   void sendsHeadersOnlyForHead() throws Exception {
+      var response = send(request("HEAD"));
+
+      assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+      assertEquals(DATA.length, response.getContentLengthLong());
+      assertEquals(0, response.getContentAsByteArray().length);
+   }
+
+   @Test
+   void sendsNotModifiedForMatchingETag() throws Exception {
+      for (var ifNoneMatch : new String[] { ETAG, "W/" + ETAG, "\"other\", " + ETAG, "*" }) {
+         var request = request("GET");
+         request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+         var response = send(request);
+
+         assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus(), ifNoneMatch);
+         assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+         assertEquals(ImageResponses.IMMUTABLE, response.getHeader(HttpHeaders.CACHE_CONTROL));
+         assertEquals(0, response.getContentAsByteArray().length);
+      }
+   }
+
+   @Test
+   void sendsWholeImageForOtherETag() throws Exception {
+      var request = request("GET");
+      request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+      var response = send(request);
+
+      assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+      assertArrayEquals(DATA, response.getContentAsByteArray());
+   }
+
+   @Test
+   void sendsPartialContentForRange() throws Exception {
+      assertPartial("bytes=10-19", 10, 20);
+      // suffix range
+      assertPartial("bytes=-100", 900, 1000);
+      // open-ended and past the end ranges stop at the end
+      assertPartial("bytes=990-", 990, 1000);
+      assertPartial("bytes=500-5000", 500, 1000);
+   }
+
+   @Test
+   void sendsPartialContentWhenIfRangeMatches() throws Exception {
+      var request = request("GET");
+      request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+      request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+      var response = send(request);
+
+      assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+      assertArrayEquals(Arrays.copyOfRange(DATA, 0, 10), response.getContentAsByteArray());
+   }
+
+   @Test
+   void sendsWholeImageWhenRangeDoesNotApply() throws Exception {
+      // another version of the image, several ranges, and a header that can't
+      // be read
+      String[][] headers = { { "bytes=0-9", "\"old\"" }, { "bytes=0-9, 20-29", null }, { "lines=1-2", null } };
+      for (var header : headers) {
+         var request = request("GET");
+         request.addHeader(HttpHeaders.RANGE, header[0]);
+         if (header[1] != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, header[1]);
+         }
+         var response = send(request);
+
+         assertEquals(HttpServletResponse.SC_OK, response.getStatus(), header[0]);
+         assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+         assertArrayEquals(DATA, response.getContentAsByteArray());
+      }
+   }
+
+   @Test
+   void sendsRangeNotSatisfiableForRangePastEnd() throws Exception {
+      for (var range : new String[] { "bytes=1000-", "bytes=5000-6000" }) {
+         var request = request("GET");
+         request.addHeader(HttpHeaders.RANGE, range);
+         var response = send(request);
+
+         assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus(), range);
+         assertEquals("bytes */1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+         assertEquals(0, response.getContentAsByteArray().length);
+      }
+   }
+
+   @Test
+   void sendsFileRange(@TempDir Path folder) throws Exception {
+      var file = writeFile(folder);
+      var eTag = ImageResponses.fileTag(file);
+      var request = request("GET");
+      request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+      var response = new MockHttpServletResponse();
+      ImageResponses.sendFile(request, response, file, eTag, ImageResponses.REVALIDATE);
+
+      assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+      assertEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+      assertEquals(ImageResponses.REVALIDATE, response.getHeader(HttpHeaders.CACHE_CONTROL));
+      assertEquals("bytes 100-199/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+      assertArrayEquals(Arrays.copyOfRange(DATA, 100, 200), response.getContentAsByteArray());
+   }
+
+   @Test
+   void leavesFileToSendfile(@TempDir Path folder) throws Exception {
+      var file = writeFile(folder);
+      var request = request("GET");
+      request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+      request.addHeader(HttpHeaders.RANGE, "bytes=-10");
+      var response = new MockHttpServletResponse();
+      ImageResponses.sendFile(request, response, file, ImageResponses.fileTag(file), ImageResponses.REVALIDATE);
+
+      assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+      assertEquals(file.getCanonicalPath(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+      assertEquals(990L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+      assertEquals(1000L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+      assertEquals(0, response.getContentAsByteArray().length);
+   }
+
+   @Test
+   void fileTagChangesWithFile(@TempDir Path folder) throws Exception {
+      var file = writeFile(folder);
+      var eTag = ImageResponses.fileTag(file);
+      assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+
+      Files.write(file.toPath(), data(1001));
+      assertNotEquals(eTag, ImageResponses.fileTag(file));
+   }
+
+   private static void assertPartial(String range, int start, int end) throws Exception {
+      var request = request("GET");
+      request.addHeader(HttpHeaders.RANGE, range);
+      var response = send(request);
+
+      assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus(), range);
+      assertEquals("bytes " + start + "-" + (end - 1) + "/" + DATA.length,
+            response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+      assertEquals(end - start, response.getContentLengthLong(), range);
+      assertArrayEquals(Arrays.copyOfRange(DATA, start, end), response.getContentAsByteArray(), range);
+   }
+
+   private static MockHttpServletRequest request(String method) {
+      return new MockHttpServletRequest(method, "/images/1.png");
+   }
+
+   private static MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+      var response = new MockHttpServletResponse();
+      ImageResponses.sendImage(request, response, IMAGE, ImageResponses.IMMUTABLE);
+      return response;
+   }
+
+   private static File writeFile(Path folder) throws Exception {
+      var file = folder.resolve("1.png").toFile();
+      Files.write(file.toPath(), DATA);
+      return file;
+   }
+
+   private static byte[] data(int length) {
+      var data = new byte[length];
+      for (var i = 0; i < length; i++) {
+         data[i] = (byte) (i * 31 + 7);
+      }
+      return data;
+   }
+}
@@ -0,0 +1,107 @@
+package com.julia.sets.presentation.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.julia.sets.domain.services.CachedImage;
+import com.julia.sets.domain.services.ImageFileService;
+import com.julia.sets.presentation.complex.plane.JuliaPicture;
+import com.julia.sets.presentation.complex.plane.JuliaWindow;
+
+/**
+ * Asks the {@link TileController} for tiles and checks the windows it draws:
+ * zoom 0 covers the whole square, neighboring tiles share their edges exactly
+ * down to {@value TileController#MAX_TILE_ZOOM}, and tiles outside the
+ * quadtree, or of a Julia number that can't be read, are not found without
+ * anything being drawn.
+ *
+ * @author Dan Sievewright
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class TileControllerTest {
+
+   private static final String C = "-0.4,0.6";
+
+   @Mock
+   private ImageFileService imageFileService;
+
+   @InjectMocks
+   private TileController tileController;
+
+   @Test
+   void zoomZeroCoversWholeSquare() throws Exception {
+      var jw = tileWindow(0, 0, 0);
+      assertEquals(-TileController.TILE_EXTENT, jw.getMinXValue());
+      assertEquals(TileController.TILE_EXTENT, jw.getMaxXValue());
+      assertEquals(-TileController.TILE_EXTENT, jw.getMinYValue());
+      assertEquals(TileController.TILE_EXTENT, jw.getMaxYValue());
+      assertEquals(TileController.TILE_SIZE, jw.getPictureWidth());
+      assertEquals(TileController.TILE_SIZE, jw.getPictureHeight());
+   }
+
+   @ParameterizedTest
+   @CsvSource({ "1, 0, 0", "3, 5, 2", "17, 65535, 70000", "40, 549755813887, 1", "40, 123456789012, 98765432109" })
+   void neighboringTilesShareEdges(int zoom, long x, long y) throws Exception {
+      var tile = tileWindow(zoom, x, y);
+      var right = tileWindow(zoom, x + 1, y);
+      var below = tileWindow(zoom, x, y + 1);
+
+      var side = Math.scalb(2 * TileController.TILE_EXTENT, -zoom);
+      assertEquals(side, tile.getMaxXValue() - tile.getMinXValue());
+      assertEquals(side, tile.getMaxYValue() - tile.getMinYValue());
+      assertEquals(tile.getMaxXValue(), right.getMinXValue());
+      assertEquals(tile.getMinYValue(), below.getMaxYValue());
+      // numbered from the top left corner
+      assertEquals(-TileController.TILE_EXTENT + x * side, tile.getMinXValue());
+      assertEquals(TileController.TILE_EXTENT - y * side, tile.getMaxYValue());
+   }
+
+   @ParameterizedTest
+   @CsvSource({ "-1, 0, 0", "41, 0, 0", "0, 1, 0", "0, 0, 1", "3, 8, 0", "3, 0, -1", "40, 1099511627776, 0" })
+   void tileOutsideQuadtreeIsNotFound(int zoom, long x, long y) throws Exception {
+      assertThrows(FileNotFoundException.class, () -> tileController.getTile(C, zoom, x, y, 100, 2,
+            new MockHttpServletRequest(), new MockHttpServletResponse()));
+      verify(imageFileService, never()).getTile(any());
+   }
+
+   @ParameterizedTest
+   @ValueSource(strings = { "-0.4", "-0.4,0.6,1", "a,b", "NaN,0", "0,Infinity" })
+   void unreadableJuliaNumberIsNotFound(String c) throws Exception {
+      assertThrows(FileNotFoundException.class, () -> tileController.getTile(c, 0, 0, 0, 100, 2,
+            new MockHttpServletRequest(), new MockHttpServletResponse()));
+      verify(imageFileService, never()).getTile(any());
+   }
+
+   /**
+    * Asks for a tile and returns the window of the picture drawn for it
+    */
+   private JuliaWindow tileWindow(int zoom, long x, long y) throws Exception {
+      var picture = ArgumentCaptor.forClass(JuliaPicture.class);
+      when(imageFileService.getTile(picture.capture()))
+            .thenAnswer(invocation -> new CachedImage("fingerprint", null, ByteBuffer.wrap(new byte[1])));
+      tileController.getTile(C, zoom, x, y, 100, 2, new MockHttpServletRequest("GET", ""),
+            new MockHttpServletResponse());
+      return picture.getValue().getJuliaWindow();
+   }
+}